@@ -51,6 +51,13 @@ public interface DataValueAuditStore
      */
     void addDataValueAudit( DataValueAudit dataValueAudit );
 
+    /**
+     * Adds DataValueAudits in batched inserts.
+     *
+     * @param dataValueAudits the DataValueAudits to add.
+     */
+    void addDataValueAudits( List<DataValueAudit> dataValueAudits );
+
     /**
      * Deletes all data value audits for the given organisation unit.
      *
@@ -62,6 +62,11 @@ public class FileResource
      */
     private String contentMd5;
 
+    /**
+     * SHA-256 digest of content, used to find identical stored content.
+     */
+    private String contentSha256;
+
     /**
      * Key used for content storage at external location.
      */
@@ -165,6 +170,16 @@ public class FileResource
         this.contentMd5 = contentMd5;
     }
 
+    public String getContentSha256()
+    {
+        return contentSha256;
+    }
+
+    public void setContentSha256( String contentSha256 )
+    {
+        this.contentSha256 = contentSha256;
+    }
+
     public String getStorageKey()
     {
         return storageKey;
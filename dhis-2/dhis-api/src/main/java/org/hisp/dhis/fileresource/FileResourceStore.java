@@ -0,0 +1,68 @@
+package org.hisp.dhis.fileresource;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.IdentifiableObjectStore;
+
+import java.util.List;
+
+public interface FileResourceStore
+    extends IdentifiableObjectStore<FileResource>
+{
+    /**
+     * Returns the storage keys of file resources in the given domain with the
+     * given content hash and length, i.e. the keys under which identical
+     * content may already be stored.
+     *
+     * @param contentSha256 the SHA-256 hash of the content.
+     * @param contentLength the length of the content.
+     * @param domain the FileResourceDomain.
+     * @return a list of distinct storage keys.
+     */
+    List<String> getStorageKeys( String contentSha256, long contentLength, FileResourceDomain domain );
+
+    /**
+     * Locks the file resources referencing the given storage key until the end
+     * of the current transaction. Saving and deleting file resources which
+     * share stored content must hold this lock, as the storage key is not
+     * unique and the database does not guard the shared content.
+     *
+     * @param storageKey the storage key.
+     * @return the number of file resources locked.
+     */
+    int lockStorageKey( String storageKey );
+
+    /**
+     * Returns the number of file resources referencing the given storage key.
+     *
+     * @param storageKey the storage key.
+     * @return the number of file resources.
+     */
+    int getCountByStorageKey( String storageKey );
+}
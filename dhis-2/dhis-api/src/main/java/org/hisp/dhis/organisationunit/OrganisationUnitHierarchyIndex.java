@@ -0,0 +1,372 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Immutable index of the organisation unit hierarchy based on interval
+ * encoding. Each organisation unit is numbered in pre-order, and the subtree
+ * of an organisation unit is the contiguous range between its own number and
+ * the highest number among its descendants. Checking whether an organisation
+ * unit is a descendant of another is hence a comparison of two integers, and
+ * the descendants of an organisation unit are a range in an array.
+ *
+ * The index holds primitive arrays only and is safe to share between threads.
+ * The version identifies the state of the hierarchy the index was built from.
+ * Organisation units which are not connected to a root, for instance as a
+ * result of a cyclic hierarchy, are not part of the index.
+ */
+public final class OrganisationUnitHierarchyIndex
+{
+    private static final int NOT_FOUND = -1;
+
+    private final long version;
+
+    /**
+     * Sorted organisation unit identifiers.
+     */
+    private final long[] ids;
+
+    /**
+     * Parent identifiers by position in {@link #ids}, 0 for roots.
+     */
+    private final long[] parentIds;
+
+    /**
+     * Pre-order numbers by position in {@link #ids}, -1 if not indexed.
+     */
+    private final int[] pre;
+
+    /**
+     * Highest pre-order number in the subtree by position in {@link #ids}.
+     */
+    private final int[] last;
+
+    /**
+     * Organisation unit identifiers in pre-order.
+     */
+    private final long[] preOrderIds;
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    /**
+     * Builds an index from the given parent-child relationships, where the
+     * parent identifier of a root organisation unit is 0.
+     *
+     * @param version the version of the hierarchy.
+     * @param relations the parent-child relationships, one per organisation unit.
+     */
+    public OrganisationUnitHierarchyIndex( long version, Collection<OrganisationUnitRelationship> relations )
+    {
+        this.version = version;
+
+        long[] childIds = new long[relations.size()];
+
+        int n = 0;
+
+        for ( OrganisationUnitRelationship relation : relations )
+        {
+            childIds[n++] = relation.getChildId();
+        }
+
+        Arrays.sort( childIds );
+
+        this.ids = distinct( childIds );
+        this.parentIds = new long[ids.length];
+
+        for ( OrganisationUnitRelationship relation : relations )
+        {
+            long parentId = relation.getParentId() == relation.getChildId() ? 0 : relation.getParentId();
+
+            parentIds[Arrays.binarySearch( ids, relation.getChildId() )] = parentId;
+        }
+
+        this.pre = new int[ids.length];
+        this.last = new int[ids.length];
+        this.preOrderIds = number();
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Returns the number of organisation units in the index.
+     */
+    public int size()
+    {
+        return preOrderIds.length;
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is
+     * part of the index.
+     */
+    public boolean contains( long id )
+    {
+        return indexOf( id ) != NOT_FOUND;
+    }
+
+    /**
+     * Returns the identifier of the parent of the organisation unit with the
+     * given identifier, 0 if the organisation unit is a root, or -1 if the
+     * organisation unit is not part of the index.
+     */
+    public long getParentId( long id )
+    {
+        int i = indexOf( id );
+
+        return i != NOT_FOUND ? parentIds[i] : NOT_FOUND;
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is
+     * equal to or a descendant of the organisation unit with the given
+     * ancestor identifier.
+     *
+     * @param id the organisation unit identifier.
+     * @param ancestorId the ancestor organisation unit identifier.
+     * @return true if the organisation unit is in the subtree of the ancestor.
+     */
+    public boolean isDescendant( long id, long ancestorId )
+    {
+        int i = indexOf( id );
+        int a = indexOf( ancestorId );
+
+        return i != NOT_FOUND && a != NOT_FOUND && pre[a] <= pre[i] && pre[i] <= last[a];
+    }
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is
+     * equal to or a descendant of any of the organisation units with the given
+     * ancestor identifiers.
+     *
+     * @param id the organisation unit identifier.
+     * @param ancestorIds the ancestor organisation unit identifiers.
+     * @return true if the organisation unit is in the subtree of any ancestor.
+     */
+    public boolean isDescendant( long id, Collection<Long> ancestorIds )
+    {
+        int i = indexOf( id );
+
+        if ( i == NOT_FOUND || ancestorIds == null )
+        {
+            return false;
+        }
+
+        for ( Long ancestorId : ancestorIds )
+        {
+            int a = ancestorId != null ? indexOf( ancestorId ) : NOT_FOUND;
+
+            if ( a != NOT_FOUND && pre[a] <= pre[i] && pre[i] <= last[a] )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the identifiers of the organisation unit with the given
+     * identifier and all its descendants, in pre-order. Returns the given
+     * identifier only if the organisation unit is not part of the index.
+     *
+     * @param id the organisation unit identifier.
+     * @return the identifiers of the subtree.
+     */
+    public long[] getSubtreeIds( long id )
+    {
+        int i = indexOf( id );
+
+        if ( i == NOT_FOUND )
+        {
+            return new long[] { id };
+        }
+
+        return Arrays.copyOfRange( preOrderIds, pre[i], last[i] + 1 );
+    }
+
+    /**
+     * Returns the identifiers of the organisation unit with the given
+     * identifier and all its descendants. Equal to
+     * {@link OrganisationUnitHierarchy#getChildren(long)}.
+     *
+     * @param id the organisation unit identifier.
+     * @return the identifiers of the subtree.
+     */
+    public Set<Long> getChildren( long id )
+    {
+        long[] subtree = getSubtreeIds( id );
+
+        Set<Long> children = new HashSet<>( Math.max( (int) (subtree.length / .75f) + 1, 16 ) );
+
+        for ( long childId : subtree )
+        {
+            children.add( childId );
+        }
+
+        return children;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private int indexOf( long id )
+    {
+        int i = Arrays.binarySearch( ids, id );
+
+        return i >= 0 && pre[i] != NOT_FOUND ? i : NOT_FOUND;
+    }
+
+    /**
+     * Assigns pre-order numbers and subtree ranges through an iterative
+     * depth-first traversal from the roots, and returns the identifiers in
+     * pre-order.
+     */
+    private long[] number()
+    {
+        int n = ids.length;
+
+        // Children of each position in compressed form, children of position
+        // i are childPositions[childOffsets[i]] until childOffsets[i + 1]
+
+        int[] parentPositions = new int[n];
+        int[] childOffsets = new int[n + 1];
+
+        for ( int i = 0; i < n; i++ )
+        {
+            int p = parentIds[i] != 0 ? Arrays.binarySearch( ids, parentIds[i] ) : NOT_FOUND;
+            parentPositions[i] = p >= 0 ? p : NOT_FOUND;
+
+            if ( parentPositions[i] != NOT_FOUND )
+            {
+                childOffsets[parentPositions[i] + 1]++;
+            }
+        }
+
+        for ( int i = 0; i < n; i++ )
+        {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+
+        int[] childPositions = new int[childOffsets[n]];
+        int[] fill = Arrays.copyOf( childOffsets, n );
+
+        for ( int i = 0; i < n; i++ )
+        {
+            if ( parentPositions[i] != NOT_FOUND )
+            {
+                childPositions[fill[parentPositions[i]]++] = i;
+            }
+        }
+
+        Arrays.fill( pre, NOT_FOUND );
+
+        int[] order = new int[n];
+        int[] stack = new int[n];
+        int counter = 0;
+
+        for ( int root = 0; root < n; root++ )
+        {
+            if ( parentPositions[root] != NOT_FOUND )
+            {
+                continue;
+            }
+
+            int top = 0;
+            stack[top++] = root;
+
+            while ( top > 0 )
+            {
+                int i = stack[--top];
+
+                pre[i] = counter;
+                order[counter++] = i;
+
+                for ( int c = childOffsets[i + 1] - 1; c >= childOffsets[i]; c-- )
+                {
+                    stack[top++] = childPositions[c];
+                }
+            }
+        }
+
+        // Subtree ranges in reverse pre-order, children before parents
+
+        for ( int k = counter - 1; k >= 0; k-- )
+        {
+            int i = order[k];
+
+            last[i] = Math.max( last[i], pre[i] );
+
+            int p = parentPositions[i];
+
+            if ( p != NOT_FOUND )
+            {
+                last[p] = Math.max( last[p], last[i] );
+            }
+        }
+
+        long[] preOrder = new long[counter];
+
+        for ( int k = 0; k < counter; k++ )
+        {
+            preOrder[k] = ids[order[k]];
+        }
+
+        return preOrder;
+    }
+
+    private static long[] distinct( long[] sorted )
+    {
+        int n = 0;
+
+        for ( int i = 0; i < sorted.length; i++ )
+        {
+            if ( i == 0 || sorted[i] != sorted[i - 1] )
+            {
+                sorted[n++] = sorted[i];
+            }
+        }
+
+        return Arrays.copyOf( sorted, n );
+    }
+}
@@ -405,6 +405,24 @@ public interface OrganisationUnitService
      */
     OrganisationUnitHierarchy getOrganisationUnitHierarchy();
 
+    /**
+     * Returns the shared, immutable index of the OrganisationUnit hierarchy.
+     * The index is rebuilt on the first request after the hierarchy has
+     * changed.
+     *
+     * @return the OrganisationUnitHierarchyIndex.
+     */
+    OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex();
+
+    /**
+     * Returns a mapping between OrganisationUnit identifier and the number of
+     * DataSets assigned to the OrganisationUnit. OrganisationUnits without
+     * DataSets are not included.
+     *
+     * @return a map of DataSet counts.
+     */
+    Map<Long, Integer> getOrganisationUnitDataSetCountMap();
+
     /**
      * Updates the parent id of the organisation unit with the given id.
      *
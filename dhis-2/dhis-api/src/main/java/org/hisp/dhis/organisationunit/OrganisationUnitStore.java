@@ -109,6 +109,15 @@ public interface OrganisationUnitStore
      */
     Map<String, Set<String>> getOrganisationUnitDataSetAssocationMap( Collection<OrganisationUnit> organisationUnits, Collection<DataSet> dataSets );
 
+    /**
+     * Creates a mapping between organisation unit identifier and the number of
+     * data sets assigned to the organisation unit. Organisation units without
+     * data sets are not included.
+     *
+     * @return a map of data set counts.
+     */
+    Map<Long, Integer> getOrganisationUnitDataSetCountMap();
+
     /**
      * Retrieves the objects where its coordinate is within the 4 area points.
      * 4 area points are
@@ -122,6 +131,21 @@ public interface OrganisationUnitStore
      */
     List<OrganisationUnit> getWithinCoordinateArea( double[] box );
 
+    /**
+     * Retrieves the objects where its geometry covers the given coordinate,
+     * meaning that coordinates on the boundary of the geometry are included.
+     * The search is done by the database and can use the spatial index on
+     * the geometry column.
+     *
+     * @param longitude the longitude.
+     * @param latitude  the latitude.
+     * @param parent    the parent whose hierarchy to restrict the search to,
+     *                  including the parent itself, or null.
+     * @param level     the hierarchy level to restrict the search to, or null.
+     * @return a list of objects.
+     */
+    List<OrganisationUnit> getContainingCoordinate( double longitude, double latitude, OrganisationUnit parent, Integer level );
+
     // -------------------------------------------------------------------------
     // OrganisationUnitHierarchy
     // -------------------------------------------------------------------------
@@ -133,6 +157,14 @@ public interface OrganisationUnitStore
      */
     OrganisationUnitHierarchy getOrganisationUnitHierarchy();
 
+    /**
+     * Builds an index of the OrganisationUnit hierarchy.
+     *
+     * @param version the version to assign to the index.
+     * @return an OrganisationUnitHierarchyIndex.
+     */
+    OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex( long version );
+
     /**
      * Updates the parent id of the organisation unit with the given id.
      *
@@ -46,6 +46,13 @@ public interface ProgramInstanceAuditStore
      */
     void addProgramInstanceAudit( ProgramInstanceAudit programInstanceAudit );
 
+    /**
+     * Adds program instance audits in batched inserts
+     *
+     * @param programInstanceAudits the audits to add
+     */
+    void addProgramInstanceAudits( List<ProgramInstanceAudit> programInstanceAudits );
+
     /**
      * Deletes program instance audit for the given program instance
      * 
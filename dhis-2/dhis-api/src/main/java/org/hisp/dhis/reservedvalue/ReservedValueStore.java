@@ -43,6 +43,12 @@ public interface ReservedValueStore
 
     List<ReservedValue> getIfReservedValues( ReservedValue reservedValue, List<String> values );
 
+    /**
+     * Returns the given values which are neither reserved nor used by the owner
+     * of the given reserved value.
+     */
+    List<String> getAvailableValues( ReservedValue reservedValue, List<String> values );
+
     int getNumberOfUsedValues( ReservedValue reservedValue );
 
     void removeExpiredReservations();
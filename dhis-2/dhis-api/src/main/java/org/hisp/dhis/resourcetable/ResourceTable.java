@@ -34,6 +34,7 @@ import org.hisp.dhis.common.CodeGenerator;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * @author Lars Helge Overland
@@ -45,6 +46,8 @@ public abstract class ResourceTable<T>
     protected static final String TEMP_TABLE_SUFFIX = "_temp";
         
     protected List<T> objects;
+
+    private Supplier<List<T>> objectsSupplier;
     
     // -------------------------------------------------------------------------
     // Constructors
@@ -59,6 +62,18 @@ public abstract class ResourceTable<T>
         this.objects = objects;
     }
 
+    /**
+     * Creates a resource table with objects which are loaded from the given
+     * supplier when first accessed through {@link #getObjects()}, so that they
+     * are not loaded when the table is skipped as its source data is unchanged.
+     * 
+     * @param objectsSupplier the supplier of the objects.
+     */
+    protected ResourceTable( Supplier<List<T>> objectsSupplier )
+    {
+        this.objectsSupplier = objectsSupplier;
+    }
+
     // -------------------------------------------------------------------------
     // Public methods
     // -------------------------------------------------------------------------
@@ -106,6 +121,40 @@ public abstract class ResourceTable<T>
     {
         return CodeGenerator.generateCode( 5 );
     }
+
+    /**
+     * Returns the objects of this resource table, loading them from the
+     * objects supplier on first access if given.
+     * 
+     * @return the objects of this resource table.
+     */
+    protected List<T> getObjects()
+    {
+        if ( objects == null && objectsSupplier != null )
+        {
+            objects = objectsSupplier.get();
+        }
+
+        return objects;
+    }
+
+    // -------------------------------------------------------------------------
+    // Overridable methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Provides a SQL query returning a single value which changes whenever the
+     * source data of the resource table changes, typically built from the row
+     * count and the max last updated time of the source tables. The table is
+     * not generated again while the value is unchanged. Returns empty by
+     * default, meaning the table is always generated.
+     * 
+     * @return a SQL query returning the source watermark.
+     */
+    public Optional<String> getSourceWatermarkStatement()
+    {
+        return Optional.empty();
+    }
     
     // -------------------------------------------------------------------------
     // Abstract methods
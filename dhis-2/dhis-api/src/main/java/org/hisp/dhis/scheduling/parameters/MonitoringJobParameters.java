@@ -36,6 +36,7 @@ import org.hisp.dhis.feedback.ErrorReport;
 import org.hisp.dhis.scheduling.JobParameters;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -63,6 +64,19 @@ public class MonitoringJobParameters
     @JsonProperty
     private boolean persistResults;
 
+    /**
+     * Only validate data changed since the last successful monitoring run.
+     */
+    @JsonProperty
+    private boolean incremental;
+
+    /**
+     * Start time of the last run of this job which completed without
+     * failing or being stopped.
+     */
+    @JsonProperty
+    private Date lastSuccessfulRun;
+
     public MonitoringJobParameters()
     {
     }
@@ -127,6 +141,26 @@ public class MonitoringJobParameters
         this.persistResults = persistResults;
     }
 
+    public boolean isIncremental()
+    {
+        return incremental;
+    }
+
+    public void setIncremental( boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
+    public Date getLastSuccessfulRun()
+    {
+        return lastSuccessfulRun;
+    }
+
+    public void setLastSuccessfulRun( Date lastSuccessfulRun )
+    {
+        this.lastSuccessfulRun = lastSuccessfulRun;
+    }
+
     @Override
     public ErrorReport validate()
     {
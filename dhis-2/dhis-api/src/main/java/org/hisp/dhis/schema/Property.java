@@ -80,6 +80,12 @@ public class Property implements Ordered, Klass
      */
     private Method setterMethod;
 
+    /**
+     * Accessor for reading and writing this property, based on the getter and
+     * setter methods.
+     */
+    private transient PropertyAccessor propertyAccessor;
+
     /**
      * Name for this property, if this class is a collection, it is the name of the items -inside- the collection
      * and not the collection wrapper itself.
@@ -331,6 +337,7 @@ public class Property implements Ordered, Klass
     public void setGetterMethod( Method getterMethod )
     {
         this.getterMethod = getterMethod;
+        this.propertyAccessor = null;
     }
 
     public Method getSetterMethod()
@@ -341,6 +348,51 @@ public class Property implements Ordered, Klass
     public void setSetterMethod( Method setterMethod )
     {
         this.setterMethod = setterMethod;
+        this.propertyAccessor = null;
+    }
+
+    /**
+     * Returns the accessor of this property. If no accessor was set, an
+     * accessor invoking the getter and setter methods through reflection is
+     * used.
+     */
+    public PropertyAccessor getPropertyAccessor()
+    {
+        if ( propertyAccessor == null )
+        {
+            propertyAccessor = new ReflectivePropertyAccessor( getterMethod, setterMethod );
+        }
+
+        return propertyAccessor;
+    }
+
+    public void setPropertyAccessor( PropertyAccessor propertyAccessor )
+    {
+        this.propertyAccessor = propertyAccessor;
+    }
+
+    /**
+     * Returns the value of this property on the given object.
+     *
+     * @param target the object.
+     * @return the value, or null if the object is null or the property is
+     *         not readable.
+     */
+    @SuppressWarnings( "unchecked" )
+    public <T> T getValue( Object target )
+    {
+        return (T) getPropertyAccessor().get( target );
+    }
+
+    /**
+     * Sets the value of this property on the given object.
+     *
+     * @param target the object.
+     * @param value the value.
+     */
+    public void setValue( Object target, Object value )
+    {
+        getPropertyAccessor().set( target, value );
     }
 
     @JsonProperty
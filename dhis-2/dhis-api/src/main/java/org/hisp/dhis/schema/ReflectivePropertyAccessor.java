@@ -0,0 +1,85 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * {@link PropertyAccessor} which invokes the getter and setter methods of a
+ * property through reflection. Protected and private methods are not invoked.
+ */
+public class ReflectivePropertyAccessor
+    implements PropertyAccessor
+{
+    private final Method getterMethod;
+
+    private final Method setterMethod;
+
+    public ReflectivePropertyAccessor( Method getterMethod, Method setterMethod )
+    {
+        this.getterMethod = getterMethod;
+        this.setterMethod = setterMethod;
+    }
+
+    @Override
+    public Object get( Object target )
+    {
+        return invoke( target, getterMethod );
+    }
+
+    @Override
+    public void set( Object target, Object value )
+    {
+        invoke( target, setterMethod, value );
+    }
+
+    private static Object invoke( Object target, Method method, Object... args )
+    {
+        if ( target == null || method == null )
+        {
+            return null;
+        }
+
+        if ( Modifier.isProtected( method.getModifiers() ) || Modifier.isPrivate( method.getModifiers() ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            return method.invoke( target, args );
+        }
+        catch ( InvocationTargetException | IllegalAccessException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+}
@@ -263,4 +263,15 @@ public interface TrackedEntityInstanceService
     long createTrackedEntityInstance( TrackedEntityInstance entityInstance, Set<TrackedEntityAttributeValue> attributeValues );
 
     List<TrackedEntityInstance> getTrackedEntityInstancesByUid( List<String> uids, User user );
+
+    /**
+     * Loads the attribute values, program owners and optionally the enrollments
+     * with events and the relationship items of the given tracked entity
+     * instances in bulk, so that they can be traversed without further queries.
+     *
+     * @param instances the tracked entity instances.
+     * @param includeEnrollments whether to load enrollments and events.
+     * @param includeRelationships whether to load relationship items.
+     */
+    void preloadTrackedEntityInstances( List<TrackedEntityInstance> instances, boolean includeEnrollments, boolean includeRelationships );
 }
@@ -76,4 +76,16 @@ public interface TrackedEntityInstanceStore
     void updateTrackedEntityInstancesSyncTimestamp( List<String> trackedEntityInstanceUIDs, Date lastSynchronized );
 
     List<TrackedEntityInstance> getTrackedEntityInstancesByUid( List<String> uids, User user );
+
+    /**
+     * Initializes the collections of the given tracked entity instances with a
+     * fixed number of set based queries per page of instances, instead of one
+     * lazy load per instance and collection. Attribute values and program
+     * owners are always loaded.
+     *
+     * @param instances the tracked entity instances, attached to the current session.
+     * @param includeEnrollments whether to load program instances and their events.
+     * @param includeRelationships whether to load relationship items.
+     */
+    void preloadTrackedEntityInstances( List<TrackedEntityInstance> instances, boolean includeEnrollments, boolean includeRelationships );
 }
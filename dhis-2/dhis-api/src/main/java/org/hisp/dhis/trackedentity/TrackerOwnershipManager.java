@@ -28,6 +28,9 @@ package org.hisp.dhis.trackedentity;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
+import java.util.Set;
+
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
@@ -115,6 +118,19 @@ public interface TrackerOwnershipManager
      */
     boolean hasAccess( User user, String teiUid, String programUid );
 
+    /**
+     * Returns the tracked entity instances for which the user has access (as
+     * owner or has temporarily broken the glass) in the given program. The
+     * owners are looked up with a single query for all instances, which makes
+     * this the preferred check when exporting many instances at once.
+     * 
+     * @param user The user with which access has to be checked for.
+     * @param entityInstances The tracked entity instances.
+     * @param program The program.
+     * @return the accessible tracked entity instances.
+     */
+    Set<TrackedEntityInstance> getAccessibleTrackedEntityInstances( User user, Collection<TrackedEntityInstance> entityInstances, Program program );
+
     /**
      * Grant temporary ownership for a user for a specific tei-program
      * combination
@@ -32,8 +32,10 @@ import com.google.common.collect.ImmutableSet;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 import java.util.Collection;
+import java.util.Date;
 
 /**
  * This class represents the most fundamental parameters to run a validation rule analysis.
@@ -73,6 +75,10 @@ public final class ValidationAnalysisParams
 
     private int dayInPeriod = -1;
 
+    private JobConfiguration jobConfiguration;
+
+    private Date changedSince;
+
     /**
      * Gets the rules selected for analysis
      *
@@ -168,6 +174,30 @@ public final class ValidationAnalysisParams
         return maxResults;
     }
 
+    /**
+     * Gets the job running the analysis, if any. A job analysis reports its
+     * progress to the job notifier, and may resume from where an interrupted
+     * run of the same job stopped.
+     *
+     * @return the job configuration, or null if not run by a job.
+     */
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
+    /**
+     * Gets the time since which data changes are validated, if this is an incremental analysis. An incremental
+     * analysis only validates the organisation unit, rule and period combinations whose data values have changed
+     * since then, and replaces their stored results.
+     *
+     * @return the time of changes to validate, or null to validate all data.
+     */
+    public Date getChangedSince()
+    {
+        return changedSince;
+    }
+
     public static class Builder
     {
         private ValidationAnalysisParams params;
@@ -255,6 +285,31 @@ public final class ValidationAnalysisParams
             return this;
         }
 
+        /**
+         * The job running the analysis.
+         *
+         * @param jobConfiguration the job configuration
+         * @return the updated builder object
+         */
+        public Builder withJobConfiguration( JobConfiguration jobConfiguration )
+        {
+            this.params.jobConfiguration = jobConfiguration;
+            return this;
+        }
+
+        /**
+         * Makes the analysis incremental, validating only data changed since the given time. A null value
+         * validates all data.
+         *
+         * @param changedSince the time of changes to validate
+         * @return the updated builder object
+         */
+        public Builder withChangedSince( Date changedSince )
+        {
+            this.params.changedSince = changedSince;
+            return this;
+        }
+
         /**
          * Returns the params object
          * @return the final ValidationAnalysisParams object.
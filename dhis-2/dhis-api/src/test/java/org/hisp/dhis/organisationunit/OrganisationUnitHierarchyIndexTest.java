@@ -0,0 +1,154 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OrganisationUnitHierarchyIndexTest
+{
+    private List<OrganisationUnitRelationship> relationships;
+
+    private OrganisationUnitHierarchyIndex index;
+
+    //   1         13
+    //   |-- 2
+    //   |   |-- 4
+    //   |   |-- 5
+    //   |-- 3
+    //       |-- 6
+    //           |-- 7
+
+    @Before
+    public void before()
+    {
+        relationships = new ArrayList<>();
+
+        relationships.add( new OrganisationUnitRelationship( 0, 1 ) );
+        relationships.add( new OrganisationUnitRelationship( 1, 2 ) );
+        relationships.add( new OrganisationUnitRelationship( 1, 3 ) );
+        relationships.add( new OrganisationUnitRelationship( 2, 4 ) );
+        relationships.add( new OrganisationUnitRelationship( 2, 5 ) );
+        relationships.add( new OrganisationUnitRelationship( 3, 6 ) );
+        relationships.add( new OrganisationUnitRelationship( 6, 7 ) );
+        relationships.add( new OrganisationUnitRelationship( 0, 13 ) );
+
+        index = new OrganisationUnitHierarchyIndex( 3, relationships );
+    }
+
+    @Test
+    public void testGetVersionAndSize()
+    {
+        assertEquals( 3, index.getVersion() );
+        assertEquals( 8, index.size() );
+    }
+
+    @Test
+    public void testIsDescendant()
+    {
+        assertTrue( index.isDescendant( 1, 1 ) );
+        assertTrue( index.isDescendant( 4, 1 ) );
+        assertTrue( index.isDescendant( 4, 2 ) );
+        assertTrue( index.isDescendant( 7, 3 ) );
+        assertTrue( index.isDescendant( 7, 6 ) );
+
+        assertFalse( index.isDescendant( 1, 2 ) );
+        assertFalse( index.isDescendant( 4, 3 ) );
+        assertFalse( index.isDescendant( 7, 2 ) );
+        assertFalse( index.isDescendant( 13, 1 ) );
+        assertFalse( index.isDescendant( 99, 1 ) );
+        assertFalse( index.isDescendant( 1, 99 ) );
+    }
+
+    @Test
+    public void testIsDescendantOfAny()
+    {
+        assertTrue( index.isDescendant( 7, Sets.newHashSet( 2L, 6L ) ) );
+        assertTrue( index.isDescendant( 13, Sets.newHashSet( 2L, 13L ) ) );
+        assertFalse( index.isDescendant( 5, Sets.newHashSet( 3L, 13L ) ) );
+        assertFalse( index.isDescendant( 5, Sets.newHashSet() ) );
+    }
+
+    @Test
+    public void testGetChildren()
+    {
+        assertEquals( Sets.newHashSet( 1L, 2L, 3L, 4L, 5L, 6L, 7L ), index.getChildren( 1 ) );
+        assertEquals( Sets.newHashSet( 2L, 4L, 5L ), index.getChildren( 2 ) );
+        assertEquals( Sets.newHashSet( 3L, 6L, 7L ), index.getChildren( 3 ) );
+        assertEquals( Sets.newHashSet( 7L ), index.getChildren( 7 ) );
+        assertEquals( Sets.newHashSet( 99L ), index.getChildren( 99 ) );
+    }
+
+    @Test
+    public void testGetChildrenEqualToHierarchy()
+    {
+        OrganisationUnitHierarchy hierarchy = new OrganisationUnitHierarchy( relationships );
+
+        for ( long id = 1; id <= 13; id++ )
+        {
+            assertEquals( hierarchy.getChildren( id ), index.getChildren( id ) );
+        }
+    }
+
+    @Test
+    public void testGetSubtreeIdsIsPreOrder()
+    {
+        long[] subtree = index.getSubtreeIds( 3 );
+
+        assertArrayEquals( new long[] { 3, 6, 7 }, subtree );
+    }
+
+    @Test
+    public void testGetParentId()
+    {
+        assertEquals( 0, index.getParentId( 1 ) );
+        assertEquals( 2, index.getParentId( 5 ) );
+        assertEquals( -1, index.getParentId( 99 ) );
+    }
+
+    @Test
+    public void testCycleIsNotIndexed()
+    {
+        relationships.add( new OrganisationUnitRelationship( 21, 20 ) );
+        relationships.add( new OrganisationUnitRelationship( 20, 21 ) );
+
+        OrganisationUnitHierarchyIndex cyclic = new OrganisationUnitHierarchyIndex( 1, relationships );
+
+        assertEquals( 8, cyclic.size() );
+        assertFalse( cyclic.contains( 20 ) );
+        assertFalse( cyclic.isDescendant( 20, 21 ) );
+        assertTrue( cyclic.isDescendant( 7, 1 ) );
+    }
+}
@@ -28,10 +28,15 @@ package org.hisp.dhis.security.acl;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.FlushMode;
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.BaseIdentifiableObject;
 import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.feedback.ErrorCode;
 import org.hisp.dhis.feedback.ErrorReport;
 import org.hisp.dhis.schema.Schema;
@@ -41,10 +46,15 @@ import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserAccess;
 import org.hisp.dhis.user.UserGroupAccess;
+import org.springframework.core.env.Environment;
 
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.springframework.util.CollectionUtils.containsAny;
 
@@ -55,11 +65,57 @@ import static org.springframework.util.CollectionUtils.containsAny;
  */
 public class DefaultAclService implements AclService
 {
+    /**
+     * Sharing principals by user UID. The cache is local to this node. It is
+     * invalidated by {@link SharingPrincipalInvalidationListener} for changes
+     * made on this node only, so membership changes made on other nodes of a
+     * cluster are seen once the cached principals expire.
+     */
+    private static Cache<String, SharingPrincipal> SHARING_PRINCIPAL_CACHE;
+
     private final SchemaService schemaService;
 
-    public DefaultAclService( SchemaService schemaService )
+    private final SessionFactory sessionFactory;
+
+    private final Environment env;
+
+    public DefaultAclService( SchemaService schemaService, SessionFactory sessionFactory, Environment env )
     {
         this.schemaService = schemaService;
+        this.sessionFactory = sessionFactory;
+        this.env = env;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        SHARING_PRINCIPAL_CACHE = Caffeine.newBuilder()
+            .expireAfterWrite( 5, TimeUnit.MINUTES )
+            .maximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
+    }
+
+    /**
+     * Removes the cached sharing principal of the user with the given UID.
+     *
+     * @param userUid the user UID.
+     */
+    public static void invalidateSharingPrincipal( String userUid )
+    {
+        if ( SHARING_PRINCIPAL_CACHE != null && userUid != null )
+        {
+            SHARING_PRINCIPAL_CACHE.invalidate( userUid );
+        }
+    }
+
+    /**
+     * Removes all cached sharing principals.
+     */
+    public static void invalidateSharingPrincipals()
+    {
+        if ( SHARING_PRINCIPAL_CACHE != null )
+        {
+            SHARING_PRINCIPAL_CACHE.invalidateAll();
+        }
     }
 
     @Override
@@ -643,6 +699,8 @@ public class DefaultAclService implements AclService
             return true;
         }
 
+        SharingPrincipal principal = getSharingPrincipal( user );
+
         for ( UserGroupAccess userGroupAccess : object.getUserGroupAccesses() )
         {
             /*
@@ -650,7 +708,7 @@ public class DefaultAclService implements AclService
              *
              */
             if ( AccessStringHelper.isEnabled( userGroupAccess.getAccess(), permission )
-                && userGroupAccess.getUserGroup().getMembers().contains( user ) )
+                && principal.isMemberOf( userGroupAccess.getUserGroup().getUid() ) )
             {
                 return true;
             }
@@ -663,7 +721,7 @@ public class DefaultAclService implements AclService
              *
              */
             if ( AccessStringHelper.isEnabled( userAccess.getAccess(), permission )
-                && user.equals( userAccess.getUser() ) )
+                && principal.isUser( userAccess.getUser() ) )
             {
                 return true;
             }
@@ -672,6 +730,51 @@ public class DefaultAclService implements AclService
         return false;
     }
 
+    /**
+     * Returns the sharing principal of the given user, which is cached by
+     * user UID.
+     *
+     * @param user the user.
+     * @return the sharing principal of the user.
+     */
+    private SharingPrincipal getSharingPrincipal( User user )
+    {
+        if ( SHARING_PRINCIPAL_CACHE == null || user.getUid() == null )
+        {
+            return loadSharingPrincipal( user );
+        }
+
+        return SHARING_PRINCIPAL_CACHE.get( user.getUid(), uid -> loadSharingPrincipal( user ) );
+    }
+
+    /**
+     * Loads the sharing principal of the given user. The user groups of the
+     * user are queried from the members of user groups, which is the owning
+     * side of the association, as the groups of a user are not kept in sync
+     * when members are added to a group. A user which is not saved is not a
+     * member of any user group. The query does not flush the session, as
+     * access checks run while objects are modified, and flushing them would
+     * write incomplete changes and make every access check cost a flush.
+     *
+     * @param user the user.
+     * @return the sharing principal of the user.
+     */
+    private SharingPrincipal loadSharingPrincipal( User user )
+    {
+        if ( user.getId() == 0 )
+        {
+            return new SharingPrincipal( user.getUid(), Collections.emptySet() );
+        }
+
+        List<String> userGroupUids = sessionFactory.getCurrentSession()
+            .createQuery( "select ug.uid from UserGroup ug join ug.members m where m.id = :userId", String.class )
+            .setHibernateFlushMode( FlushMode.MANUAL )
+            .setParameter( "userId", user.getId() )
+            .list();
+
+        return new SharingPrincipal( user.getUid(), new HashSet<>( userGroupUids ) );
+    }
+
     private boolean checkOptionComboSharingPermission( User user, IdentifiableObject object, Permission permission )
     {
         CategoryOptionCombo optionCombo = (CategoryOptionCombo) object;
@@ -0,0 +1,115 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+import org.hisp.dhis.common.IdentifiableObject;
+
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the identity of a user as seen by sharing checks,
+ * holding the UID of the user and the UIDs of the user groups the user is a
+ * member of. Allows checking user group accesses without loading the members
+ * of user groups.
+ */
+public final class SharingPrincipal
+{
+    private final String userUid;
+
+    private final Set<String> userGroupUids;
+
+    public SharingPrincipal( String userUid, Set<String> userGroupUids )
+    {
+        this.userUid = userUid;
+        this.userGroupUids = ImmutableSet.copyOf( userGroupUids );
+    }
+
+    public String getUserUid()
+    {
+        return userUid;
+    }
+
+    public Set<String> getUserGroupUids()
+    {
+        return userGroupUids;
+    }
+
+    /**
+     * Indicates whether this principal represents the given user.
+     */
+    public boolean isUser( IdentifiableObject user )
+    {
+        return user != null && userUid != null && userUid.equals( user.getUid() );
+    }
+
+    /**
+     * Indicates whether this principal is a member of the user group with the
+     * given UID.
+     */
+    public boolean isMemberOf( String userGroupUid )
+    {
+        return userGroupUid != null && userGroupUids.contains( userGroupUid );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        SharingPrincipal other = (SharingPrincipal) o;
+
+        return Objects.equals( userUid, other.userUid ) && Objects.equals( userGroupUids, other.userGroupUids );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( userUid, userGroupUids );
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this )
+            .add( "userUid", userUid )
+            .add( "userGroupUids", userGroupUids )
+            .toString();
+    }
+}
@@ -0,0 +1,117 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserGroup;
+
+/**
+ * Clears cached {@link SharingPrincipal sharing principals} of the
+ * {@link DefaultAclService} when the members of a user group change, or when
+ * a user or user group is deleted. Membership changes clear the cache both
+ * when the collection is flushed and after the transaction completes, so that
+ * principals computed by concurrent transactions in between are not kept.
+ */
+public class SharingPrincipalInvalidationListener
+    implements PostCommitDeleteEventListener, PostCollectionUpdateEventListener,
+    PostCollectionRecreateEventListener, PostCollectionRemoveEventListener
+{
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        Object entity = event.getEntity();
+
+        if ( entity instanceof User )
+        {
+            DefaultAclService.invalidateSharingPrincipal( ((User) entity).getUid() );
+        }
+        else if ( entity instanceof UserGroup )
+        {
+            DefaultAclService.invalidateSharingPrincipals();
+        }
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed( PostDeleteEvent event )
+    {
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        invalidateMembership( event );
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        invalidateMembership( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        invalidateMembership( event );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        Class<?> klass = persister.getMappedClass();
+
+        return User.class.isAssignableFrom( klass ) || UserGroup.class.isAssignableFrom( klass );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void invalidateMembership( AbstractCollectionEvent event )
+    {
+        if ( !(event.getAffectedOwnerOrNull() instanceof UserGroup) )
+        {
+            return;
+        }
+
+        DefaultAclService.invalidateSharingPrincipals();
+
+        event.getSession().getActionQueue().registerProcess(
+            ( success, session ) -> DefaultAclService.invalidateSharingPrincipals() );
+    }
+}
@@ -0,0 +1,81 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Sets;
+import org.hisp.dhis.user.User;
+import org.junit.Test;
+
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharingPrincipalTest
+{
+    @Test
+    public void testIsUserAndIsMemberOf()
+    {
+        User userA = createUser( "userUidA" );
+        User userB = createUser( "userUidB" );
+
+        SharingPrincipal principal = new SharingPrincipal( "userUidA", Sets.newHashSet( "groupUidA" ) );
+
+        assertEquals( "userUidA", principal.getUserUid() );
+        assertEquals( 1, principal.getUserGroupUids().size() );
+
+        assertTrue( principal.isUser( userA ) );
+        assertFalse( principal.isUser( userB ) );
+        assertFalse( principal.isUser( null ) );
+
+        assertTrue( principal.isMemberOf( "groupUidA" ) );
+        assertFalse( principal.isMemberOf( "groupUidB" ) );
+        assertFalse( principal.isMemberOf( null ) );
+    }
+
+    @Test
+    public void testIsUnaffectedByLaterMembershipChanges()
+    {
+        Set<String> userGroupUids = Sets.newHashSet( "groupUidA" );
+
+        SharingPrincipal principal = new SharingPrincipal( "userUidA", userGroupUids );
+
+        userGroupUids.add( "groupUidB" );
+
+        assertFalse( principal.isMemberOf( "groupUidB" ) );
+    }
+
+    private User createUser( String uid )
+    {
+        User user = new User();
+        user.setUid( uid );
+        return user;
+    }
+}
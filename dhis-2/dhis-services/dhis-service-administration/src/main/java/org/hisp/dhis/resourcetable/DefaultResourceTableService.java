@@ -149,7 +149,7 @@ public class DefaultResourceTableService
     public void generateCategoryOptionComboNames()
     {
         resourceTableStore.generateResourceTable( new CategoryOptionComboNameResourceTable( 
-            idObjectManager.getAllNoAcl( CategoryCombo.class ) ) );
+            () -> idObjectManager.getAllNoAcl( CategoryCombo.class ) ) );
     }
 
     @Override
@@ -204,7 +204,7 @@ public class DefaultResourceTableService
     @Transactional
     public void generatePeriodTable()
     {
-        resourceTableStore.generateResourceTable( new PeriodResourceTable( periodService.getAllPeriods() ) );
+        resourceTableStore.generateResourceTable( new PeriodResourceTable( periodService::getAllPeriods ) );
     }
 
     @Override
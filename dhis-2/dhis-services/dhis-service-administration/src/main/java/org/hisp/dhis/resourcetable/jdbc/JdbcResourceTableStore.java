@@ -28,6 +28,9 @@ package org.hisp.dhis.resourcetable.jdbc;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,7 +44,11 @@ import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.resourcetable.ResourceTable;
 import org.hisp.dhis.resourcetable.ResourceTableStore;
 import org.hisp.dhis.system.util.Clock;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 /**
@@ -52,6 +59,11 @@ public class JdbcResourceTableStore
 {
     private static final Log log = LogFactory.getLog( JdbcResourceTableStore.class );
 
+    /**
+     * Number of rows written to the database per COPY data message.
+     */
+    private static final int COPY_CHUNK_ROWS = 1000;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -79,12 +91,20 @@ public class JdbcResourceTableStore
     @Override
     public void generateResourceTable( ResourceTable<?> resourceTable )
     {
+        final boolean postgreSql = isPostgreSql();
+        final String watermark = postgreSql ? getSourceWatermark( resourceTable ) : null;
+
+        if ( watermark != null && watermark.equals( getTableWatermark( resourceTable.getTableName() ) ) )
+        {
+            log.info( String.format( "Skipping resource table, source data unchanged: '%s'", resourceTable.getTableName() ) );
+            return;
+        }
+
         log.info( String.format( "Generating resource table: '%s'", resourceTable.getTableName() ) );
 
         final Clock clock = new Clock().startClock();
         final String createTableSql = resourceTable.getCreateTempTableStatement();
         final Optional<String> populateTableSql = resourceTable.getPopulateTempTableStatement();
-        final Optional<List<Object[]>> populateTableContent = resourceTable.getPopulateTempTableContent();
         final List<String> createIndexSql = resourceTable.getCreateIndexStatements();
         final String analyzeTableSql = statementBuilder.getAnalyze( resourceTable.getTableName() );
 
@@ -106,7 +126,7 @@ public class JdbcResourceTableStore
         jdbcTemplate.execute( createTableSql );
 
         // ---------------------------------------------------------------------
-        // Populate temporary table through SQL or object batch update
+        // Populate temporary table through SQL, COPY or object batch update
         // ---------------------------------------------------------------------
 
         if ( populateTableSql.isPresent() )
@@ -115,17 +135,26 @@ public class JdbcResourceTableStore
 
             jdbcTemplate.execute( populateTableSql.get() );
         }
-        else if ( populateTableContent.isPresent() )
+        else
         {
-            List<Object[]> content = populateTableContent.get();
+            Optional<List<Object[]>> populateTableContent = resourceTable.getPopulateTempTableContent();
 
-            log.debug( String.format( "Populate table content rows: '%d'", content.size() ) );
-
-            if ( content.size() > 0 )
+            if ( populateTableContent.isPresent() )
             {
-                int columns = content.get( 0 ).length;
+                List<Object[]> content = populateTableContent.get();
+
+                log.debug( String.format( "Populate table content rows: '%d'", content.size() ) );
 
-                batchUpdate( columns, resourceTable.getTempTableName(), content );
+                if ( content.size() > 0 && postgreSql )
+                {
+                    copy( resourceTable.getTempTableName(), content );
+                }
+                else if ( content.size() > 0 )
+                {
+                    int columns = content.get( 0 ).length;
+
+                    batchUpdate( columns, resourceTable.getTempTableName(), content );
+                }
             }
         }
 
@@ -154,6 +183,15 @@ public class JdbcResourceTableStore
             jdbcTemplate.execute( sql );
         }
 
+        // ---------------------------------------------------------------------
+        // Record watermark of source data, kept when the table is renamed
+        // ---------------------------------------------------------------------
+
+        if ( watermark != null )
+        {
+            jdbcTemplate.execute( "comment on table " + resourceTable.getTempTableName() + " is '" + watermark.replace( "'", "''" ) + "'" );
+        }
+
         // ---------------------------------------------------------------------
         // Swap tables
         // ---------------------------------------------------------------------
@@ -202,4 +240,112 @@ public class JdbcResourceTableStore
 
         jdbcTemplate.batchUpdate( builder.toString(), batchArgs );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private boolean isPostgreSql()
+    {
+        return jdbcTemplate.execute( (ConnectionCallback<Boolean>) con -> con.isWrapperFor( BaseConnection.class ) );
+    }
+
+    /**
+     * Returns the current watermark of the source data of the given resource
+     * table, or null if the table does not provide a watermark.
+     */
+    private String getSourceWatermark( ResourceTable<?> resourceTable )
+    {
+        Optional<String> sql = resourceTable.getSourceWatermarkStatement();
+
+        return sql.isPresent() ? jdbcTemplate.queryForObject( sql.get(), String.class ) : null;
+    }
+
+    /**
+     * Returns the watermark recorded as comment on the given table when it was
+     * generated, or null if the table does not exist or has no watermark.
+     */
+    private String getTableWatermark( String tableName )
+    {
+        List<String> comments = jdbcTemplate.queryForList(
+            "select obj_description(c.oid, 'pg_class') from pg_class c " +
+            "where c.relname = ? and c.relkind = 'r' and pg_table_is_visible(c.oid)", String.class, tableName );
+
+        return comments.isEmpty() ? null : comments.get( 0 );
+    }
+
+    /**
+     * Loads the given rows into the given table through PostgreSQL COPY, as
+     * CSV written to the server in chunks.
+     */
+    private void copy( String tableName, List<Object[]> rows )
+    {
+        jdbcTemplate.execute( (ConnectionCallback<Long>) con -> {
+            CopyManager copyManager = new CopyManager( con.unwrap( BaseConnection.class ) );
+            CopyIn copyIn = copyManager.copyIn( "copy " + tableName + " from stdin with (format csv)" );
+
+            try
+            {
+                StringBuilder chunk = new StringBuilder();
+
+                for ( int i = 0; i < rows.size(); i++ )
+                {
+                    appendCsvRow( chunk, rows.get( i ) );
+
+                    if ( ( i + 1 ) % COPY_CHUNK_ROWS == 0 || i == rows.size() - 1 )
+                    {
+                        byte[] bytes = chunk.toString().getBytes( StandardCharsets.UTF_8 );
+                        copyIn.writeToCopy( bytes, 0, bytes.length );
+                        chunk.setLength( 0 );
+                    }
+                }
+
+                return copyIn.endCopy();
+            }
+            finally
+            {
+                if ( copyIn.isActive() )
+                {
+                    copyIn.cancelCopy();
+                }
+            }
+        } );
+    }
+
+    private void appendCsvRow( StringBuilder builder, Object[] row )
+    {
+        for ( int i = 0; i < row.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                builder.append( ',' );
+            }
+
+            Object value = row[i];
+
+            if ( value == null )
+            {
+                continue;
+            }
+
+            if ( value instanceof java.sql.Date )
+            {
+                builder.append( value );
+            }
+            else if ( value instanceof Date )
+            {
+                builder.append( new Timestamp( ( (Date) value ).getTime() ) );
+            }
+            else if ( value instanceof Number || value instanceof Boolean )
+            {
+                builder.append( value );
+            }
+            else
+            {
+                builder.append( '"' ).append( value.toString().replace( "\"", "\"\"" ) ).append( '"' );
+            }
+        }
+
+        builder.append( '\n' );
+    }
 }
@@ -38,6 +38,7 @@ import org.hisp.dhis.resourcetable.ResourceTableType;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.hisp.dhis.dataapproval.DataApprovalLevelService.APPROVAL_LEVEL_HIGHEST;
 
@@ -47,7 +48,7 @@ import static org.hisp.dhis.dataapproval.DataApprovalLevelService.APPROVAL_LEVEL
 public class CategoryOptionComboNameResourceTable
     extends ResourceTable<CategoryCombo>
 {
-    public CategoryOptionComboNameResourceTable( List<CategoryCombo> objects )
+    public CategoryOptionComboNameResourceTable( Supplier<List<CategoryCombo>> objects )
     {
         super( objects );
     }
@@ -73,12 +74,21 @@ public class CategoryOptionComboNameResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getSourceWatermarkStatement()
+    {
+        return Optional.of(
+            "select (select count(*) || ':' || coalesce(cast(max(lastupdated) as varchar), '') from categorycombo) || ':' || " +
+            "(select count(*) || ':' || coalesce(cast(max(lastupdated) as varchar), '') from categoryoptioncombo) || ':' || " +
+            "(select count(*) || ':' || coalesce(cast(max(lastupdated) as varchar), '') from dataelementcategoryoption)" );
+    }
+
     @Override
     public Optional<List<Object[]>> getPopulateTempTableContent()
     {
         List<Object[]> batchArgs = new ArrayList<>();
 
-        for ( CategoryCombo combo : objects )
+        for ( CategoryCombo combo : getObjects() )
         {
             if ( !combo.isValid() )
             {
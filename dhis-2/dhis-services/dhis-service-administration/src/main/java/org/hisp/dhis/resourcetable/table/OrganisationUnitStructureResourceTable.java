@@ -92,6 +92,13 @@ public class OrganisationUnitStructureResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getSourceWatermarkStatement()
+    {
+        return Optional.of( "select '" + organisationUnitLevels + ":' || count(*) || ':' || " +
+            "coalesce(cast(max(lastupdated) as varchar), '') from organisationunit" );
+    }
+
     @Override
     public Optional<List<Object[]>> getPopulateTempTableContent()
     {
@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
@@ -51,7 +52,7 @@ import static org.hisp.dhis.system.util.SqlUtils.quote;
 public class PeriodResourceTable
     extends ResourceTable<Period>
 {
-    public PeriodResourceTable( List<Period> objects )
+    public PeriodResourceTable( Supplier<List<Period>> objects )
     {
         super( objects );
     }
@@ -85,6 +86,13 @@ public class PeriodResourceTable
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getSourceWatermarkStatement()
+    {
+        return Optional.of( "select '" + PeriodType.getCalendar().name() + ":" + PeriodType.PERIOD_TYPES.size() + ":' || " +
+            "count(*) || ':' || coalesce(max(periodid), 0) from period" );
+    }
+
     @Override
     public Optional<List<Object[]>> getPopulateTempTableContent()
     {
@@ -94,7 +102,7 @@ public class PeriodResourceTable
         
         Set<String> uniqueIsoDates = new HashSet<>();
         
-        for ( Period period : objects )
+        for ( Period period : getObjects() )
         {
             if ( period != null && period.isValid() )
             {
@@ -0,0 +1,146 @@
+package org.hisp.dhis.resourcetable.jdbc;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createPeriod;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.analytics.AnalyticsTableHookService;
+import org.hisp.dhis.dbms.DbmsManager;
+import org.hisp.dhis.jdbc.StatementBuilder;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.resourcetable.table.PeriodResourceTable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+
+public class JdbcResourceTableStoreTest
+{
+    @Mock
+    private AnalyticsTableHookService analyticsTableHookService;
+
+    @Mock
+    private DbmsManager dbmsManager;
+
+    @Mock
+    private StatementBuilder statementBuilder;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private JdbcResourceTableStore resourceTableStore;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private AtomicInteger loads;
+
+    private PeriodResourceTable periodTable;
+
+    @Before
+    public void setUp()
+    {
+        loads = new AtomicInteger();
+
+        periodTable = new PeriodResourceTable( () -> {
+            loads.incrementAndGet();
+            return Lists.newArrayList( createPeriod( "201901" ) );
+        } );
+
+        when( jdbcTemplate.execute( any( ConnectionCallback.class ) ) ).thenReturn( true );
+    }
+
+    @Test
+    public void testSkipUnchangedTableWithoutLoadingObjects()
+    {
+        mockWatermarks( "12:5", "12:5" );
+
+        resourceTableStore.generateResourceTable( periodTable );
+
+        assertEquals( 0, loads.get() );
+        verify( jdbcTemplate, never() ).execute( periodTable.getCreateTempTableStatement() );
+        verify( jdbcTemplate, never() ).execute( periodTable.getRenameTempTableStatement() );
+    }
+
+    @Test
+    public void testGenerateChangedTable()
+    {
+        mockWatermarks( "12:6", "12:5" );
+
+        resourceTableStore.generateResourceTable( periodTable );
+
+        assertEquals( 1, loads.get() );
+        verify( jdbcTemplate ).execute( "comment on table " + periodTable.getTempTableName() + " is '12:6'" );
+        verify( jdbcTemplate ).execute( periodTable.getRenameTempTableStatement() );
+    }
+
+    @Test
+    public void testGenerateTableWithoutRecordedWatermark()
+    {
+        mockWatermarks( "12:6" );
+
+        resourceTableStore.generateResourceTable( periodTable );
+
+        assertEquals( 1, loads.get() );
+        verify( jdbcTemplate ).execute( "comment on table " + periodTable.getTempTableName() + " is '12:6'" );
+    }
+
+    /**
+     * Mocks the current source watermark of the period table and the
+     * watermarks recorded on the existing table, if any.
+     */
+    private void mockWatermarks( String sourceWatermark, String... tableWatermarks )
+    {
+        when( jdbcTemplate.queryForObject( periodTable.getSourceWatermarkStatement().get(), String.class ) )
+            .thenReturn( sourceWatermark );
+
+        List<String> comments = Lists.newArrayList( tableWatermarks );
+
+        when( jdbcTemplate.queryForList( anyString(), eq( String.class ), eq( periodTable.getTableName() ) ) )
+            .thenReturn( comments );
+    }
+}
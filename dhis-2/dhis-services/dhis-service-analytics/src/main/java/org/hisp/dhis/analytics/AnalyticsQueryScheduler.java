@@ -0,0 +1,80 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Map;
+
+import org.hisp.dhis.common.QueryTimeoutException;
+
+/**
+ * Node-wide scheduler which limits the number of concurrently running
+ * aggregate analytics SQL queries. Query groups are admitted through a
+ * bounded, fair queue, and the number of parallel queries per request is
+ * decided from the current load.
+ */
+public interface AnalyticsQueryScheduler
+{
+    /**
+     * Returns the number of queries which a request should be split into,
+     * based on the number of available query slots and the number of
+     * requests currently waiting for admission.
+     *
+     * @param maxQueries the max number of queries for a request.
+     * @return the optimal number of queries, at least 1.
+     */
+    int getOptimalQueries( int maxQueries );
+
+    /**
+     * Waits for admission of a group of queries which will run in parallel.
+     * Admission is granted in arrival order.
+     *
+     * @param queries the number of queries in the group.
+     * @return the number of acquired query slots, which must be passed to
+     *         {@link #release(int)} when the queries are done.
+     * @throws QueryTimeoutException if admission was not granted within the
+     *         configured queue timeout.
+     */
+    int acquire( int queries );
+
+    /**
+     * Releases the given number of query slots.
+     *
+     * @param slots the number of slots returned by {@link #acquire(int)}.
+     */
+    void release( int slots );
+
+    /**
+     * Returns statistics for the scheduler, including the max number of
+     * concurrent queries, the number of running queries, the queue depth
+     * and the wait time for admission.
+     *
+     * @return a mapping between statistic names and values.
+     */
+    Map<String, Number> getStatistics();
+}
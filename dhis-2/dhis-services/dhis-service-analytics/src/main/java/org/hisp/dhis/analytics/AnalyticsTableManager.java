@@ -58,6 +58,19 @@ public interface AnalyticsTableManager
      */
     List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params );
 
+    /**
+     * Returns a {@link AnalyticsTable} with a list of yearly {@link AnalyticsTablePartition}
+     * for the years which contain data that has been changed since the last
+     * successful analytics table update. Partitions which do not exist yet
+     * are included, see {@link #isLatestTableMergeable(AnalyticsTable)}.
+     * Returns an empty list if latest updates are not supported for the table
+     * type.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return the analytics table with partitions.
+     */
+    List<AnalyticsTable> getLatestAnalyticsTables( AnalyticsTableUpdateParams params );
+
     /**
      * Returns a list of existing analytics database table names.
      *
@@ -108,6 +121,29 @@ public interface AnalyticsTableManager
      */
     void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table );
 
+    /**
+     * Merges the temporary partitions of the given latest analytics table into
+     * the existing partitions. Rows which are superseded by the latest data
+     * are removed from the existing partitions before the latest rows are
+     * inserted. The temporary table is dropped afterwards.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param table the analytics table.
+     */
+    void mergeLatestTable( AnalyticsTableUpdateParams params, AnalyticsTable table );
+
+    /**
+     * Indicates whether the given latest analytics table can be merged into
+     * the existing analytics tables, which requires every partition of the
+     * latest table to exist with the same columns as the latest table. The
+     * existing tables must otherwise be fully rebuilt, e.g. after dimensions
+     * were added or removed.
+     *
+     * @param table the analytics table.
+     * @return true if the latest table can be merged.
+     */
+    boolean isLatestTableMergeable( AnalyticsTable table );
+
     /**
      * Copies and denormalizes rows from data value table into analytics table.
      * The data range is based on the start date of the data value row.
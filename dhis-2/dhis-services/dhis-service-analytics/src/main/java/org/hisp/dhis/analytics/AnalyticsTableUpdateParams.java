@@ -61,6 +61,12 @@ public class AnalyticsTableUpdateParams
      */
     private Set<AnalyticsTableType> skipTableTypes;
 
+    /**
+     * Indicates whether to only update analytics tables with data which has
+     * changed since the last successful analytics table update.
+     */
+    private boolean latestUpdate;
+
     /**
      * Job ID.
      */
@@ -95,6 +101,11 @@ public class AnalyticsTableUpdateParams
         return skipTableTypes;
     }
 
+    public boolean isLatestUpdate()
+    {
+        return latestUpdate;
+    }
+
     public JobConfiguration getJobId()
     {
         return jobId;
@@ -126,6 +137,7 @@ public class AnalyticsTableUpdateParams
             .add( "last years", lastYears )
             .add( "skip resource tables", skipResourceTables )
             .add( "skip table types", skipTableTypes )
+            .add( "latest update", latestUpdate )
             .add( "start time", startTime )
             .toString();
     }
@@ -167,12 +179,14 @@ public class AnalyticsTableUpdateParams
 
         params.lastYears = this.lastYears;
         params.skipResourceTables = this.skipResourceTables;
-        params.skipTableTypes = new HashSet<>( this.skipTableTypes );
+        params.skipTableTypes = this.skipTableTypes != null ? new HashSet<>( this.skipTableTypes ) : null;
+        params.latestUpdate = this.latestUpdate;
         params.jobId = this.jobId;
         params.startTime = this.startTime;
 
-        return this;
+        return params;
     }
+
     public static Builder newBuilder()
     {
         return new AnalyticsTableUpdateParams.Builder();
@@ -218,6 +232,12 @@ public class AnalyticsTableUpdateParams
             return this;
         }
 
+        public Builder withLatestUpdate( boolean latestUpdate )
+        {
+            this.params.latestUpdate = latestUpdate;
+            return this;
+        }
+
         public Builder withJobId( JobConfiguration jobId )
         {
             this.params.jobId = jobId;
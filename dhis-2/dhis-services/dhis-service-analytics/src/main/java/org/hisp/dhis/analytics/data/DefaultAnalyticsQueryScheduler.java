@@ -0,0 +1,216 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.analytics.AnalyticsQueryScheduler;
+import org.hisp.dhis.common.QueryTimeoutException;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.util.MathUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Analytics query scheduler backed by a fair semaphore. The max number of
+ * concurrent queries is read from the <code>analytics.query.max_concurrent</code>
+ * configuration property, and defaults to two queries per database server CPU.
+ * The max time a query group will wait for admission is read from the
+ * <code>analytics.query.queue_timeout</code> configuration property in seconds.
+ */
+public class DefaultAnalyticsQueryScheduler
+    implements AnalyticsQueryScheduler
+{
+    private static final Log log = LogFactory.getLog( DefaultAnalyticsQueryScheduler.class );
+
+    private static final int QUERIES_PER_CPU = 2;
+
+    private final DhisConfigurationProvider dhisConfig;
+
+    private final SystemSettingManager systemSettingManager;
+
+    private volatile Semaphore semaphore;
+
+    private int maxConcurrentQueries;
+
+    private long queueTimeout;
+
+    private final AtomicLong admissions = new AtomicLong();
+
+    private final AtomicLong totalWaitTime = new AtomicLong();
+
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    @Autowired
+    public DefaultAnalyticsQueryScheduler( DhisConfigurationProvider dhisConfig, SystemSettingManager systemSettingManager )
+    {
+        checkNotNull( dhisConfig );
+        checkNotNull( systemSettingManager );
+
+        this.dhisConfig = dhisConfig;
+        this.systemSettingManager = systemSettingManager;
+    }
+
+    // -------------------------------------------------------------------------
+    // AnalyticsQueryScheduler implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public int getOptimalQueries( int maxQueries )
+    {
+        Semaphore slots = getSemaphore();
+
+        int share = slots.availablePermits() / ( slots.getQueueLength() + 1 );
+
+        return MathUtils.getWithin( share, 1, Math.min( maxQueries, maxConcurrentQueries ) );
+    }
+
+    @Override
+    public int acquire( int queries )
+    {
+        Semaphore slots = getSemaphore();
+
+        int permits = MathUtils.getWithin( queries, 1, maxConcurrentQueries );
+
+        long start = System.nanoTime();
+
+        boolean admitted;
+
+        try
+        {
+            admitted = slots.tryAcquire( permits, queueTimeout, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException( "Interrupted while waiting for analytics query admission", ex );
+        }
+
+        if ( !admitted )
+        {
+            timeouts.incrementAndGet();
+
+            log.warn( String.format( "Analytics query group of %d queries not admitted within %d s, queue depth: %d",
+                permits, queueTimeout, slots.getQueueLength() ) );
+
+            throw new QueryTimeoutException( "Analytics query could not be started as the server is busy, please try again later" );
+        }
+
+        long wait = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+
+        admissions.incrementAndGet();
+        totalWaitTime.addAndGet( wait );
+        maxWaitTime.accumulateAndGet( wait, Math::max );
+
+        log.debug( String.format( "Admitted analytics query group of %d queries after %d ms, queue depth: %d",
+            permits, wait, slots.getQueueLength() ) );
+
+        return permits;
+    }
+
+    @Override
+    public void release( int slots )
+    {
+        if ( slots > 0 )
+        {
+            getSemaphore().release( slots );
+        }
+    }
+
+    @Override
+    public Map<String, Number> getStatistics()
+    {
+        Semaphore slots = getSemaphore();
+
+        long admitted = admissions.get();
+
+        Map<String, Number> statistics = new LinkedHashMap<>();
+        statistics.put( "maxConcurrentQueries", maxConcurrentQueries );
+        statistics.put( "runningQueries", maxConcurrentQueries - slots.availablePermits() );
+        statistics.put( "queueDepth", slots.getQueueLength() );
+        statistics.put( "admittedGroups", admitted );
+        statistics.put( "timedOutGroups", timeouts.get() );
+        statistics.put( "averageWaitTimeMillis", admitted > 0 ? totalWaitTime.get() / admitted : 0L );
+        statistics.put( "maxWaitTimeMillis", maxWaitTime.get() );
+        return statistics;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the semaphore which controls admission, initializing it on first
+     * use since the database server CPU system setting is not available during
+     * startup.
+     */
+    private Semaphore getSemaphore()
+    {
+        if ( semaphore == null )
+        {
+            synchronized ( this )
+            {
+                if ( semaphore == null )
+                {
+                    int configured = Integer.parseInt( dhisConfig.getProperty( ConfigurationKey.ANALYTICS_QUERY_MAX_CONCURRENT ) );
+
+                    maxConcurrentQueries = configured > 0 ? configured : getDatabaseCpus() * QUERIES_PER_CPU;
+                    queueTimeout = Long.parseLong( dhisConfig.getProperty( ConfigurationKey.ANALYTICS_QUERY_QUEUE_TIMEOUT ) );
+
+                    log.info( String.format( "Analytics query scheduler max concurrent queries: %d, queue timeout: %d s",
+                        maxConcurrentQueries, queueTimeout ) );
+
+                    semaphore = new Semaphore( maxConcurrentQueries, true );
+                }
+            }
+        }
+
+        return semaphore;
+    }
+
+    private int getDatabaseCpus()
+    {
+        Integer cores = (Integer) systemSettingManager.getSystemSetting( SettingKey.DATABASE_SERVER_CPUS );
+
+        return ( cores == null || cores == 0 ) ? SystemUtils.getCpuCores() : cores;
+    }
+}
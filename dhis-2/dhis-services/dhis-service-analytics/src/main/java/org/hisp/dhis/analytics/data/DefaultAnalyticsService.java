@@ -71,6 +71,7 @@ import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
 import org.hisp.dhis.analytics.AnalyticsManager;
 import org.hisp.dhis.analytics.AnalyticsMetaDataKey;
+import org.hisp.dhis.analytics.AnalyticsQueryScheduler;
 import org.hisp.dhis.analytics.AnalyticsSecurityManager;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
@@ -174,6 +175,8 @@ public class DefaultAnalyticsService
 
     private Environment environment;
 
+    private AnalyticsQueryScheduler queryScheduler;
+
     // -------------------------------------------------------------------------
     // AnalyticsService implementation
     // -------------------------------------------------------------------------
@@ -198,7 +201,8 @@ public class DefaultAnalyticsService
         ConstantService constantService, ExpressionService expressionService,
         OrganisationUnitService organisationUnitService, SystemSettingManager systemSettingManager,
         EventAnalyticsService eventAnalyticsService, DataQueryService dataQueryService,
-        DhisConfigurationProvider dhisConfig, CacheProvider cacheProvider, Environment environment)
+        DhisConfigurationProvider dhisConfig, CacheProvider cacheProvider, Environment environment,
+        AnalyticsQueryScheduler queryScheduler )
     {
         checkNotNull( analyticsManager );
         checkNotNull( rawAnalyticsManager );
@@ -214,6 +218,7 @@ public class DefaultAnalyticsService
         checkNotNull( dhisConfig );
         checkNotNull( cacheProvider );
         checkNotNull( environment );
+        checkNotNull( queryScheduler );
 
         this.analyticsManager = analyticsManager;
         this.rawAnalyticsManager = rawAnalyticsManager;
@@ -229,6 +234,7 @@ public class DefaultAnalyticsService
         this.dhisConfig = dhisConfig;
         this.cacheProvider = cacheProvider;
         this.environment = environment;
+        this.queryScheduler = queryScheduler;
     }
 
     @Override
@@ -1172,7 +1178,7 @@ public class DefaultAnalyticsService
     {
         queryValidator.validateMaintenanceMode();
 
-        int optimalQueries = MathUtils.getWithin( getProcessNo(), 1, MAX_QUERIES );
+        int optimalQueries = queryScheduler.getOptimalQueries( MathUtils.getWithin( getProcessNo(), 1, MAX_QUERIES ) );
 
         int maxLimit = params.isIgnoreLimit() ? 0 : (Integer) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_MAX_LIMIT );
 
@@ -1191,39 +1197,48 @@ public class DefaultAnalyticsService
 
         for ( List<DataQueryParams> queries : queryGroups.getSequentialQueries() )
         {
-            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            int slots = queryScheduler.acquire( queries.size() );
 
-            for ( DataQueryParams query : queries )
+            try
             {
-                futures.add( analyticsManager.getAggregatedDataValues( query, tableType, maxLimit ) );
-            }
+                List<Future<Map<String, Object>>> futures = new ArrayList<>();
 
-            for ( Future<Map<String, Object>> future : futures )
-            {
-                try
+                for ( DataQueryParams query : queries )
                 {
-                    Map<String, Object> taskValues = future.get();
-
-                    if ( taskValues != null )
-                    {
-                        map.putAll( taskValues );
-                    }
+                    futures.add( analyticsManager.getAggregatedDataValues( query, tableType, maxLimit ) );
                 }
-                catch ( Exception ex )
-                {
-                    log.error( DebugUtils.getStackTrace( ex ) );
-                    log.error( DebugUtils.getStackTrace( ex.getCause() ) );
 
-                    if ( ex.getCause() != null && ex.getCause() instanceof RuntimeException )
+                for ( Future<Map<String, Object>> future : futures )
+                {
+                    try
                     {
-                        throw (RuntimeException) ex.getCause(); // Throw the real exception instead of execution exception
+                        Map<String, Object> taskValues = future.get();
+
+                        if ( taskValues != null )
+                        {
+                            map.putAll( taskValues );
+                        }
                     }
-                    else
+                    catch ( Exception ex )
                     {
-                        throw new RuntimeException( "Error during execution of aggregation query task", ex );
+                        log.error( DebugUtils.getStackTrace( ex ) );
+                        log.error( DebugUtils.getStackTrace( ex.getCause() ) );
+
+                        if ( ex.getCause() != null && ex.getCause() instanceof RuntimeException )
+                        {
+                            throw (RuntimeException) ex.getCause(); // Throw the real exception instead of execution exception
+                        }
+                        else
+                        {
+                            throw new RuntimeException( "Error during execution of aggregation query task", ex );
+                        }
                     }
                 }
             }
+            finally
+            {
+                queryScheduler.release( slots );
+            }
         }
 
         timer.getTime( "Got analytics values" );
@@ -49,6 +49,9 @@ import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
 import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
 import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -89,8 +92,9 @@ import org.hisp.dhis.period.PeriodType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.util.Assert;
@@ -112,6 +116,7 @@ public class JdbcAnalyticsManager
 
     private static final String COL_APPROVALLEVEL = "approvallevel";
     private static final int LAST_VALUE_YEARS_OFFSET = -10;
+    private static final int FETCH_SIZE = 10000;
 
     private static final Map<MeasureFilter, String> OPERATOR_SQL_MAP = ImmutableMap.<MeasureFilter, String>builder()
         .put( MeasureFilter.EQ, "=" )
@@ -640,49 +645,100 @@ public class JdbcAnalyticsManager
 
     /**
      * Retrieves data from the database based on the given query and SQL and puts
-     * into a value key and value mapping.
+     * into a value key and value mapping. Rows are consumed one at a time from a
+     * forward-only result set, and column indexes are resolved once for the
+     * result set. The query runs with auto-commit off, as the fetch size is
+     * otherwise ignored and the full result set is loaded into memory.
      */
     private Map<String, Object> getKeyValueMap( DataQueryParams params, String sql, int maxLimit )
     {
-        Map<String, Object> map = new HashMap<>();
+        final Map<String, Object> map = new HashMap<>();
 
         log.debug( String.format( "Analytics SQL: %s", sql ) );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        final List<DimensionalObject> dimensions = params.getDimensions();
+        final boolean text = params.isDataType( TEXT );
 
-        int counter = 0;
-
-        while ( rowSet.next() )
+        RowCallbackHandler handler = new RowCallbackHandler()
         {
-            if ( maxLimit > 0 && ++counter > maxLimit )
-            {
-                throw new IllegalQueryException( "Query result set exceeds max limit: " + maxLimit );
-            }
+            private final StringBuilder key = new StringBuilder();
+
+            private int[] columnIndexes;
+
+            private int valueIndex;
 
-            StringBuilder key = new StringBuilder();
+            private int counter = 0;
 
-            for ( DimensionalObject dim : params.getDimensions() )
+            @Override
+            public void processRow( ResultSet rs )
+                throws SQLException
             {
-                String value = dim.isFixed() ? dim.getDimensionName() : rowSet.getString( dim.getDimensionName() );
+                if ( maxLimit > 0 && ++counter > maxLimit )
+                {
+                    throw new IllegalQueryException( "Query result set exceeds max limit: " + maxLimit );
+                }
+
+                if ( columnIndexes == null )
+                {
+                    columnIndexes = new int[dimensions.size()];
+
+                    for ( int i = 0; i < dimensions.size(); i++ )
+                    {
+                        DimensionalObject dim = dimensions.get( i );
+                        columnIndexes[i] = dim.isFixed() ? -1 : rs.findColumn( dim.getDimensionName() );
+                    }
+
+                    valueIndex = rs.findColumn( VALUE_ID );
+                }
+
+                key.setLength( 0 );
+
+                for ( int i = 0; i < columnIndexes.length; i++ )
+                {
+                    String value = columnIndexes[i] == -1 ? dimensions.get( i ).getDimensionName() : rs.getString( columnIndexes[i] );
 
-                key.append( value ).append( DIMENSION_SEP );
+                    key.append( value ).append( DIMENSION_SEP );
+                }
+
+                key.setLength( key.length() - 1 );
+
+                if ( text )
+                {
+                    map.put( key.toString(), rs.getString( valueIndex ) );
+                }
+                else // NUMERIC
+                {
+                    map.put( key.toString(), rs.getDouble( valueIndex ) );
+                }
             }
+        };
+
+        jdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
 
-            key.deleteCharAt( key.length() - 1 );
+            // Cursor based fetching requires the query to run in a transaction
 
-            if ( params.isDataType( TEXT ) )
+            connection.setAutoCommit( false );
+
+            try ( PreparedStatement statement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
             {
-                String value = rowSet.getString( VALUE_ID );
+                statement.setFetchSize( FETCH_SIZE );
 
-                map.put( key.toString(), value );
+                try ( ResultSet rs = statement.executeQuery() )
+                {
+                    while ( rs.next() )
+                    {
+                        handler.processRow( rs );
+                    }
+                }
             }
-            else // NUMERIC
+            finally
             {
-                Double value = rowSet.getDouble( VALUE_ID );
-
-                map.put( key.toString(), value );
+                connection.setAutoCommit( autoCommit );
             }
-        }
+
+            return null;
+        } );
 
         return map;
     }
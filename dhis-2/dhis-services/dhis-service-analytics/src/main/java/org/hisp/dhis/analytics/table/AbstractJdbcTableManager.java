@@ -30,6 +30,7 @@ package org.hisp.dhis.analytics.table;
 
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -52,6 +53,7 @@ import org.hisp.dhis.analytics.AnalyticsTablePhase;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.analytics.util.AnalyticsSqlUtils;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.IdentifiableObjectManager;
@@ -72,6 +74,9 @@ import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
 /**
  * @author Lars Helge Overland
  */
@@ -128,6 +133,15 @@ public abstract class AbstractJdbcTableManager
         return partitionManager.getAnalyticsPartitions( getAnalyticsTableType() );
     }
 
+    /**
+     * Override in order to support latest updates of analytics tables.
+     */
+    @Override
+    public List<AnalyticsTable> getLatestAnalyticsTables( AnalyticsTableUpdateParams params )
+    {
+        return Lists.newArrayList();
+    }
+
     /**
      * Override in order to perform work before tables are being generated.
      */
@@ -193,6 +207,49 @@ public abstract class AbstractJdbcTableManager
         }
     }
 
+    @Override
+    public void mergeLatestTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
+    {
+        final String columns = StringUtils.join( getColumnNames( table ), "," );
+
+        for ( AnalyticsTablePartition partition : table.getPartitionTables() )
+        {
+            // Statements are executed in a single implicit transaction
+
+            final String sql =
+                getRemoveUpdatedDataSql( params, partition ) +
+                "insert into " + partition.getTableName() + " (" + columns + ") " +
+                "select " + columns + " from " + partition.getTempTableName() + ";";
+
+            invokeTimeAndLog( sql, String.format( "Merge %s into %s", partition.getTempTableName(), partition.getTableName() ) );
+        }
+
+        dropTempTable( table );
+    }
+
+    @Override
+    public boolean isLatestTableMergeable( AnalyticsTable table )
+    {
+        final Set<String> columns = getColumnNames( table ).stream()
+            .map( AnalyticsSqlUtils::removeQuote )
+            .collect( Collectors.toSet() );
+
+        for ( AnalyticsTablePartition partition : table.getPartitionTables() )
+        {
+            final Set<String> existingColumns = getExistingColumnNames( partition.getTableName() );
+
+            if ( !columns.equals( existingColumns ) )
+            {
+                log.warn( String.format( "Columns of table %s do not match latest table, missing: %s, obsolete: %s",
+                    partition.getTableName(), Sets.difference( columns, existingColumns ), Sets.difference( existingColumns, columns ) ) );
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     @Override
     public void dropTempTable( AnalyticsTable table )
     {
@@ -267,6 +324,21 @@ public abstract class AbstractJdbcTableManager
      */
     protected abstract void populateTable( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition );
 
+    /**
+     * Returns SQL statements for removing rows from the given existing analytics
+     * table partition which are superseded by data changed since the last
+     * successful analytics table update. Override in order to support latest
+     * updates of analytics tables.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @return SQL statements terminated by semicolon, or an empty string.
+     */
+    protected String getRemoveUpdatedDataSql( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        return StringUtils.EMPTY;
+    }
+
     // -------------------------------------------------------------------------
     // Protected supportive methods
     // -------------------------------------------------------------------------
@@ -451,6 +523,27 @@ public abstract class AbstractJdbcTableManager
             .collect( Collectors.toList() );
     }
 
+    /**
+     * Returns the time of the last successful analytics table update, either
+     * full or latest, whichever is more recent. Data changed after this time
+     * is included in latest updates of analytics tables.
+     *
+     * @return the time of the last successful update, or null if no update
+     *         has been performed.
+     */
+    protected Date getLastSuccessfulUpdate()
+    {
+        Date lastFullUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE );
+        Date lastLatestUpdate = (Date) systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_TABLES_UPDATE );
+
+        if ( lastFullUpdate == null || lastLatestUpdate == null )
+        {
+            return lastFullUpdate;
+        }
+
+        return lastLatestUpdate.after( lastFullUpdate ) ? lastLatestUpdate : lastFullUpdate;
+    }
+
     /**
      * Executes the given  SQL statement. Logs and times the operation.
      *
@@ -472,6 +565,34 @@ public abstract class AbstractJdbcTableManager
     // Private supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Returns the names of the dimension and value columns of the given
+     * analytics table.
+     *
+     * @param table the analytics table.
+     */
+    private List<String> getColumnNames( AnalyticsTable table )
+    {
+        return ListUtils.union( table.getDimensionColumns(), table.getValueColumns() ).stream()
+            .map( AnalyticsTableColumn::getName )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns the names of the columns of the given database table, which is
+     * empty if the table does not exist.
+     *
+     * @param tableName the table name.
+     */
+    private Set<String> getExistingColumnNames( String tableName )
+    {
+        final String sql =
+            "select column_name from information_schema.columns " +
+            "where table_name = '" + tableName + "'";
+
+        return new HashSet<>( jdbcTemplate.queryForList( sql, String.class ) );
+    }
+
     /**
      * Swaps a database table, meaning drops the real table and renames the
      * temporary table to become the real table.
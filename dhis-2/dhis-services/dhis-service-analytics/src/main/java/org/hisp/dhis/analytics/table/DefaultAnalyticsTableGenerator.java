@@ -34,6 +34,11 @@ import static org.hisp.dhis.system.notification.NotificationLevel.INFO;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -53,6 +58,8 @@ import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.Clock;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Lars Helge Overland
  */
@@ -97,7 +104,7 @@ public class DefaultAnalyticsTableGenerator
         {
             notifier.clear( jobId ).notify( jobId, "Analytics table update process started" );
 
-            if ( !params.isSkipResourceTables() )
+            if ( !params.isSkipResourceTables() && !params.isLatestUpdate() )
             {
                 notifier.notify( jobId, "Updating resource tables" );
                 generateResourceTables();
@@ -128,8 +135,15 @@ public class DefaultAnalyticsTableGenerator
             throw ex;
         }
 
-        systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE, params.getStartTime() );
-        systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME, DateUtils.getPrettyInterval( clock.getSplitTime() ) );
+        if ( params.isLatestUpdate() )
+        {
+            systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_TABLES_UPDATE, params.getStartTime() );
+        }
+        else
+        {
+            systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE, params.getStartTime() );
+            systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME, DateUtils.getPrettyInterval( clock.getSplitTime() ) );
+        }
     }
 
     @Override
@@ -168,22 +182,55 @@ public class DefaultAnalyticsTableGenerator
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Generates the resource tables. Independent tables are generated in
+     * parallel, each in its own transaction. The organisation unit group set
+     * table reads the organisation unit structure table, and the category
+     * table is generated after the category option combo names table, so
+     * these are started when the table they depend on is done. SQL views may
+     * depend on any resource table and are dropped before and created after
+     * all tables.
+     */
     private void generateResourceTables()
     {
         final Date startTime = new Date();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool( DefaultAnalyticsTableService.getProcessNo( systemSettingManager ), runnable ->
+            new Thread( runnable, "resource-table-" + threadNumber.incrementAndGet() ) );
 
         resourceTableService.dropAllSqlViews();
-        resourceTableService.generateOrganisationUnitStructures();
-        resourceTableService.generateDataSetOrganisationUnitCategoryTable();
-        resourceTableService.generateCategoryOptionComboNames();
-        resourceTableService.generateDataElementGroupSetTable();
-        resourceTableService.generateIndicatorGroupSetTable();
-        resourceTableService.generateOrganisationUnitGroupSetTable();
-        resourceTableService.generateCategoryTable();
-        resourceTableService.generateDataElementTable();
-        resourceTableService.generatePeriodTable();
-        resourceTableService.generateDatePeriodTable();
-        resourceTableService.generateCategoryOptionComboTable();
+
+        try
+        {
+            CompletableFuture<Void> orgUnitStructures = CompletableFuture.runAsync(
+                resourceTableService::generateOrganisationUnitStructures, executor );
+            CompletableFuture<Void> categoryOptionComboNames = CompletableFuture.runAsync(
+                resourceTableService::generateCategoryOptionComboNames, executor );
+
+            List<CompletableFuture<Void>> tables = Lists.newArrayList(
+                orgUnitStructures,
+                categoryOptionComboNames,
+                CompletableFuture.runAsync( resourceTableService::generateDataSetOrganisationUnitCategoryTable, executor ),
+                CompletableFuture.runAsync( resourceTableService::generateDataElementGroupSetTable, executor ),
+                CompletableFuture.runAsync( resourceTableService::generateIndicatorGroupSetTable, executor ),
+                CompletableFuture.runAsync( resourceTableService::generateDataElementTable, executor ),
+                CompletableFuture.runAsync( resourceTableService::generatePeriodTable, executor ),
+                CompletableFuture.runAsync( resourceTableService::generateDatePeriodTable, executor ),
+                CompletableFuture.runAsync( resourceTableService::generateCategoryOptionComboTable, executor ),
+                orgUnitStructures.thenRunAsync( resourceTableService::generateOrganisationUnitGroupSetTable, executor ),
+                categoryOptionComboNames.thenRunAsync( resourceTableService::generateCategoryTable, executor ) );
+
+            CompletableFuture.allOf( tables.toArray( new CompletableFuture[0] ) ).join();
+        }
+        catch ( CompletionException ex )
+        {
+            throw ex.getCause() instanceof RuntimeException ? (RuntimeException) ex.getCause() : ex;
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
         resourceTableService.createAllSqlViews();
 
         systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_RESOURCE_TABLES_UPDATE, startTime );
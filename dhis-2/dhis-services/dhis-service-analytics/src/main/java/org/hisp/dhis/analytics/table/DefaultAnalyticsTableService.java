@@ -118,7 +118,22 @@ public class DefaultAnalyticsTableService
             return;
         }
 
-        final List<AnalyticsTable> tables = tableManager.getAnalyticsTables( params );
+        List<AnalyticsTable> tables = params.isLatestUpdate() ?
+            tableManager.getLatestAnalyticsTables( params ) :
+            tableManager.getAnalyticsTables( params );
+
+        if ( params.isLatestUpdate() && !tables.stream().allMatch( tableManager::isLatestTableMergeable ) )
+        {
+            clock.logTime( "Latest tables do not match existing tables, performing full update" );
+            notifier.notify( jobId, "Latest tables do not match existing tables, performing full update" );
+
+            params = AnalyticsTableUpdateParams.newBuilder( params )
+                .withLatestUpdate( false )
+                .withLastYears( null )
+                .build();
+
+            tables = tableManager.getAnalyticsTables( params );
+        }
 
         if ( tables.isEmpty() )
         {
@@ -159,6 +174,17 @@ public class DefaultAnalyticsTableService
 
         clock.logTime( "Applied aggregation levels" );
 
+        if ( params.isLatestUpdate() )
+        {
+            notifier.notify( jobId, "Merging latest analytics tables" );
+
+            mergeLatestTables( params, tables );
+
+            clock.logTime( "Latest table update done: " + tableType.getTableName() );
+            notifier.notify( jobId, "Latest table update done" );
+            return;
+        }
+
         if ( tableUpdates > 0 )
         {
             notifier.notify( jobId, "Vacuuming tables" );
@@ -382,6 +408,18 @@ public class DefaultAnalyticsTableService
         resourceTableService.createAllSqlViews();
     }
 
+    /**
+     * Merges the given latest analytics tables into the existing analytics
+     * tables.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param tables the list of {@link AnalyticsTable}.
+     */
+    private void mergeLatestTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+        tables.forEach( table -> tableManager.mergeLatestTable( params, table ) );
+    }
+
     /**
      * Gets the number of available cores. Uses explicit number from system
      * setting if available. Detects number of cores from current server runtime
@@ -389,6 +427,17 @@ public class DefaultAnalyticsTableService
      * one core for general system operations.
      */
     private int getProcessNo()
+    {
+        return getProcessNo( systemSettingManager );
+    }
+
+    /**
+     * Gets the number of available cores as described by {@link #getProcessNo()}.
+     *
+     * @param systemSettingManager the system setting manager.
+     * @return the number of processes to use for analytics table operations.
+     */
+    static int getProcessNo( SystemSettingManager systemSettingManager )
     {
         Integer cores = (Integer) systemSettingManager.getSystemSetting( SettingKey.DATABASE_SERVER_CPUS );
 
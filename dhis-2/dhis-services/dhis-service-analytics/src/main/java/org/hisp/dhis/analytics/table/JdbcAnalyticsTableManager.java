@@ -121,6 +121,25 @@ public class JdbcAnalyticsTableManager
         return table.hasPartitionTables() ? newArrayList( table ) : newArrayList();
     }
 
+    @Override
+    @Transactional
+    public List<AnalyticsTable> getLatestAnalyticsTables( AnalyticsTableUpdateParams params )
+    {
+        Date lastUpdate = getLastSuccessfulUpdate();
+
+        if ( lastUpdate == null )
+        {
+            log.info( "No successful analytics table update exists, latest update not possible" );
+            return newArrayList();
+        }
+
+        // Partitions missing for changed data are caught by isLatestTableMergeable
+
+        AnalyticsTable table = getAnalyticsTable( getLatestDataYears( lastUpdate, params.getStartTime() ), getDimensionColumns(), getValueColumns() );
+
+        return table.hasPartitionTables() ? newArrayList( table ) : newArrayList();
+    }
+
     @Override
     public String validState()
     {
@@ -180,6 +199,27 @@ public class JdbcAnalyticsTableManager
         populateTable( params, partition, "null", "dv.value", Sets.union( ValueType.TEXT_TYPES, ValueType.DATE_TYPES ), null );
     }
 
+    @Override
+    protected String getRemoveUpdatedDataSql( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        return
+            "delete from " + partition.getTableName() + " ax " +
+            "using datavalue dv " +
+            "inner join _periodstructure ps on dv.periodid=ps.periodid " +
+            "inner join dataelement de on dv.dataelementid=de.dataelementid " +
+            "inner join organisationunit ou on dv.sourceid=ou.organisationunitid " +
+            "inner join categoryoptioncombo co on dv.categoryoptioncomboid=co.categoryoptioncomboid " +
+            "inner join categoryoptioncombo ao on dv.attributeoptioncomboid=ao.categoryoptioncomboid " +
+            "where ps.year = " + partition.getYear() + " " +
+            "and dv.lastupdated > '" + getLongDateString( getLastSuccessfulUpdate() ) + "' " +
+            "and dv.lastupdated <= '" + getLongDateString( params.getStartTime() ) + "' " +
+            "and ax." + quote( "dx" ) + " = de.uid " +
+            "and ax." + quote( "co" ) + " = co.uid " +
+            "and ax." + quote( "ao" ) + " = ao.uid " +
+            "and ax." + quote( "pe" ) + " = ps.iso " +
+            "and ax." + quote( "ou" ) + " = ou.uid;";
+    }
+
     /**
      * Populates the given analytics table.
      *
@@ -246,6 +286,11 @@ public class JdbcAnalyticsTableManager
             "and dv.value is not null " +
             "and dv.deleted is false ";
 
+        if ( params.isLatestUpdate() )
+        {
+            sql += "and dv.lastupdated > '" + getLongDateString( getLastSuccessfulUpdate() ) + "' ";
+        }
+
         if ( respectStartEndDates )
         {
             sql +=
@@ -409,6 +454,26 @@ public class JdbcAnalyticsTableManager
         return jdbcTemplate.queryForList( sql, Integer.class );
     }
 
+    /**
+     * Returns the years for which data values have been changed within the
+     * given time range.
+     *
+     * @param startTime the start time, exclusive.
+     * @param endTime the end time, inclusive.
+     */
+    private List<Integer> getLatestDataYears( Date startTime, Date endTime )
+    {
+        String sql =
+            "select distinct(extract(year from pe.startdate)) " +
+            "from datavalue dv " +
+            "inner join period pe on dv.periodid=pe.periodid " +
+            "where pe.startdate is not null " +
+            "and dv.lastupdated > '" + getLongDateString( startTime ) + "' " +
+            "and dv.lastupdated <= '" + getLongDateString( endTime ) + "'";
+
+        return jdbcTemplate.queryForList( sql, Integer.class );
+    }
+
     @Override
     @Async
     public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions, Collection<String> dataElements, int aggregationLevel )
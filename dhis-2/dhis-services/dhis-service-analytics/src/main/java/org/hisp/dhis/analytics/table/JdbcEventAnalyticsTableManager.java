@@ -42,7 +42,9 @@ import static org.hisp.dhis.system.util.MathUtils.NUMERIC_LENIENT_REGEXP;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
@@ -54,6 +56,8 @@ import org.hisp.dhis.api.util.DateUtils;
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.category.Category;
 import org.hisp.dhis.category.CategoryOptionGroupSet;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataelement.DataElement;
@@ -167,6 +171,8 @@ public class JdbcEventAnalyticsTableManager
             "and (cast(date_trunc('month', psi.executiondate) as date)=ougs.startdate or ougs.startdate is null) " +
             "inner join _categorystructure acs on psi.attributeoptioncomboid=acs.categoryoptioncomboid " +
             "left join _dateperiodstructure dps on cast(psi.executiondate as date)=dps.dateperiod " +
+            getAttributeValueJoin( program ) +
+            getLegendJoin( program ) +
             "where psi.executiondate >= '" + start + "' " +
             "and psi.executiondate < '" + end + "' " +
             "and psi.lastupdated <= '" + getLongDateString( params.getStartTime() ) + "' " +
@@ -178,11 +184,16 @@ public class JdbcEventAnalyticsTableManager
         invokeTimeAndLog( sql, String.format( "Populate %s", tableName ) );
     }
 
+    /**
+     * Returns the analytics table columns of the given program. Data element
+     * values are read from the event row being populated, attribute values
+     * from the pivoted join given by {@link #getAttributeValueJoin(Program)}
+     * and legends from the joins given by {@link #getLegendJoin(Program)}, so
+     * that no column looks up other rows of the event, attribute value or
+     * legend tables.
+     */
     private List<AnalyticsTableColumn> getDimensionColumns( Program program )
     {
-        final String numericClause = " and value " + statementBuilder.getRegexpMatch() + " '" + NUMERIC_LENIENT_REGEXP + "'";
-        final String dateClause = " and value " + statementBuilder.getRegexpMatch() + " '" + DATE_REGEXP + "'";
-
         List<AnalyticsTableColumn> columns = new ArrayList<>();
 
         if ( program.hasCategoryCombo() )
@@ -232,75 +243,42 @@ public class JdbcEventAnalyticsTableManager
         for ( DataElement dataElement : program.getDataElements() )
         {
             ColumnDataType dataType = getColumnType( dataElement.getValueType() );
-            // Assemble a regex dataClause with using jsonb #>> operator
-            String dataClause = getDataClause( dataElement.getUid(), dataElement.getValueType() );
-
-            // Assemble a String with using jsonb #>> operator that will fetch the required value
-            String columnName = "eventdatavalues #>> '{" + dataElement.getUid() + ", value}'";
-            String select = getSelectClause( dataElement.getValueType(), columnName );
+            String value = getValueClause( getDataValueColumn( dataElement ), dataElement.getValueType() );
             boolean skipIndex = NO_INDEX_VAL_TYPES.contains( dataElement.getValueType() ) && !dataElement.hasOptionSet();
 
-            String sql = "(select " + select + " from programstageinstance where programstageinstanceid=psi.programstageinstanceid " +
-                dataClause + ") as " + quote( dataElement.getUid() );
+            String sql = value + " as " + quote( dataElement.getUid() );
 
             columns.add( new AnalyticsTableColumn( quote( dataElement.getUid() ), dataType, sql ).withSkipIndex( skipIndex ) );
         }
 
         for ( DataElement dataElement : program.getDataElementsWithLegendSet() )
         {
-            // Assemble a regex dataClause with using jsonb #>> operator
-            String dataClause = getDataClause( dataElement.getUid(), dataElement.getValueType() );
-
-            // Assemble a String with using jsonb #>> operator that will fetch the required value
-            String columnName = "eventdatavalues #>> '{" + dataElement.getUid() + ", value}'";
-            String select = getSelectClause( dataElement.getValueType(), columnName );
-
             for ( LegendSet legendSet : dataElement.getLegendSets() )
             {
                 String column = quote( dataElement.getUid() + PartitionUtils.SEP + legendSet.getUid() );
 
-                String sql =
-                    "(select l.uid from maplegend l " +
-                    "inner join programstageinstance on l.startvalue <= " + select + " " +
-                    "and l.endvalue > " + select + " " +
-                    "and l.maplegendsetid=" + legendSet.getId() + " " +
-                    "and programstageinstanceid=psi.programstageinstanceid " +
-                    dataClause + ") as " + column;
-
-                columns.add( new AnalyticsTableColumn( column, CHARACTER_11, sql ) );
+                columns.add( new AnalyticsTableColumn( column, CHARACTER_11, getLegendAlias( dataElement, legendSet ) + ".uid as " + column ) );
             }
         }
 
         for ( TrackedEntityAttribute attribute : program.getNonConfidentialTrackedEntityAttributes() )
         {
             ColumnDataType dataType = getColumnType( attribute.getValueType() );
-            String dataClause = attribute.isNumericType() ? numericClause : attribute.isDateType() ? dateClause : "";
-            String select = getSelectClause( attribute.getValueType(), "value" );
+            String value = getValueClause( getAttributeValueColumn( attribute ), attribute.getValueType() );
             boolean skipIndex = NO_INDEX_VAL_TYPES.contains( attribute.getValueType() ) && !attribute.hasOptionSet();
 
-            String sql = "(select " + select + " from trackedentityattributevalue where trackedentityinstanceid=pi.trackedentityinstanceid " +
-                "and trackedentityattributeid=" + attribute.getId() + dataClause + ") as " + quote( attribute.getUid() );
+            String sql = value + " as " + quote( attribute.getUid() );
 
             columns.add( new AnalyticsTableColumn( quote( attribute.getUid() ), dataType, sql ).withSkipIndex( skipIndex ) );
         }
 
         for ( TrackedEntityAttribute attribute : program.getNonConfidentialTrackedEntityAttributesWithLegendSet() )
         {
-            String select = getSelectClause( attribute.getValueType(), "value" );
-
             for ( LegendSet legendSet : attribute.getLegendSets() )
             {
                 String column = quote( attribute.getUid() + PartitionUtils.SEP + legendSet.getUid() );
 
-                String sql =
-                    "(select l.uid from maplegend l " +
-                    "inner join trackedentityattributevalue av on l.startvalue <= " + select + " " +
-                    "and l.endvalue > " + select + " " +
-                    "and l.maplegendsetid=" + legendSet.getId() + " " +
-                    "and av.trackedentityinstanceid=pi.trackedentityinstanceid " +
-                    "and av.trackedentityattributeid=" + attribute.getId() + numericClause + ") as " + column;
-
-                columns.add( new AnalyticsTableColumn( column, CHARACTER_11, sql ) );
+                columns.add( new AnalyticsTableColumn( column, CHARACTER_11, getLegendAlias( attribute, legendSet ) + ".uid as " + column ) );
             }
         }
 
@@ -336,15 +314,115 @@ public class JdbcEventAnalyticsTableManager
         return filterDimensionColumns( columns );
     }
 
-    private String getDataClause( String uid, ValueType valueType )
+    /**
+     * Returns a left join with the values of the tracked entity attributes of
+     * the given program, pivoted to one row per tracked entity instance with
+     * one column per attribute. Only instances enrolled in the program are
+     * included. Returns an empty string if the program has no attributes.
+     */
+    private String getAttributeValueJoin( Program program )
     {
+        Set<TrackedEntityAttribute> attributes = new LinkedHashSet<>( program.getNonConfidentialTrackedEntityAttributes() );
+        attributes.addAll( program.getNonConfidentialTrackedEntityAttributesWithLegendSet() );
+
+        if ( attributes.isEmpty() )
+        {
+            return "";
+        }
+
+        String sql = "left join (select trackedentityinstanceid, ";
+
+        for ( TrackedEntityAttribute attribute : attributes )
+        {
+            sql += "max(case when trackedentityattributeid=" + attribute.getId() + " then value end) as " + quote( attribute.getUid() ) + ",";
+        }
+
+        sql = TextUtils.removeLastComma( sql ) + " " +
+            "from trackedentityattributevalue " +
+            "where trackedentityattributeid in (" + TextUtils.getCommaDelimitedString( IdentifiableObjectUtils.getIdentifiers( attributes ) ) + ") " +
+            "and trackedentityinstanceid in (select trackedentityinstanceid from programinstance where programid=" + program.getId() + ") " +
+            "group by trackedentityinstanceid) teav on pi.trackedentityinstanceid=teav.trackedentityinstanceid ";
+
+        return sql;
+    }
+
+    private String getDataValueColumn( DataElement dataElement )
+    {
+        return "psi.eventdatavalues #>> '{" + dataElement.getUid() + ", value}'";
+    }
+
+    private String getAttributeValueColumn( TrackedEntityAttribute attribute )
+    {
+        return "teav." + quote( attribute.getUid() );
+    }
+
+    /**
+     * Returns the given value column cast to the given value type. Numeric and
+     * date values which do not match the expected format are null.
+     */
+    private String getValueClause( String column, ValueType valueType )
+    {
+        String select = getSelectClause( valueType, column );
+
         if ( valueType.isNumeric() || valueType.isDate() )
         {
-            String regex = valueType.isNumeric() ? NUMERIC_LENIENT_REGEXP : valueType.isDate() ? DATE_REGEXP : "";
-            return " and eventdatavalues #>> '{" + uid + ",value}' " + statementBuilder.getRegexpMatch() + " '" + regex + "'";
+            String regex = valueType.isNumeric() ? NUMERIC_LENIENT_REGEXP : DATE_REGEXP;
+
+            return "case when " + column + " " + statementBuilder.getRegexpMatch() + " '" + regex + "' then " + select + " end";
         }
 
-        return "";
+        return select;
+    }
+
+    /**
+     * Returns a lateral join with the legend table for each legend set of
+     * the data elements and tracked entity attributes of the given program,
+     * giving the legend which contains the value of the data element or
+     * attribute. When legends of a legend set overlap or repeat, the legend
+     * with the lowest start value is used, so that each event gives a single
+     * row. Returns an empty string if the program has no legend sets.
+     */
+    private String getLegendJoin( Program program )
+    {
+        String sql = "";
+
+        for ( DataElement dataElement : program.getDataElementsWithLegendSet() )
+        {
+            String value = getValueClause( getDataValueColumn( dataElement ), dataElement.getValueType() );
+
+            for ( LegendSet legendSet : dataElement.getLegendSets() )
+            {
+                sql += getLegendJoin( getLegendAlias( dataElement, legendSet ), legendSet, value );
+            }
+        }
+
+        for ( TrackedEntityAttribute attribute : program.getNonConfidentialTrackedEntityAttributesWithLegendSet() )
+        {
+            String value = getValueClause( getAttributeValueColumn( attribute ), attribute.getValueType() );
+
+            for ( LegendSet legendSet : attribute.getLegendSets() )
+            {
+                sql += getLegendJoin( getLegendAlias( attribute, legendSet ), legendSet, value );
+            }
+        }
+
+        return sql;
+    }
+
+    private String getLegendJoin( String alias, LegendSet legendSet, String value )
+    {
+        return "left join lateral (" +
+            "select ml.uid from maplegend ml " +
+            "where ml.maplegendsetid=" + legendSet.getId() + " " +
+            "and ml.startvalue <= " + value + " " +
+            "and ml.endvalue > " + value + " " +
+            "order by ml.startvalue, ml.maplegendid " +
+            "limit 1) " + alias + " on true ";
+    }
+
+    private String getLegendAlias( IdentifiableObject object, LegendSet legendSet )
+    {
+        return quote( "l" + PartitionUtils.SEP + object.getUid() + PartitionUtils.SEP + legendSet.getUid() );
     }
 
     private List<Integer> getDataYears( Program program, Date earliest )
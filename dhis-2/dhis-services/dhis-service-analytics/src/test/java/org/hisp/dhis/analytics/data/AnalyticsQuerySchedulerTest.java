@@ -0,0 +1,123 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.Map;
+
+import org.hisp.dhis.common.QueryTimeoutException;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class AnalyticsQuerySchedulerTest
+{
+    @Mock
+    private DhisConfigurationProvider dhisConfig;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DefaultAnalyticsQueryScheduler scheduler;
+
+    @Before
+    public void setUp()
+    {
+        when( dhisConfig.getProperty( ConfigurationKey.ANALYTICS_QUERY_MAX_CONCURRENT ) ).thenReturn( "8" );
+        when( dhisConfig.getProperty( ConfigurationKey.ANALYTICS_QUERY_QUEUE_TIMEOUT ) ).thenReturn( "0" );
+
+        scheduler = new DefaultAnalyticsQueryScheduler( dhisConfig, systemSettingManager );
+    }
+
+    @Test
+    public void testGetOptimalQueries()
+    {
+        assertEquals( 4, scheduler.getOptimalQueries( 4 ) );
+        assertEquals( 8, scheduler.getOptimalQueries( 16 ) );
+
+        int slots = scheduler.acquire( 6 );
+
+        assertEquals( 6, slots );
+        assertEquals( 2, scheduler.getOptimalQueries( 4 ) );
+
+        int moreSlots = scheduler.acquire( 2 );
+
+        assertEquals( 1, scheduler.getOptimalQueries( 4 ) );
+
+        scheduler.release( slots );
+        scheduler.release( moreSlots );
+
+        assertEquals( 4, scheduler.getOptimalQueries( 4 ) );
+    }
+
+    @Test
+    public void testAcquireLimitedToMaxConcurrent()
+    {
+        int slots = scheduler.acquire( 20 );
+
+        assertEquals( 8, slots );
+
+        scheduler.release( slots );
+    }
+
+    @Test( expected = QueryTimeoutException.class )
+    public void testAcquireTimeout()
+    {
+        scheduler.acquire( 8 );
+        scheduler.acquire( 1 );
+    }
+
+    @Test
+    public void testGetStatistics()
+    {
+        int slots = scheduler.acquire( 3 );
+
+        Map<String, Number> statistics = scheduler.getStatistics();
+
+        assertEquals( 8, statistics.get( "maxConcurrentQueries" ) );
+        assertEquals( 3, statistics.get( "runningQueries" ) );
+        assertEquals( 0, statistics.get( "queueDepth" ) );
+        assertEquals( 1L, statistics.get( "admittedGroups" ) );
+
+        scheduler.release( slots );
+
+        assertEquals( 0, scheduler.getStatistics().get( "runningQueries" ) );
+    }
+}
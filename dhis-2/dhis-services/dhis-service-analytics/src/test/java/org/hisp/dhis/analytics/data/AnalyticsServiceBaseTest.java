@@ -97,6 +97,9 @@ public abstract class AnalyticsServiceBaseTest {
     @Mock
     private Environment environment;
 
+    @Mock
+    private AnalyticsQueryScheduler queryScheduler;
+
     AnalyticsService target;
 
     @Before
@@ -104,7 +107,7 @@ public abstract class AnalyticsServiceBaseTest {
     {
         target = new DefaultAnalyticsService( analyticsManager, rawAnalyticsManager, securityManager, queryPlanner,
                 queryValidator, constantService, expressionService, organisationUnitService, systemSettingManager,
-                eventAnalyticsService, dataQueryService, dhisConfig, cacheProvider, environment );
+                eventAnalyticsService, dataQueryService, dhisConfig, cacheProvider, environment, queryScheduler );
 
         doNothing().when( queryValidator ).validateMaintenanceMode();
         when( dhisConfig.getAnalyticsCacheExpiration() ).thenReturn( 0L );
@@ -0,0 +1,181 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.analytics.ColumnDataType.CHARACTER_11;
+import static org.hisp.dhis.analytics.ColumnDataType.DOUBLE;
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests merging of latest analytics tables into existing analytics tables.
+ */
+public class JdbcAnalyticsTableManagerTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private JdbcAnalyticsTableManager tableManager;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private AnalyticsTable table;
+
+    @Before
+    public void setUp()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) ).thenReturn( getDate( 2019, 3, 1 ) );
+
+        List<AnalyticsTableColumn> dimensionColumns = Lists.newArrayList(
+            new AnalyticsTableColumn( quote( "dx" ), CHARACTER_11, "de.uid" ),
+            new AnalyticsTableColumn( quote( "ou" ), CHARACTER_11, "ou.uid" ),
+            new AnalyticsTableColumn( "uidlevel1", CHARACTER_11, "ous.uidlevel1" ) );
+
+        List<AnalyticsTableColumn> valueColumns = Lists.newArrayList(
+            new AnalyticsTableColumn( quote( "value" ), DOUBLE, "value" ) );
+
+        table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, dimensionColumns, valueColumns );
+        table.addPartitionTable( 2018, getDate( 2018, 1, 1 ), getDate( 2019, 1, 1 ) );
+        table.addPartitionTable( 2019, getDate( 2019, 1, 1 ), getDate( 2020, 1, 1 ) );
+    }
+
+    @Test
+    public void testMergeLatestTable()
+    {
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder().withLatestUpdate( true ).build();
+
+        tableManager.mergeLatestTable( params, table );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        verify( jdbcTemplate, times( 3 ) ).execute( sql.capture() );
+
+        List<String> statements = sql.getAllValues();
+
+        for ( int i = 0; i < table.getPartitionTables().size(); i++ )
+        {
+            AnalyticsTablePartition partition = table.getPartitionTables().get( i );
+            String statement = statements.get( i );
+
+            String columns = "\"dx\",\"ou\",uidlevel1,\"value\"";
+            String insert = "insert into " + partition.getTableName() + " (" + columns + ") " +
+                "select " + columns + " from " + partition.getTempTableName() + ";";
+
+            // Superseded rows must be removed before the latest rows are
+            // inserted, in the same statement to run in one transaction
+
+            assertTrue( statement, statement.startsWith( "delete from " + partition.getTableName() + " ax " ) );
+            assertTrue( statement, statement.contains( "where ps.year = " + partition.getYear() + " " ) );
+            assertTrue( statement, statement.contains( "and dv.lastupdated > '2019-03-01" ) );
+            assertTrue( statement, statement.endsWith( insert ) );
+        }
+
+        assertEquals( "drop table " + table.getTempTableName() + " cascade", statements.get( 2 ) );
+    }
+
+    @Test
+    public void testIsLatestTableMergeable()
+    {
+        when( jdbcTemplate.queryForList( anyString(), eq( String.class ) ) )
+            .thenReturn( Lists.newArrayList( "dx", "ou", "uidlevel1", "value" ) );
+
+        assertTrue( tableManager.isLatestTableMergeable( table ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        verify( jdbcTemplate, times( 2 ) ).queryForList( sql.capture(), eq( String.class ) );
+
+        assertTrue( sql.getAllValues().get( 0 ).endsWith( "where table_name = 'analytics_2018'" ) );
+        assertTrue( sql.getAllValues().get( 1 ).endsWith( "where table_name = 'analytics_2019'" ) );
+    }
+
+    @Test
+    public void testIsLatestTableNotMergeableWithAddedColumn()
+    {
+        when( jdbcTemplate.queryForList( anyString(), eq( String.class ) ) )
+            .thenReturn( Lists.newArrayList( "dx", "ou", "value" ) );
+
+        assertFalse( tableManager.isLatestTableMergeable( table ) );
+    }
+
+    @Test
+    public void testIsLatestTableNotMergeableWithRemovedColumn()
+    {
+        when( jdbcTemplate.queryForList( anyString(), eq( String.class ) ) )
+            .thenReturn( Lists.newArrayList( "dx", "ou", "uidlevel1", "uidlevel2", "value" ) );
+
+        assertFalse( tableManager.isLatestTableMergeable( table ) );
+    }
+
+    @Test
+    public void testIsLatestTableNotMergeableWithMissingPartition()
+    {
+        when( jdbcTemplate.queryForList( "select column_name from information_schema.columns where table_name = 'analytics_2018'", String.class ) )
+            .thenReturn( Lists.newArrayList( "dx", "ou", "uidlevel1", "value" ) );
+        when( jdbcTemplate.queryForList( "select column_name from information_schema.columns where table_name = 'analytics_2019'", String.class ) )
+            .thenReturn( Lists.newArrayList() );
+
+        assertFalse( tableManager.isLatestTableMergeable( table ) );
+    }
+}
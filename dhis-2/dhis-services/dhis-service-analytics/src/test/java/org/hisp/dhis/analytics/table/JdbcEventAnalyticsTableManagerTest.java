@@ -0,0 +1,199 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.jdbc.StatementBuilder;
+import org.hisp.dhis.legend.Legend;
+import org.hisp.dhis.legend.LegendSet;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramStage;
+import org.hisp.dhis.program.ProgramTrackedEntityAttribute;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class JdbcEventAnalyticsTableManagerTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private IdentifiableObjectManager idObjectManager;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private StatementBuilder statementBuilder;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private JdbcEventAnalyticsTableManager tableManager;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DataElement deA;
+
+    private TrackedEntityAttribute atA;
+
+    private LegendSet lsA;
+
+    private Program program;
+
+    @Before
+    public void setUp()
+    {
+        when( statementBuilder.getRegexpMatch() ).thenReturn( "~*" );
+
+        lsA = createLegendSet( 'A' );
+        lsA.setId( 7 );
+
+        deA = createDataElement( 'A' );
+        deA.setValueType( ValueType.INTEGER );
+        deA.setLegendSets( Lists.newArrayList( lsA ) );
+
+        atA = createTrackedEntityAttribute( 'A', ValueType.INTEGER );
+        atA.setId( 9 );
+        atA.setLegendSets( Lists.newArrayList( lsA ) );
+
+        ProgramStage psA = createProgramStage( 'A', Sets.newHashSet( deA ) );
+
+        program = createProgram( 'A' );
+        program.getProgramStages().add( psA );
+        program.getProgramAttributes().add( new ProgramTrackedEntityAttribute( program, atA ) );
+    }
+
+    @Test
+    public void testPopulateTableWithLegendJoin()
+    {
+        String sql = populateTable();
+
+        String deAlias = quote( "l_" + deA.getUid() + "_" + lsA.getUid() );
+        String atAlias = quote( "l_" + atA.getUid() + "_" + lsA.getUid() );
+
+        assertTrue( sql, sql.contains( deAlias + ".uid as " + quote( deA.getUid() + "_" + lsA.getUid() ) ) );
+        assertTrue( sql, sql.contains( atAlias + ".uid as " + quote( atA.getUid() + "_" + lsA.getUid() ) ) );
+
+        assertTrue( sql, sql.contains( "left join lateral (select ml.uid from maplegend ml where ml.maplegendsetid=7 " +
+            "and ml.startvalue <= case when psi.eventdatavalues #>> '{" + deA.getUid() + ", value}'" ) );
+        assertTrue( sql, sql.contains( "limit 1) " + deAlias + " on true " ) );
+        assertTrue( sql, sql.contains( "and ml.endvalue > case when teav." + quote( atA.getUid() ) ) );
+        assertTrue( sql, sql.contains( "limit 1) " + atAlias + " on true " ) );
+
+        assertTrue( sql, sql.indexOf( "limit 1) " + atAlias ) > sql.indexOf( ") teav on " ) );
+    }
+
+    @Test
+    public void testPopulateTableWithOverlappingLegends()
+    {
+        Legend legendA = createLegend( 'A', 0d, 20d );
+        Legend legendB = createLegend( 'B', 10d, 30d );
+        Legend legendC = createLegend( 'C', 10d, 30d );
+
+        lsA.setLegends( Sets.newHashSet( legendA, legendB, legendC ) );
+
+        String sql = populateTable();
+
+        String deAlias = quote( "l_" + deA.getUid() + "_" + lsA.getUid() );
+
+        // A value of 15 is in all three legends, the join must still give a
+        // single legend so that the event is not repeated
+
+        assertTrue( sql, sql.contains( "order by ml.startvalue, ml.maplegendid limit 1) " + deAlias + " on true " ) );
+        assertFalse( sql, sql.contains( "left join maplegend" ) );
+    }
+
+    @Test
+    public void testPopulateTableWithoutLegendSets()
+    {
+        deA.setLegendSets( Lists.newArrayList() );
+        atA.setLegendSets( Lists.newArrayList() );
+
+        String sql = populateTable();
+
+        assertFalse( sql, sql.contains( "maplegend" ) );
+    }
+
+    @Test
+    public void testPopulateTableHasNoLegendSubquery()
+    {
+        String sql = populateTable();
+
+        assertFalse( sql, sql.contains( "with legend" ) );
+        assertFalse( sql, sql.contains( "(select l.uid" ) );
+    }
+
+    private String populateTable()
+    {
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.EVENT, Lists.newArrayList(), Lists.newArrayList(), program );
+        AnalyticsTablePartition partition = new AnalyticsTablePartition( table, 2018, getDate( 2018, 1, 1 ), getDate( 2019, 1, 1 ), false );
+
+        tableManager.populateTable( AnalyticsTableUpdateParams.newBuilder().build(), partition );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        verify( jdbcTemplate ).execute( sql.capture() );
+
+        return sql.getValue();
+    }
+}
@@ -0,0 +1,111 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Holds items created within a transaction until the transaction commits,
+ * and then hands them to a consumer in the order they were added. Items of a
+ * rolled back transaction are discarded. Items added outside of a
+ * transaction are handed to the consumer immediately.
+ * <p>
+ * The consumer is called after the commit while the resources of the
+ * transaction are still bound to the thread, so it must not write to the
+ * database in the current transaction.
+ *
+ * @param <T> the type of the items.
+ */
+public class AfterCommitBuffer<T>
+{
+    private final Supplier<Collection<T>> collectionSupplier;
+
+    private final Consumer<T> consumer;
+
+    /**
+     * @param collectionSupplier supplies the collection holding the items of
+     *        a transaction, a set to drop repeated items.
+     * @param consumer the consumer of committed items.
+     */
+    public AfterCommitBuffer( Supplier<Collection<T>> collectionSupplier, Consumer<T> consumer )
+    {
+        this.collectionSupplier = collectionSupplier;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Adds an item.
+     *
+     * @param item the item.
+     * @return false if the item was dropped as the items of the current
+     *         transaction already hold it, true otherwise.
+     */
+    public boolean add( T item )
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            consumer.accept( item );
+            return true;
+        }
+
+        @SuppressWarnings( "unchecked" )
+        Collection<T> items = (Collection<T>) TransactionSynchronizationManager.getResource( this );
+
+        if ( items == null )
+        {
+            Collection<T> transactionItems = collectionSupplier.get();
+
+            TransactionSynchronizationManager.bindResource( this, transactionItems );
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    transactionItems.forEach( consumer );
+                }
+
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( AfterCommitBuffer.this );
+                }
+            } );
+
+            items = transactionItems;
+        }
+
+        return items.add( item );
+    }
+}
@@ -0,0 +1,405 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueAuditStore;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.program.ProgramInstanceAudit;
+import org.hisp.dhis.program.ProgramInstanceAuditStore;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceAudit;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceAuditStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Queue which writes tracked entity instance, program instance and data value
+ * audits outside of the thread which created them, in batched inserts.
+ * <p>
+ * Audits created within a transaction are collected and handed to the queue
+ * after the transaction commits, so that nothing is audited for rolled back
+ * changes. A single writer thread drains the queue and writes when the flush
+ * size is reached or the flush interval has passed since the first waiting
+ * audit. The queue is bounded. When it is full, audits are written
+ * immediately in the thread which committed, in a new transaction, so that
+ * producers are slowed down rather than blocked or audits dropped. On
+ * shutdown the writer is stopped and the remaining audits are written in the
+ * shutting down thread.
+ * <p>
+ * Audits which are waiting in the queue, or taken by the writer but not yet
+ * written, are only held in memory. If the server stops without shutting
+ * down, for instance when the process is killed or runs out of memory, up to
+ * the queue size plus the flush size of committed changes are left without
+ * audits. Use synchronous auditing where this is not acceptable.
+ * <p>
+ * A batch which fails is written again one audit at a time, so that a single
+ * audit referring to removed data does not discard the rest of the batch.
+ * <p>
+ * Asynchronous auditing is off by default, and is enabled with the
+ * audit.async setting in dhis.conf. When it is off, and in test runs, audits
+ * are written immediately in the calling thread and transaction. The queue
+ * statistics are available from the audits API.
+ */
+public class AuditQueue
+{
+    private static final Log log = LogFactory.getLog( AuditQueue.class );
+
+    @Autowired
+    private TrackedEntityInstanceAuditStore trackedEntityInstanceAuditStore;
+
+    @Autowired
+    private ProgramInstanceAuditStore programInstanceAuditStore;
+
+    @Autowired
+    private DataValueAuditStore dataValueAuditStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DhisConfigurationProvider config;
+
+    @Autowired
+    private Environment env;
+
+    private boolean async;
+
+    private TransactionTemplate transactionTemplate;
+
+    private AfterCommitBuffer<Object> buffer;
+
+    private int flushSize;
+
+    private long flushInterval;
+
+    private BlockingQueue<Object> queue;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    private final AtomicLong queued = new AtomicLong();
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong direct = new AtomicLong();
+
+    @PostConstruct
+    public void init()
+    {
+        async = config.isEnabled( ConfigurationKey.AUDIT_ASYNC ) && !SystemUtils.isTestRun( env.getActiveProfiles() );
+
+        if ( !async )
+        {
+            return;
+        }
+
+        int queueSize = Math.max( 1, Integer.parseInt( config.getProperty( ConfigurationKey.AUDIT_ASYNC_QUEUE_SIZE ) ) );
+
+        // Audits may be written after the commit of the transaction which
+        // created them, while its resources are still bound to the thread
+
+        transactionTemplate = new TransactionTemplate( transactionManager );
+        transactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
+        buffer = new AfterCommitBuffer<>( ArrayList::new, this::enqueue );
+
+        flushSize = Math.max( 1, Integer.parseInt( config.getProperty( ConfigurationKey.AUDIT_ASYNC_FLUSH_SIZE ) ) );
+        flushInterval = Math.max( 0, Long.parseLong( config.getProperty( ConfigurationKey.AUDIT_ASYNC_FLUSH_INTERVAL ) ) );
+        queue = new ArrayBlockingQueue<>( queueSize );
+        running = true;
+
+        writer = new Thread( this::work, "audit-writer" );
+        writer.setDaemon( true );
+        writer.start();
+
+        log.info( String.format( "Asynchronous audit writer started with queue size %d, flush size %d and flush interval %d ms",
+            queueSize, flushSize, flushInterval ) );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        if ( writer == null )
+        {
+            return;
+        }
+
+        running = false;
+
+        writer.interrupt();
+
+        try
+        {
+            writer.join( TimeUnit.SECONDS.toMillis( 10 ) );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Object> remaining = new ArrayList<>();
+        queue.drainTo( remaining );
+
+        if ( !remaining.isEmpty() )
+        {
+            log.info( String.format( "Writing %d remaining audits on shutdown", remaining.size() ) );
+
+            write( remaining );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Audits
+    // -------------------------------------------------------------------------
+
+    /**
+     * Adds a tracked entity instance audit.
+     *
+     * @param audit the audit.
+     */
+    public void add( TrackedEntityInstanceAudit audit )
+    {
+        if ( !async )
+        {
+            trackedEntityInstanceAuditStore.addTrackedEntityInstanceAudit( audit );
+            return;
+        }
+
+        buffer.add( audit );
+    }
+
+    /**
+     * Adds a program instance audit.
+     *
+     * @param audit the audit.
+     */
+    public void add( ProgramInstanceAudit audit )
+    {
+        if ( !async )
+        {
+            programInstanceAuditStore.addProgramInstanceAudit( audit );
+            return;
+        }
+
+        buffer.add( audit );
+    }
+
+    /**
+     * Adds a data value audit.
+     *
+     * @param audit the audit.
+     */
+    public void add( DataValueAudit audit )
+    {
+        if ( !async )
+        {
+            dataValueAuditStore.addDataValueAudit( audit );
+            return;
+        }
+
+        buffer.add( audit );
+    }
+
+    /**
+     * Returns counters of the queue: the number of audits committed, written
+     * and failed, audits written directly as the queue was full and audits
+     * currently waiting.
+     */
+    public Map<String, Number> getStatistics()
+    {
+        return ImmutableMap.<String, Number>builder()
+            .put( "async", async ? 1 : 0 )
+            .put( "queued", queued.get() )
+            .put( "written", written.get() )
+            .put( "failed", failed.get() )
+            .put( "direct", direct.get() )
+            .put( "waiting", queue != null ? queue.size() : 0 ).build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void enqueue( Object audit )
+    {
+        queued.incrementAndGet();
+
+        if ( running && queue.offer( audit ) )
+        {
+            return;
+        }
+
+        direct.incrementAndGet();
+
+        write( Collections.singletonList( audit ) );
+    }
+
+    private void work()
+    {
+        while ( running )
+        {
+            List<Object> batch = new ArrayList<>( flushSize );
+
+            try
+            {
+                batch.add( queue.take() );
+
+                long deadline = System.currentTimeMillis() + flushInterval;
+
+                while ( batch.size() < flushSize )
+                {
+                    queue.drainTo( batch, flushSize - batch.size() );
+
+                    long wait = deadline - System.currentTimeMillis();
+
+                    if ( batch.size() >= flushSize || wait <= 0 )
+                    {
+                        break;
+                    }
+
+                    Object next = queue.poll( wait, TimeUnit.MILLISECONDS );
+
+                    if ( next == null )
+                    {
+                        break;
+                    }
+
+                    batch.add( next );
+                }
+
+                write( batch );
+            }
+            catch ( InterruptedException ex )
+            {
+                write( batch ); // Taken from the queue, so not written on shutdown
+
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch ( Exception ex )
+            {
+                log.error( "Audit writer failed", ex );
+            }
+        }
+    }
+
+    private void write( List<Object> batch )
+    {
+        List<TrackedEntityInstanceAudit> trackedEntityInstanceAudits = new ArrayList<>();
+        List<ProgramInstanceAudit> programInstanceAudits = new ArrayList<>();
+        List<DataValueAudit> dataValueAudits = new ArrayList<>();
+
+        for ( Object audit : batch )
+        {
+            if ( audit instanceof TrackedEntityInstanceAudit )
+            {
+                trackedEntityInstanceAudits.add( (TrackedEntityInstanceAudit) audit );
+            }
+            else if ( audit instanceof ProgramInstanceAudit )
+            {
+                programInstanceAudits.add( (ProgramInstanceAudit) audit );
+            }
+            else if ( audit instanceof DataValueAudit )
+            {
+                dataValueAudits.add( (DataValueAudit) audit );
+            }
+        }
+
+        write( trackedEntityInstanceAudits, trackedEntityInstanceAuditStore::addTrackedEntityInstanceAudits );
+        write( programInstanceAudits, programInstanceAuditStore::addProgramInstanceAudits );
+        write( dataValueAudits, dataValueAuditStore::addDataValueAudits );
+
+        log.debug( String.format( "Wrote batch of %d audits, statistics: %s", batch.size(), getStatistics() ) );
+    }
+
+    private <T> void write( List<T> audits, Consumer<List<T>> batchWriter )
+    {
+        if ( audits.isEmpty() )
+        {
+            return;
+        }
+
+        try
+        {
+            execute( () -> batchWriter.accept( audits ) );
+
+            written.addAndGet( audits.size() );
+        }
+        catch ( Exception batchEx )
+        {
+            log.warn( String.format( "Batch of %d audits failed, writing one at a time: %s", audits.size(), batchEx.getMessage() ) );
+
+            for ( T audit : audits )
+            {
+                try
+                {
+                    execute( () -> batchWriter.accept( Collections.singletonList( audit ) ) );
+
+                    written.incrementAndGet();
+                }
+                catch ( Exception ex )
+                {
+                    failed.incrementAndGet();
+
+                    log.error( "Audit could not be written: " + audit, ex );
+                }
+            }
+        }
+    }
+
+    private void execute( Runnable runnable )
+    {
+        transactionTemplate.execute( status -> {
+            runnable.run();
+            return null;
+        } );
+    }
+}
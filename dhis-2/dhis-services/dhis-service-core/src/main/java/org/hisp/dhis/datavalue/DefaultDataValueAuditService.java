@@ -28,11 +28,13 @@ package org.hisp.dhis.datavalue;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.common.AuditQueue;
 import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -49,12 +51,11 @@ public class DefaultDataValueAuditService
     // Dependencies
     // -------------------------------------------------------------------------
 
+    @Autowired
     private DataValueAuditStore dataValueAuditStore;
 
-    public void setDataValueAuditStore( DataValueAuditStore dataValueAuditStore )
-    {
-        this.dataValueAuditStore = dataValueAuditStore;
-    }
+    @Autowired
+    private AuditQueue auditQueue;
 
     // -------------------------------------------------------------------------
     // DataValueAuditService implementation
@@ -63,7 +64,7 @@ public class DefaultDataValueAuditService
     @Override
     public void addDataValueAudit( DataValueAudit dataValueAudit )
     {
-        dataValueAuditStore.addDataValueAudit( dataValueAudit );
+        auditQueue.add( dataValueAudit );
     }
     
     @Override
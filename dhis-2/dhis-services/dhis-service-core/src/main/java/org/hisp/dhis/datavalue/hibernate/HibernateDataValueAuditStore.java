@@ -43,6 +43,7 @@ import org.hisp.dhis.period.PeriodStore;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
@@ -75,6 +76,27 @@ public class HibernateDataValueAuditStore extends HibernateGenericStore<DataValu
         getSession().save( dataValueAudit );
     }
 
+    @Override
+    public void addDataValueAudits( List<DataValueAudit> dataValueAudits )
+    {
+        final String sql = "insert into datavalueaudit " +
+            "(datavalueauditid, dataelementid, periodid, organisationunitid, categoryoptioncomboid, " +
+            "attributeoptioncomboid, value, created, modifiedby, audittype) " +
+            "values (nextval('hibernate_sequence'), ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        jdbcTemplate.batchUpdate( sql, dataValueAudits, dataValueAudits.size(), ( ps, audit ) -> {
+            ps.setLong( 1, audit.getDataElement().getId() );
+            ps.setLong( 2, audit.getPeriod().getId() );
+            ps.setLong( 3, audit.getOrganisationUnit().getId() );
+            ps.setLong( 4, audit.getCategoryOptionCombo().getId() );
+            ps.setLong( 5, audit.getAttributeOptionCombo().getId() );
+            ps.setString( 6, audit.getValue() );
+            ps.setTimestamp( 7, new Timestamp( audit.getCreated().getTime() ) );
+            ps.setString( 8, audit.getModifiedBy() );
+            ps.setString( 9, audit.getAuditType().name() );
+        } );
+    }
+
     @Override
     public void deleteDataValueAudits( OrganisationUnit organisationUnit )
     {
@@ -448,7 +448,7 @@ public class HibernateDataValueStore extends HibernateGenericStore<DataValue>
 
         if ( params.hasLastUpdated() )
         {
-            where += sqlHelper.whereAnd() + "dv.lastupdated >= " + DateUtils.getMediumDateString( params.getLastUpdated() );
+            where += sqlHelper.whereAnd() + "dv.lastupdated >= '" + DateUtils.getLongDateString( params.getLastUpdated() ) + "'";
         }
 
         if ( !params.isIncludeDeleted() )
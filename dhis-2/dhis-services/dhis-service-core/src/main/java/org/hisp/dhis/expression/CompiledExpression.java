@@ -0,0 +1,187 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.DimensionalItemObject;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hisp.dhis.parser.expression.ParserUtils.castBoolean;
+import static org.hisp.dhis.parser.expression.ParserUtils.castDouble;
+
+/**
+ * An expression compiled by the {@link ExpressionCompiler} into a tree of
+ * evaluation nodes. The tree is immutable and may be evaluated concurrently.
+ * <p/>
+ * Expression items are resolved to slots when compiling, and their values are
+ * supplied as a primitive value vector indexed by slot, where
+ * {@link Double#NaN} denotes a missing value. Arithmetic on item values is
+ * done on primitive doubles.
+ */
+public final class CompiledExpression
+{
+    private final Node root;
+
+    private final List<String> itemKeys;
+
+    private final Map<String, Integer> slots;
+
+    CompiledExpression( Node root, List<String> itemKeys, Map<String, Integer> slots )
+    {
+        this.root = root;
+        this.itemKeys = Collections.unmodifiableList( itemKeys );
+        this.slots = Collections.unmodifiableMap( slots );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Gets the keys of the expression items by slot. A key is the
+     * dimension item identifier, such as "deUid.cocUid".
+     *
+     * @return the item keys.
+     */
+    public List<String> getItemKeys()
+    {
+        return itemKeys;
+    }
+
+    /**
+     * Creates a value vector from the given map of item values. Items
+     * without a value in the map are missing.
+     *
+     * @param valueMap the map of item values.
+     * @return the value vector.
+     */
+    public double[] getValues( Map<? extends DimensionalItemObject, Double> valueMap )
+    {
+        double[] values = new double[itemKeys.size()];
+
+        Arrays.fill( values, Double.NaN );
+
+        if ( values.length == 0 )
+        {
+            return values;
+        }
+
+        for ( Map.Entry<? extends DimensionalItemObject, Double> entry : valueMap.entrySet() )
+        {
+            Integer slot = slots.get( entry.getKey().getDimensionItem() );
+
+            if ( slot != null && entry.getValue() != null )
+            {
+                values[slot] = entry.getValue();
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param evaluation the evaluation holding the item values.
+     * @return the expression value.
+     */
+    public Object evaluate( Evaluation evaluation )
+    {
+        return root.value( evaluation );
+    }
+
+    // -------------------------------------------------------------------------
+    // Evaluation
+    // -------------------------------------------------------------------------
+
+    /**
+     * The state of one evaluation of a compiled expression: the item values,
+     * constants, organisation unit group counts and days, and the number of
+     * items and item values found while evaluating.
+     */
+    public static final class Evaluation
+    {
+        final double[] values;
+
+        final Map<String, Double> constantMap;
+
+        final Map<String, Integer> orgUnitCountMap;
+
+        final Double days;
+
+        int itemsFound = 0;
+
+        int itemValuesFound = 0;
+
+        public Evaluation( double[] values, Map<String, Double> constantMap,
+            Map<String, Integer> orgUnitCountMap, Integer days )
+        {
+            this.values = values;
+            this.constantMap = constantMap;
+            this.orgUnitCountMap = orgUnitCountMap;
+            this.days = days != null ? days.doubleValue() : null;
+        }
+
+        public int getItemsFound()
+        {
+            return itemsFound;
+        }
+
+        public int getItemValuesFound()
+        {
+            return itemValuesFound;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Node
+    // -------------------------------------------------------------------------
+
+    /**
+     * A node of the compiled expression tree. Numeric nodes override
+     * {@link #doubleValue(Evaluation)} to avoid boxing intermediate values.
+     */
+    abstract static class Node
+    {
+        abstract Object value( Evaluation evaluation );
+
+        double doubleValue( Evaluation evaluation )
+        {
+            return castDouble( value( evaluation ) );
+        }
+
+        boolean booleanValue( Evaluation evaluation )
+        {
+            return castBoolean( value( evaluation ) );
+        }
+    }
+}
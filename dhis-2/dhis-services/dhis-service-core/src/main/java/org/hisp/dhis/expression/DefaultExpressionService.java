@@ -35,12 +35,15 @@ import static org.hisp.dhis.parser.expression.ParserUtils.castDouble;
 import static org.hisp.dhis.system.util.MathUtils.calculateExpression;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.stream.Stream;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -85,6 +88,14 @@ public class DefaultExpressionService
 {
     private static final Log log = LogFactory.getLog( DefaultExpressionService.class );
 
+    /**
+     * Expressions compiled for evaluation, by expression string. Compiled
+     * expressions are immutable and shared between evaluations.
+     */
+    private static Cache<String, CompiledExpression> COMPILED_EXPRESSIONS = Caffeine.newBuilder()
+        .expireAfterAccess( 10, TimeUnit.MINUTES ).initialCapacity( 10000 )
+        .maximumSize( 50000 ).build();
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -331,13 +342,29 @@ public class DefaultExpressionService
             return null;
         }
 
-        ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator(
-            valueMap, constantMap, orgUnitCountMap, days );
+        Double value;
+
+        int itemsFound = 0;
+        int itemValuesFound = 0;
+
+        try
+        {
+            CompiledExpression compiledExpression = COMPILED_EXPRESSIONS.get( expression, ExpressionCompiler::compile );
 
-        Double value = visit ( expression, expressionEvaluator, true );
+            CompiledExpression.Evaluation evaluation = new CompiledExpression.Evaluation(
+                compiledExpression.getValues( valueMap ), constantMap, orgUnitCountMap, days );
 
-        int itemsFound = expressionEvaluator.getItemsFound();
-        int itemValuesFound = expressionEvaluator.getItemValuesFound();
+            value = castDouble( compiledExpression.evaluate( evaluation ) );
+
+            itemsFound = evaluation.getItemsFound();
+            itemValuesFound = evaluation.getItemValuesFound();
+        }
+        catch ( ParserException ex )
+        {
+            log.warn( ex.getMessage() + " parsing expression '" + expression + "'" );
+
+            value = DOUBLE_VALUE_IF_NULL;
+        }
 
         switch ( missingValueStrategy )
         {
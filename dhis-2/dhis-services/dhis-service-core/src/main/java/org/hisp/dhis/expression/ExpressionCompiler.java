@@ -0,0 +1,796 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.hisp.dhis.expression.CompiledExpression.Evaluation;
+import org.hisp.dhis.expression.CompiledExpression.Node;
+import org.hisp.dhis.parser.expression.AbstractVisitor;
+import org.hisp.dhis.parser.expression.InternalParserException;
+import org.hisp.dhis.parser.expression.Parser;
+import org.hisp.dhis.parser.expression.ParserExceptionWithoutContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+
+import static org.apache.commons.text.StringEscapeUtils.unescapeJava;
+import static org.hisp.dhis.parser.expression.ParserUtils.*;
+import static org.hisp.dhis.parser.expression.antlr.ExpressionParser.*;
+
+/**
+ * ANTLR parse tree visitor which compiles an expression into a
+ * {@link CompiledExpression}. The compiled expression evaluates to the same
+ * values as the {@link ExpressionEvaluator}, including which items are
+ * counted as found for the missing value strategy.
+ * <p/>
+ * Constructs which are not valid in this type of expression compile into
+ * nodes which throw when evaluated, as the evaluator only throws for the
+ * parts of an expression it visits.
+ */
+public class ExpressionCompiler
+    extends AbstractVisitor
+{
+    private final List<String> itemKeys = new ArrayList<>();
+
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression the expression.
+     * @return the compiled expression.
+     */
+    public static CompiledExpression compile( String expression )
+    {
+        ExpressionCompiler compiler = new ExpressionCompiler();
+
+        Node root = (Node) Parser.visit( expression, compiler );
+
+        return new CompiledExpression( root, compiler.itemKeys, compiler.slots );
+    }
+
+    // -------------------------------------------------------------------------
+    // Visitor methods
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Object visitOperator( ExprContext ctx )
+    {
+        switch ( ctx.op.getType() )
+        {
+            case PAREN:
+                return node( ctx.expr( 0 ) );
+
+            case PLUS:
+                if ( ctx.expr().size() == 1 )
+                {
+                    return new UnaryPlus( node( ctx.expr( 0 ) ) );
+                }
+                return new Arithmetic( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), ( a, b ) -> a + b );
+
+            case MINUS:
+                if ( ctx.expr().size() == 1 )
+                {
+                    return new Negation( node( ctx.expr( 0 ) ) );
+                }
+                return new Arithmetic( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), ( a, b ) -> a - b );
+
+            case POWER:
+                return new Arithmetic( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), Math::pow );
+
+            case MUL:
+                return new Arithmetic( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), ( a, b ) -> a * b );
+
+            case DIV:
+                return new Arithmetic( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), ( a, b ) -> a / b );
+
+            case MOD:
+                return new Arithmetic( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), ( a, b ) -> a % b );
+
+            case NOT:
+            case EXCLAMATION_POINT:
+                return new Not( node( ctx.expr( 0 ) ) );
+
+            case AND:
+            case AMPERSAND_2:
+                return new And( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ) );
+
+            case OR:
+            case VERTICAL_BAR_2:
+                return new Or( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ) );
+
+            case EQ:
+                return new Comparison( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), c -> c == 0 );
+
+            case NE:
+                return new Comparison( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), c -> c != 0 );
+
+            case GT:
+                return new Comparison( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), c -> c > 0 );
+
+            case LT:
+                return new Comparison( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), c -> c < 0 );
+
+            case GEQ:
+                return new Comparison( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), c -> c >= 0 );
+
+            case LEQ:
+                return new Comparison( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), c -> c <= 0 );
+
+            default:
+                throw new InternalParserException( "Expecting operator, found " + ctx.op.getText() );
+        }
+    }
+
+    @Override
+    public Object visitFunction( FunctionContext ctx )
+    {
+        switch ( ctx.fun.getType() )
+        {
+            case FIRST_NON_NULL:
+                List<Node> args = new ArrayList<>();
+
+                for ( ItemNumStringLiteralContext c : ctx.itemNumStringLiteral() )
+                {
+                    args.add( compileItemNumStringLiteral( c ) );
+                }
+
+                return new FirstNonNull( args );
+
+            case GREATEST:
+                return new GreatestOrLeast( nodes( ctx.expr() ), 1.0 );
+
+            case IF:
+                return new If( node( ctx.expr( 0 ) ), node( ctx.expr( 1 ) ), node( ctx.expr( 2 ) ) );
+
+            case IS_NOT_NULL:
+                return new IsNull( (Node) visitAllowingNullValues( ctx.item() ), false );
+
+            case IS_NULL:
+                return new IsNull( (Node) visitAllowingNullValues( ctx.item() ), true );
+
+            case LEAST:
+                return new GreatestOrLeast( nodes( ctx.expr() ), -1.0 );
+
+            default:
+                throw new InternalParserException( "Expecting function, found " + ctx.fun.getText() );
+        }
+    }
+
+    @Override
+    public Object visitItem( ItemContext ctx )
+    {
+        switch ( ctx.it.getType() )
+        {
+            case HASH_BRACE:
+                if ( isDataElementOperandSyntax( ctx ) )
+                {
+                    return item(
+                        ctx.uid0.getText() + "." +
+                            ( ctx.uid1 == null ? "*" : ctx.uid1.getText() ) +
+                            ( ctx.uid2 == null ? "" : "." + ctx.uid2.getText() ) );
+                }
+                else // Data element:
+                {
+                    return item(
+                        ctx.uid0.getText() );
+                }
+
+            case A_BRACE:
+                if ( !isExpressionProgramAttribute( ctx ) )
+                {
+                    return new Invalid( "Program attribute must have two UIDs: " + ctx.getText() );
+                }
+                // Fall through
+            case D_BRACE:
+                return item(
+                    ctx.uid0.getText() + "." +
+                        ctx.uid1.getText() );
+
+            case C_BRACE:
+                return new ConstantItem( ctx.uid0.getText(), ctx.getText() );
+
+            case I_BRACE:
+                return item(
+                    ctx.uid0.getText() );
+
+            case OUG_BRACE:
+                return new OrgUnitGroupCount( ctx.uid0.getText(), ctx.getText() );
+
+            case R_BRACE:
+                return item(
+                    ctx.uid0.getText() + "." +
+                        ctx.REPORTING_RATE_TYPE().getText() );
+
+            case DAYS:
+                return new Days();
+
+            default:
+                return new Invalid( "Item not recognized for this type of expression: " + ctx.getText() );
+        }
+    }
+
+    @Override
+    public Object visitProgramVariable( ProgramVariableContext ctx )
+    {
+        return new Invalid( "Program variable not valid in this expression" );
+    }
+
+    @Override
+    public Object visitProgramFunction( ProgramFunctionContext ctx )
+    {
+        return new Invalid( "Program function not valid in this expression" );
+    }
+
+    @Override
+    public Object visitLiteral( LiteralContext ctx )
+    {
+        return new Literal( super.visitLiteral( ctx ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Node node( ParserRuleContext ctx )
+    {
+        return (Node) visit( ctx );
+    }
+
+    private Node[] nodes( List<ExprContext> contexts )
+    {
+        Node[] nodes = new Node[contexts.size()];
+
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            nodes[i] = node( contexts.get( i ) );
+        }
+
+        return nodes;
+    }
+
+    private Node compileItemNumStringLiteral( ItemNumStringLiteralContext ctx )
+    {
+        if ( ctx.item() != null )
+        {
+            return (Node) visitAllowingNullValues( ctx.item() );
+        }
+        else if ( ctx.numStringLiteral().stringLiteral() != null )
+        {
+            return new Literal( unescapeJava( trimQuotes( ctx.getText() ) ) );
+        }
+
+        return new Literal( ctx.getText() );
+    }
+
+    /**
+     * Creates an item node, assigning a slot to the item key. Items visited
+     * while allowing null values are not counted for the missing value
+     * strategy.
+     */
+    private Node item( String key )
+    {
+        Integer slot = slots.get( key );
+
+        if ( slot == null )
+        {
+            slot = itemKeys.size();
+            itemKeys.add( key );
+            slots.put( key, slot );
+        }
+
+        return new Item( slot, ignoreMissingValues );
+    }
+
+    // -------------------------------------------------------------------------
+    // Nodes
+    // -------------------------------------------------------------------------
+
+    private static final class Item
+        extends Node
+    {
+        private final int slot;
+
+        private final boolean ignoreMissingValues;
+
+        Item( int slot, boolean ignoreMissingValues )
+        {
+            this.slot = slot;
+            this.ignoreMissingValues = ignoreMissingValues;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            double value = evaluation.values[slot];
+
+            if ( !ignoreMissingValues )
+            {
+                return Double.isNaN( value ) ? null : value;
+            }
+
+            return doubleValue( evaluation );
+        }
+
+        @Override
+        double doubleValue( Evaluation evaluation )
+        {
+            if ( !ignoreMissingValues )
+            {
+                return super.doubleValue( evaluation );
+            }
+
+            double value = evaluation.values[slot];
+
+            evaluation.itemsFound++;
+
+            if ( Double.isNaN( value ) )
+            {
+                return DOUBLE_VALUE_IF_NULL;
+            }
+
+            evaluation.itemValuesFound++;
+
+            return value;
+        }
+    }
+
+    private static final class ConstantItem
+        extends Node
+    {
+        private final String uid;
+
+        private final String text;
+
+        ConstantItem( String uid, String text )
+        {
+            this.uid = uid;
+            this.text = text;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            Double value = evaluation.constantMap.get( uid );
+
+            if ( value == null ) // Shouldn't happen for a valid expression.
+            {
+                throw new ParserExceptionWithoutContext( "Can't find constant " + text );
+            }
+
+            return value;
+        }
+    }
+
+    private static final class OrgUnitGroupCount
+        extends Node
+    {
+        private final String uid;
+
+        private final String text;
+
+        OrgUnitGroupCount( String uid, String text )
+        {
+            this.uid = uid;
+            this.text = text;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            if ( evaluation.orgUnitCountMap == null )
+            {
+                return 0d;
+            }
+
+            Integer count = evaluation.orgUnitCountMap.get( uid );
+
+            if ( count == null ) // Shouldn't happen for a valid expression.
+            {
+                throw new ParserExceptionWithoutContext( "Can't find count for organisation unit " + text );
+            }
+
+            return count.doubleValue();
+        }
+    }
+
+    private static final class Days
+        extends Node
+    {
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return evaluation.days;
+        }
+    }
+
+    private static final class Literal
+        extends Node
+    {
+        private final Object value;
+
+        Literal( Object value )
+        {
+            this.value = value;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return value;
+        }
+    }
+
+    private static final class Invalid
+        extends Node
+    {
+        private final String message;
+
+        Invalid( String message )
+        {
+            this.message = message;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            throw new ParserExceptionWithoutContext( message );
+        }
+    }
+
+    private static final class UnaryPlus
+        extends Node
+    {
+        private final Node arg;
+
+        UnaryPlus( Node arg )
+        {
+            this.arg = arg;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return castDouble( arg.value( evaluation ) );
+        }
+
+        @Override
+        double doubleValue( Evaluation evaluation )
+        {
+            return arg.doubleValue( evaluation );
+        }
+    }
+
+    private static final class Negation
+        extends Node
+    {
+        private final Node arg;
+
+        Negation( Node arg )
+        {
+            this.arg = arg;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return doubleValue( evaluation );
+        }
+
+        @Override
+        double doubleValue( Evaluation evaluation )
+        {
+            return - arg.doubleValue( evaluation );
+        }
+    }
+
+    private static final class Arithmetic
+        extends Node
+    {
+        private final Node left;
+
+        private final Node right;
+
+        private final DoubleBinaryOperator operator;
+
+        Arithmetic( Node left, Node right, DoubleBinaryOperator operator )
+        {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return doubleValue( evaluation );
+        }
+
+        @Override
+        double doubleValue( Evaluation evaluation )
+        {
+            double a = left.doubleValue( evaluation );
+            double b = right.doubleValue( evaluation );
+
+            return operator.applyAsDouble( a, b );
+        }
+    }
+
+    private static final class Not
+        extends Node
+    {
+        private final Node arg;
+
+        Not( Node arg )
+        {
+            this.arg = arg;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return booleanValue( evaluation );
+        }
+
+        @Override
+        boolean booleanValue( Evaluation evaluation )
+        {
+            return ! arg.booleanValue( evaluation );
+        }
+    }
+
+    private static final class And
+        extends Node
+    {
+        private final Node left;
+
+        private final Node right;
+
+        And( Node left, Node right )
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return booleanValue( evaluation );
+        }
+
+        @Override
+        boolean booleanValue( Evaluation evaluation )
+        {
+            return left.booleanValue( evaluation ) && right.booleanValue( evaluation );
+        }
+    }
+
+    private static final class Or
+        extends Node
+    {
+        private final Node left;
+
+        private final Node right;
+
+        Or( Node left, Node right )
+        {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return booleanValue( evaluation );
+        }
+
+        @Override
+        boolean booleanValue( Evaluation evaluation )
+        {
+            return left.booleanValue( evaluation ) || right.booleanValue( evaluation );
+        }
+    }
+
+    private interface ComparisonResult
+    {
+        boolean test( int comparison );
+    }
+
+    private static final class Comparison
+        extends Node
+    {
+        private final Node left;
+
+        private final Node right;
+
+        private final ComparisonResult result;
+
+        Comparison( Node left, Node right, ComparisonResult result )
+        {
+            this.left = left;
+            this.right = right;
+            this.result = result;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return booleanValue( evaluation );
+        }
+
+        @Override
+        boolean booleanValue( Evaluation evaluation )
+        {
+            return result.test( compare( left.value( evaluation ), right.value( evaluation ) ) );
+        }
+
+        private static int compare( Object o1, Object o2 )
+        {
+            if ( o1 == null || o2 == null )
+            {
+                throw new InternalParserException( "found null when comparing '" + o1 + "' with '" + o2 + "'" );
+            }
+            else if ( o1 instanceof Double )
+            {
+                return ( (Double) o1 ).compareTo( castDouble( o2 ) );
+            }
+            else if ( o1 instanceof String )
+            {
+                return ( (String) o1 ).compareTo( castString( o2 ) );
+            }
+            else if ( o1 instanceof Boolean )
+            {
+                return ( (Boolean) o1 ).compareTo( castBoolean( o2 ) );
+            }
+            else
+            {
+                throw new InternalParserException( "trying to compare class " + o1.getClass().getName() );
+            }
+        }
+    }
+
+    private static final class If
+        extends Node
+    {
+        private final Node test;
+
+        private final Node ifTrue;
+
+        private final Node ifFalse;
+
+        If( Node test, Node ifTrue, Node ifFalse )
+        {
+            this.test = test;
+            this.ifTrue = ifTrue;
+            this.ifFalse = ifFalse;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return test.booleanValue( evaluation ) ? ifTrue.value( evaluation ) : ifFalse.value( evaluation );
+        }
+    }
+
+    private static final class IsNull
+        extends Node
+    {
+        private final Node item;
+
+        private final boolean isNull;
+
+        IsNull( Node item, boolean isNull )
+        {
+            this.item = item;
+            this.isNull = isNull;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            return ( item.value( evaluation ) == null ) == isNull;
+        }
+    }
+
+    private static final class FirstNonNull
+        extends Node
+    {
+        private final List<Node> args;
+
+        FirstNonNull( List<Node> args )
+        {
+            this.args = args;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            Object[] values = new Object[args.size()];
+
+            for ( int i = 0; i < values.length; i++ )
+            {
+                values[i] = args.get( i ).value( evaluation );
+            }
+
+            for ( Object value : values )
+            {
+                if ( value != null )
+                {
+                    return value;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private static final class GreatestOrLeast
+        extends Node
+    {
+        private final Node[] args;
+
+        private final double greatestLeast;
+
+        GreatestOrLeast( Node[] args, double greatestLeast )
+        {
+            this.args = args;
+            this.greatestLeast = greatestLeast;
+        }
+
+        @Override
+        Object value( Evaluation evaluation )
+        {
+            Double[] values = new Double[args.length];
+
+            for ( int i = 0; i < values.length; i++ )
+            {
+                values[i] = castDouble( args[i].value( evaluation ) );
+            }
+
+            Double returnVal = null;
+
+            for ( Double val : values )
+            {
+                if ( returnVal == null || val != null && ( val - returnVal ) * greatestLeast > 0 )
+                {
+                    returnVal = val;
+                }
+            }
+
+            return returnVal;
+        }
+    }
+}
@@ -28,9 +28,11 @@ package org.hisp.dhis.fileresource;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hibernate.SessionFactory;
-import org.hisp.dhis.common.IdentifiableObjectStore;
 import org.hisp.dhis.scheduling.SchedulingManager;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
@@ -40,7 +42,9 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.concurrent.ListenableFuture;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.function.Predicate;
@@ -52,6 +56,8 @@ import java.util.stream.Collectors;
 public class DefaultFileResourceService
     implements FileResourceService
 {
+    private static final Log log = LogFactory.getLog( DefaultFileResourceService.class );
+
     private static final Duration IS_ORPHAN_TIME_DELTA = Hours.TWO.toStandardDuration();
 
     private static final Predicate<FileResource> IS_ORPHAN_PREDICATE =
@@ -61,12 +67,12 @@ public class DefaultFileResourceService
     // Dependencies
     // -------------------------------------------------------------------------
 
-    private IdentifiableObjectStore<FileResource> fileResourceStore;
+    private FileResourceStore fileResourceStore;
 
     @Autowired
     private SessionFactory sessionFactory;
 
-    public void setFileResourceStore( IdentifiableObjectStore<FileResource> fileResourceStore )
+    public void setFileResourceStore( FileResourceStore fileResourceStore )
     {
         this.fileResourceStore = fileResourceStore;
     }
@@ -124,6 +130,22 @@ public class DefaultFileResourceService
     @Transactional
     public String saveFileResource( FileResource fileResource, File file )
     {
+        try
+        {
+            fileResource.setContentSha256( com.google.common.io.Files.asByteSource( file ).hash( Hashing.sha256() ).toString() );
+        }
+        catch ( IOException ex )
+        {
+            log.warn( String.format( "Content hash of file resource: '%s' could not be computed", fileResource.getUid() ), ex );
+        }
+
+        if ( reuseStoredContent( fileResource ) )
+        {
+            deleteTempFile( file );
+
+            return fileResource.getUid();
+        }
+
         return saveFileResourceInternal( fileResource, () -> fileResourceContentStore.saveFileResourceContent( fileResource, file ) );
     }
 
@@ -131,6 +153,13 @@ public class DefaultFileResourceService
     @Transactional
     public String saveFileResource( FileResource fileResource, byte[] bytes )
     {
+        fileResource.setContentSha256( Hashing.sha256().hashBytes( bytes ).toString() );
+
+        if ( reuseStoredContent( fileResource ) )
+        {
+            return fileResource.getUid();
+        }
+
         return saveFileResourceInternal( fileResource, () -> fileResourceContentStore.saveFileResourceContent( fileResource, bytes ) );
     }
 
@@ -157,8 +186,21 @@ public class DefaultFileResourceService
             return;
         }
 
-        fileResourceContentStore.deleteFileResourceContent( fileResource.getStorageKey() );
+        // ---------------------------------------------------------------------
+        // Content is shared between file resources with identical content, so
+        // it is only deleted when no other file resource references it. The
+        // lock serializes this check with concurrent reuse of the content.
+        // ---------------------------------------------------------------------
+
+        String storageKey = fileResource.getStorageKey();
+
+        fileResourceStore.lockStorageKey( storageKey );
         fileResourceStore.delete( fileResource );
+
+        if ( fileResourceStore.getCountByStorageKey( storageKey ) == 0 )
+        {
+            fileResourceContentStore.deleteFileResourceContent( storageKey );
+        }
     }
 
     @Override
@@ -213,6 +255,60 @@ public class DefaultFileResourceService
         return uid;
     }
 
+    /**
+     * Points the given file resource to the storage key of identical content
+     * which is already stored, if any, and saves it as stored. This avoids
+     * uploading the same content to the file store more than once. Content is
+     * matched on its SHA-256 hash rather than the MD5 hash, for which
+     * colliding content can be crafted.
+     *
+     * @param fileResource the file resource.
+     * @return true if stored content was reused, false if the content must be
+     *         uploaded.
+     */
+    private boolean reuseStoredContent( FileResource fileResource )
+    {
+        if ( fileResource.getContentSha256() == null )
+        {
+            return false;
+        }
+
+        List<String> storageKeys = fileResourceStore.getStorageKeys(
+            fileResource.getContentSha256(), fileResource.getContentLength(), fileResource.getDomain() );
+
+        // The lock keeps the content from being deleted by a concurrent delete
+
+        String storageKey = storageKeys.stream()
+            .filter( key -> fileResourceStore.lockStorageKey( key ) > 0 )
+            .filter( fileResourceContentStore::fileResourceContentExists )
+            .findFirst().orElse( null );
+
+        if ( storageKey == null )
+        {
+            return false;
+        }
+
+        fileResource.setStorageKey( storageKey );
+        fileResource.setStorageStatus( FileResourceStorageStatus.STORED );
+        fileResourceStore.save( fileResource );
+
+        log.debug( String.format( "Reusing stored content with key: '%s' for file resource: '%s'", storageKey, fileResource.getUid() ) );
+
+        return true;
+    }
+
+    private void deleteTempFile( File file )
+    {
+        try
+        {
+            Files.deleteIfExists( file.toPath() );
+        }
+        catch ( IOException ex )
+        {
+            log.warn( String.format( "Temporary file '%s' could not be deleted.", file.toPath() ), ex );
+        }
+    }
+
     private FileResource checkStorageStatus( FileResource fileResource )
     {
         if ( fileResource != null )
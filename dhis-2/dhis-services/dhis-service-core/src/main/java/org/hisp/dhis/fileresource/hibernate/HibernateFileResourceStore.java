@@ -0,0 +1,72 @@
+package org.hisp.dhis.fileresource.hibernate;
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.LockMode;
+import org.hisp.dhis.common.hibernate.HibernateIdentifiableObjectStore;
+import org.hisp.dhis.fileresource.FileResource;
+import org.hisp.dhis.fileresource.FileResourceDomain;
+import org.hisp.dhis.fileresource.FileResourceStore;
+
+import java.util.List;
+
+public class HibernateFileResourceStore
+    extends HibernateIdentifiableObjectStore<FileResource>
+    implements FileResourceStore
+{
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public List<String> getStorageKeys( String contentSha256, long contentLength, FileResourceDomain domain )
+    {
+        return getSession().createQuery( "select distinct fr.storageKey from FileResource fr " +
+            "where fr.contentSha256 = :contentSha256 and fr.contentLength = :contentLength and fr.domain = :domain" )
+            .setParameter( "contentSha256", contentSha256 )
+            .setParameter( "contentLength", contentLength )
+            .setParameter( "domain", domain )
+            .list();
+    }
+
+    @Override
+    public int lockStorageKey( String storageKey )
+    {
+        return getSession().createQuery( "from FileResource fr where fr.storageKey = :storageKey" )
+            .setParameter( "storageKey", storageKey )
+            .setLockMode( "fr", LockMode.PESSIMISTIC_WRITE )
+            .list().size();
+    }
+
+    @Override
+    public int getCountByStorageKey( String storageKey )
+    {
+        Long count = (Long) getSession().createQuery( "select count(*) from FileResource fr where fr.storageKey = :storageKey" )
+            .setParameter( "storageKey", storageKey )
+            .uniqueResult();
+
+        return count.intValue();
+    }
+}
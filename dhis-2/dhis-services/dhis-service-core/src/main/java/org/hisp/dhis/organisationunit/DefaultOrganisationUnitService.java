@@ -34,6 +34,7 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.collect.Sets;
 
 import org.apache.commons.lang3.ObjectUtils;
+import org.hibernate.Hibernate;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.filter.FilterUtils;
 import org.hisp.dhis.commons.util.SystemUtils;
@@ -56,6 +57,7 @@ import javax.annotation.PostConstruct;
 import java.awt.geom.Point2D;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static org.hisp.dhis.commons.util.TextUtils.joinHyphen;
@@ -71,6 +73,19 @@ public class DefaultOrganisationUnitService
 
     private static Cache<String, Boolean> IN_USER_ORG_UNIT_HIERARCHY_CACHE;
 
+    private static final AtomicLong HIERARCHY_VERSION = new AtomicLong();
+
+    /**
+     * Time after which the hierarchy index is rebuilt even if its version is
+     * current. The version is only bumped for changes made on this node, so
+     * this bounds how long changes made on other nodes of a cluster go unseen.
+     */
+    private static final long HIERARCHY_INDEX_MAX_AGE = TimeUnit.MINUTES.toMillis( 5 );
+
+    private volatile OrganisationUnitHierarchyIndex hierarchyIndex;
+
+    private volatile long hierarchyIndexCreated;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -444,7 +459,7 @@ public class DefaultOrganisationUnitService
             return false;
         }
 
-        return organisationUnit.isDescendant( user.getOrganisationUnits() );
+        return isDescendant( organisationUnit, user.getOrganisationUnits() );
     }
 
     @Override
@@ -452,7 +467,67 @@ public class DefaultOrganisationUnitService
     {
         OrganisationUnit organisationUnit = organisationUnitStore.getByUid( uid );
 
-        return organisationUnit != null ? organisationUnit.isDescendant( organisationUnits ) : false;
+        return organisationUnit != null ? isDescendant( organisationUnit, organisationUnits ) : false;
+    }
+
+    /**
+     * Indicates whether the given organisation unit is equal to or a descendant
+     * of any of the given ancestors. Uses the hierarchy index when it agrees
+     * with the path of the organisation unit, and falls back to traversing
+     * the parent graph otherwise, for instance for organisation units which
+     * are created or moved in the current transaction.
+     */
+    private boolean isDescendant( OrganisationUnit organisationUnit, Set<OrganisationUnit> ancestors )
+    {
+        if ( ancestors == null || ancestors.isEmpty() )
+        {
+            return false;
+        }
+
+        OrganisationUnitHierarchyIndex index = getOrganisationUnitHierarchyIndex();
+
+        if ( !isPathIndexed( organisationUnit, index ) )
+        {
+            return organisationUnit.isDescendant( ancestors );
+        }
+
+        for ( OrganisationUnit ancestor : ancestors )
+        {
+            if ( index.isDescendant( organisationUnit.getId(), ancestor.getId() ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates whether the path of the given organisation unit agrees with
+     * the hierarchy index. Each loaded organisation unit on the path is
+     * compared with the index, up to the first one which is not loaded, as
+     * an organisation unit which is not loaded is unchanged in the current
+     * session. Comparing does hence not load any organisation units.
+     */
+    private boolean isPathIndexed( OrganisationUnit organisationUnit, OrganisationUnitHierarchyIndex index )
+    {
+        OrganisationUnit unit = organisationUnit;
+
+        while ( unit != null && Hibernate.isInitialized( unit ) )
+        {
+            OrganisationUnit parent = unit.getParent();
+
+            long parentId = parent != null ? parent.getId() : 0;
+
+            if ( unit.getId() == 0 || index.getParentId( unit.getId() ) != parentId )
+            {
+                return false;
+            }
+
+            unit = parent;
+        }
+
+        return unit == null || index.contains( unit.getId() );
     }
 
     // -------------------------------------------------------------------------
@@ -465,10 +540,48 @@ public class DefaultOrganisationUnitService
         return organisationUnitStore.getOrganisationUnitHierarchy();
     }
 
+    @Override
+    public OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex()
+    {
+        long version = HIERARCHY_VERSION.get();
+
+        OrganisationUnitHierarchyIndex index = hierarchyIndex;
+
+        long now = System.currentTimeMillis();
+
+        if ( index == null || index.getVersion() != version || now - hierarchyIndexCreated > HIERARCHY_INDEX_MAX_AGE
+            || SystemUtils.isTestRun( env.getActiveProfiles() ) )
+        {
+            index = organisationUnitStore.getOrganisationUnitHierarchyIndex( version );
+
+            hierarchyIndex = index;
+            hierarchyIndexCreated = now;
+        }
+
+        return index;
+    }
+
+    /**
+     * Marks the hierarchy index as outdated. The index is rebuilt on the next
+     * request.
+     */
+    public static void invalidateHierarchyIndex()
+    {
+        HIERARCHY_VERSION.incrementAndGet();
+    }
+
+    @Override
+    public Map<Long, Integer> getOrganisationUnitDataSetCountMap()
+    {
+        return organisationUnitStore.getOrganisationUnitDataSetCountMap();
+    }
+
     @Override
     public void updateOrganisationUnitParent( long organisationUnitId, long parentId )
     {
         organisationUnitStore.updateOrganisationUnitParent( organisationUnitId, parentId );
+
+        invalidateHierarchyIndex();
     }
 
     // -------------------------------------------------------------------------
@@ -758,16 +871,8 @@ public class DefaultOrganisationUnitService
 
             if ( topOrgUnit != null )
             {
-                List<OrganisationUnit> orgUnitChildren = new ArrayList<>();
-
-                if ( targetLevel != null )
-                {
-                    orgUnitChildren = getOrganisationUnitsAtLevel( targetLevel, topOrgUnit );
-                }
-                else
-                {
-                    orgUnitChildren = getOrganisationUnitWithChildren( topOrgUnit.getId() );
-                }
+                List<OrganisationUnit> orgUnitChildren = organisationUnitStore.getContainingCoordinate(
+                    longitude, latitude, topOrgUnit, targetLevel );
 
                 FilterUtils.filter( orgUnitChildren, new OrganisationUnitPolygonCoveringCoordinateFilter( longitude, latitude ) );
 
@@ -818,7 +923,7 @@ public class DefaultOrganisationUnitService
     {
         for ( int i = searchLevel; i <= stopLevel; i++ )
         {
-            List<OrganisationUnit> unitsAtLevel = new ArrayList<>( getOrganisationUnitsAtLevel( i ) );
+            List<OrganisationUnit> unitsAtLevel = organisationUnitStore.getContainingCoordinate( longitude, latitude, null, i );
             FilterUtils.filter( unitsAtLevel, new OrganisationUnitPolygonCoveringCoordinateFilter( longitude, latitude ) );
 
             if ( unitsAtLevel.size() > 0 )
@@ -42,6 +42,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitHierarchy;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndex;
 import org.hisp.dhis.organisationunit.OrganisationUnitQueryParams;
 import org.hisp.dhis.organisationunit.OrganisationUnitStore;
 import org.hisp.dhis.system.objectmapper.OrganisationUnitRelationshipRowMapper;
@@ -260,6 +261,25 @@ public class HibernateOrganisationUnitStore
         return map;
     }
 
+    @Override
+    public Map<Long, Integer> getOrganisationUnitDataSetCountMap()
+    {
+        final String sql = "select sourceid, count(*) as ds_count from datasetsource group by sourceid";
+
+        Map<Long, Integer> map = new HashMap<>();
+
+        jdbcTemplate.query( sql, new RowCallbackHandler()
+        {
+            @Override
+            public void processRow( ResultSet rs ) throws SQLException
+            {
+                map.put( rs.getLong( "sourceid" ), rs.getInt( "ds_count" ) );
+            }
+        } );
+
+        return map;
+    }
+
     @Override
     @SuppressWarnings( "unchecked" )
     public List<OrganisationUnit> getWithinCoordinateArea( double[] box )
@@ -277,6 +297,44 @@ public class HibernateOrganisationUnitStore
         return new ArrayList<>();
     }
 
+    @Override
+    public List<OrganisationUnit> getContainingCoordinate( double longitude, double latitude, OrganisationUnit parent, Integer level )
+    {
+        // ST_Covers includes coordinates on the boundary, which ST_Contains excludes
+
+        String hql = "from OrganisationUnit ou where ST_Covers(ou.geometry, " + doMakePointSql( longitude, latitude ) + ") = true";
+
+        if ( parent != null )
+        {
+            hql += " and ou.path like :path";
+        }
+
+        if ( level != null )
+        {
+            hql += " and ou.hierarchyLevel = :level";
+        }
+
+        Query<OrganisationUnit> query = getSession().createQuery( hql, OrganisationUnit.class );
+
+        if ( parent != null )
+        {
+            query.setParameter( "path", parent.getPath() + "%" );
+        }
+
+        if ( level != null )
+        {
+            query.setParameter( "level", level );
+        }
+
+        return query.getResultList();
+    }
+
+    private String doMakePointSql( double longitude, double latitude )
+    {
+        // equivalent to: postgis 'ST_MakePoint' (https://postgis.net/docs/ST_MakePoint.html)
+        return "ST_SetSRID(ST_MakePoint(" + longitude + "," + latitude + "), 4326)";
+    }
+
     private String doMakeEnvelopeSql( double[] box )
     {
         // equivalent to: postgis 'ST_MakeEnvelope' (https://postgis.net/docs/ST_MakeEnvelope.html)
@@ -295,6 +353,14 @@ public class HibernateOrganisationUnitStore
         return new OrganisationUnitHierarchy( jdbcTemplate.query( sql, new OrganisationUnitRelationshipRowMapper() ) );
     }
 
+    @Override
+    public OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex( long version )
+    {
+        final String sql = "select organisationunitid, parentid from organisationunit";
+
+        return new OrganisationUnitHierarchyIndex( version, jdbcTemplate.query( sql, new OrganisationUnitRelationshipRowMapper() ) );
+    }
+
     @Override
     public void updateOrganisationUnitParent( long organisationUnitId, long parentId )
     {
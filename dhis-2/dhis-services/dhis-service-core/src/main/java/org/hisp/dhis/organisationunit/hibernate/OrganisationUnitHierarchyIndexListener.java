@@ -0,0 +1,111 @@
+package org.hisp.dhis.organisationunit.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.organisationunit.DefaultOrganisationUnitService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+
+import java.util.Objects;
+
+/**
+ * Marks the organisation unit hierarchy index of the
+ * {@link DefaultOrganisationUnitService} as outdated when organisation units
+ * are inserted or deleted, or when the parent of an organisation unit changes.
+ */
+public class OrganisationUnitHierarchyIndexListener
+    implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener
+{
+    private static final String PARENT_PROPERTY = "parent";
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        DefaultOrganisationUnitService.invalidateHierarchyIndex();
+    }
+
+    @Override
+    public void onPostInsertCommitFailed( PostInsertEvent event )
+    {
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        if ( isParentChanged( event ) )
+        {
+            DefaultOrganisationUnitService.invalidateHierarchyIndex();
+        }
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed( PostUpdateEvent event )
+    {
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        DefaultOrganisationUnitService.invalidateHierarchyIndex();
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed( PostDeleteEvent event )
+    {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return OrganisationUnit.class.isAssignableFrom( persister.getMappedClass() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private boolean isParentChanged( PostUpdateEvent event )
+    {
+        int index = ArrayUtils.indexOf( event.getPersister().getPropertyNames(), PARENT_PROPERTY );
+
+        if ( index == ArrayUtils.INDEX_NOT_FOUND || event.getOldState() == null )
+        {
+            return true;
+        }
+
+        return !Objects.equals( event.getOldState()[index], event.getState()[index] );
+    }
+}
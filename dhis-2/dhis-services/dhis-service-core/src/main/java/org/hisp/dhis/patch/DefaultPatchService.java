@@ -181,8 +181,8 @@ public class DefaultPatchService implements PatchService
     @SuppressWarnings( "unchecked" )
     private List<Mutation> calculateMutation( String path, Property property, Object source, Object target )
     {
-        Object sourceValue = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
-        Object targetValue = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+        Object sourceValue = property.getValue( source );
+        Object targetValue = property.getValue( target );
         List<Mutation> mutations = new ArrayList<>();
 
         if ( sourceValue == null && targetValue == null )
@@ -378,7 +378,7 @@ public class DefaultPatchService implements PatchService
 
             if ( i < (paths.length - 1) )
             {
-                currentTarget = ReflectionUtils.invokeMethod( currentTarget, currentProperty.getGetterMethod() );
+                currentTarget = currentProperty.getValue( currentTarget );
             }
         }
 
@@ -395,7 +395,7 @@ public class DefaultPatchService implements PatchService
 
         if ( property.isCollection() )
         {
-            Collection<Object> collection = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+            Collection<Object> collection = property.getValue( target );
             Collection<Object> sourceCollection = Collection.class.isInstance( value ) ? (Collection<Object>) value : Lists.newArrayList( value );
 
             if ( collection == null )
@@ -451,7 +451,7 @@ public class DefaultPatchService implements PatchService
                 }
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), collection );
+            property.setValue( target, collection );
         }
         else if ( property.isIdentifiableObject() && !property.isEmbeddedObject() )
         {
@@ -480,7 +480,7 @@ public class DefaultPatchService implements PatchService
                 return;
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), value );
+            property.setValue( target, value );
         }
         else
         {
@@ -492,7 +492,7 @@ public class DefaultPatchService implements PatchService
                 return;
             }
 
-            ReflectionUtils.invokeMethod( target, property.getSetterMethod(), value );
+            property.setValue( target, value );
         }
     }
 
@@ -30,6 +30,7 @@ package org.hisp.dhis.program;
 
 import java.util.List;
 
+import org.hisp.dhis.common.AuditQueue;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -46,6 +47,9 @@ public class DefaultProgramInstanceAuditService
     
     @Autowired 
     private ProgramInstanceAuditStore programInstanceAuditStore;
+
+    @Autowired
+    private AuditQueue auditQueue;
     
     // -------------------------------------------------------------------------
     // ProgramInstanceAuditService implementation
@@ -54,7 +58,7 @@ public class DefaultProgramInstanceAuditService
     @Override
     public void addProgramInstanceAudit( ProgramInstanceAudit programInstanceAudit )
     {
-        programInstanceAuditStore.addProgramInstanceAudit( programInstanceAudit );
+        auditQueue.add( programInstanceAudit );
     }
 
     @Override
@@ -39,6 +39,7 @@ import org.hisp.dhis.program.ProgramInstanceAuditStore;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
@@ -71,6 +72,22 @@ public class HibernateProgramInstanceAuditStore
         save( programInstanceAudit );
     }
 
+    @Override
+    public void addProgramInstanceAudits( List<ProgramInstanceAudit> programInstanceAudits )
+    {
+        final String sql = "insert into programinstanceaudit " +
+            "(programinstanceauditid, programinstanceid, created, accessedby, audittype, comment) " +
+            "values (nextval('hibernate_sequence'), ?, ?, ?, ?, ?)";
+
+        jdbcTemplate.batchUpdate( sql, programInstanceAudits, programInstanceAudits.size(), ( ps, audit ) -> {
+            ps.setLong( 1, audit.getProgramInstance().getId() );
+            ps.setTimestamp( 2, new Timestamp( audit.getCreated().getTime() ) );
+            ps.setString( 3, audit.getAccessedBy() );
+            ps.setString( 4, audit.getAuditType().name() );
+            ps.setString( 5, audit.getComment() );
+        } );
+    }
+
     @Override
     public void deleteProgramInstanceAudit( ProgramInstance programInstance )
     {
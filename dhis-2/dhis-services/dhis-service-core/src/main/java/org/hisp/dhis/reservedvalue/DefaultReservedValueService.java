@@ -68,6 +68,9 @@ public class DefaultReservedValueService
     @Autowired
     private SequentialNumberCounterStore sequentialNumberCounterStore;
 
+    @Autowired
+    private ReservedValuePool reservedValuePool;
+
     private final Log log = LogFactory.getLog( DefaultReservedValueService.class );
 
     @Override
@@ -93,9 +96,9 @@ public class DefaultReservedValueService
             valueKey,
             expires );
 
-        if ( !hasEnoughValuesLeft( reservedValue,
-            TextPatternValidationUtils.getTotalValuesPotential( generatedSegment ),
-            numberOfReservations ) )
+        long totalValuesPotential = TextPatternValidationUtils.getTotalValuesPotential( generatedSegment );
+
+        if ( !hasEnoughValuesLeft( reservedValue, totalValuesPotential, numberOfReservations ) )
         {
             throw new ReserveValueException( "Not enough values left to reserve " + numberOfReservations + " values." );
         }
@@ -106,9 +109,26 @@ public class DefaultReservedValueService
             return reservedValueStore.reserveValues( reservedValue, Lists.newArrayList( key ) );
         }
 
+        if ( generatedSegment != null && reservedValuePool.isPoolable( totalValuesPotential ) )
+        {
+            String poolKey = textPattern.getOwnerUid() + ":" + key;
+
+            List<String> pooledValues = reservedValuePool.claim( poolKey, numberOfReservations );
+
+            if ( !pooledValues.isEmpty() )
+            {
+                resultList.addAll( reservedValueStore.reserveValues( reservedValue, pooledValues ) );
+            }
+
+            Map<String, String> poolValues = ImmutableMap.copyOf( values );
+
+            reservedValuePool.refill( poolKey, numberOfValues ->
+                generateAvailableValues( textPattern, poolValues, key, reservedValue, numberOfValues ) );
+        }
+
         List<String> usedGeneratedValues = new ArrayList<>();
 
-        int numberOfValuesLeftToGenerate = numberOfReservations;
+        int numberOfValuesLeftToGenerate = numberOfReservations - resultList.size();
 
         try
         {
@@ -136,11 +156,7 @@ public class DefaultReservedValueService
                 // Get a list of resolved patterns.
                 for ( int i = 0; i < numberOfReservations - resultList.size(); i++ )
                 {
-                    resolvedPatterns.add( textPatternService.resolvePattern( textPattern,
-                        ImmutableMap.<String, String>builder()
-                            .putAll( values )
-                            .put( generatedSegment.getMethod().name(), generatedValues.get( i ) )
-                            .build() ) );
+                    resolvedPatterns.add( resolvePattern( textPattern, values, generatedSegment, generatedValues.get( i ) ) );
                 }
 
                 resultList.addAll( reservedValueStore.reserveValues( reservedValue, resolvedPatterns ) );
@@ -181,6 +197,37 @@ public class DefaultReservedValueService
             .orElse( null );
     }
 
+    private String resolvePattern( TextPattern textPattern, Map<String, String> values, TextPatternSegment generatedSegment,
+        String generatedValue )
+        throws TextPatternGenerationException
+    {
+        return textPatternService.resolvePattern( textPattern,
+            ImmutableMap.<String, String>builder()
+                .putAll( values )
+                .put( generatedSegment.getMethod().name(), generatedValue )
+                .build() );
+    }
+
+    /**
+     * Generates values for the given pattern and key, and returns those which
+     * are neither reserved nor used. Used to fill the reserved value pool.
+     */
+    private List<String> generateAvailableValues( TextPattern textPattern, Map<String, String> values, String key,
+        ReservedValue reservedValue, int numberOfValues )
+        throws TextPatternGenerationException
+    {
+        TextPatternSegment generatedSegment = getGeneratedSegment( textPattern );
+
+        List<String> resolvedPatterns = new ArrayList<>();
+
+        for ( String generatedValue : generateValues( textPattern, key, numberOfValues ) )
+        {
+            resolvedPatterns.add( resolvePattern( textPattern, values, generatedSegment, generatedValue ) );
+        }
+
+        return reservedValueStore.getAvailableValues( reservedValue, resolvedPatterns );
+    }
+
     private List<String> generateValues( TextPattern textPattern, String key, int numberOfValues )
     {
         List<String> generatedValues = new ArrayList<>();
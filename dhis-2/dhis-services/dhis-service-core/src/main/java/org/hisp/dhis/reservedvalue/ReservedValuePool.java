@@ -0,0 +1,254 @@
+package org.hisp.dhis.reservedvalue;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pools of pre-generated values for text patterns with a generated segment,
+ * kept per owner and pattern key.
+ * <p>
+ * Values in a pool have been generated and checked against the reserved and
+ * used values of the owner, but are not reserved themselves. Claiming values
+ * from a pool is lock-free. Claimed values are then reserved as usual, which
+ * checks them again, so a value taken since the pool was filled, for example
+ * by another server, is never handed out twice.
+ * <p>
+ * A pool is refilled in a background thread up to the configured size once it
+ * drops below half of that size. Sequential values are drawn from the counter
+ * in one block per refill, so values which are still pooled when the server
+ * stops are skipped. Patterns with a small value space are therefore not
+ * pooled. In test runs, and when the pool size is set to zero in dhis.conf,
+ * nothing is pooled.
+ */
+public class ReservedValuePool
+{
+    private static final Log log = LogFactory.getLog( ReservedValuePool.class );
+
+    /**
+     * Only patterns with at least this many potential values per pooled value
+     * are pooled.
+     */
+    private static final long VALUE_SPACE_FACTOR = 100;
+
+    private static final int MAX_POOLS = 1000;
+
+    private static final int MAX_REFILL_ATTEMPTS = 10;
+
+    @Autowired
+    private DhisConfigurationProvider config;
+
+    @Autowired
+    private Environment env;
+
+    private int poolSize;
+
+    private ExecutorService refiller;
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init()
+    {
+        poolSize = SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 :
+            Math.max( 0, Integer.parseInt( config.getProperty( ConfigurationKey.RESERVED_VALUE_POOL_SIZE ) ) );
+
+        if ( poolSize > 0 )
+        {
+            refiller = Executors.newSingleThreadExecutor( runnable -> {
+                Thread thread = new Thread( runnable, "reserved-value-pool" );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        if ( refiller != null )
+        {
+            refiller.shutdownNow();
+        }
+    }
+
+    /**
+     * Indicates whether values of a pattern with the given number of potential
+     * values should be pooled.
+     *
+     * @param totalValuesPotential the number of values the pattern can produce.
+     * @return true if the values should be pooled.
+     */
+    public boolean isPoolable( long totalValuesPotential )
+    {
+        return poolSize > 0 && totalValuesPotential / VALUE_SPACE_FACTOR >= poolSize;
+    }
+
+    /**
+     * Removes up to the given number of values from the pool with the given key.
+     *
+     * @param key the pool key.
+     * @param numberOfValues the maximum number of values to claim.
+     * @return the claimed values, empty if the pool is empty or does not exist.
+     */
+    public List<String> claim( String key, int numberOfValues )
+    {
+        List<String> values = new ArrayList<>();
+
+        Pool pool = pools.get( key );
+
+        if ( pool == null )
+        {
+            return values;
+        }
+
+        String value;
+
+        while ( values.size() < numberOfValues && (value = pool.values.poll()) != null )
+        {
+            pool.members.remove( value );
+            values.add( value );
+        }
+
+        return values;
+    }
+
+    /**
+     * Schedules a refill of the pool with the given key if it is running low,
+     * creating the pool if needed. Does nothing if a refill of the pool is
+     * already scheduled.
+     *
+     * @param key the pool key.
+     * @param generator the generator of available values for the pool.
+     */
+    public void refill( String key, ValueGenerator generator )
+    {
+        if ( poolSize == 0 || (!pools.containsKey( key ) && pools.size() >= MAX_POOLS) )
+        {
+            return;
+        }
+
+        Pool pool = pools.computeIfAbsent( key, k -> new Pool() );
+
+        if ( pool.members.size() >= poolSize / 2 || !pool.refilling.compareAndSet( false, true ) )
+        {
+            return;
+        }
+
+        try
+        {
+            refiller.execute( () -> fill( key, pool, generator ) );
+        }
+        catch ( RejectedExecutionException ex )
+        {
+            pool.refilling.set( false );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void fill( String key, Pool pool, ValueGenerator generator )
+    {
+        try
+        {
+            int attemptsLeft = MAX_REFILL_ATTEMPTS;
+            int missing;
+
+            while ( (missing = poolSize - pool.members.size()) > 0 && attemptsLeft-- > 0 )
+            {
+                int added = 0;
+
+                for ( String value : generator.generate( missing ) )
+                {
+                    if ( pool.members.add( value ) )
+                    {
+                        pool.values.add( value );
+                        added++;
+                    }
+                }
+
+                if ( added == 0 )
+                {
+                    break;
+                }
+            }
+
+            log.debug( String.format( "Refilled reserved value pool %s to %d values", key, pool.members.size() ) );
+        }
+        catch ( Exception ex )
+        {
+            log.warn( String.format( "Refill of reserved value pool %s failed", key ), ex );
+        }
+        finally
+        {
+            pool.refilling.set( false );
+        }
+    }
+
+    /**
+     * Generates values which are neither reserved nor used.
+     */
+    @FunctionalInterface
+    public interface ValueGenerator
+    {
+        List<String> generate( int numberOfValues )
+            throws Exception;
+    }
+
+    private static class Pool
+    {
+        private final Queue<String> values = new ConcurrentLinkedQueue<>();
+
+        private final Set<String> members = ConcurrentHashMap.newKeySet();
+
+        private final AtomicBoolean refilling = new AtomicBoolean();
+    }
+}
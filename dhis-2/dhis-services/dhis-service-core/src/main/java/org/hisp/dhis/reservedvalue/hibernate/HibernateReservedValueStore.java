@@ -65,7 +65,7 @@ public class HibernateReservedValueStore
         BatchHandler<ReservedValue> batchHandler = batchHandlerFactory
             .createBatchHandler( ReservedValueBatchHandler.class ).init();
 
-        List<String> availableValues = getIfAvailable( reservedValue, values );
+        List<String> availableValues = getAvailableValues( reservedValue, values );
 
         List<ReservedValue> toAdd = new ArrayList<>();
 
@@ -105,6 +105,12 @@ public class HibernateReservedValueStore
             .getResultList();
     }
 
+    @Override
+    public List<String> getAvailableValues( ReservedValue reservedValue, List<String> values )
+    {
+        return getIfAvailable( reservedValue, new ArrayList<>( values ) );
+    }
+
     @Override
     public int getNumberOfUsedValues( ReservedValue reservedValue )
     {
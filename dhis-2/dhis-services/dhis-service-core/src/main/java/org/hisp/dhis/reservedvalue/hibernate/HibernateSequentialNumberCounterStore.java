@@ -57,25 +57,35 @@ public class HibernateSequentialNumberCounterStore
     {
         Session session = sessionFactory.getCurrentSession();
 
-        int count;
+        // Increment the counter by the whole block in a single statement, which
+        // locks the row until commit so concurrent callers get disjoint blocks
+
+        int updated = session
+            .createQuery( "UPDATE SequentialNumberCounter SET counter = counter + :length WHERE owneruid = :uid AND key = :key" )
+            .setParameter( "length", length )
+            .setParameter( "uid", uid )
+            .setParameter( "key", key )
+            .executeUpdate();
 
-        SequentialNumberCounter counter = (SequentialNumberCounter) session
-            .createQuery( "FROM SequentialNumberCounter WHERE owneruid = ? AND key = ?" )
-            .setParameter( 0, uid )
-            .setParameter( 1, key )
-            .uniqueResult();
+        int count;
 
-        if ( counter == null )
+        if ( updated == 0 )
         {
-            counter = new SequentialNumberCounter( uid, key, 1 );
+            count = 1;
+            session.save( new SequentialNumberCounter( uid, key, count + length ) );
         }
+        else
+        {
+            Integer counter = (Integer) session
+                .createQuery( "SELECT counter FROM SequentialNumberCounter WHERE owneruid = :uid AND key = :key" )
+                .setParameter( "uid", uid )
+                .setParameter( "key", key )
+                .uniqueResult();
 
-        count = counter.getCounter();
-        counter.setCounter( count + length );
-        session.saveOrUpdate( counter );
+            count = counter - length;
+        }
 
         return IntStream.range( count, count + length ).boxed().collect( Collectors.toList() );
-
     }
 
     @Override
@@ -28,6 +28,7 @@ package org.hisp.dhis.trackedentity;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.common.AuditQueue;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -47,6 +48,9 @@ public class DefaultTrackedEntityInstanceAuditService
     // -------------------------------------------------------------------------
     @Autowired 
     private TrackedEntityInstanceAuditStore trackedEntityInstanceAuditStore;
+
+    @Autowired
+    private AuditQueue auditQueue;
     
     
     // -------------------------------------------------------------------------
@@ -56,7 +60,7 @@ public class DefaultTrackedEntityInstanceAuditService
     @Override
     public void addTrackedEntityInstanceAudit( TrackedEntityInstanceAudit trackedEntityInstanceAudit )
     {
-        trackedEntityInstanceAuditStore.addTrackedEntityInstanceAudit( trackedEntityInstanceAudit );        
+        auditQueue.add( trackedEntityInstanceAudit );
     }
 
     @Override
@@ -821,6 +821,15 @@ public class DefaultTrackedEntityInstanceService
         return trackedEntityInstanceStore.getTrackedEntityInstancesByUid( uids, user );
     }
 
+    @Override
+    public void preloadTrackedEntityInstances( List<TrackedEntityInstance> instances, boolean includeEnrollments, boolean includeRelationships )
+    {
+        if ( !instances.isEmpty() )
+        {
+            trackedEntityInstanceStore.preloadTrackedEntityInstances( instances, includeEnrollments, includeRelationships );
+        }
+    }
+
     @Override
     public void updateTrackedEntityInstance( TrackedEntityInstance instance )
     {
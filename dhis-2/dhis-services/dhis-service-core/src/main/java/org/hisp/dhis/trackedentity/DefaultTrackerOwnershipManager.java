@@ -28,8 +28,13 @@ package org.hisp.dhis.trackedentity;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 
@@ -51,6 +56,8 @@ import org.hisp.dhis.user.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.AccessDeniedException;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Ameen Mohamed
  */
@@ -60,6 +67,8 @@ public class DefaultTrackerOwnershipManager implements TrackerOwnershipManager
 
     private static final int TEMPORARY_OWNERSHIP_VALIDITY_IN_HOURS = 3;
 
+    private static final int OWNER_QUERY_PARTITION_SIZE = 1000;
+
     private static final Log log = LogFactory.getLog( DefaultTrackerOwnershipManager.class );
 
     // -------------------------------------------------------------------------
@@ -270,15 +279,7 @@ public class DefaultTrackerOwnershipManager implements TrackerOwnershipManager
             return true;
         }
 
-        OrganisationUnit ou = getOwner( entityInstance, program );
-        if ( program.isOpen() || program.isAudited() )
-        {
-            return isInHierarchy( ou, user.getTeiSearchOrganisationUnitsWithFallback() );
-        }
-        else
-        {
-            return isInHierarchy( ou, user.getOrganisationUnits() ) || hasTemporaryAccess( entityInstance, program, user );
-        }
+        return hasAccess( user, entityInstance, program, getOwner( entityInstance, program ) );
     }
     
     @Override
@@ -312,6 +313,22 @@ public class DefaultTrackerOwnershipManager implements TrackerOwnershipManager
         return hasAccess( user, entityInstance, program );
     }
 
+    @Override
+    public Set<TrackedEntityInstance> getAccessibleTrackedEntityInstances( User user, Collection<TrackedEntityInstance> entityInstances,
+        Program program )
+    {
+        if ( canSkipOwnershipCheck( user, program ) )
+        {
+            return new HashSet<>( entityInstances );
+        }
+
+        Map<Long, OrganisationUnit> owners = getOwners( entityInstances, program );
+
+        return entityInstances.stream()
+            .filter( tei -> hasAccess( user, tei, program, owners.getOrDefault( tei.getId(), tei.getOrganisationUnit() ) ) )
+            .collect( Collectors.toSet() );
+    }
+
     // -------------------------------------------------------------------------
     // Private Helper Methods
     // -------------------------------------------------------------------------
@@ -354,6 +371,45 @@ public class DefaultTrackerOwnershipManager implements TrackerOwnershipManager
         return ou;
     }
 
+    /**
+     * Get the explicit owners of the given teis in the program, keyed on tei
+     * id. Teis without an explicit owner are left out of the map.
+     * 
+     * @param entityInstances The teis
+     * @param program The program
+     * @return A map from tei id to owning Organisation unit.
+     */
+    private Map<Long, OrganisationUnit> getOwners( Collection<TrackedEntityInstance> entityInstances, Program program )
+    {
+        List<Long> teiIds = entityInstances.stream().map( TrackedEntityInstance::getId ).collect( Collectors.toList() );
+
+        return Lists.partition( teiIds, OWNER_QUERY_PARTITION_SIZE ).stream()
+            .flatMap( ids -> trackedEntityProgramOwnerService.getTrackedEntityProgramOwnersUsingId( ids, program ).stream() )
+            .collect( Collectors.toMap( owner -> owner.getEntityInstance().getId(), TrackedEntityProgramOwner::getOrganisationUnit ) );
+    }
+
+    /**
+     * Check whether the user has access to the tei in the program, given the
+     * current owner of the tei-program combination.
+     * 
+     * @param user The user object
+     * @param entityInstance The tei
+     * @param program The program
+     * @param owner The owning Organisation unit
+     * @return true if the user has access, false otherwise
+     */
+    private boolean hasAccess( User user, TrackedEntityInstance entityInstance, Program program, OrganisationUnit owner )
+    {
+        if ( program.isOpen() || program.isAudited() )
+        {
+            return isInHierarchy( owner, user.getTeiSearchOrganisationUnitsWithFallback() );
+        }
+        else
+        {
+            return isInHierarchy( owner, user.getOrganisationUnits() ) || hasTemporaryAccess( entityInstance, program, user );
+        }
+    }
+
     /**
      * Check if the user has temporary access for a specific tei-program
      * combination
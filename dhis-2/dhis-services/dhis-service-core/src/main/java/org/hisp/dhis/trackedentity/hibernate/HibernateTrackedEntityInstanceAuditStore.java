@@ -28,6 +28,7 @@ package org.hisp.dhis.trackedentity.hibernate;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
@@ -61,6 +62,22 @@ public class HibernateTrackedEntityInstanceAuditStore
         getSession().save( trackedEntityInstanceAudit );
     }
 
+    @Override
+    public void addTrackedEntityInstanceAudits( List<TrackedEntityInstanceAudit> trackedEntityInstanceAudits )
+    {
+        final String sql = "insert into trackedentityinstanceaudit " +
+            "(trackedentityinstanceauditid, trackedentityinstance, created, accessedby, audittype, comment) " +
+            "values (nextval('hibernate_sequence'), ?, ?, ?, ?, ?)";
+
+        jdbcTemplate.batchUpdate( sql, trackedEntityInstanceAudits, trackedEntityInstanceAudits.size(), ( ps, audit ) -> {
+            ps.setString( 1, audit.getTrackedEntityInstance() );
+            ps.setTimestamp( 2, new Timestamp( audit.getCreated().getTime() ) );
+            ps.setString( 3, audit.getAccessedBy() );
+            ps.setString( 4, audit.getAuditType().name() );
+            ps.setString( 5, audit.getComment() );
+        } );
+    }
+
     @Override
     public void deleteTrackedEntityInstanceAudit( TrackedEntityInstance trackedEntityInstance )
     {
@@ -55,6 +55,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
@@ -75,6 +76,7 @@ import org.hisp.dhis.commons.util.SqlHelper;
 import org.hisp.dhis.event.EventStatus;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceQueryParams;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
@@ -82,6 +84,8 @@ import org.hisp.dhis.user.User;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Abyot Asalefew Gizaw
  */
@@ -92,6 +96,8 @@ public class HibernateTrackedEntityInstanceStore
 {
     private static final Log log = LogFactory.getLog( HibernateTrackedEntityInstanceStore.class );
 
+    private static final int PRELOAD_PARTITION_SIZE = 1000;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -721,6 +727,54 @@ public class HibernateTrackedEntityInstanceStore
             .list();
     }
 
+    @Override
+    public void preloadTrackedEntityInstances( List<TrackedEntityInstance> instances, boolean includeEnrollments, boolean includeRelationships )
+    {
+        for ( List<TrackedEntityInstance> partition : Lists.partition( instances, PRELOAD_PARTITION_SIZE ) )
+        {
+            List<Long> ids = partition.stream().map( TrackedEntityInstance::getId ).collect( Collectors.toList() );
+
+            fetchCollection( "trackedEntityAttributeValues", ids );
+            fetchCollection( "programOwners", ids );
+
+            if ( includeRelationships )
+            {
+                fetchCollection( "relationshipItems", ids );
+            }
+
+            if ( includeEnrollments )
+            {
+                fetchCollection( "programInstances", ids );
+
+                List<Long> programInstanceIds = partition.stream()
+                    .flatMap( tei -> tei.getProgramInstances().stream() )
+                    .map( ProgramInstance::getId )
+                    .collect( Collectors.toList() );
+
+                for ( List<Long> programInstancePartition : Lists.partition( programInstanceIds, PRELOAD_PARTITION_SIZE ) )
+                {
+                    getSession().createQuery( "select distinct pi from ProgramInstance pi " +
+                        "left join fetch pi.programStageInstances where pi.id in (:ids)" )
+                        .setParameterList( "ids", programInstancePartition )
+                        .list();
+                }
+            }
+        }
+    }
+
+    /**
+     * Initializes the given collection of the tracked entity instances with
+     * the given identifiers through a single fetch join. The instances are
+     * already in the session, so the result is not needed.
+     */
+    private void fetchCollection( String collection, List<Long> ids )
+    {
+        getSession().createQuery( "select distinct tei from TrackedEntityInstance tei " +
+            "left join fetch tei." + collection + " where tei.id in (:ids)" )
+            .setParameterList( "ids", ids )
+            .list();
+    }
+
     @Override
     protected void preProcessPredicates( CriteriaBuilder builder, List<Function<Root<TrackedEntityInstance>, Predicate>> predicates )
     {
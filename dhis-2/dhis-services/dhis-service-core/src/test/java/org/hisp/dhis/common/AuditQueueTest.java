@@ -0,0 +1,325 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueAuditStore;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.program.ProgramInstanceAudit;
+import org.hisp.dhis.program.ProgramInstanceAuditStore;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceAudit;
+import org.hisp.dhis.trackedentity.TrackedEntityInstanceAuditStore;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith( MockitoJUnitRunner.class )
+public class AuditQueueTest
+{
+    private static final long TIMEOUT = 10000;
+
+    @Mock
+    private TrackedEntityInstanceAuditStore trackedEntityInstanceAuditStore;
+
+    @Mock
+    private ProgramInstanceAuditStore programInstanceAuditStore;
+
+    @Mock
+    private DataValueAuditStore dataValueAuditStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private Environment env;
+
+    @InjectMocks
+    private AuditQueue auditQueue;
+
+    @After
+    public void tearDown()
+    {
+        auditQueue.shutdown();
+    }
+
+    @Test
+    public void testWriteImmediatelyWhenNotAsync()
+    {
+        when( config.isEnabled( ConfigurationKey.AUDIT_ASYNC ) ).thenReturn( false );
+
+        auditQueue.init();
+
+        DataValueAudit audit = new DataValueAudit();
+
+        auditQueue.add( audit );
+
+        verify( dataValueAuditStore ).addDataValueAudit( audit );
+        verify( dataValueAuditStore, never() ).addDataValueAudits( anyList() );
+
+        assertEquals( 0, getStatistic( "async" ) );
+    }
+
+    @Test
+    public void testWriteBatch()
+    {
+        init( 100, 3, 60000 );
+
+        TrackedEntityInstanceAudit trackedEntityInstanceAudit = new TrackedEntityInstanceAudit();
+        ProgramInstanceAudit programInstanceAudit = new ProgramInstanceAudit();
+        DataValueAudit dataValueAudit = new DataValueAudit();
+
+        auditQueue.add( trackedEntityInstanceAudit );
+        auditQueue.add( programInstanceAudit );
+        auditQueue.add( dataValueAudit );
+
+        verify( trackedEntityInstanceAuditStore, timeout( TIMEOUT ) ).addTrackedEntityInstanceAudits( singletonList( trackedEntityInstanceAudit ) );
+        verify( programInstanceAuditStore, timeout( TIMEOUT ) ).addProgramInstanceAudits( singletonList( programInstanceAudit ) );
+        verify( dataValueAuditStore, timeout( TIMEOUT ) ).addDataValueAudits( singletonList( dataValueAudit ) );
+
+        auditQueue.shutdown();
+
+        assertEquals( 3, getStatistic( "written" ) );
+        assertEquals( 0, getStatistic( "direct" ) );
+    }
+
+    @Test
+    public void testWriteOneAtATimeWhenBatchFails()
+    {
+        init( 100, 2, 60000 );
+
+        DataValueAudit validAudit = new DataValueAudit();
+        DataValueAudit invalidAudit = new DataValueAudit();
+
+        doAnswer( invocation -> {
+            List<?> audits = invocation.getArgument( 0 );
+
+            if ( audits.contains( invalidAudit ) )
+            {
+                throw new IllegalStateException( "Invalid audit" );
+            }
+
+            return null;
+        } ).when( dataValueAuditStore ).addDataValueAudits( anyList() );
+
+        auditQueue.add( validAudit );
+        auditQueue.add( invalidAudit );
+
+        verify( dataValueAuditStore, timeout( TIMEOUT ) ).addDataValueAudits( singletonList( invalidAudit ) );
+
+        auditQueue.shutdown();
+
+        verify( dataValueAuditStore ).addDataValueAudits( singletonList( validAudit ) );
+
+        assertEquals( 1, getStatistic( "written" ) );
+        assertEquals( 1, getStatistic( "failed" ) );
+    }
+
+    @Test
+    public void testWriteAfterCommit()
+    {
+        init( 100, 1, 0 );
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try
+        {
+            auditQueue.add( new DataValueAudit() );
+            auditQueue.add( new DataValueAudit() );
+
+            assertEquals( 0, getStatistic( "queued" ) );
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+            assertEquals( 1, synchronizations.size() );
+
+            synchronizations.forEach( TransactionSynchronization::afterCommit );
+            synchronizations.forEach( s -> s.afterCompletion( TransactionSynchronization.STATUS_COMMITTED ) );
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        auditQueue.shutdown();
+
+        assertEquals( 2, getStatistic( "queued" ) );
+        assertEquals( 2, getStatistic( "written" ) );
+    }
+
+    @Test
+    public void testNothingWrittenAfterRollback()
+    {
+        init( 100, 1, 0 );
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try
+        {
+            auditQueue.add( new DataValueAudit() );
+
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach( s -> s.afterCompletion( TransactionSynchronization.STATUS_ROLLED_BACK ) );
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        auditQueue.shutdown();
+
+        verify( dataValueAuditStore, never() ).addDataValueAudits( anyList() );
+
+        assertEquals( 0, getStatistic( "queued" ) );
+    }
+
+    @Test
+    public void testWriteWaitingAuditsOnShutdown()
+    {
+        init( 100, 100, 60000 );
+
+        auditQueue.add( new DataValueAudit() );
+        auditQueue.add( new DataValueAudit() );
+        auditQueue.add( new DataValueAudit() );
+
+        auditQueue.shutdown();
+
+        assertEquals( 3, getStatistic( "written" ) );
+        assertEquals( 0, getStatistic( "waiting" ) );
+    }
+
+    @Test
+    public void testWriteDirectlyWhenQueueFull()
+        throws InterruptedException
+    {
+        init( 1, 1, 0 );
+
+        CountDownLatch writing = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        // Holds up the writer thread on its first batch, so that the queue
+        // fills up behind it
+
+        doAnswer( invocation -> {
+            if ( Thread.currentThread().getName().equals( "audit-writer" ) )
+            {
+                writing.countDown();
+                release.await( TIMEOUT, TimeUnit.MILLISECONDS );
+            }
+
+            return null;
+        } ).when( dataValueAuditStore ).addDataValueAudits( anyList() );
+
+        DataValueAudit auditA = new DataValueAudit();
+        DataValueAudit auditB = new DataValueAudit();
+        DataValueAudit auditC = new DataValueAudit();
+
+        auditQueue.add( auditA );
+
+        assertTrue( writing.await( TIMEOUT, TimeUnit.MILLISECONDS ) );
+
+        auditQueue.add( auditB );
+        auditQueue.add( auditC );
+
+        verify( dataValueAuditStore ).addDataValueAudits( singletonList( auditC ) );
+        verify( dataValueAuditStore, never() ).addDataValueAudits( singletonList( auditB ) );
+
+        assertEquals( 1, getStatistic( "direct" ) );
+
+        release.countDown();
+
+        verify( dataValueAuditStore, timeout( TIMEOUT ) ).addDataValueAudits( singletonList( auditB ) );
+        verify( dataValueAuditStore, times( 3 ) ).addDataValueAudits( anyList() );
+    }
+
+    @Test
+    public void testWriteDirectlyAfterShutdown()
+    {
+        init( 100, 100, 60000 );
+
+        auditQueue.shutdown();
+
+        DataValueAudit audit = new DataValueAudit();
+
+        auditQueue.add( audit );
+
+        verify( dataValueAuditStore ).addDataValueAudits( singletonList( audit ) );
+
+        assertEquals( 1, getStatistic( "direct" ) );
+        assertEquals( 0, getStatistic( "waiting" ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void init( int queueSize, int flushSize, long flushInterval )
+    {
+        when( config.isEnabled( ConfigurationKey.AUDIT_ASYNC ) ).thenReturn( true );
+        when( config.getProperty( ConfigurationKey.AUDIT_ASYNC_QUEUE_SIZE ) ).thenReturn( String.valueOf( queueSize ) );
+        when( config.getProperty( ConfigurationKey.AUDIT_ASYNC_FLUSH_SIZE ) ).thenReturn( String.valueOf( flushSize ) );
+        when( config.getProperty( ConfigurationKey.AUDIT_ASYNC_FLUSH_INTERVAL ) ).thenReturn( String.valueOf( flushInterval ) );
+        when( env.getActiveProfiles() ).thenReturn( new String[0] );
+
+        auditQueue.init();
+
+        assertEquals( 1, getStatistic( "async" ) );
+    }
+
+    private long getStatistic( String name )
+    {
+        return auditQueue.getStatistics().get( name ).longValue();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.expression;
+
+import com.google.common.collect.ImmutableMap;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.parser.expression.Parser;
+import org.hisp.dhis.parser.expression.ParserException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hisp.dhis.parser.expression.ParserUtils.castDouble;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ExpressionCompilerTest
+{
+    private static final String[] EXPRESSIONS = {
+        "#{dataElemenA} + #{dataElemenB}",
+        "#{dataElemenA} * #{dataElemenC} - #{dataElemenB}",
+        "-#{dataElemenA} / 4 + 2 ^ 3 % 5",
+        "+#{dataElemenB}",
+        "(#{dataElemenA} + C{constantAAA}) * [days]",
+        "OUG{orgUnitGrpA} + 1",
+        "if( #{dataElemenA} > #{dataElemenB}, #{dataElemenA}, #{dataElemenC} )",
+        "if( #{dataElemenA} < 1 && 0 == #{dataElemenC}, 1, 2 )",
+        "if( #{dataElemenA} > 1 || #{dataElemenC} != 1, 1, 2 )",
+        "if( !( #{dataElemenA} >= 3 ), 1, 2 ) + if( #{dataElemenB} <= 4, 3, 4 )",
+        "firstNonNull( #{dataElemenC}, #{dataElemenB}, 7 )",
+        "firstNonNull( #{dataElemenC}, 7 )",
+        "if( isNull( #{dataElemenC} ), 1, 0 ) + if( isNotNull( #{dataElemenA} ), 10, 0 )",
+        "greatest( #{dataElemenA}, #{dataElemenB}, #{dataElemenC} )",
+        "least( #{dataElemenA}, #{dataElemenB}, #{dataElemenC} )",
+        "#{dataElemenA} + #{dataElemenA} + #{dataElemenC}",
+        "if( 'abc' < 'abd', 5, 6 )"
+    };
+
+    private Map<DimensionalItemObject, Double> valueMap;
+
+    private Map<String, Double> constantMap;
+
+    private Map<String, Integer> orgUnitCountMap;
+
+    @Before
+    public void setUp()
+    {
+        valueMap = new HashMap<>();
+        valueMap.put( dataElement( "dataElemenA" ), 3.0 );
+        valueMap.put( dataElement( "dataElemenB" ), 5.0 );
+        valueMap.put( dataElement( "dataElemenD" ), 9.0 );
+
+        constantMap = ImmutableMap.of( "constantAAA", 2.0 );
+
+        orgUnitCountMap = ImmutableMap.of( "orgUnitGrpA", 17 );
+    }
+
+    @Test
+    public void testCompiledMatchesEvaluator()
+    {
+        for ( String expression : EXPRESSIONS )
+        {
+            ExpressionEvaluator evaluator = new ExpressionEvaluator( valueMap, constantMap, orgUnitCountMap, 10 );
+
+            Double expected = castDouble( Parser.visit( expression, evaluator ) );
+
+            CompiledExpression compiled = ExpressionCompiler.compile( expression );
+
+            CompiledExpression.Evaluation evaluation = new CompiledExpression.Evaluation(
+                compiled.getValues( valueMap ), constantMap, orgUnitCountMap, 10 );
+
+            Double actual = castDouble( compiled.evaluate( evaluation ) );
+
+            assertEquals( expression, expected, actual );
+            assertEquals( expression, evaluator.getItemsFound(), evaluation.getItemsFound() );
+            assertEquals( expression, evaluator.getItemValuesFound(), evaluation.getItemValuesFound() );
+        }
+    }
+
+    @Test
+    public void testCompiledExpressionIsReusable()
+    {
+        CompiledExpression compiled = ExpressionCompiler.compile( "#{dataElemenA} * #{dataElemenB}" );
+
+        assertEquals( 2, compiled.getItemKeys().size() );
+
+        assertEquals( 15.0, evaluate( compiled, valueMap ), 0.0 );
+
+        Map<DimensionalItemObject, Double> otherValueMap = ImmutableMap.of(
+            dataElement( "dataElemenA" ), 2.0, dataElement( "dataElemenB" ), 0.5 );
+
+        assertEquals( 1.0, evaluate( compiled, otherValueMap ), 0.0 );
+    }
+
+    @Test
+    public void testMissingValuesAreCounted()
+    {
+        CompiledExpression compiled = ExpressionCompiler.compile( "#{dataElemenA} + #{dataElemenC}" );
+
+        CompiledExpression.Evaluation evaluation = new CompiledExpression.Evaluation(
+            compiled.getValues( valueMap ), constantMap, orgUnitCountMap, null );
+
+        assertEquals( 3.0, castDouble( compiled.evaluate( evaluation ) ), 0.0 );
+        assertEquals( 2, evaluation.getItemsFound() );
+        assertEquals( 1, evaluation.getItemValuesFound() );
+    }
+
+    @Test
+    public void testInvalidItemThrowsOnEvaluation()
+    {
+        CompiledExpression compiled = ExpressionCompiler.compile( "if( true, 1, V{event_count} )" );
+
+        assertEquals( 1.0, evaluate( compiled, valueMap ), 0.0 );
+
+        compiled = ExpressionCompiler.compile( "V{event_count}" );
+
+        try
+        {
+            evaluate( compiled, valueMap );
+
+            fail( "Expected a parser exception" );
+        }
+        catch ( ParserException ex )
+        {
+            // Expected
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Double evaluate( CompiledExpression compiled, Map<DimensionalItemObject, Double> values )
+    {
+        return castDouble( compiled.evaluate( new CompiledExpression.Evaluation(
+            compiled.getValues( values ), constantMap, orgUnitCountMap, null ) ) );
+    }
+
+    private static DataElement dataElement( String uid )
+    {
+        DataElement dataElement = new DataElement();
+        dataElement.setUid( uid );
+        return dataElement;
+    }
+}
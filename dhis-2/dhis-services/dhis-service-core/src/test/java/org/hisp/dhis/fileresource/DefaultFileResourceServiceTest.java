@@ -0,0 +1,192 @@
+package org.hisp.dhis.fileresource;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.scheduling.SchedulingManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith( MockitoJUnitRunner.class )
+public class DefaultFileResourceServiceTest
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Mock
+    private FileResourceStore fileResourceStore;
+
+    @Mock
+    private FileResourceContentStore fileResourceContentStore;
+
+    @Mock
+    private SchedulingManager schedulingManager;
+
+    @Mock
+    private FileResourceUploadCallback uploadCallback;
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private Session session;
+
+    @InjectMocks
+    private DefaultFileResourceService fileResourceService;
+
+    @Test
+    public void testSaveFileResourceReusesStoredContent()
+        throws Exception
+    {
+        File file = newFile( "contentA" );
+        FileResource fileResource = new FileResource( "a.png", "image/png", 10, "md5A", FileResourceDomain.DATA_VALUE );
+
+        when( fileResourceStore.getStorageKeys( sha256( "contentA" ), 10, FileResourceDomain.DATA_VALUE ) )
+            .thenReturn( Lists.newArrayList( "dataValue/keyA", "dataValue/keyB" ) );
+        when( fileResourceStore.lockStorageKey( "dataValue/keyA" ) ).thenReturn( 1 );
+        when( fileResourceStore.lockStorageKey( "dataValue/keyB" ) ).thenReturn( 1 );
+        when( fileResourceContentStore.fileResourceContentExists( "dataValue/keyA" ) ).thenReturn( false );
+        when( fileResourceContentStore.fileResourceContentExists( "dataValue/keyB" ) ).thenReturn( true );
+
+        fileResourceService.saveFileResource( fileResource, file );
+
+        assertEquals( "dataValue/keyB", fileResource.getStorageKey() );
+        assertEquals( FileResourceStorageStatus.STORED, fileResource.getStorageStatus() );
+        assertEquals( sha256( "contentA" ), fileResource.getContentSha256() );
+        assertFalse( file.exists() );
+        verify( fileResourceStore ).save( fileResource );
+        verify( schedulingManager, never() ).executeJob( any( Callable.class ) );
+    }
+
+    @Test
+    public void testSaveFileResourceSkipsContentDeletedConcurrently()
+        throws Exception
+    {
+        File file = newFile( "contentA" );
+        FileResource fileResource = new FileResource( "a.png", "image/png", 10, "md5A", FileResourceDomain.DATA_VALUE );
+        String storageKey = fileResource.getStorageKey();
+
+        when( fileResourceStore.getStorageKeys( sha256( "contentA" ), 10, FileResourceDomain.DATA_VALUE ) )
+            .thenReturn( Lists.newArrayList( "dataValue/keyA" ) );
+        when( fileResourceStore.lockStorageKey( "dataValue/keyA" ) ).thenReturn( 0 );
+        when( sessionFactory.getCurrentSession() ).thenReturn( session );
+        when( schedulingManager.executeJob( any( Callable.class ) ) ).thenReturn( new SettableListenableFuture<>() );
+        when( uploadCallback.newInstance( any() ) ).thenReturn( mock( ListenableFutureCallback.class ) );
+
+        fileResourceService.saveFileResource( fileResource, file );
+
+        assertEquals( storageKey, fileResource.getStorageKey() );
+        assertEquals( FileResourceStorageStatus.PENDING, fileResource.getStorageStatus() );
+        verify( fileResourceContentStore, never() ).fileResourceContentExists( "dataValue/keyA" );
+    }
+
+    @Test
+    public void testSaveFileResourceMatchesContentOnSha256()
+    {
+        byte[] bytes = "contentA".getBytes( StandardCharsets.UTF_8 );
+        FileResource fileResource = new FileResource( "a.png", "image/png", bytes.length, "md5A", FileResourceDomain.DATA_VALUE );
+
+        when( fileResourceStore.getStorageKeys( sha256( "contentA" ), bytes.length, FileResourceDomain.DATA_VALUE ) )
+            .thenReturn( Lists.newArrayList( "dataValue/keyA" ) );
+        when( fileResourceStore.lockStorageKey( "dataValue/keyA" ) ).thenReturn( 1 );
+        when( fileResourceContentStore.fileResourceContentExists( "dataValue/keyA" ) ).thenReturn( true );
+
+        fileResourceService.saveFileResource( fileResource, bytes );
+
+        assertEquals( "dataValue/keyA", fileResource.getStorageKey() );
+        verify( fileResourceStore, never() ).getStorageKeys( "md5A", bytes.length, FileResourceDomain.DATA_VALUE );
+    }
+
+    @Test
+    public void testDeleteFileResourceKeepsSharedContent()
+    {
+        FileResource fileResource = new FileResource( "a.png", "image/png", 10, "md5A", FileResourceDomain.DATA_VALUE );
+
+        when( fileResourceStore.getCountByStorageKey( fileResource.getStorageKey() ) ).thenReturn( 1 );
+
+        fileResourceService.deleteFileResource( fileResource );
+
+        verify( fileResourceStore ).lockStorageKey( fileResource.getStorageKey() );
+        verify( fileResourceContentStore, never() ).deleteFileResourceContent( fileResource.getStorageKey() );
+        verify( fileResourceStore ).delete( fileResource );
+    }
+
+    @Test
+    public void testDeleteFileResourceDeletesUnsharedContent()
+    {
+        FileResource fileResource = new FileResource( "a.png", "image/png", 10, "md5A", FileResourceDomain.DATA_VALUE );
+
+        when( fileResourceStore.getCountByStorageKey( fileResource.getStorageKey() ) ).thenReturn( 0 );
+
+        fileResourceService.deleteFileResource( fileResource );
+
+        verify( fileResourceContentStore ).deleteFileResourceContent( fileResource.getStorageKey() );
+        verify( fileResourceStore ).delete( fileResource );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private File newFile( String content )
+        throws Exception
+    {
+        File file = tempFolder.newFile();
+        Files.write( file.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+        return file;
+    }
+
+    private static String sha256( String content )
+    {
+        return Hashing.sha256().hashString( content, StandardCharsets.UTF_8 ).toString();
+    }
+}
@@ -894,6 +894,38 @@ public class OrganisationUnitServiceTest
         assertFalse( organisationUnitService.isInUserHierarchy( ouG.getUid(), organisationUnits ) );
     }
 
+    @Test
+    public void testIsInUserHierarchyAfterMovingAncestor()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        OrganisationUnit ouB = createOrganisationUnit( 'B', ouA );
+        OrganisationUnit ouC = createOrganisationUnit( 'C' );
+        OrganisationUnit ouD = createOrganisationUnit( 'D', ouB );
+
+        ouA.getChildren().add( ouB );
+        ouB.getChildren().add( ouD );
+
+        organisationUnitService.addOrganisationUnit( ouA );
+        organisationUnitService.addOrganisationUnit( ouB );
+        organisationUnitService.addOrganisationUnit( ouC );
+        organisationUnitService.addOrganisationUnit( ouD );
+
+        User user = createUser( 'A' );
+        user.setOrganisationUnits( Sets.newHashSet( ouC ) );
+
+        assertFalse( organisationUnitService.isInUserHierarchy( user, ouD ) );
+
+        ouA.getChildren().remove( ouB );
+        ouB.setParent( ouC );
+        ouC.getChildren().add( ouB );
+
+        assertTrue( organisationUnitService.isInUserHierarchy( user, ouD ) );
+
+        user.setOrganisationUnits( Sets.newHashSet( ouA ) );
+
+        assertFalse( organisationUnitService.isInUserHierarchy( user, ouD ) );
+    }
+
     @Test
     public void testGetAncestorUids()
     {
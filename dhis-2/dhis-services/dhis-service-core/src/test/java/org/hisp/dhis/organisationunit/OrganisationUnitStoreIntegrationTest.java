@@ -29,6 +29,9 @@
 package org.hisp.dhis.organisationunit;
 
 import static org.hisp.dhis.organisationunit.FeatureType.POINT;
+import static org.hisp.dhis.organisationunit.FeatureType.POLYGON;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
@@ -99,6 +102,37 @@ public class OrganisationUnitStoreIntegrationTest extends IntegrationTestBase
 
     }
 
+    @Test
+    public void verifyGetOrgUnitsContainingCoordinate() throws IOException
+    {
+        OrganisationUnit ouE = createOrganisationUnit( 'E',
+            GeoUtils.getGeometryFromCoordinatesAndType( POLYGON, "[[[10, 10], [10, 20], [20, 20], [20, 10], [10, 10]]]" ) );
+        OrganisationUnit ouF = createOrganisationUnit( 'F',
+            GeoUtils.getGeometryFromCoordinatesAndType( POLYGON, "[[[20, 10], [20, 20], [30, 20], [30, 10], [20, 10]]]" ) );
+
+        organisationUnitStore.save( ouE );
+        organisationUnitStore.save( ouF );
+
+        List<OrganisationUnit> ous = organisationUnitStore.getContainingCoordinate( 15, 15, null, null );
+        assertEquals( 1, ous.size() );
+        assertContainsOnly( ous, ouE );
+
+        // Coordinate on the shared boundary is covered by both
+
+        ous = organisationUnitStore.getContainingCoordinate( 20, 15, null, null );
+        assertEquals( 2, ous.size() );
+        assertContainsOnly( ous, ouE, ouF );
+
+        // Coordinate on a corner
+
+        ous = organisationUnitStore.getContainingCoordinate( 10, 10, null, null );
+        assertEquals( 1, ous.size() );
+        assertContainsOnly( ous, ouE );
+
+        ous = organisationUnitStore.getContainingCoordinate( 35, 15, null, null );
+        assertTrue( ous.isEmpty() );
+    }
+
     private List<OrganisationUnit> getOUsFromPointToDistance( Geometry point, long distance )
     {
         double[] box = GeoUtils.getBoxShape( point.getCoordinate().x, point.getCoordinate().y, distance );
@@ -0,0 +1,147 @@
+package org.hisp.dhis.reservedvalue;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith( MockitoJUnitRunner.class )
+public class ReservedValuePoolTest
+{
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private Environment env;
+
+    @InjectMocks
+    private ReservedValuePool pool;
+
+    @Before
+    public void setUp()
+    {
+        when( env.getActiveProfiles() ).thenReturn( new String[0] );
+        when( config.getProperty( ConfigurationKey.RESERVED_VALUE_POOL_SIZE ) ).thenReturn( "10" );
+
+        pool.init();
+    }
+
+    @After
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testIsPoolable()
+    {
+        assertFalse( pool.isPoolable( 999 ) );
+        assertTrue( pool.isPoolable( 1000 ) );
+    }
+
+    @Test
+    public void testClaimFromMissingPool()
+    {
+        assertTrue( pool.claim( "A", 5 ).isEmpty() );
+    }
+
+    @Test
+    public void testRefillAndClaim()
+        throws Exception
+    {
+        AtomicInteger counter = new AtomicInteger();
+
+        pool.refill( "A", numberOfValues -> IntStream.range( 0, numberOfValues )
+            .mapToObj( i -> "V" + counter.incrementAndGet() )
+            .collect( Collectors.toList() ) );
+
+        List<String> values = claim( "A", 10 );
+
+        assertEquals( 10, values.size() );
+        assertEquals( 10, new HashSet<>( values ).size() );
+        assertTrue( pool.claim( "B", 10 ).isEmpty() );
+    }
+
+    @Test
+    public void testDuplicatesNotPooled()
+        throws Exception
+    {
+        AtomicBoolean generated = new AtomicBoolean();
+
+        pool.refill( "A", numberOfValues -> generated.getAndSet( true ) ?
+            new ArrayList<>() : Lists.newArrayList( "V1", "V1", "V2" ) );
+
+        List<String> values = claim( "A", 2 );
+
+        assertEquals( 2, values.size() );
+        assertEquals( new HashSet<>( Lists.newArrayList( "V1", "V2" ) ), new HashSet<>( values ) );
+    }
+
+    /**
+     * Claims values until the given number is reached or a timeout expires,
+     * as the pool is filled in the background.
+     */
+    private List<String> claim( String key, int numberOfValues )
+        throws InterruptedException
+    {
+        List<String> values = new ArrayList<>();
+
+        long timeout = System.currentTimeMillis() + 5000;
+
+        while ( values.size() < numberOfValues && System.currentTimeMillis() < timeout )
+        {
+            values.addAll( pool.claim( key, numberOfValues - values.size() ) );
+            Thread.sleep( 10 );
+        }
+
+        return values;
+    }
+}
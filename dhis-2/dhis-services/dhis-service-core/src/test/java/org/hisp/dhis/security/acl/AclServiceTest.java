@@ -496,6 +496,32 @@ public class AclServiceTest
         assertFalse( aclService.canManage( user2, dashboard ) );
     }
 
+    @Test
+    public void testUserGroupMembershipFromGroupMembers()
+    {
+        User user1 = createUser( 'A' );
+        User user2 = createUser( 'B' );
+
+        manager.save( user1 );
+        manager.save( user2 );
+
+        UserGroup userGroup = createUserGroup( 'A', Sets.newHashSet( user1 ) );
+        manager.save( userGroup );
+
+        Dashboard dashboard = new Dashboard( "Dashboard" );
+        dashboard.setUser( user1 );
+        dashboard.getUserGroupAccesses().add( new UserGroupAccess( userGroup, AccessStringHelper.READ ) );
+        manager.save( dashboard );
+
+        assertFalse( aclService.canRead( user2, dashboard ) );
+
+        userGroup.getMembers().add( user2 );
+        manager.update( userGroup );
+
+        assertTrue( user2.getGroups().isEmpty() );
+        assertTrue( aclService.canRead( user2, dashboard ) );
+    }
+
     @Test
     public void testUserCanUpdateDashboardSharedWithUserGroup()
     {
@@ -29,9 +29,12 @@ package org.hisp.dhis.trackedentity;
  */
 
 import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.common.AccessLevel;
 import org.hisp.dhis.mock.MockCurrentUserService;
@@ -45,6 +48,8 @@ import org.hisp.dhis.user.UserService;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.collect.Lists;
+
 
 /**
  * @author Ameen Mohamed <ameen@dhis2.org>
@@ -146,4 +151,18 @@ public class TrackerOwnershipManagerTest extends DhisSpringTest
         assertTrue(trackerOwnershipAccessManager.hasAccess( userB,entityInstanceA1, programA ));
 
     }
+
+    @Test
+    public void testGetAccessibleTrackedEntityInstances()
+    {
+        List<TrackedEntityInstance> entityInstances = Lists.newArrayList( entityInstanceA1, entityInstanceB1 );
+
+        assertEquals( newHashSet( entityInstanceA1 ), trackerOwnershipAccessManager.getAccessibleTrackedEntityInstances( userA, entityInstances, programA ) );
+        assertEquals( newHashSet( entityInstanceB1 ), trackerOwnershipAccessManager.getAccessibleTrackedEntityInstances( userB, entityInstances, programA ) );
+
+        trackerOwnershipAccessManager.assignOwnership( entityInstanceA1, programA, organisationUnitB, false, true );
+
+        assertTrue( trackerOwnershipAccessManager.getAccessibleTrackedEntityInstances( userA, entityInstances, programA ).isEmpty() );
+        assertEquals( newHashSet( entityInstanceA1, entityInstanceB1 ), trackerOwnershipAccessManager.getAccessibleTrackedEntityInstances( userB, entityInstances, programA ) );
+    }
 }
@@ -66,6 +66,8 @@ public class ImportOptions
 
     private boolean skipExistingCheck;
 
+    private boolean bulkUpsert;
+
     private boolean sharing;
 
     private boolean skipNotifications;
@@ -124,6 +126,7 @@ public class ImportOptions
         options.importStrategy = this.importStrategy;
         options.mergeMode = this.mergeMode;
         options.skipExistingCheck = this.skipExistingCheck;
+        options.bulkUpsert = this.bulkUpsert;
         options.sharing = this.sharing;
         options.skipNotifications = this.skipNotifications;
         options.datasetAllowsPeriods = this.datasetAllowsPeriods;
@@ -265,6 +268,17 @@ public class ImportOptions
         return skipExistingCheck;
     }
 
+    /**
+     * Indicates whether data values should be looked up and written in chunks
+     * with set based SQL statements instead of one by one.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isBulkUpsert()
+    {
+        return bulkUpsert;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public boolean isSharing()
@@ -489,6 +503,12 @@ public class ImportOptions
         return this;
     }
 
+    public ImportOptions setBulkUpsert( boolean bulkUpsert )
+    {
+        this.bulkUpsert = bulkUpsert;
+        return this;
+    }
+
     public ImportOptions setSharing( boolean sharing )
     {
         this.sharing = sharing;
@@ -595,6 +615,7 @@ public class ImportOptions
             .add( "importStrategy", importStrategy )
             .add( "mergeMode", mergeMode )
             .add( "skipExistingCheck", skipExistingCheck )
+            .add( "bulkUpsert", bulkUpsert )
             .add( "ignoreEmptyCollection", ignoreEmptyCollection )
             .add( "sharing", sharing )
             .add( "skipNotifications", skipNotifications )
@@ -29,16 +29,57 @@ package org.hisp.dhis.dxf2.datavalue;
  */
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 import java.io.IOException;
 
+import static org.hisp.dhis.commons.util.TextUtils.valueOf;
+
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
 public class StreamingJsonDataValue extends DataValue
 {
+    private static final String FIELD_DATAELEMENT = "dataElement";
+    private static final String FIELD_PERIOD = "period";
+    private static final String FIELD_ORGUNIT = "orgUnit";
+    private static final String FIELD_CATEGORY_OPTION_COMBO = "categoryOptionCombo";
+    private static final String FIELD_ATTRIBUTE_OPTION_COMBO = "attributeOptionCombo";
+    private static final String FIELD_VALUE = "value";
+    private static final String FIELD_STOREDBY = "storedBy";
+    private static final String FIELD_CREATED = "created";
+    private static final String FIELD_LAST_UPDATED = "lastUpdated";
+    private static final String FIELD_COMMENT = "comment";
+    private static final String FIELD_FOLLOWUP = "followup";
+    private static final String FIELD_DELETED = "deleted";
+
     private JsonGenerator generator;
 
+    /**
+     * Creates a data value which reads the data value object at the current
+     * position of the given parser. The parser must be positioned at the start
+     * of the object and is positioned at the end of the object on return.
+     *
+     * @param parser the {@link JsonParser}.
+     */
+    public StreamingJsonDataValue( JsonParser parser )
+    {
+        try
+        {
+            while ( parser.nextToken() == JsonToken.FIELD_NAME )
+            {
+                String fieldName = parser.getCurrentName();
+                parser.nextToken();
+                readField( parser, fieldName );
+            }
+        }
+        catch ( IOException ex )
+        {
+            throw new RuntimeException( "Failed to read JSON data value", ex );
+        }
+    }
+
     public StreamingJsonDataValue( JsonGenerator generator )
     {
         this.generator = generator;
@@ -142,6 +183,75 @@ public class StreamingJsonDataValue extends DataValue
         }
     }
 
+    private void readField( JsonParser parser, String fieldName )
+        throws IOException
+    {
+        switch ( fieldName )
+        {
+            case FIELD_DATAELEMENT:
+                dataElement = getText( parser );
+                break;
+            case FIELD_PERIOD:
+                period = getText( parser );
+                break;
+            case FIELD_ORGUNIT:
+                orgUnit = getText( parser );
+                break;
+            case FIELD_CATEGORY_OPTION_COMBO:
+                categoryOptionCombo = getText( parser );
+                break;
+            case FIELD_ATTRIBUTE_OPTION_COMBO:
+                attributeOptionCombo = getText( parser );
+                break;
+            case FIELD_VALUE:
+                value = getText( parser );
+                break;
+            case FIELD_STOREDBY:
+                storedBy = getText( parser );
+                break;
+            case FIELD_CREATED:
+                created = getText( parser );
+                break;
+            case FIELD_LAST_UPDATED:
+                lastUpdated = getText( parser );
+                break;
+            case FIELD_COMMENT:
+                comment = getText( parser );
+                break;
+            case FIELD_FOLLOWUP:
+                followup = getBoolean( parser );
+                break;
+            case FIELD_DELETED:
+                deleted = getBoolean( parser );
+                break;
+            default:
+                parser.skipChildren();
+        }
+    }
+
+    private String getText( JsonParser parser )
+        throws IOException
+    {
+        if ( parser.getCurrentToken().isScalarValue() )
+        {
+            return parser.getValueAsString();
+        }
+
+        parser.skipChildren();
+        return null;
+    }
+
+    private Boolean getBoolean( JsonParser parser )
+        throws IOException
+    {
+        if ( parser.getCurrentToken().isBoolean() )
+        {
+            return parser.getBooleanValue();
+        }
+
+        return valueOf( getText( parser ) );
+    }
+
     private void writeObjectField( String fieldName, Object value )
     {
         if ( value == null )
@@ -0,0 +1,188 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Objects;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Position in the stream of data values ordered by last updated time and
+ * then by primary key, used for keyset paging of changed data values. The
+ * last updated timestamp is kept with its full precision, so that a page
+ * starting after a cursor never repeats the value the cursor was taken from.
+ */
+public class DataValueCursor
+{
+    private static final String SEPARATOR = ",";
+
+    private final Timestamp lastUpdated;
+
+    private final long dataElementId;
+
+    private final long periodId;
+
+    private final long sourceId;
+
+    private final long categoryOptionComboId;
+
+    private final long attributeOptionComboId;
+
+    public DataValueCursor( Timestamp lastUpdated, long dataElementId, long periodId, long sourceId,
+        long categoryOptionComboId, long attributeOptionComboId )
+    {
+        this.lastUpdated = lastUpdated;
+        this.dataElementId = dataElementId;
+        this.periodId = periodId;
+        this.sourceId = sourceId;
+        this.categoryOptionComboId = categoryOptionComboId;
+        this.attributeOptionComboId = attributeOptionComboId;
+    }
+
+    /**
+     * Creates a cursor from the current row of a data value result set, which
+     * must include the last updated and primary key columns of the data value
+     * table.
+     */
+    public static DataValueCursor fromResultSet( ResultSet rs )
+        throws SQLException
+    {
+        return new DataValueCursor( rs.getTimestamp( "lastupdated" ), rs.getLong( "dataelementid" ),
+            rs.getLong( "periodid" ), rs.getLong( "sourceid" ), rs.getLong( "categoryoptioncomboid" ),
+            rs.getLong( "attributeoptioncomboid" ) );
+    }
+
+    /**
+     * Parses a cursor in the format produced by {@link #encode()}.
+     *
+     * @param cursor the encoded cursor.
+     * @return the cursor, or null if the given string is blank.
+     * @throws IllegalArgumentException if the string is not a valid cursor.
+     */
+    public static DataValueCursor decode( String cursor )
+    {
+        if ( StringUtils.isBlank( cursor ) )
+        {
+            return null;
+        }
+
+        String[] parts = cursor.split( SEPARATOR );
+
+        if ( parts.length != 6 )
+        {
+            throw new IllegalArgumentException( "Invalid data value cursor: " + cursor );
+        }
+
+        return new DataValueCursor( Timestamp.valueOf( parts[0] ), Long.parseLong( parts[1] ), Long.parseLong( parts[2] ),
+            Long.parseLong( parts[3] ), Long.parseLong( parts[4] ), Long.parseLong( parts[5] ) );
+    }
+
+    /**
+     * Returns this cursor as a string which can be stored and parsed with
+     * {@link #decode(String)}.
+     */
+    public String encode()
+    {
+        return StringUtils.join( new Object[] { lastUpdated, dataElementId, periodId, sourceId,
+            categoryOptionComboId, attributeOptionComboId }, SEPARATOR );
+    }
+
+    // -------------------------------------------------------------------------
+    // Get methods
+    // -------------------------------------------------------------------------
+
+    public Timestamp getLastUpdated()
+    {
+        return lastUpdated;
+    }
+
+    public long getDataElementId()
+    {
+        return dataElementId;
+    }
+
+    public long getPeriodId()
+    {
+        return periodId;
+    }
+
+    public long getSourceId()
+    {
+        return sourceId;
+    }
+
+    public long getCategoryOptionComboId()
+    {
+        return categoryOptionComboId;
+    }
+
+    public long getAttributeOptionComboId()
+    {
+        return attributeOptionComboId;
+    }
+
+    // -------------------------------------------------------------------------
+    // Object methods
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean equals( Object object )
+    {
+        if ( this == object )
+        {
+            return true;
+        }
+
+        if ( object == null || getClass() != object.getClass() )
+        {
+            return false;
+        }
+
+        DataValueCursor other = (DataValueCursor) object;
+
+        return Objects.equals( lastUpdated, other.lastUpdated ) && dataElementId == other.dataElementId &&
+            periodId == other.periodId && sourceId == other.sourceId &&
+            categoryOptionComboId == other.categoryOptionComboId && attributeOptionComboId == other.attributeOptionComboId;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( lastUpdated, dataElementId, periodId, sourceId, categoryOptionComboId, attributeOptionComboId );
+    }
+
+    @Override
+    public String toString()
+    {
+        return encode();
+    }
+}
@@ -102,6 +102,22 @@ public interface DataValueSetService
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
         int page );
 
+    /**
+     * Writes the data values last updated on or after the given date which
+     * come after the given cursor, ordered by last updated time and primary
+     * key, as JSON. Pages are read with a keyset condition on the cursor, so
+     * every page is read from the index position of the previous one.
+     *
+     * @param lastUpdated the date to filter data values last updated on or after.
+     * @param after the cursor to continue after, null to start from the beginning.
+     * @param outputStream the stream to write to.
+     * @param idSchemes idSchemes
+     * @param pageSize the maximum number of data values to write.
+     * @return the cursor of the last written data value, null if none were written.
+     */
+    DataValueCursor writeDataValueSetJson( Date lastUpdated, DataValueCursor after, OutputStream outputStream,
+        IdSchemes idSchemes, int pageSize );
+
     void writeDataValueSetCsv( DataExportParams params, Writer writer );
 
     RootNode getDataValueSetTemplate( DataSet dataSet, Period period, List<String> orgUnits, boolean writeComments,
@@ -30,10 +30,13 @@ package org.hisp.dhis.dxf2.datavalueset;
 
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.datavalue.DataValue;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 
 /**
  * @author Lars Helge Overland
@@ -66,4 +69,40 @@ public interface DataValueSetStore
      */
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
         int page );
+
+    /**
+     * Writes the data values last updated on or after the given date which
+     * come after the given cursor, ordered by last updated time and primary
+     * key, as JSON. Pages are read with a keyset condition on the cursor, so
+     * every page is read from the index position of the previous one.
+     *
+     * @param lastUpdated the date to filter data values last updated on or after.
+     * @param after the cursor to continue after, null to start from the beginning.
+     * @param outputStream the stream to write to.
+     * @param idSchemes idSchemes
+     * @param pageSize the maximum number of data values to write.
+     * @return the cursor of the last written data value, null if none were written.
+     */
+    DataValueCursor writeDataValueSetJson( Date lastUpdated, DataValueCursor after, OutputStream outputStream,
+        IdSchemes idSchemes, int pageSize );
+
+    /**
+     * Returns the persisted data values which match the given data values on
+     * data element, period, organisation unit, category option combo and
+     * attribute option combo, using a single query. The returned values have
+     * value, comment, follow-up and deleted properties populated.
+     *
+     * @param dataValues the data values to look up.
+     * @return a mapping from the given data values to the persisted data values.
+     */
+    Map<DataValue, DataValue> getExistingDataValues( Collection<DataValue> dataValues );
+
+    /**
+     * Inserts the given data values, or updates all properties of the data values
+     * which already exist, in a single batch of set based SQL statements. The
+     * given data values must be unique.
+     *
+     * @param dataValues the data values to insert or update.
+     */
+    void upsertDataValues( Collection<DataValue> dataValues );
 }
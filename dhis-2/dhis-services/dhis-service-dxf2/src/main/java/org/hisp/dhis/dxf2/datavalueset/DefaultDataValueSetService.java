@@ -42,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -102,7 +103,6 @@ import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodType;
-import org.hisp.dhis.render.DefaultRenderService;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.security.Authorities;
 import org.hisp.dhis.security.acl.AclService;
@@ -137,6 +137,7 @@ public class DefaultDataValueSetService
 
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
     private static final int CACHE_MISS_THRESHOLD = 250;
+    private static final int BULK_UPSERT_CHUNK_SIZE = 1000;
 
     @Autowired
     private IdentifiableObjectManager identifiableObjectManager;
@@ -207,6 +208,11 @@ public class DefaultDataValueSetService
         this.currentUserService = currentUserService;
     }
 
+    public void setDataValueSetStore( DataValueSetStore dataValueSetStore )
+    {
+        this.dataValueSetStore = dataValueSetStore;
+    }
+
     // -------------------------------------------------------------------------
     // DataValueSet implementation
     // -------------------------------------------------------------------------
@@ -378,6 +384,13 @@ public class DefaultDataValueSetService
         dataValueSetStore.writeDataValueSetJson( lastUpdated, outputStream, idSchemes, pageSize, page );
     }
 
+    @Override
+    public DataValueCursor writeDataValueSetJson( Date lastUpdated, DataValueCursor after, OutputStream outputStream,
+        IdSchemes idSchemes, int pageSize )
+    {
+        return dataValueSetStore.writeDataValueSetJson( lastUpdated, after, outputStream, idSchemes, pageSize );
+    }
+
     @Override
     public void writeDataValueSetCsv( DataExportParams params, Writer writer )
     {
@@ -550,7 +563,7 @@ public class DefaultDataValueSetService
         try
         {
             in = StreamUtils.wrapAndCheckCompressionFormat( in );
-            DataValueSet dataValueSet = new StreamingXmlDataValueSet( XMLFactory.getXMLReader( in ) );
+            DataValueSet dataValueSet = new ReadAheadDataValueSet( new StreamingXmlDataValueSet( XMLFactory.getXMLReader( in ) ) );
             return saveDataValueSet( importOptions, id, dataValueSet );
         }
         catch ( Exception ex )
@@ -567,7 +580,7 @@ public class DefaultDataValueSetService
         try
         {
             in = StreamUtils.wrapAndCheckCompressionFormat( in );
-            DataValueSet dataValueSet = DefaultRenderService.getJsonMapper().readValue( in, DataValueSet.class );
+            DataValueSet dataValueSet = new ReadAheadDataValueSet( new StreamingJsonDataValueSet( in ) );
             return saveDataValueSet( importOptions, id, dataValueSet );
         }
         catch ( Exception ex )
@@ -591,7 +604,7 @@ public class DefaultDataValueSetService
                 csvReader.readRecord(); // Ignore the first row
             }
 
-            DataValueSet dataValueSet = new StreamingCsvDataValueSet( csvReader );
+            DataValueSet dataValueSet = new ReadAheadDataValueSet( new StreamingCsvDataValueSet( csvReader ) );
             return saveDataValueSet( importOptions, id, dataValueSet );
         }
         catch ( Exception ex )
@@ -618,6 +631,22 @@ public class DefaultDataValueSetService
         }
     }
 
+    /**
+     * Imports the given data value set and closes it when done, also when the
+     * import fails, so that any reader thread of the data value set is stopped.
+     */
+    private ImportSummary saveDataValueSet( ImportOptions importOptions, JobConfiguration id, DataValueSet dataValueSet )
+    {
+        try
+        {
+            return importDataValueSet( importOptions, id, dataValueSet );
+        }
+        finally
+        {
+            dataValueSet.close();
+        }
+    }
+
     /**
      * There are specific id schemes for data elements and organisation units and
      * a generic id scheme for all objects. The specific id schemes will take
@@ -640,7 +669,7 @@ public class DefaultDataValueSetService
      * @param dataValueSet
      * @return
      */
-    private ImportSummary saveDataValueSet( ImportOptions importOptions, JobConfiguration id, DataValueSet dataValueSet )
+    private ImportSummary importDataValueSet( ImportOptions importOptions, JobConfiguration id, DataValueSet dataValueSet )
     {
         importOptions = ObjectUtils.firstNonNull( importOptions, ImportOptions.getDefaultImportOptions() );
 
@@ -694,6 +723,7 @@ public class DefaultDataValueSetService
 
         boolean dryRun = dataValueSet.getDryRun() != null ? dataValueSet.getDryRun() : importOptions.isDryRun();
         boolean skipExistingCheck = importOptions.isSkipExistingCheck();
+        boolean bulkUpsert = importOptions.isBulkUpsert() && !skipExistingCheck;
         boolean strictPeriods = importOptions.isStrictPeriods() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_PERIODS );
         boolean strictDataElements = importOptions.isStrictDataElements() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_DATA_ELEMENTS );
         boolean strictCategoryOptionCombos = importOptions.isStrictCategoryOptionCombos() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_STRICT_CATEGORY_OPTION_COMBOS );
@@ -816,7 +846,6 @@ public class DefaultDataValueSetService
         {
             summary.setDescription( "Import process was aborted" );
             notifier.notify( id, WARN, "Import process aborted", true ).addJobSummary( id, summary, ImportSummary.class );
-            dataValueSet.close();
             return summary;
         }
 
@@ -840,6 +869,10 @@ public class DefaultDataValueSetService
         int deleteCount = 0;
         int totalCount = 0;
 
+        List<DataValue> bulkChunk = new ArrayList<>();
+        Set<DataValue> bulkChunkKeys = new HashSet<>();
+        ImportCount bulkCount = new ImportCount();
+
         // ---------------------------------------------------------------------
         // Data values
         // ---------------------------------------------------------------------
@@ -1186,6 +1219,28 @@ public class DefaultDataValueSetService
             internalValue.setFollowup( dataValue.getFollowup() );
             internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
 
+            // -----------------------------------------------------------------
+            // Potentially save, update or delete data value in bulk chunk
+            // -----------------------------------------------------------------
+
+            if ( bulkUpsert && !dataElement.isFileType() )
+            {
+                if ( bulkChunkKeys.contains( internalValue ) )
+                {
+                    saveDataValueChunk( bulkChunk, bulkChunkKeys, bulkCount, strategy, dryRun, skipAudit, auditBatchHandler );
+                }
+
+                bulkChunk.add( internalValue );
+                bulkChunkKeys.add( internalValue );
+
+                if ( bulkChunk.size() >= BULK_UPSERT_CHUNK_SIZE )
+                {
+                    saveDataValueChunk( bulkChunk, bulkChunkKeys, bulkCount, strategy, dryRun, skipAudit, auditBatchHandler );
+                }
+
+                continue;
+            }
+
             // -----------------------------------------------------------------
             // Save, update or delete data value
             // -----------------------------------------------------------------
@@ -1317,6 +1372,12 @@ public class DefaultDataValueSetService
             }
         }
 
+        saveDataValueChunk( bulkChunk, bulkChunkKeys, bulkCount, strategy, dryRun, skipAudit, auditBatchHandler );
+
+        importCount += bulkCount.getImported();
+        updateCount += bulkCount.getUpdated();
+        deleteCount += bulkCount.getDeleted();
+
         dataValueBatchHandler.flush();
         auditBatchHandler.flush();
 
@@ -1329,8 +1390,6 @@ public class DefaultDataValueSetService
         clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount + ", delete: " + deleteCount );
         notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
 
-        dataValueSet.close();
-
         return summary;
     }
 
@@ -1338,6 +1397,82 @@ public class DefaultDataValueSetService
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Saves, updates or deletes the given chunk of validated data values. Existing
+     * data values are looked up with a single query and the data values are
+     * written with a single batch of upsert statements. Deleted data values are
+     * soft deleted, and audits are written for updated and deleted data values.
+     * The chunk and its keys are cleared on return. File resource data values
+     * are not supported.
+     *
+     * @param chunk the list of unique data values.
+     * @param chunkKeys the set of data values in the chunk.
+     * @param count the count to add imported, updated and deleted data values to.
+     * @param strategy the import strategy.
+     * @param dryRun whether this is a dry run.
+     * @param skipAudit whether to skip audits.
+     * @param auditBatchHandler the audit batch handler.
+     */
+    private void saveDataValueChunk( List<DataValue> chunk, Set<DataValue> chunkKeys, ImportCount count, ImportStrategy strategy,
+        boolean dryRun, boolean skipAudit, BatchHandler<DataValueAudit> auditBatchHandler )
+    {
+        if ( chunk.isEmpty() )
+        {
+            return;
+        }
+
+        Map<DataValue, DataValue> existingValues = dataValueSetStore.getExistingDataValues( chunk );
+
+        List<DataValue> upsertValues = new ArrayList<>();
+
+        for ( DataValue internalValue : chunk )
+        {
+            DataValue existingValue = existingValues.get( internalValue );
+
+            if ( existingValue != null && !existingValue.isDeleted() )
+            {
+                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() || strategy.isDelete() )
+                {
+                    AuditType auditType = AuditType.UPDATE;
+
+                    if ( strategy.isDelete() || internalValue.isNullValue() || internalValue.isDeleted() )
+                    {
+                        internalValue.setDeleted( true );
+
+                        auditType = AuditType.DELETE;
+
+                        count.incrementDeleted();
+                    }
+                    else
+                    {
+                        count.incrementUpdated();
+                    }
+
+                    upsertValues.add( internalValue );
+
+                    if ( !dryRun && !skipAudit )
+                    {
+                        auditBatchHandler.addObject( new DataValueAudit( internalValue, existingValue.getValue(), internalValue.getStoredBy(), auditType ) );
+                    }
+                }
+            }
+            else if ( ( strategy.isCreateAndUpdate() || strategy.isCreate() ) && !internalValue.isNullValue() )
+            {
+                count.incrementImported();
+
+                upsertValues.add( internalValue );
+            }
+        }
+
+        if ( !dryRun )
+        {
+            dataValueSetStore.upsertDataValues( upsertValues );
+        }
+
+        chunk.clear();
+        chunkKeys.clear();
+    }
+
     private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
         CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
     {
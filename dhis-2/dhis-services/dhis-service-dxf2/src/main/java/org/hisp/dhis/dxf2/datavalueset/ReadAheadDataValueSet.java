@@ -0,0 +1,256 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data value set which reads data values ahead from an underlying streaming
+ * data value set on a separate thread. Parsing of the input stream thereby
+ * runs concurrently with the import loop, while the order of data values is
+ * retained.
+ * <p>
+ * Only parsing is moved off the import thread. Resolving, validation and
+ * writing of data values stay on the import thread, as they go through
+ * lookups bound to its Hibernate session.
+ * <p>
+ * The header properties of the source data value set are copied eagerly
+ * when this data value set is created, since streaming data value sets may
+ * read them from the underlying reader.
+ */
+public class ReadAheadDataValueSet
+    extends DataValueSet
+{
+    private static final Log log = LogFactory.getLog( ReadAheadDataValueSet.class );
+
+    private static final int DEFAULT_CAPACITY = 10000;
+
+    private static final DataValue END = new DataValue();
+
+    private final DataValueSet source;
+
+    private final BlockingQueue<DataValue> queue;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, "data-value-set-reader" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private volatile boolean closed = false;
+
+    private volatile Throwable error;
+
+    private DataValue next;
+
+    private boolean ended = false;
+
+    public ReadAheadDataValueSet( DataValueSet source )
+    {
+        this( source, DEFAULT_CAPACITY );
+    }
+
+    public ReadAheadDataValueSet( DataValueSet source, int capacity )
+    {
+        this.source = source;
+        this.queue = new ArrayBlockingQueue<>( capacity );
+
+        this.idScheme = source.getIdScheme();
+        this.dataElementIdScheme = source.getDataElementIdScheme();
+        this.orgUnitIdScheme = source.getOrgUnitIdScheme();
+        this.categoryOptionComboIdScheme = source.getCategoryOptionComboIdScheme();
+        this.dataSetIdScheme = source.getDataSetIdScheme();
+        this.dryRun = source.getDryRun();
+        this.strategy = source.getStrategy();
+        this.dataSet = source.getDataSet();
+        this.completeDate = source.getCompleteDate();
+        this.period = source.getPeriod();
+        this.orgUnit = source.getOrgUnit();
+        this.attributeOptionCombo = source.getAttributeOptionCombo();
+        this.attributeCategoryOptions = source.getAttributeCategoryOptions();
+
+        executor.execute( this::read );
+    }
+
+    //--------------------------------------------------------------------------
+    // Reader
+    //--------------------------------------------------------------------------
+
+    private void read()
+    {
+        try
+        {
+            while ( !closed && source.hasNextDataValue() )
+            {
+                put( copy( source.getNextDataValue() ) );
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( Throwable ex )
+        {
+            log.warn( "Failed to read data value set", ex );
+            error = ex;
+        }
+        finally
+        {
+            try
+            {
+                put( END );
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void put( DataValue dataValue )
+        throws InterruptedException
+    {
+        while ( !closed )
+        {
+            if ( queue.offer( dataValue, 1, TimeUnit.SECONDS ) )
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies the given data value into a plain data value, as streaming data
+     * values might read their properties lazily from the underlying reader.
+     */
+    private DataValue copy( DataValue dataValue )
+    {
+        DataValue copy = new DataValue();
+        copy.setDataElement( dataValue.getDataElement() );
+        copy.setPeriod( dataValue.getPeriod() );
+        copy.setOrgUnit( dataValue.getOrgUnit() );
+        copy.setCategoryOptionCombo( dataValue.getCategoryOptionCombo() );
+        copy.setAttributeOptionCombo( dataValue.getAttributeOptionCombo() );
+        copy.setValue( dataValue.getValue() );
+        copy.setStoredBy( dataValue.getStoredBy() );
+        copy.setCreated( dataValue.getCreated() );
+        copy.setLastUpdated( dataValue.getLastUpdated() );
+        copy.setComment( dataValue.getComment() );
+        copy.setFollowup( dataValue.getFollowup() );
+        copy.setDeleted( dataValue.getDeleted() );
+        return copy;
+    }
+
+    //--------------------------------------------------------------------------
+    // Logic
+    //--------------------------------------------------------------------------
+
+    @Override
+    public boolean hasNextDataValue()
+    {
+        if ( next != null )
+        {
+            return true;
+        }
+
+        if ( ended )
+        {
+            return false;
+        }
+
+        try
+        {
+            DataValue dataValue = queue.take();
+
+            if ( dataValue == END )
+            {
+                ended = true;
+
+                if ( error != null )
+                {
+                    throw new RuntimeException( "Failed to read data value set: " + error.getMessage(), error );
+                }
+
+                return false;
+            }
+
+            next = dataValue;
+            return true;
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while reading data value set", ex );
+        }
+    }
+
+    @Override
+    public DataValue getNextDataValue()
+    {
+        if ( !hasNextDataValue() )
+        {
+            return null;
+        }
+
+        DataValue dataValue = next;
+        next = null;
+        return dataValue;
+    }
+
+    @Override
+    public void close()
+    {
+        if ( closed )
+        {
+            return;
+        }
+
+        closed = true;
+        executor.shutdownNow();
+
+        try
+        {
+            executor.awaitTermination( 10, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        source.close();
+    }
+}
@@ -37,7 +37,13 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -127,6 +133,36 @@ public class SpringDataValueSetStore
         writeDataValueSet( sql, new DataExportParams(), null, dataValueSet );
     }
 
+    @Override
+    public DataValueCursor writeDataValueSetJson( Date lastUpdated, DataValueCursor after, OutputStream outputStream,
+        IdSchemes idSchemes, int pageSize )
+    {
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( outputStream );
+
+        String sql = buildDataValueSql( lastUpdated, idSchemes );
+
+        if ( after != null )
+        {
+            String afterLastUpdated = "'" + after.getLastUpdated() + "'";
+
+            // The plain condition on last updated lets the keyset condition use the index
+
+            sql += "and dv.lastupdated >= " + afterLastUpdated + " " +
+                "and (dv.lastupdated, dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid) > (" +
+                afterLastUpdated + ", " + after.getDataElementId() + ", " + after.getPeriodId() + ", " + after.getSourceId() + ", " +
+                after.getCategoryOptionComboId() + ", " + after.getAttributeOptionComboId() + ") ";
+        }
+
+        sql += "order by dv.lastupdated, dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid " +
+            "limit " + pageSize;
+
+        final DataValueCursor[] last = new DataValueCursor[1];
+
+        writeDataValueSet( sql, new DataExportParams(), null, dataValueSet, rs -> last[0] = DataValueCursor.fromResultSet( rs ) );
+
+        return last[0];
+    }
+
     private String buildDataValueSql( Date lastUpdated, IdSchemes idSchemes )
     {
         String deScheme = idSchemes.getDataElementIdScheme().getIdentifiableString().toLowerCase();
@@ -136,7 +172,8 @@ public class SpringDataValueSetStore
         final String sql =
             "select de." + deScheme + " as deid, pe.startdate as pestart, pt.name as ptname, ou." + ouScheme + " as ouid, " +
                 "coc." + ocScheme + " as cocid, aoc." + ocScheme + " as aocid, " +
-                "dv.value, dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, dv.deleted " +
+                "dv.value, dv.storedby, dv.created, dv.lastupdated, dv.comment, dv.followup, dv.deleted, " +
+                "dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid " +
                 "from datavalue dv " +
                 "join dataelement de on (dv.dataelementid=de.dataelementid) " +
                 "join period pe on (dv.periodid=pe.periodid) " +
@@ -150,6 +187,16 @@ public class SpringDataValueSetStore
     }
 
     private void writeDataValueSet( String sql, DataExportParams params, Date completeDate, final DataValueSet dataValueSet )
+    {
+        writeDataValueSet( sql, params, completeDate, dataValueSet, null );
+    }
+
+    /**
+     * Writes the data values of the given query to the data value set. The
+     * row listener, if any, is invoked for every row after it is written.
+     */
+    private void writeDataValueSet( String sql, DataExportParams params, Date completeDate, final DataValueSet dataValueSet,
+        RowCallbackHandler rowListener )
     {
         if ( params.isSingleDataValueSet() )
         {
@@ -192,16 +239,119 @@ public class SpringDataValueSetStore
                 }
 
                 dataValue.close();
+
+                if ( rowListener != null )
+                {
+                    rowListener.processRow( rs );
+                }
             }
         } );
 
         dataValueSet.close();
     }
 
+    @Override
+    public Map<org.hisp.dhis.datavalue.DataValue, org.hisp.dhis.datavalue.DataValue> getExistingDataValues(
+        Collection<org.hisp.dhis.datavalue.DataValue> dataValues )
+    {
+        Map<org.hisp.dhis.datavalue.DataValue, org.hisp.dhis.datavalue.DataValue> existingValues = new HashMap<>();
+
+        if ( dataValues.isEmpty() )
+        {
+            return existingValues;
+        }
+
+        Map<String, org.hisp.dhis.datavalue.DataValue> keyValueMap = new HashMap<>();
+
+        StringBuilder keys = new StringBuilder();
+
+        for ( org.hisp.dhis.datavalue.DataValue dataValue : dataValues )
+        {
+            String key = getDataValueKey( dataValue.getDataElement().getId(), dataValue.getPeriod().getId(), dataValue.getSource().getId(),
+                dataValue.getCategoryOptionCombo().getId(), dataValue.getAttributeOptionCombo().getId() );
+
+            keyValueMap.put( key, dataValue );
+            keys.append( "(" ).append( key ).append( ")," );
+        }
+
+        final String sql =
+            "select dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid, " +
+            "dv.value, dv.comment, dv.followup, dv.deleted " +
+            "from datavalue dv " +
+            "where (dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid) " +
+            "in (" + TextUtils.removeLastComma( keys.toString() ) + ")";
+
+        jdbcTemplate.query( sql, rs -> {
+            String key = getDataValueKey( rs.getLong( "dataelementid" ), rs.getLong( "periodid" ), rs.getLong( "sourceid" ),
+                rs.getLong( "categoryoptioncomboid" ), rs.getLong( "attributeoptioncomboid" ) );
+
+            org.hisp.dhis.datavalue.DataValue existingValue = new org.hisp.dhis.datavalue.DataValue();
+
+            existingValue.setValue( rs.getString( "value" ) );
+            existingValue.setComment( rs.getString( "comment" ) );
+            existingValue.setFollowup( rs.getBoolean( "followup" ) );
+            existingValue.setDeleted( rs.getBoolean( "deleted" ) );
+
+            existingValues.put( keyValueMap.get( key ), existingValue );
+        } );
+
+        return existingValues;
+    }
+
+    @Override
+    public void upsertDataValues( Collection<org.hisp.dhis.datavalue.DataValue> dataValues )
+    {
+        if ( dataValues.isEmpty() )
+        {
+            return;
+        }
+
+        final String sql =
+            "insert into datavalue (dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid, " +
+            "value, storedby, created, lastupdated, comment, followup, deleted) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "on conflict (dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid) do update set " +
+            "value = excluded.value, storedby = excluded.storedby, created = excluded.created, lastupdated = excluded.lastupdated, " +
+            "comment = excluded.comment, followup = excluded.followup, deleted = excluded.deleted";
+
+        List<Object[]> batchArgs = new ArrayList<>();
+
+        for ( org.hisp.dhis.datavalue.DataValue dataValue : dataValues )
+        {
+            batchArgs.add( new Object[] {
+                dataValue.getDataElement().getId(),
+                dataValue.getPeriod().getId(),
+                dataValue.getSource().getId(),
+                dataValue.getCategoryOptionCombo().getId(),
+                dataValue.getAttributeOptionCombo().getId(),
+                dataValue.getValue(),
+                dataValue.getStoredBy(),
+                getTimestamp( dataValue.getCreated() ),
+                getTimestamp( dataValue.getLastUpdated() ),
+                dataValue.getComment(),
+                dataValue.isFollowup(),
+                dataValue.isDeleted() } );
+        }
+
+        jdbcTemplate.batchUpdate( sql, batchArgs );
+
+        log.debug( String.format( "Upserted %d data values", batchArgs.size() ) );
+    }
+
     //--------------------------------------------------------------------------
     // Supportive methods
     //--------------------------------------------------------------------------
 
+    private String getDataValueKey( long dataElementId, long periodId, long sourceId, long categoryOptionComboId, long attributeOptionComboId )
+    {
+        return dataElementId + "," + periodId + "," + sourceId + "," + categoryOptionComboId + "," + attributeOptionComboId;
+    }
+
+    private Timestamp getTimestamp( Date date )
+    {
+        return date != null ? new Timestamp( date.getTime() ) : null;
+    }
+
     private String getDataValueSql( DataExportParams params )
     {
         IdSchemes idScheme = params.getOutputIdSchemes() != null ? params.getOutputIdSchemes() : new IdSchemes();
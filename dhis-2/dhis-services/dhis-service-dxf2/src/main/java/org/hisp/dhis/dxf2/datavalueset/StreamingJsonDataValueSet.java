@@ -29,23 +29,99 @@ package org.hisp.dhis.dxf2.datavalueset;
  */
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.dxf2.datavalue.DataValue;
 import org.hisp.dhis.dxf2.datavalue.StreamingJsonDataValue;
 import org.hisp.dhis.render.DefaultRenderService;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hisp.dhis.commons.util.TextUtils.valueOf;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
 public class StreamingJsonDataValueSet extends DataValueSet
 {
+    private static final Log log = LogFactory.getLog( StreamingJsonDataValueSet.class );
+
+    private static final String FIELD_STRATEGY = "strategy";
+    private static final String FIELD_DATAVALUES = "dataValues";
+    private static final String FIELD_ATTRIBUTE_CATEGORY_OPTIONS = "attributeCategoryOptions";
+
     private JsonGenerator generator;
 
+    private JsonParser parser;
+
+    private Path spoolFile;
+
     private boolean startedArray;
 
+    private boolean endedArray;
+
+    /**
+     * Creates a data value set which reads from the given input stream. The
+     * input is spooled to a temporary file, which is read twice: first for the
+     * properties of the data value set, skipping the data values array, and
+     * then for the data values, which are read one at a time when iterating.
+     * Properties are hence available up front regardless of whether they are
+     * placed before or after the data values array. The temporary file is
+     * deleted on {@link #close()}, or right away if reading fails.
+     *
+     * @param in the {@link InputStream}.
+     */
+    public StreamingJsonDataValueSet( InputStream in )
+    {
+        this( in, null );
+    }
+
+    /**
+     * Creates a data value set which reads from the given input stream and
+     * spools it to a temporary file in the given directory.
+     *
+     * @param in the {@link InputStream}.
+     * @param spoolDirectory the directory of the temporary file, or null for
+     *        the default temporary file directory.
+     */
+    StreamingJsonDataValueSet( InputStream in, Path spoolDirectory )
+    {
+        try
+        {
+            spoolFile = spoolDirectory != null ?
+                Files.createTempFile( spoolDirectory, "org.hisp.dhis", ".json" ) :
+                Files.createTempFile( "org.hisp.dhis", ".json" );
+            Files.copy( in, spoolFile, StandardCopyOption.REPLACE_EXISTING );
+
+            parser = createParser();
+            readFields( false );
+            IOUtils.closeQuietly( parser );
+
+            parser = createParser();
+            startedArray = readFields( true );
+        }
+        catch ( IOException ex )
+        {
+            close();
+            throw new RuntimeException( "Failed to read JSON data value set", ex );
+        }
+        catch ( RuntimeException ex )
+        {
+            close();
+            throw ex;
+        }
+    }
+
     public StreamingJsonDataValueSet( OutputStream out )
     {
         try
@@ -112,6 +188,45 @@ public class StreamingJsonDataValueSet extends DataValueSet
         writeObjectField( FIELD_ATTRIBUTE_OPTION_COMBO, attributeOptionCombo );
     }
 
+    @Override
+    public boolean hasNextDataValue()
+    {
+        if ( !startedArray || endedArray )
+        {
+            return false;
+        }
+
+        try
+        {
+            JsonToken token = parser.nextToken();
+
+            while ( token != null && token != JsonToken.START_OBJECT && token != JsonToken.END_ARRAY )
+            {
+                parser.skipChildren();
+                token = parser.nextToken();
+            }
+
+            if ( token == JsonToken.START_OBJECT )
+            {
+                return true;
+            }
+
+            endedArray = true;
+
+            return false;
+        }
+        catch ( IOException ex )
+        {
+            throw new RuntimeException( "Failed to read JSON data value", ex );
+        }
+    }
+
+    @Override
+    public DataValue getNextDataValue()
+    {
+        return new StreamingJsonDataValue( parser );
+    }
+
     @Override
     public DataValue getDataValueInstance()
     {
@@ -133,6 +248,25 @@ public class StreamingJsonDataValueSet extends DataValueSet
     @Override
     public void close()
     {
+        if ( parser != null )
+        {
+            IOUtils.closeQuietly( parser );
+        }
+
+        if ( spoolFile != null )
+        {
+            try
+            {
+                Files.deleteIfExists( spoolFile );
+            }
+            catch ( IOException ex )
+            {
+                log.warn( String.format( "Temporary file '%s' could not be deleted.", spoolFile ), ex );
+            }
+
+            spoolFile = null;
+        }
+
         if ( generator == null )
         {
             return;
@@ -156,6 +290,141 @@ public class StreamingJsonDataValueSet extends DataValueSet
         }
     }
 
+    private JsonParser createParser()
+        throws IOException
+    {
+        JsonParser jsonParser = DefaultRenderService.getJsonMapper().getFactory().createParser( spoolFile.toFile() );
+
+        if ( jsonParser.nextToken() != JsonToken.START_OBJECT )
+        {
+            IOUtils.closeQuietly( jsonParser );
+            throw new IllegalArgumentException( "Data value set JSON must start with an object" );
+        }
+
+        return jsonParser;
+    }
+
+    /**
+     * Reads the fields of the data value set object. When reading properties,
+     * all properties are read and the data values array is skipped. Otherwise
+     * properties are skipped and reading stops at the start of the data values
+     * array.
+     *
+     * @param dataValues whether to stop at the data values array instead of
+     *        reading properties.
+     * @return true if positioned at the start of the data values array.
+     */
+    private boolean readFields( boolean dataValues )
+        throws IOException
+    {
+        while ( parser.nextToken() == JsonToken.FIELD_NAME )
+        {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ( FIELD_DATAVALUES.equals( fieldName ) && token == JsonToken.START_ARRAY && dataValues )
+            {
+                return true;
+            }
+
+            if ( dataValues )
+            {
+                parser.skipChildren();
+            }
+            else
+            {
+                readField( fieldName );
+            }
+        }
+
+        return false;
+    }
+
+    private void readField( String fieldName )
+        throws IOException
+    {
+        switch ( fieldName )
+        {
+            case FIELD_IDSCHEME:
+                idScheme = getText();
+                break;
+            case FIELD_DATAELEMENTIDSCHEME:
+                dataElementIdScheme = getText();
+                break;
+            case FIELD_ORGUNITIDSCHEME:
+                orgUnitIdScheme = getText();
+                break;
+            case FIELD_CATEGORYOPTCOMBOIDSCHEME:
+                categoryOptionComboIdScheme = getText();
+                break;
+            case FIELD_DATASETIDSCHEME:
+                dataSetIdScheme = getText();
+                break;
+            case FIELD_DRYRUN:
+                dryRun = parser.getCurrentToken().isBoolean() ? parser.getBooleanValue() : valueOf( getText() );
+                break;
+            case FIELD_STRATEGY:
+                strategy = getText();
+                break;
+            case FIELD_DATASET:
+                dataSet = getText();
+                break;
+            case FIELD_COMPLETEDATE:
+                completeDate = getText();
+                break;
+            case FIELD_PERIOD:
+                period = getText();
+                break;
+            case FIELD_ORGUNIT:
+                orgUnit = getText();
+                break;
+            case FIELD_ATTRIBUTE_OPTION_COMBO:
+                attributeOptionCombo = getText();
+                break;
+            case FIELD_ATTRIBUTE_CATEGORY_OPTIONS:
+                attributeCategoryOptions = getTextList();
+                break;
+            default:
+                parser.skipChildren();
+        }
+    }
+
+    private String getText()
+        throws IOException
+    {
+        if ( parser.getCurrentToken().isScalarValue() )
+        {
+            return parser.getValueAsString();
+        }
+
+        parser.skipChildren();
+        return null;
+    }
+
+    private List<String> getTextList()
+        throws IOException
+    {
+        if ( parser.getCurrentToken() != JsonToken.START_ARRAY )
+        {
+            parser.skipChildren();
+            return null;
+        }
+
+        List<String> list = new ArrayList<>();
+
+        while ( parser.nextToken() != JsonToken.END_ARRAY )
+        {
+            String text = getText();
+
+            if ( text != null )
+            {
+                list.add( text );
+            }
+        }
+
+        return list;
+    }
+
     private void writeObjectField( String fieldName, Object value )
     {
         if ( value == null )
@@ -59,6 +59,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -643,6 +644,25 @@ public abstract class AbstractEventService
         return events;
     }
 
+    @Override
+    public void streamEvents( EventSearchParams params, Consumer<Event> consumer )
+    {
+        validate( params );
+
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
+
+        params.setSkipPaging( true );
+
+        User user = currentUserService.getCurrentUser();
+
+        eventStore.streamEvents( params, organisationUnits, event -> {
+            if ( trackerOwnershipAccessManager.hasAccess( user, event.getTrackedEntityInstance(), event.getProgram() ) )
+            {
+                consumer.accept( event );
+            }
+        } );
+    }
+
     @Override
     public Grid getEventsGrid( EventSearchParams params )
     {
@@ -841,6 +861,23 @@ public abstract class AbstractEventService
         return eventRows;
     }
 
+    @Override
+    public void streamEventRows( EventSearchParams params, Consumer<EventRow> consumer )
+    {
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
+
+        params.setSkipPaging( true );
+
+        User user = currentUserService.getCurrentUser();
+
+        eventStore.streamEventRows( params, organisationUnits, eventRow -> {
+            if ( trackerOwnershipAccessManager.hasAccess( user, eventRow.getTrackedEntityInstance(), eventRow.getProgram() ) )
+            {
+                consumer.accept( eventRow );
+            }
+        } );
+    }
+
     @Override
     public Event getEvent( ProgramStageInstance programStageInstance )
     {
@@ -0,0 +1,129 @@
+package org.hisp.dhis.dxf2.events.event;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hisp.dhis.common.IllegalQueryException;
+
+/**
+ * Opaque cursor for keyset paging of events. The cursor holds the last
+ * updated timestamp and the identifier of the last event of a page, and the
+ * next page starts strictly after that position in the order
+ * <code>(lastupdated, programstageinstanceid)</code>. The cursor is encoded
+ * as URL-safe base64 so that clients treat it as an opaque token.
+ */
+public class EventPageCursor
+{
+    private static final String SEPARATOR = ";";
+
+    private static final Pattern CURSOR_PATTERN = Pattern.compile(
+        "^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}(\\.\\d{1,9})?);(\\d+)$" );
+
+    private final String lastUpdated;
+
+    private final long id;
+
+    public EventPageCursor( String lastUpdated, long id )
+    {
+        this.lastUpdated = lastUpdated;
+        this.id = id;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Decodes the given cursor token.
+     *
+     * @param cursor the cursor token.
+     * @return an {@link EventPageCursor}.
+     * @throws IllegalQueryException if the cursor token is invalid.
+     */
+    public static EventPageCursor decode( String cursor )
+    {
+        String value;
+
+        try
+        {
+            value = new String( Base64.getUrlDecoder().decode( cursor ), StandardCharsets.UTF_8 );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            throw new IllegalQueryException( "Page cursor is invalid: " + cursor );
+        }
+
+        Matcher matcher = CURSOR_PATTERN.matcher( value );
+
+        if ( !matcher.matches() )
+        {
+            throw new IllegalQueryException( "Page cursor is invalid: " + cursor );
+        }
+
+        return new EventPageCursor( matcher.group( 1 ), Long.parseLong( matcher.group( 3 ) ) );
+    }
+
+    /**
+     * Returns the cursor token for this cursor.
+     */
+    public String encode()
+    {
+        String value = lastUpdated + SEPARATOR + id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( value.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Get methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the last updated timestamp in the database text format, which
+     * retains the full precision of the timestamp.
+     */
+    public String getLastUpdated()
+    {
+        return lastUpdated;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[Last updated: " + lastUpdated + ", id: " + id + "]";
+    }
+}
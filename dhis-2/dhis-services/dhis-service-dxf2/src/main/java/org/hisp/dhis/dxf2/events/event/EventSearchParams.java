@@ -119,6 +119,23 @@ public class EventSearchParams
 
     private boolean skipPaging;
 
+    /**
+     * Indicates whether keyset paging ordered by last updated and identifier
+     * should be used instead of offset paging.
+     */
+    private boolean cursorPaging;
+
+    /**
+     * The position after which the page starts when using keyset paging.
+     */
+    private EventPageCursor pageCursor;
+
+    /**
+     * The position after which the next page starts, set by the store when
+     * using keyset paging and more events might be available.
+     */
+    private EventPageCursor nextPageCursor;
+
     private List<Order> orders;
 
     private List<String> gridOrders;
@@ -184,6 +201,20 @@ public class EventSearchParams
         return (getPageWithDefault() - 1) * getPageSizeWithDefault();
     }
 
+    /**
+     * Indicates whether keyset paging should be used, which is the case if
+     * cursor paging is requested or a page cursor is specified.
+     */
+    public boolean isCursorPaging()
+    {
+        return cursorPaging || pageCursor != null;
+    }
+
+    public boolean hasPageCursor()
+    {
+        return pageCursor != null;
+    }
+
     /**
      * Sets paging properties to default values.
      */
@@ -442,6 +473,31 @@ public class EventSearchParams
         this.skipPaging = skipPaging;
     }
 
+    public void setCursorPaging( boolean cursorPaging )
+    {
+        this.cursorPaging = cursorPaging;
+    }
+
+    public EventPageCursor getPageCursor()
+    {
+        return pageCursor;
+    }
+
+    public void setPageCursor( EventPageCursor pageCursor )
+    {
+        this.pageCursor = pageCursor;
+    }
+
+    public EventPageCursor getNextPageCursor()
+    {
+        return nextPageCursor;
+    }
+
+    public void setNextPageCursor( EventPageCursor nextPageCursor )
+    {
+        this.nextPageCursor = nextPageCursor;
+    }
+
     public boolean isIncludeAttributes()
     {
         return includeAttributes;
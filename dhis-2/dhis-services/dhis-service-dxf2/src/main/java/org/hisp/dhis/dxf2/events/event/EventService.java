@@ -34,12 +34,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
 import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.events.report.EventRow;
 import org.hisp.dhis.dxf2.events.report.EventRows;
 import org.hisp.dhis.dxf2.importsummary.ImportSummaries;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
@@ -60,8 +62,27 @@ public interface EventService
 
     Events getEvents( EventSearchParams params );
 
+    /**
+     * Streams all events matching the given parameters to the given consumer
+     * without holding the result in memory. Paging parameters are ignored.
+     *
+     * @param params the event search parameters.
+     * @param consumer the consumer of events.
+     */
+    void streamEvents( EventSearchParams params, Consumer<Event> consumer );
+
     EventRows getEventRows( EventSearchParams params );
 
+    /**
+     * Streams all event rows matching the given parameters to the given
+     * consumer without holding the result in memory. Paging parameters are
+     * ignored.
+     *
+     * @param params the event search parameters.
+     * @param consumer the consumer of event rows.
+     */
+    void streamEventRows( EventSearchParams params, Consumer<EventRow> consumer );
+
     EventSearchParams getFromUrl( String program, String programStage, ProgramStatus programStatus, Boolean followUp,
         String orgUnit, OrganisationUnitSelectionMode orgUnitSelectionMode, String trackedEntityInstance,
         Date startDate, Date endDate, Date dueDateStart, Date dueDateEnd, Date lastUpdatedStartDate,
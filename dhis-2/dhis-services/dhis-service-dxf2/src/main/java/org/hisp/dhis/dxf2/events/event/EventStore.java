@@ -31,6 +31,7 @@ package org.hisp.dhis.dxf2.events.event;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.dxf2.events.report.EventRow;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
@@ -42,9 +43,32 @@ public interface EventStore
 {
     List<Event> getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Map<String, Set<String>> psdesWithSkipSyncTrue );
 
+    /**
+     * Streams the events matching the given parameters to the given consumer.
+     * Rows are fetched from the database in batches through a cursor, and each
+     * event is passed on as soon as all of its rows are read, which keeps
+     * memory usage independent of the number of events.
+     *
+     * @param params the event search parameters.
+     * @param organisationUnits the organisation units to search.
+     * @param consumer the consumer of events.
+     */
+    void streamEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Consumer<Event> consumer );
+
     List<Map<String, String>> getEventsGrid( EventSearchParams params, List<OrganisationUnit> organisationUnits );
 
     List<EventRow> getEventRows( EventSearchParams params, List<OrganisationUnit> organisationUnits );
 
+    /**
+     * Streams the event rows matching the given parameters to the given
+     * consumer. Rows are fetched from the database in batches through a
+     * cursor, in the same way as {@link #streamEvents}.
+     *
+     * @param params the event search parameters.
+     * @param organisationUnits the organisation units to search.
+     * @param consumer the consumer of event rows.
+     */
+    void streamEventRows( EventSearchParams params, List<OrganisationUnit> organisationUnits, Consumer<EventRow> consumer );
+
     int getEventCount( EventSearchParams params, List<OrganisationUnit> organisationUnits );
 }
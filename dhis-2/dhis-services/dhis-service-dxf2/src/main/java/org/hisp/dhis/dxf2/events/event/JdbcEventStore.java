@@ -64,18 +64,26 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.ObjectUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 import javax.annotation.Resource;
 import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.hisp.dhis.api.util.DateUtils.getDateAfterAddition;
@@ -103,6 +111,11 @@ public class JdbcEventStore
         .put( "attributeOptionCombo", "psi_aoc" ).put( "completedDate", "psi_completeddate" )
         .put( "deleted", "psi_deleted" ).build();
 
+    /**
+     * Number of rows fetched per round trip when streaming events.
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -127,173 +140,44 @@ public class JdbcEventStore
     // EventStore implementation
     // -------------------------------------------------------------------------
 
-    @SuppressWarnings( "unchecked" )
     @Override
     public List<Event> getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Map<String, Set<String>> psdesWithSkipSyncTrue )
     {
         User user = currentUserService.getCurrentUser();
 
-        boolean isSuperUser = isSuper( user );
-
-        if ( !isSuperUser )
-        {
-            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
-                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
-
-            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
-                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
-        }
+        setAccessiblePrograms( params, user );
 
         List<Event> events = new ArrayList<>();
 
         String sql = buildSql( params, organisationUnits, user );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
-
         log.debug( "Event query SQL: " + sql );
 
-        Event event = new Event();
-
-        event.setEvent( "not_valid" );
-
-        Set<String> notes = new HashSet<>();
-
-        IdSchemes idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
-
-        while ( rowSet.next() )
-        {
-            if ( rowSet.getString( "psi_uid" ) == null || (params.getCategoryOptionCombo() == null && !isSuperUser && !userHasAccess( rowSet )) )
-            {
-                continue;
-            }
-
-            if ( event.getUid() == null || !event.getUid().equals( rowSet.getString( "psi_uid" ) ) )
-            {
-                event = new Event();
-
-                event.setUid( rowSet.getString( "psi_uid" ) );
-
-                event.setEvent( IdSchemes.getValue( rowSet.getString( "psi_uid" ), rowSet.getString( "psi_code" ),
-                    idSchemes.getProgramStageInstanceIdScheme() ) );
-                event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
-                event.setStatus( EventStatus.valueOf( rowSet.getString( "psi_status" ) ) );
-
-                event.setProgram( IdSchemes.getValue( rowSet.getString( "p_uid" ), rowSet.getString( "p_code" ),
-                    idSchemes.getProgramIdScheme() ) );
-                event.setProgramStage( IdSchemes.getValue( rowSet.getString( "ps_uid" ), rowSet.getString( "ps_code" ),
-                    idSchemes.getProgramStageIdScheme() ) );
-                event.setOrgUnit( IdSchemes.getValue( rowSet.getString( "ou_uid" ), rowSet.getString( "ou_code" ),
-                    idSchemes.getOrgUnitIdScheme() ) );
-                event.setDeleted( rowSet.getBoolean( "psi_deleted" ) );
-
-                ProgramType programType = ProgramType.fromValue( rowSet.getString( "p_type" ) );
-
-                if ( programType != ProgramType.WITHOUT_REGISTRATION )
-                {
-                    event.setEnrollment( rowSet.getString( "pi_uid" ) );
-                    event.setEnrollmentStatus( EnrollmentStatus
-                        .fromProgramStatus( ProgramStatus.valueOf( rowSet.getString( "pi_status" ) ) ) );
-                    event.setFollowup( rowSet.getBoolean( "pi_followup" ) );
-                }
-
-                if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
-                {
-                    event.setOptionSize( rowSet.getInt( "option_size" ) );
-                }
-
-                event.setAttributeOptionCombo( rowSet.getString( "coc_categoryoptioncombouid" ) );
-                event.setAttributeCategoryOptions( rowSet.getString( "deco_uid" ) );
-                event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
-
-                event.setStoredBy( rowSet.getString( "psi_storedby" ) );
-                event.setOrgUnitName( rowSet.getString( "ou_name" ) );
-                event.setDueDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_duedate" ) ) );
-                event.setEventDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_executiondate" ) ) );
-                event.setCreated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_created" ) ) );
-                event.setLastUpdated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_lastupdated" ) ) );
-
-                event.setCompletedBy( rowSet.getString( "psi_completedby" ) );
-                event.setCompletedDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_completeddate" ) ) );
-
-                if ( rowSet.getObject( "psi_geometry" ) != null )
-                {
-                    try
-                    {
-                        Geometry geom = new WKTReader().read( rowSet.getString( "psi_geometry" ) );
-
-                        event.setGeometry( geom );
-                        event.setCoordinate( new Coordinate( geom.getCoordinate().x, geom.getCoordinate().y ) );
-                    }
-                    catch ( ParseException e )
-                    {
-                        log.error( "Unable to read geometry for event '" + event.getUid() + "': ", e );
-                    }
-                }
-
-                if ( rowSet.getObject( "user_assigned" ) != null )
-                {
-                    event.setAssignedUser( rowSet.getString( "user_assigned" ) );
-                    event.setAssignedUserUsername( rowSet.getString( "user_assigned_username" ) );
-                }
+        EventRowCallbackHandler handler = new EventRowCallbackHandler( params, user, psdesWithSkipSyncTrue, events::add );
 
-                events.add( event );
-            }
-            else
-            {
-                String attributeCategoryCombination = event.getAttributeCategoryOptions();
-                String currentAttributeCategoryCombination = rowSet.getString( "deco_uid" );
+        jdbcTemplate.query( sql, handler );
 
-                if ( !attributeCategoryCombination.contains( currentAttributeCategoryCombination ) )
-                {
-                    event.setAttributeCategoryOptions(
-                        attributeCategoryCombination + ";" + currentAttributeCategoryCombination );
-                }
-            }
+        handler.finish();
 
-            if ( !org.springframework.util.StringUtils.isEmpty( rowSet.getString( "psi_eventdatavalues" ) ) )
-            {
-                Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet( rowSet.getString( "psi_eventdatavalues" ) );
+        return events;
+    }
 
-                for( EventDataValue dv : eventDataValues )
-                {
-                    DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv );
+    @Override
+    public void streamEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Consumer<Event> consumer )
+    {
+        User user = currentUserService.getCurrentUser();
 
-                    if ( params.isSynchronizationQuery() )
-                    {
-                        if (psdesWithSkipSyncTrue.containsKey( rowSet.getString( "ps_uid" ) ) &&
-                            psdesWithSkipSyncTrue.get( rowSet.getString( "ps_uid" ) ).contains( dv.getDataElement() ) )
-                        {
-                            dataValue.setSkipSynchronization( true );
-                        }
-                        else
-                        {
-                            dataValue.setSkipSynchronization( false );
-                        }
-                    }
+        setAccessiblePrograms( params, user );
 
-                    event.getDataValues().add( dataValue );
-                }
-            }
+        String sql = buildSql( params, organisationUnits, user );
 
-            if ( rowSet.getString( "psinote_value" ) != null && !notes.contains( rowSet.getString( "psinote_id" ) ) )
-            {
-                Note note = new Note();
-                note.setNote( rowSet.getString( "psinote_uid" ) );
-                note.setValue( rowSet.getString( "psinote_value" ) );
-                note.setStoredDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psinote_storeddate" ) ) );
-                note.setStoredBy( rowSet.getString( "psinote_storedby" ) );
+        log.debug( "Event stream SQL: " + sql );
 
-                event.getNotes().add( note );
-                notes.add( rowSet.getString( "psinote_id" ) );
-            }
-        }
+        EventRowCallbackHandler handler = new EventRowCallbackHandler( params, user, Collections.emptyMap(), consumer );
 
-        if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
-        {
-            return events.stream().filter( ev -> ev.getAttributeCategoryOptions() != null && splitToArray( ev.getAttributeCategoryOptions(), TextUtils.SEMICOLON ).size() == ev.getOptionSize() ).collect( Collectors.toList() );
-        }
+        streamRows( sql, handler );
 
-        return events;
+        handler.finish();
     }
 
     @Override
@@ -307,8 +191,15 @@ public class JdbcEventStore
 
         List<Map<String, String>> list = new ArrayList<>();
 
+        EventPageCursorTracker cursorTracker = new EventPageCursorTracker();
+
         while ( rowSet.next() )
         {
+            if ( params.isCursorPaging() )
+            {
+                cursorTracker.add( rowSet.getString( EVENT_ID ), rowSet.getTimestamp( EVENT_LAST_UPDATED_ID ), rowSet.getLong( "psi_id" ) );
+            }
+
             final Map<String, String> map = new HashMap<>();
 
             for ( String col : STATIC_EVENT_COLUMNS )
@@ -324,126 +215,49 @@ public class JdbcEventStore
             list.add( map );
         }
 
+        setNextPageCursor( params, cursorTracker );
+
         return list;
     }
 
-    @SuppressWarnings( "unchecked" )
     @Override
     public List<EventRow> getEventRows( EventSearchParams params, List<OrganisationUnit> organisationUnits )
     {
         User user = currentUserService.getCurrentUser();
 
-        boolean isSuperUser = isSuper( user );
-
-        if ( !isSuperUser )
-        {
-            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
-                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
-
-            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
-                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
-        }
+        setAccessiblePrograms( params, user );
 
         List<EventRow> eventRows = new ArrayList<>();
 
         String sql = buildSql( params, organisationUnits, user );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
-
         log.debug( "Event query SQL: " + sql );
 
-        EventRow eventRow = new EventRow();
-
-        eventRow.setEvent( "not_valid" );
-
-        Set<String> notes = new HashSet<>();
-
-        IdSchemes idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
-
-        while ( rowSet.next() )
-        {
-            if ( rowSet.getString( "psi_uid" ) == null || ( params.getCategoryOptionCombo() == null && !isSuperUser && !userHasAccess( rowSet ) ) )
-            {
-                continue;
-            }
-
-            if ( eventRow.getUid() == null || !eventRow.getUid().equals( rowSet.getString( "psi_uid" ) ) )
-            {
-                eventRow = new EventRow();
-
-                eventRow.setUid( rowSet.getString( "psi_uid" ) );
-
-                eventRow.setEvent( IdSchemes.getValue( rowSet.getString( "psi_uid" ), rowSet.getString( "psi_code" ), idSchemes.getProgramStageInstanceIdScheme() ) );
-                eventRow.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
-                eventRow.setTrackedEntityInstanceOrgUnit( rowSet.getString( "tei_ou" ) );
-                eventRow.setTrackedEntityInstanceOrgUnitName( rowSet.getString( "tei_ou_name" ) );
-                eventRow.setTrackedEntityInstanceCreated( rowSet.getString( "tei_created" ) );
-                eventRow.setTrackedEntityInstanceInactive( rowSet.getBoolean( "tei_inactive" ) );
-                eventRow.setDeleted( rowSet.getBoolean( "psi_deleted" ) );
-
-
-                eventRow.setProgram( IdSchemes.getValue( rowSet.getString( "p_uid" ), rowSet.getString( "p_code" ),
-                    idSchemes.getProgramIdScheme() ) );
-                eventRow.setProgramStage( IdSchemes.getValue( rowSet.getString( "ps_uid" ),
-                    rowSet.getString( "ps_code" ), idSchemes.getProgramStageIdScheme() ) );
-                eventRow.setOrgUnit( IdSchemes.getValue( rowSet.getString( "ou_uid" ), rowSet.getString( "ou_code" ),
-                    idSchemes.getOrgUnitIdScheme() ) );
-
-                ProgramType programType = ProgramType.fromValue( rowSet.getString( "p_type" ) );
-                if ( programType == ProgramType.WITHOUT_REGISTRATION )
-                {
-                    eventRow.setEnrollment( rowSet.getString( "pi_uid" ) );
-                    eventRow.setFollowup( rowSet.getBoolean( "pi_followup" ) );
-                }
+        EventReportRowCallbackHandler handler = new EventReportRowCallbackHandler( params, user, eventRows::add );
 
-                eventRow.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
-                eventRow.setOrgUnitName( rowSet.getString( "ou_name" ) );
-                eventRow.setDueDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_duedate" ) ) );
-                eventRow.setEventDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_executiondate" ) ) );
+        jdbcTemplate.query( sql, handler );
 
-                eventRows.add( eventRow );
-            }
+        handler.finish();
 
-            if ( rowSet.getString( "pav_value" ) != null && rowSet.getString( "ta_uid" ) != null )
-            {
-                String valueType = rowSet.getString( "ta_valuetype" );
+        return eventRows;
+    }
 
-                Attribute attribute = new Attribute();
-                attribute.setCreated( DateUtils.getIso8601NoTz( rowSet.getDate( "pav_created" ) ) );
-                attribute.setLastUpdated( DateUtils.getIso8601NoTz( rowSet.getDate( "pav_lastupdated" ) ) );
-                attribute.setValue( rowSet.getString( "pav_value" ) );
-                attribute.setDisplayName( rowSet.getString( "ta_name" ) );
-                attribute.setValueType( valueType != null ? ValueType.valueOf( valueType.toUpperCase() ) : null );
-                attribute.setAttribute( rowSet.getString( "ta_uid" ) );
+    @Override
+    public void streamEventRows( EventSearchParams params, List<OrganisationUnit> organisationUnits, Consumer<EventRow> consumer )
+    {
+        User user = currentUserService.getCurrentUser();
 
-                eventRow.getAttributes().add( attribute );
-            }
+        setAccessiblePrograms( params, user );
 
-            if ( !org.springframework.util.StringUtils.isEmpty( rowSet.getString( "psi_eventdatavalues" ) ) )
-            {
-                Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet( rowSet.getString( "psi_eventdatavalues" ) );
+        String sql = buildSql( params, organisationUnits, user );
 
-                for( EventDataValue dv : eventDataValues )
-                {
-                    DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv );
-                    eventRow.getDataValues().add( dataValue );
-                }
-            }
+        log.debug( "Event row stream SQL: " + sql );
 
-            if ( rowSet.getString( "psinote_value" ) != null && !notes.contains( rowSet.getString( "psinote_id" ) ) )
-            {
-                Note note = new Note();
-                note.setNote( rowSet.getString( "psinote_uid" ) );
-                note.setValue( rowSet.getString( "psinote_value" ) );
-                note.setStoredDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psinote_storeddate" ) ) );
-                note.setStoredBy( rowSet.getString( "psinote_storedby" ) );
+        EventReportRowCallbackHandler handler = new EventReportRowCallbackHandler( params, user, consumer );
 
-                eventRow.getNotes().add( note );
-                notes.add( rowSet.getString( "psinote_id" ) );
-            }
-        }
+        streamRows( sql, handler );
 
-        return eventRows;
+        handler.finish();
     }
 
     @Override
@@ -451,16 +265,7 @@ public class JdbcEventStore
     {
         User user = currentUserService.getCurrentUser();
 
-        boolean isSuperUser = isSuper( user );
-
-        if ( !isSuperUser )
-        {
-            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
-                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
-
-            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
-                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
-        }
+        setAccessiblePrograms( params, user );
 
         String sql;
 
@@ -477,7 +282,7 @@ public class JdbcEventStore
 
         sql = sql.replaceFirst( "order .*? (desc|asc)", "" );
 
-        sql = sql.replaceFirst( "limit \\d+ offset \\d+", "" );
+        sql = sql.replaceFirst( "limit \\d+( offset \\d+)?", "" );
 
         log.debug( "Event query count SQL: " + sql );
 
@@ -513,7 +318,7 @@ public class JdbcEventStore
             + "pi.uid as " + EVENT_ENROLLMENT_ID + ", "
             + "ps.uid as " + EVENT_PROGRAM_STAGE_ID + ", " + "p.uid as "
             + EVENT_PROGRAM_ID + ", " + "coc.uid as " + EVENT_ATTRIBUTE_OPTION_COMBO_ID + ", " + "psi.deleted as " + EVENT_DELETED + ", "
-            + "psi.geometry as " + EVENT_GEOMETRY + ", ";
+            + "psi.geometry as " + EVENT_GEOMETRY + ", " + "psi.programstageinstanceid as psi_id, ";
 
         for ( QueryItem item : params.getDataElementsAndFilters() )
         {
@@ -558,11 +363,18 @@ public class JdbcEventStore
     {
         String sql = "select * from (";
 
-        sql += getEventSelectQuery( params, organisationUnits, user );
+        if ( params.isCursorPaging() && params.isPaging() )
+        {
+            sql += getEventKeysetPageQuery( params, getEventSelectQuery( params, organisationUnits, user ) );
+        }
+        else
+        {
+            sql += getEventSelectQuery( params, organisationUnits, user );
 
-        sql += getOrderQuery( params );
+            sql += getOrderQuery( params );
 
-        sql += getEventPagingQuery( params );
+            sql += getEventPagingQuery( params );
+        }
 
         sql += ") as event left join (";
 
@@ -810,6 +622,8 @@ public class JdbcEventStore
             sql += hlp.whereAnd() + " psi.lastupdated > psi.lastsynchronized ";
         }
 
+        sql += getKeysetQuery( params, hlp );
+
         return sql;
     }
 
@@ -982,6 +796,8 @@ public class JdbcEventStore
             sql += hlp.whereAnd() + " (psi.uid in (" + getQuotedCommaDelimitedString( params.getEvents() ) + ")) ";
         }
 
+        sql += getKeysetQuery( params, hlp );
+
         return sql;
     }
 
@@ -1014,11 +830,43 @@ public class JdbcEventStore
     }
 
 
+    /**
+     * Returns the rows of the given event select query for the next page of
+     * events when using keyset paging. The select query holds the restriction
+     * on the page cursor, so the rows are limited in the keyset order
+     * directly. An event spans one row per category option of its attribute
+     * option combo, so the row limit allows for a page of events with the
+     * largest number of category options. Rows of events beyond the page are
+     * skipped by {@link EventRowCallbackHandler}.
+     */
+    private String getEventKeysetPageQuery( EventSearchParams params, String eventSelectQuery )
+    {
+        return eventSelectQuery + "order by psi.lastupdated, psi.programstageinstanceid " +
+            "limit " + ( params.getPageSizeWithDefault() * getMaxCategoryOptionCount() ) + " ";
+    }
+
+    /**
+     * Returns the largest number of category options of a category option
+     * combo, which is the number of rows an event can span.
+     */
+    private int getMaxCategoryOptionCount()
+    {
+        Integer count = jdbcTemplate.queryForObject( "select max(cocount.option_size) from (" +
+            "select count(*) as option_size from categoryoptioncombos_categoryoptions " +
+            "group by categoryoptioncomboid) as cocount", Integer.class );
+
+        return count != null ? Math.max( 1, count ) : 1;
+    }
+
     private String getEventPagingQuery( EventSearchParams params )
     {
         String sql = " ";
 
-        if ( params.isPaging() )
+        if ( params.isPaging() && params.isCursorPaging() )
+        {
+            sql += "limit " + params.getPageSizeWithDefault() + " ";
+        }
+        else if ( params.isPaging() )
         {
             sql += "limit " + params.getPageSizeWithDefault() + " offset " + params.getOffset() + " ";
         }
@@ -1026,6 +874,458 @@ public class JdbcEventStore
         return sql;
     }
 
+    /**
+     * Returns a restriction on events positioned after the page cursor when
+     * using keyset paging, or an empty string if no page cursor is specified.
+     * The restriction on the (lastupdated, programstageinstanceid) row value
+     * allows the database to seek directly to the start of the page.
+     */
+    private String getKeysetQuery( EventSearchParams params, SqlHelper hlp )
+    {
+        if ( !params.hasPageCursor() )
+        {
+            return "";
+        }
+
+        EventPageCursor cursor = params.getPageCursor();
+
+        return hlp.whereAnd() + " (psi.lastupdated, psi.programstageinstanceid) > ('" +
+            cursor.getLastUpdated() + "'::timestamp, " + cursor.getId() + ") ";
+    }
+
+    /**
+     * Sets the cursor of the next page on the given parameters when using keyset
+     * paging. The next page cursor is only set if the page is full, as more
+     * events might otherwise not be available.
+     */
+    private void setNextPageCursor( EventSearchParams params, EventPageCursorTracker cursorTracker )
+    {
+        if ( params.isCursorPaging() && params.isPaging() )
+        {
+            params.setNextPageCursor( cursorTracker.getEventCount() >= params.getPageSizeWithDefault() ?
+                cursorTracker.getLastCursor() : null );
+        }
+    }
+
+    /**
+     * Tracks the number of distinct events and the last position in the keyset
+     * order for the rows of a page, where an event can span multiple rows.
+     */
+    private static class EventPageCursorTracker
+    {
+        private Set<String> eventUids = new HashSet<>();
+
+        private Timestamp lastUpdated;
+
+        private long id;
+
+        void add( String uid, Timestamp rowLastUpdated, long rowId )
+        {
+            eventUids.add( uid );
+
+            if ( lastUpdated == null || rowLastUpdated.after( lastUpdated ) || ( rowLastUpdated.equals( lastUpdated ) && rowId > id ) )
+            {
+                lastUpdated = rowLastUpdated;
+                id = rowId;
+            }
+        }
+
+        int getEventCount()
+        {
+            return eventUids.size();
+        }
+
+        /**
+         * Indicates whether the given event is not part of a page of the given
+         * size, as the page is full with other events.
+         */
+        boolean isBeyondPage( String uid, int pageSize )
+        {
+            return eventUids.size() >= pageSize && !eventUids.contains( uid );
+        }
+
+        EventPageCursor getLastCursor()
+        {
+            return lastUpdated != null ? new EventPageCursor( lastUpdated.toString(), id ) : null;
+        }
+    }
+
+    /**
+     * Maps rows of the event query to events. An event spans consecutive rows
+     * which differ in category options, notes and attributes, and is passed to
+     * the consumer when all of its rows are read, which allows for events to be
+     * streamed. Events for which the user does not have access to all category
+     * options are skipped.
+     */
+    private class EventRowCallbackHandler
+        implements RowCallbackHandler
+    {
+        private final EventSearchParams params;
+
+        private final boolean isSuperUser;
+
+        private final Map<String, Set<String>> psdesWithSkipSyncTrue;
+
+        private final Consumer<Event> consumer;
+
+        private final IdSchemes idSchemes;
+
+        private final Set<String> notes = new HashSet<>();
+
+        private final EventPageCursorTracker cursorTracker = new EventPageCursorTracker();
+
+        private Event event;
+
+        EventRowCallbackHandler( EventSearchParams params, User user, Map<String, Set<String>> psdesWithSkipSyncTrue, Consumer<Event> consumer )
+        {
+            this.params = params;
+            this.isSuperUser = isSuper( user );
+            this.psdesWithSkipSyncTrue = psdesWithSkipSyncTrue;
+            this.consumer = consumer;
+            this.idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
+        }
+
+        @Override
+        public void processRow( ResultSet rs )
+            throws SQLException
+        {
+            if ( params.isCursorPaging() && rs.getString( "psi_uid" ) != null )
+            {
+                if ( cursorTracker.isBeyondPage( rs.getString( "psi_uid" ), params.getPageSizeWithDefault() ) )
+                {
+                    return;
+                }
+
+                cursorTracker.add( rs.getString( "psi_uid" ), rs.getTimestamp( "psi_lastupdated" ), rs.getLong( "psi_id" ) );
+            }
+
+            if ( rs.getString( "psi_uid" ) == null || (params.getCategoryOptionCombo() == null && !isSuperUser && !userHasAccess( rs )) )
+            {
+                return;
+            }
+
+            if ( event == null || !event.getUid().equals( rs.getString( "psi_uid" ) ) )
+            {
+                emit( event );
+
+                event = new Event();
+
+                event.setUid( rs.getString( "psi_uid" ) );
+
+                event.setEvent( IdSchemes.getValue( rs.getString( "psi_uid" ), rs.getString( "psi_code" ),
+                    idSchemes.getProgramStageInstanceIdScheme() ) );
+                event.setTrackedEntityInstance( rs.getString( "tei_uid" ) );
+                event.setStatus( EventStatus.valueOf( rs.getString( "psi_status" ) ) );
+
+                event.setProgram( IdSchemes.getValue( rs.getString( "p_uid" ), rs.getString( "p_code" ),
+                    idSchemes.getProgramIdScheme() ) );
+                event.setProgramStage( IdSchemes.getValue( rs.getString( "ps_uid" ), rs.getString( "ps_code" ),
+                    idSchemes.getProgramStageIdScheme() ) );
+                event.setOrgUnit( IdSchemes.getValue( rs.getString( "ou_uid" ), rs.getString( "ou_code" ),
+                    idSchemes.getOrgUnitIdScheme() ) );
+                event.setDeleted( rs.getBoolean( "psi_deleted" ) );
+
+                ProgramType programType = ProgramType.fromValue( rs.getString( "p_type" ) );
+
+                if ( programType != ProgramType.WITHOUT_REGISTRATION )
+                {
+                    event.setEnrollment( rs.getString( "pi_uid" ) );
+                    event.setEnrollmentStatus( EnrollmentStatus
+                        .fromProgramStatus( ProgramStatus.valueOf( rs.getString( "pi_status" ) ) ) );
+                    event.setFollowup( rs.getBoolean( "pi_followup" ) );
+                }
+
+                if ( params.getCategoryOptionCombo() == null && !isSuperUser )
+                {
+                    event.setOptionSize( rs.getInt( "option_size" ) );
+                }
+
+                event.setAttributeOptionCombo( rs.getString( "coc_categoryoptioncombouid" ) );
+                event.setAttributeCategoryOptions( rs.getString( "deco_uid" ) );
+                event.setTrackedEntityInstance( rs.getString( "tei_uid" ) );
+
+                event.setStoredBy( rs.getString( "psi_storedby" ) );
+                event.setOrgUnitName( rs.getString( "ou_name" ) );
+                event.setDueDate( DateUtils.getIso8601NoTz( rs.getTimestamp( "psi_duedate" ) ) );
+                event.setEventDate( DateUtils.getIso8601NoTz( rs.getTimestamp( "psi_executiondate" ) ) );
+                event.setCreated( DateUtils.getIso8601NoTz( rs.getTimestamp( "psi_created" ) ) );
+                event.setLastUpdated( DateUtils.getIso8601NoTz( rs.getTimestamp( "psi_lastupdated" ) ) );
+
+                event.setCompletedBy( rs.getString( "psi_completedby" ) );
+                event.setCompletedDate( DateUtils.getIso8601NoTz( rs.getTimestamp( "psi_completeddate" ) ) );
+
+                if ( rs.getObject( "psi_geometry" ) != null )
+                {
+                    try
+                    {
+                        Geometry geom = new WKTReader().read( rs.getString( "psi_geometry" ) );
+
+                        event.setGeometry( geom );
+                        event.setCoordinate( new Coordinate( geom.getCoordinate().x, geom.getCoordinate().y ) );
+                    }
+                    catch ( ParseException e )
+                    {
+                        log.error( "Unable to read geometry for event '" + event.getUid() + "': ", e );
+                    }
+                }
+
+                if ( rs.getObject( "user_assigned" ) != null )
+                {
+                    event.setAssignedUser( rs.getString( "user_assigned" ) );
+                    event.setAssignedUserUsername( rs.getString( "user_assigned_username" ) );
+                }
+            }
+            else
+            {
+                String attributeCategoryCombination = event.getAttributeCategoryOptions();
+                String currentAttributeCategoryCombination = rs.getString( "deco_uid" );
+
+                if ( !attributeCategoryCombination.contains( currentAttributeCategoryCombination ) )
+                {
+                    event.setAttributeCategoryOptions(
+                        attributeCategoryCombination + ";" + currentAttributeCategoryCombination );
+                }
+            }
+
+            if ( !org.springframework.util.StringUtils.isEmpty( rs.getString( "psi_eventdatavalues" ) ) )
+            {
+                Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet( rs.getString( "psi_eventdatavalues" ) );
+
+                for( EventDataValue dv : eventDataValues )
+                {
+                    DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv );
+
+                    if ( params.isSynchronizationQuery() )
+                    {
+                        if (psdesWithSkipSyncTrue.containsKey( rs.getString( "ps_uid" ) ) &&
+                            psdesWithSkipSyncTrue.get( rs.getString( "ps_uid" ) ).contains( dv.getDataElement() ) )
+                        {
+                            dataValue.setSkipSynchronization( true );
+                        }
+                        else
+                        {
+                            dataValue.setSkipSynchronization( false );
+                        }
+                    }
+
+                    event.getDataValues().add( dataValue );
+                }
+            }
+
+            if ( rs.getString( "psinote_value" ) != null && !notes.contains( rs.getString( "psinote_id" ) ) )
+            {
+                Note note = new Note();
+                note.setNote( rs.getString( "psinote_uid" ) );
+                note.setValue( rs.getString( "psinote_value" ) );
+                note.setStoredDate( DateUtils.getIso8601NoTz( rs.getTimestamp( "psinote_storeddate" ) ) );
+                note.setStoredBy( rs.getString( "psinote_storedby" ) );
+
+                event.getNotes().add( note );
+                notes.add( rs.getString( "psinote_id" ) );
+            }
+        }
+
+        /**
+         * Passes the last event to the consumer and sets the cursor of the next
+         * page. Must be invoked after all rows are processed.
+         */
+        void finish()
+        {
+            emit( event );
+
+            event = null;
+
+            setNextPageCursor( params, cursorTracker );
+        }
+
+        private void emit( Event completeEvent )
+        {
+            notes.clear();
+
+            if ( completeEvent == null )
+            {
+                return;
+            }
+
+            if ( params.getCategoryOptionCombo() == null && !isSuperUser && ( completeEvent.getAttributeCategoryOptions() == null ||
+                splitToArray( completeEvent.getAttributeCategoryOptions(), TextUtils.SEMICOLON ).size() != completeEvent.getOptionSize() ) )
+            {
+                return;
+            }
+
+            consumer.accept( completeEvent );
+        }
+    }
+
+    /**
+     * Maps rows of the event query to event rows. An event row spans
+     * consecutive rows which differ in attributes and notes, and is passed to
+     * the consumer when all of its rows are read, which allows for event rows
+     * to be streamed.
+     */
+    private class EventReportRowCallbackHandler
+        implements RowCallbackHandler
+    {
+        private final EventSearchParams params;
+
+        private final boolean isSuperUser;
+
+        private final Consumer<EventRow> consumer;
+
+        private final IdSchemes idSchemes;
+
+        private final Set<String> notes = new HashSet<>();
+
+        private EventRow eventRow;
+
+        EventReportRowCallbackHandler( EventSearchParams params, User user, Consumer<EventRow> consumer )
+        {
+            this.params = params;
+            this.isSuperUser = isSuper( user );
+            this.consumer = consumer;
+            this.idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
+        }
+
+        @Override
+        public void processRow( ResultSet rs )
+            throws SQLException
+        {
+            if ( rs.getString( "psi_uid" ) == null || ( params.getCategoryOptionCombo() == null && !isSuperUser && !userHasAccess( rs ) ) )
+            {
+                return;
+            }
+
+            if ( eventRow == null || !eventRow.getUid().equals( rs.getString( "psi_uid" ) ) )
+            {
+                emit();
+
+                eventRow = new EventRow();
+
+                eventRow.setUid( rs.getString( "psi_uid" ) );
+
+                eventRow.setEvent( IdSchemes.getValue( rs.getString( "psi_uid" ), rs.getString( "psi_code" ), idSchemes.getProgramStageInstanceIdScheme() ) );
+                eventRow.setTrackedEntityInstance( rs.getString( "tei_uid" ) );
+                eventRow.setTrackedEntityInstanceOrgUnit( rs.getString( "tei_ou" ) );
+                eventRow.setTrackedEntityInstanceOrgUnitName( rs.getString( "tei_ou_name" ) );
+                eventRow.setTrackedEntityInstanceCreated( rs.getString( "tei_created" ) );
+                eventRow.setTrackedEntityInstanceInactive( rs.getBoolean( "tei_inactive" ) );
+                eventRow.setDeleted( rs.getBoolean( "psi_deleted" ) );
+
+                eventRow.setProgram( IdSchemes.getValue( rs.getString( "p_uid" ), rs.getString( "p_code" ),
+                    idSchemes.getProgramIdScheme() ) );
+                eventRow.setProgramStage( IdSchemes.getValue( rs.getString( "ps_uid" ),
+                    rs.getString( "ps_code" ), idSchemes.getProgramStageIdScheme() ) );
+                eventRow.setOrgUnit( IdSchemes.getValue( rs.getString( "ou_uid" ), rs.getString( "ou_code" ),
+                    idSchemes.getOrgUnitIdScheme() ) );
+
+                ProgramType programType = ProgramType.fromValue( rs.getString( "p_type" ) );
+                if ( programType == ProgramType.WITHOUT_REGISTRATION )
+                {
+                    eventRow.setEnrollment( rs.getString( "pi_uid" ) );
+                    eventRow.setFollowup( rs.getBoolean( "pi_followup" ) );
+                }
+
+                eventRow.setTrackedEntityInstance( rs.getString( "tei_uid" ) );
+                eventRow.setOrgUnitName( rs.getString( "ou_name" ) );
+                eventRow.setDueDate( DateUtils.getIso8601NoTz( rs.getDate( "psi_duedate" ) ) );
+                eventRow.setEventDate( DateUtils.getIso8601NoTz( rs.getDate( "psi_executiondate" ) ) );
+            }
+
+            if ( rs.getString( "pav_value" ) != null && rs.getString( "ta_uid" ) != null )
+            {
+                String valueType = rs.getString( "ta_valuetype" );
+
+                Attribute attribute = new Attribute();
+                attribute.setCreated( DateUtils.getIso8601NoTz( rs.getDate( "pav_created" ) ) );
+                attribute.setLastUpdated( DateUtils.getIso8601NoTz( rs.getDate( "pav_lastupdated" ) ) );
+                attribute.setValue( rs.getString( "pav_value" ) );
+                attribute.setDisplayName( rs.getString( "ta_name" ) );
+                attribute.setValueType( valueType != null ? ValueType.valueOf( valueType.toUpperCase() ) : null );
+                attribute.setAttribute( rs.getString( "ta_uid" ) );
+
+                eventRow.getAttributes().add( attribute );
+            }
+
+            if ( !org.springframework.util.StringUtils.isEmpty( rs.getString( "psi_eventdatavalues" ) ) )
+            {
+                Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet( rs.getString( "psi_eventdatavalues" ) );
+
+                for( EventDataValue dv : eventDataValues )
+                {
+                    DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv );
+                    eventRow.getDataValues().add( dataValue );
+                }
+            }
+
+            if ( rs.getString( "psinote_value" ) != null && !notes.contains( rs.getString( "psinote_id" ) ) )
+            {
+                Note note = new Note();
+                note.setNote( rs.getString( "psinote_uid" ) );
+                note.setValue( rs.getString( "psinote_value" ) );
+                note.setStoredDate( DateUtils.getIso8601NoTz( rs.getDate( "psinote_storeddate" ) ) );
+                note.setStoredBy( rs.getString( "psinote_storedby" ) );
+
+                eventRow.getNotes().add( note );
+                notes.add( rs.getString( "psinote_id" ) );
+            }
+        }
+
+        /**
+         * Passes the last event row to the consumer. Must be invoked after all
+         * rows are processed.
+         */
+        void finish()
+        {
+            emit();
+        }
+
+        private void emit()
+        {
+            notes.clear();
+
+            if ( eventRow != null )
+            {
+                consumer.accept( eventRow );
+
+                eventRow = null;
+            }
+        }
+    }
+
+    /**
+     * Runs the given query with a cursor and passes each row to the given
+     * handler, fetching {@link #STREAM_FETCH_SIZE} rows per round trip.
+     */
+    private void streamRows( String sql, RowCallbackHandler handler )
+    {
+        jdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+
+            // Cursor based fetching requires the query to run in a transaction
+
+            connection.setAutoCommit( false );
+
+            try ( PreparedStatement statement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( STREAM_FETCH_SIZE );
+
+                try ( ResultSet rs = statement.executeQuery() )
+                {
+                    while ( rs.next() )
+                    {
+                        handler.processRow( rs );
+                    }
+                }
+            }
+            finally
+            {
+                connection.setAutoCommit( autoCommit );
+            }
+
+            return null;
+        } );
+    }
+
     private String getCommentQuery()
     {
         String sql = "select psic.programstageinstanceid as psic_id, psinote.trackedentitycommentid as psinote_id, psinote.commenttext as psinote_value, "
@@ -1038,6 +1338,10 @@ public class JdbcEventStore
 
     private String getGridOrderQuery( EventSearchParams params )
     {
+        if ( params.isCursorPaging() )
+        {
+            return "order by psi.lastupdated, psi.programstageinstanceid asc ";
+        }
 
         if ( params.getGridOrders() != null && params.getDataElements() != null && !params.getDataElements().isEmpty()
             && STATIC_EVENT_COLUMNS != null && !STATIC_EVENT_COLUMNS.isEmpty() )
@@ -1081,6 +1385,11 @@ public class JdbcEventStore
 
     private String getOrderQuery( EventSearchParams params )
     {
+        if ( params.isCursorPaging() )
+        {
+            return "order by psi_lastupdated, psi_id asc ";
+        }
+
         ArrayList<String> orderFields = new ArrayList<String>();
 
         if ( params.getGridOrders() != null )
@@ -1143,19 +1452,32 @@ public class JdbcEventStore
         return user == null || user.isSuper();
     }
 
-    private boolean userHasAccess( SqlRowSet rowSet )
+    private void setAccessiblePrograms( EventSearchParams params, User user )
+    {
+        if ( !isSuper( user ) )
+        {
+            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
+                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
+
+            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
+                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
+        }
+    }
+
+    private boolean userHasAccess( ResultSet rs )
+        throws SQLException
     {
-        if ( rowSet.wasNull() )
+        if ( rs.wasNull() )
         {
             return true;
         }
 
-        if ( rowSet.getString( "uga_access" ) == null && rowSet.getString( "ua_access" ) == null && rowSet.getString( "deco_publicaccess" ) == null )
+        if ( rs.getString( "uga_access" ) == null && rs.getString( "ua_access" ) == null && rs.getString( "deco_publicaccess" ) == null )
         {
             return false;
         }
 
-        return AccessStringHelper.isEnabled( rowSet.getString( "deco_publicaccess" ), AccessStringHelper.Permission.DATA_READ );
+        return AccessStringHelper.isEnabled( rs.getString( "deco_publicaccess" ), AccessStringHelper.Permission.DATA_READ );
     }
 
     private Set<EventDataValue> convertEventDataValueJsonIntoSet( String jsonString )
@@ -42,6 +42,17 @@ public interface CsvEventService
 {
     void writeEvents( OutputStream outputStream, Events events, boolean withHeader ) throws IOException;
 
+    /**
+     * Returns a writer which writes events to the given output stream one at
+     * a time, for exports which should not be held in memory. The writer
+     * must be closed after the last event is written.
+     *
+     * @param outputStream the output stream.
+     * @param withHeader whether to write a header row.
+     * @return a writer of events.
+     */
+    CsvEventWriter getEventWriter( OutputStream outputStream, boolean withHeader ) throws IOException;
+
     Events readEvents( InputStream inputStream, boolean skipFirst )
         throws IOException, ParseException;
 }
@@ -31,6 +31,7 @@ package org.hisp.dhis.dxf2.events.event.csv;
 import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvParser;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
@@ -69,47 +70,35 @@ public class DefaultCsvEventService
 
         for ( Event event : events.getEvents() )
         {
-            CsvEventDataValue templateDataValue = new CsvEventDataValue();
-            templateDataValue.setEvent( event.getEvent() );
-            templateDataValue.setStatus( event.getStatus() != null ? event.getStatus().name() : null );
-            templateDataValue.setProgram( event.getProgram() );
-            templateDataValue.setProgramStage( event.getProgramStage() );
-            templateDataValue.setEnrollment( event.getEnrollment() );
-            templateDataValue.setOrgUnit( event.getOrgUnit() );
-            templateDataValue.setEventDate( event.getEventDate() );
-            templateDataValue.setDueDate( event.getDueDate() );
-            templateDataValue.setStoredBy( event.getStoredBy() );
-            templateDataValue.setCompletedDate( event.getCompletedDate() );
-            templateDataValue.setCompletedBy( event.getCompletedBy() );
-
-            if ( event.getGeometry() != null )
-            {
-                templateDataValue.setGeometry( event.getGeometry().toText() );
-
-                if ( event.getGeometry().getGeometryType().equals( "Point" ) )
-                {
-                    templateDataValue.setLongitude( event.getGeometry().getCoordinate().x );
-                    templateDataValue.setLatitude( event.getGeometry().getCoordinate().y );
-                }
-            }
+            dataValues.addAll( getDataValues( event ) );
+        }
 
-            for ( DataValue value : event.getDataValues() )
-            {
-                CsvEventDataValue dataValue = new CsvEventDataValue( templateDataValue );
-                dataValue.setDataElement( value.getDataElement() );
-                dataValue.setValue( value.getValue() );
-                dataValue.setProvidedElsewhere( value.getProvidedElsewhere() );
+        writer.writeValue( outputStream, dataValues );
+    }
 
-                if ( value.getStoredBy() != null )
-                {
-                    dataValue.setStoredBy( value.getStoredBy() );
-                }
+    @Override
+    public CsvEventWriter getEventWriter( OutputStream outputStream, boolean withHeader )
+        throws IOException
+    {
+        SequenceWriter writer = CSV_MAPPER.writer( CSV_SCHEMA.withUseHeader( withHeader ) )
+            .writeValues( outputStream );
 
-                dataValues.add( dataValue );
+        return new CsvEventWriter()
+        {
+            @Override
+            public void write( Event event )
+                throws IOException
+            {
+                writer.writeAll( getDataValues( event ) );
             }
-        }
 
-        writer.writeValue( outputStream, dataValues );
+            @Override
+            public void close()
+                throws IOException
+            {
+                writer.close();
+            }
+        };
     }
 
     @Override
@@ -167,4 +156,57 @@ public class DefaultCsvEventService
 
         return events;
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the CSV rows for the given event, one per data value.
+     */
+    private static List<CsvEventDataValue> getDataValues( Event event )
+    {
+        List<CsvEventDataValue> dataValues = new ArrayList<>();
+
+        CsvEventDataValue templateDataValue = new CsvEventDataValue();
+        templateDataValue.setEvent( event.getEvent() );
+        templateDataValue.setStatus( event.getStatus() != null ? event.getStatus().name() : null );
+        templateDataValue.setProgram( event.getProgram() );
+        templateDataValue.setProgramStage( event.getProgramStage() );
+        templateDataValue.setEnrollment( event.getEnrollment() );
+        templateDataValue.setOrgUnit( event.getOrgUnit() );
+        templateDataValue.setEventDate( event.getEventDate() );
+        templateDataValue.setDueDate( event.getDueDate() );
+        templateDataValue.setStoredBy( event.getStoredBy() );
+        templateDataValue.setCompletedDate( event.getCompletedDate() );
+        templateDataValue.setCompletedBy( event.getCompletedBy() );
+
+        if ( event.getGeometry() != null )
+        {
+            templateDataValue.setGeometry( event.getGeometry().toText() );
+
+            if ( event.getGeometry().getGeometryType().equals( "Point" ) )
+            {
+                templateDataValue.setLongitude( event.getGeometry().getCoordinate().x );
+                templateDataValue.setLatitude( event.getGeometry().getCoordinate().y );
+            }
+        }
+
+        for ( DataValue value : event.getDataValues() )
+        {
+            CsvEventDataValue dataValue = new CsvEventDataValue( templateDataValue );
+            dataValue.setDataElement( value.getDataElement() );
+            dataValue.setValue( value.getValue() );
+            dataValue.setProvidedElsewhere( value.getProvidedElsewhere() );
+
+            if ( value.getStoredBy() != null )
+            {
+                dataValue.setStoredBy( value.getStoredBy() );
+            }
+
+            dataValues.add( dataValue );
+        }
+
+        return dataValues;
+    }
 }
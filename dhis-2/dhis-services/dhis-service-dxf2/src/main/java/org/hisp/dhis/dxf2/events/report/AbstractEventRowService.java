@@ -32,6 +32,8 @@ import org.hisp.dhis.dxf2.events.event.EventSearchParams;
 import org.hisp.dhis.dxf2.events.event.EventService;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.function.Consumer;
+
 /**
  * @author Abyot Asalefew Gizaw <abyota@gmail.com>
  */
@@ -52,4 +54,10 @@ public class AbstractEventRowService
         
         return eventRows;
     }
+
+    @Override
+    public void streamEventRows( EventSearchParams params, Consumer<EventRow> consumer )
+    {
+        eventService.streamEventRows( params, consumer );
+    }
 }
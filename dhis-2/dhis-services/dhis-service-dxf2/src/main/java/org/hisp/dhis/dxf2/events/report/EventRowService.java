@@ -30,10 +30,22 @@ package org.hisp.dhis.dxf2.events.report;
 
 import org.hisp.dhis.dxf2.events.event.EventSearchParams;
 
+import java.util.function.Consumer;
+
 /**
  * @author Abyot Asalefew Gizaw <abyota@gmail.com>
  */
 public interface EventRowService
 {
     EventRows getEventRows( EventSearchParams params );
+
+    /**
+     * Streams all event rows matching the given parameters to the given
+     * consumer without holding the result in memory. Paging parameters are
+     * ignored.
+     *
+     * @param params the event search parameters.
+     * @param consumer the consumer of event rows.
+     */
+    void streamEventRows( EventSearchParams params, Consumer<EventRow> consumer );
 }
@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -185,6 +186,8 @@ public abstract class AbstractTrackedEntityInstanceService
         List<org.hisp.dhis.trackedentity.TrackedEntityInstance> daoTEIs = teiService
             .getTrackedEntityInstances( queryParams, skipAccessValidation );
 
+        teiService.preloadTrackedEntityInstances( daoTEIs, params.isIncludeEnrollments(), params.isIncludeRelationships() );
+
         List<TrackedEntityInstance> dtoTeis = new ArrayList<>();
         User user = currentUserService.getCurrentUser();
 
@@ -199,6 +202,15 @@ public abstract class AbstractTrackedEntityInstanceService
         {
             List<Program> programs = manager.getAll( Program.class );
 
+            // resolve ownership once per program for the whole page
+
+            Map<Program, Set<org.hisp.dhis.trackedentity.TrackedEntityInstance>> accessibleTEIs = new HashMap<>();
+
+            for ( Program program : programs )
+            {
+                accessibleTEIs.put( program, trackerOwnershipAccessManager.getAccessibleTrackedEntityInstances( user, daoTEIs, program ) );
+            }
+
             for ( org.hisp.dhis.trackedentity.TrackedEntityInstance daoTrackedEntityInstance : daoTEIs )
             {
                 attributes = new HashSet<>( trackedEntityTypeAttributes );
@@ -206,7 +218,7 @@ public abstract class AbstractTrackedEntityInstanceService
                 // pick only those program attributes that user is the owner
                 for ( Program program : programs )
                 {
-                    if ( trackerOwnershipAccessManager.hasAccess( user, daoTrackedEntityInstance, program ) )
+                    if ( accessibleTEIs.get( program ).contains( daoTrackedEntityInstance ) )
                     {
                         attributes.addAll( program.getTrackedEntityAttributes() );
                     }
@@ -225,9 +237,12 @@ public abstract class AbstractTrackedEntityInstanceService
                 attributes.addAll( new HashSet<>( queryParams.getProgram().getTrackedEntityAttributes() ) );
             }
 
+            Set<org.hisp.dhis.trackedentity.TrackedEntityInstance> accessibleTEIs = trackerOwnershipAccessManager
+                .getAccessibleTrackedEntityInstances( user, daoTEIs, queryParams.getProgram() );
+
             for ( org.hisp.dhis.trackedentity.TrackedEntityInstance daoTrackedEntityInstance : daoTEIs )
             {
-                if ( trackerOwnershipAccessManager.hasAccess( user, daoTrackedEntityInstance, queryParams.getProgram() ) )
+                if ( accessibleTEIs.contains( daoTrackedEntityInstance ) )
                 {
                     dtoTeis.add( getTei( daoTrackedEntityInstance, attributes, params, user ) );
                 }
@@ -34,7 +34,6 @@ import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundle;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
-import org.hisp.dhis.system.util.ReflectionUtils;
 
 import java.util.Collection;
 
@@ -79,11 +78,11 @@ public class EmbeddedObjectObjectBundleHook
         {
             if ( property.isCollection() )
             {
-                ((Collection<?>) ReflectionUtils.invokeMethod( object, property.getGetterMethod() )).clear();
+                ((Collection<?>) property.getValue( object )).clear();
             }
             else
             {
-                ReflectionUtils.invokeMethod( object, property.getSetterMethod(), (Object) null );
+                property.setValue( object, null );
             }
         }
     }
@@ -94,7 +93,7 @@ public class EmbeddedObjectObjectBundleHook
         {
             if ( property.isCollection() )
             {
-                Collection<?> objects = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Collection<?> objects = property.getValue( object );
                 objects.forEach( o ->
                 {
                     handleProperty( o, bundle, property );
@@ -102,7 +101,7 @@ public class EmbeddedObjectObjectBundleHook
             }
             else
             {
-                Object o = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+                Object o = property.getValue( object );
 
                 handleProperty( o, bundle, property );
             }
@@ -121,12 +120,12 @@ public class EmbeddedObjectObjectBundleHook
         {
             if ( PeriodType.class.isAssignableFrom( embeddedProperty.getKlass() ) )
             {
-                PeriodType periodType = ReflectionUtils.invokeMethod( o, embeddedProperty.getGetterMethod() );
+                PeriodType periodType = embeddedProperty.getValue( o );
     
                 if ( periodType != null )
                 {
                     periodType = bundle.getPreheat().getPeriodTypeMap().get( periodType.getName() );
-                    ReflectionUtils.invokeMethod( o, embeddedProperty.getSetterMethod(), periodType );
+                    embeddedProperty.setValue( o, periodType );
                 }
             }
         }
@@ -0,0 +1,342 @@
+package org.hisp.dhis.dxf2.sync;
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.dxf2.common.ImportSummaryResponseExtractor;
+import org.hisp.dhis.dxf2.datavalueset.DataValueCursor;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.dxf2.synch.SystemInstance;
+import org.hisp.dhis.dxf2.webmessage.WebMessageParseException;
+import org.hisp.dhis.dxf2.webmessage.utils.WebMessageParseUtils;
+import org.hisp.dhis.system.util.CodecUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Sends changed data values to a remote instance, page by page, following a
+ * keyset cursor.
+ * <p>
+ * Each page is written gzip compressed into memory and posted by one of a
+ * fixed number of sender threads while the next pages are read, so up to
+ * the configured number of pages are in flight at a time. The importer of
+ * the remote instance detects the compression from the content itself.
+ * <p>
+ * Whenever the pages up to and including a page have all been imported, the
+ * cursor at the end of that page is passed to the checkpoint consumer, so
+ * that a failed run can be resumed after it. A page which the remote
+ * instance rejects does not stop the run, but the checkpoint does not move
+ * past it. A page which cannot be delivered within the maximum number of
+ * attempts stops the run.
+ * <p>
+ * An instance is meant for a single run.
+ */
+public class DataValueSyncEngine
+{
+    private static final Log log = LogFactory.getLog( DataValueSyncEngine.class );
+
+    /**
+     * Writes the data values after a cursor to a stream.
+     */
+    @FunctionalInterface
+    public interface PageWriter
+    {
+        /**
+         * @param after the cursor to continue after, null for the first page.
+         * @param out the stream to write the page to.
+         * @return the cursor at the end of the page, null if the page is empty.
+         */
+        DataValueCursor writePage( DataValueCursor after, OutputStream out )
+            throws IOException;
+    }
+
+    private final RestTemplate restTemplate;
+
+    private final SystemInstance instance;
+
+    private final int pagesInFlight;
+
+    private final int maxSyncAttempts;
+
+    private final AtomicInteger pagesSent = new AtomicInteger();
+
+    private final AtomicInteger pagesFailed = new AtomicInteger();
+
+    private final AtomicReference<RuntimeException> error = new AtomicReference<>();
+
+    private final Map<Integer, DataValueCursor> imported = new HashMap<>();
+
+    private int nextToCheckpoint = 0;
+
+    private boolean checkpointBlocked = false;
+
+    public DataValueSyncEngine( RestTemplate restTemplate, SystemInstance instance, int pagesInFlight, int maxSyncAttempts )
+    {
+        this.restTemplate = restTemplate;
+        this.instance = instance;
+        this.pagesInFlight = Math.max( 1, pagesInFlight );
+        this.maxSyncAttempts = maxSyncAttempts;
+    }
+
+    /**
+     * Sends the pages after the given cursor until the page writer returns an
+     * empty page or a page cannot be delivered.
+     *
+     * @param start the cursor to start after, null to start from the beginning.
+     * @param pageWriter the writer of the pages.
+     * @param checkpoint the consumer of the cursor up to which all pages are imported.
+     * @return true if all pages were sent and imported.
+     * @throws IOException if writing a page failed.
+     * @throws InterruptedException if interrupted while waiting for pages in flight.
+     */
+    public boolean sync( DataValueCursor start, PageWriter pageWriter, Consumer<DataValueCursor> checkpoint )
+        throws IOException, InterruptedException
+    {
+        AtomicInteger threadNo = new AtomicInteger();
+
+        ExecutorService senders = Executors.newFixedThreadPool( pagesInFlight, runnable -> {
+            Thread thread = new Thread( runnable, "data-value-sync-" + threadNo.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        Semaphore inFlight = new Semaphore( pagesInFlight );
+
+        DataValueCursor cursor = start;
+        int page = 0;
+
+        try
+        {
+            while ( true )
+            {
+                inFlight.acquire();
+
+                if ( error.get() != null )
+                {
+                    inFlight.release();
+                    break;
+                }
+
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                DataValueCursor end;
+
+                try ( GZIPOutputStream out = new GZIPOutputStream( buffer ) )
+                {
+                    end = pageWriter.writePage( cursor, out );
+                }
+
+                if ( end == null )
+                {
+                    inFlight.release();
+                    break;
+                }
+
+                final int pageNo = page++;
+                final byte[] body = buffer.toByteArray();
+
+                log.debug( String.format( "Sending page %d of %d compressed bytes ending at %s", pageNo + 1, body.length, end ) );
+
+                senders.execute( () -> {
+                    try
+                    {
+                        send( pageNo, body, end, checkpoint );
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                    }
+                } );
+
+                cursor = end;
+            }
+
+            senders.shutdown();
+            senders.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+        }
+        finally
+        {
+            senders.shutdownNow();
+        }
+
+        return error.get() == null && pagesFailed.get() == 0;
+    }
+
+    public int getPagesSent()
+    {
+        return pagesSent.get();
+    }
+
+    public int getPagesFailed()
+    {
+        return pagesFailed.get();
+    }
+
+    /**
+     * Returns the error which stopped the run, or null if none occurred.
+     */
+    public RuntimeException getError()
+    {
+        return error.get();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void send( int page, byte[] body, DataValueCursor end, Consumer<DataValueCursor> checkpoint )
+    {
+        final RequestCallback requestCallback = request -> {
+            request.getHeaders().setContentType( MediaType.APPLICATION_JSON );
+            request.getHeaders().add( SyncUtils.HEADER_AUTHORIZATION,
+                CodecUtils.getBasicAuthString( instance.getUsername(), instance.getPassword() ) );
+            request.getBody().write( body );
+        };
+
+        try
+        {
+            ImportSummary summary = post( requestCallback );
+
+            log.info( String.format( "Sync summary of page %d: %s", page + 1, summary ) );
+
+            boolean success = summary != null && SyncUtils.checkSummaryStatus( summary, SyncEndpoint.DATA_VALUE_SETS );
+
+            if ( !success )
+            {
+                pagesFailed.incrementAndGet();
+            }
+
+            pagesSent.incrementAndGet();
+
+            acknowledge( page, success ? end : null, checkpoint );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( String.format( "Exception during DataValues data push of page %d: %s", page + 1, ex.getMessage() ), ex );
+
+            error.compareAndSet( null, ex );
+        }
+    }
+
+    /**
+     * Posts a page, retrying on server errors up to the maximum number of
+     * attempts.
+     *
+     * @return the import summary, or null if the response could not be parsed.
+     */
+    private ImportSummary post( RequestCallback requestCallback )
+    {
+        int syncAttemptsDone = 0;
+
+        while ( true )
+        {
+            syncAttemptsDone++;
+
+            try
+            {
+                return restTemplate.execute( instance.getUrl(), HttpMethod.POST, requestCallback,
+                    new ImportSummaryResponseExtractor() );
+            }
+            catch ( HttpClientErrorException ex )
+            {
+                try
+                {
+                    return WebMessageParseUtils.fromWebMessageResponse( ex.getResponseBodyAsString(), ImportSummary.class );
+                }
+                catch ( WebMessageParseException e )
+                {
+                    log.error( "Parsing WebMessageResponse failed.", e );
+                    return null;
+                }
+            }
+            catch ( HttpServerErrorException ex )
+            {
+                log.error( "Internal error happened during DataValues push: " + ex.getResponseBodyAsString(), ex );
+
+                if ( syncAttemptsDone > maxSyncAttempts )
+                {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the outcome of a page and moves the checkpoint forward over
+     * the imported pages which directly follow it. The checkpoint never moves
+     * past a page which was not imported.
+     *
+     * @param page the page number.
+     * @param end the cursor at the end of the page, null if it was not imported.
+     * @param checkpoint the checkpoint consumer.
+     */
+    private synchronized void acknowledge( int page, DataValueCursor end, Consumer<DataValueCursor> checkpoint )
+    {
+        imported.put( page, end );
+
+        DataValueCursor reached = null;
+
+        while ( !checkpointBlocked && imported.containsKey( nextToCheckpoint ) )
+        {
+            DataValueCursor cursor = imported.remove( nextToCheckpoint );
+
+            if ( cursor == null )
+            {
+                checkpointBlocked = true;
+            }
+            else
+            {
+                reached = cursor;
+                nextToCheckpoint++;
+            }
+        }
+
+        if ( reached != null )
+        {
+            checkpoint.accept( reached );
+        }
+    }
+}
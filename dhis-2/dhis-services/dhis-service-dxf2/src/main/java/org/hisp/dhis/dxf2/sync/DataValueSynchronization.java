@@ -27,30 +27,20 @@ package org.hisp.dhis.dxf2.sync;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.io.IOException;
 import java.util.Date;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.common.IdSchemes;
-import org.hisp.dhis.datavalue.DataValueService;
-import org.hisp.dhis.dxf2.common.ImportSummaryResponseExtractor;
+import org.hisp.dhis.dxf2.datavalueset.DataValueCursor;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
-import org.hisp.dhis.dxf2.importsummary.ImportSummary;
 import org.hisp.dhis.dxf2.synch.SystemInstance;
-import org.hisp.dhis.dxf2.webmessage.WebMessageParseException;
-import org.hisp.dhis.dxf2.webmessage.utils.WebMessageParseUtils;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.util.Clock;
-import org.hisp.dhis.system.util.CodecUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RequestCallback;
-import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -60,8 +50,6 @@ public class DataValueSynchronization
 {
     private static final Log log = LogFactory.getLog( DataValueSynchronization.class );
 
-    private final DataValueService dataValueService;
-
     private final DataValueSetService dataValueSetService;
 
     private final SystemSettingManager systemSettingManager;
@@ -69,10 +57,9 @@ public class DataValueSynchronization
     private final RestTemplate restTemplate;
 
     @Autowired
-    public DataValueSynchronization( DataValueService dataValueService, DataValueSetService dataValueSetService,
-        SystemSettingManager systemSettingManager, RestTemplate restTemplate )
+    public DataValueSynchronization( DataValueSetService dataValueSetService, SystemSettingManager systemSettingManager,
+        RestTemplate restTemplate )
     {
-        this.dataValueService = dataValueService;
         this.dataValueSetService = dataValueSetService;
         this.systemSettingManager = systemSettingManager;
         this.restTemplate = restTemplate;
@@ -88,25 +75,31 @@ public class DataValueSynchronization
 
         log.info( "Starting DataValueSynchronization job." );
 
+        final Clock clock = new Clock( log ).startClock().logTime( "Starting DataValueSynchronization job" );
+
         // ---------------------------------------------------------------------
         // Set time for last success to start of process to make data saved
-        // subsequently part of next synch process without being ignored
+        // subsequently part of next synch process without being ignored. A run
+        // which resumes a failed run keeps the start time and last updated
+        // date of the failed run and continues after its checkpoint.
         // ---------------------------------------------------------------------
 
-        final Clock clock = new Clock( log ).startClock().logTime( "Starting DataValueSynchronization job" );
-        final Date lastSuccessTime = SyncUtils.getLastSyncSuccess( systemSettingManager, SettingKey.LAST_SUCCESSFUL_DATA_VALUE_SYNC );
-        final Date skipChangedBefore = (Date) systemSettingManager.getSystemSetting( SettingKey.SKIP_SYNCHRONIZATION_FOR_DATA_CHANGED_BEFORE );
-        final Date lastUpdatedAfter = lastSuccessTime.after( skipChangedBefore ) ? lastSuccessTime : skipChangedBefore;
+        SyncCheckpoint checkpoint = SyncCheckpoint.decode(
+            (String) systemSettingManager.getSystemSetting( SettingKey.DATA_VALUE_SYNC_CHECKPOINT ) );
 
-        final int objectsToSynchronize = dataValueService.getDataValueCountLastUpdatedAfter( lastUpdatedAfter, true );
+        if ( checkpoint != null )
+        {
+            log.info( "Resuming DataValueSynchronization job started at " + checkpoint.startTime + " after " + checkpoint.cursor );
+        }
+        else
+        {
+            final Date lastSuccessTime = SyncUtils.getLastSyncSuccess( systemSettingManager, SettingKey.LAST_SUCCESSFUL_DATA_VALUE_SYNC );
+            final Date skipChangedBefore = (Date) systemSettingManager.getSystemSetting( SettingKey.SKIP_SYNCHRONIZATION_FOR_DATA_CHANGED_BEFORE );
+            final Date lastUpdatedAfter = lastSuccessTime.after( skipChangedBefore ) ? lastSuccessTime : skipChangedBefore;
 
-        log.info( "DataValues last changed before " + skipChangedBefore + " will not be synchronized." );
+            log.info( "DataValues last changed before " + skipChangedBefore + " will not be synchronized." );
 
-        if ( objectsToSynchronize == 0 )
-        {
-            log.info( "Skipping synchronization, no new or updated DataValues" );
-            return SynchronizationResult
-                .newSuccessResultWithMessage( "Skipping synchronization, no new or updated DataValues" );
+            checkpoint = new SyncCheckpoint( new Date( clock.getStartTime() ), lastUpdatedAfter, null );
         }
 
         final String syncUrl = systemSettingManager.getSystemSetting( SettingKey.REMOTE_INSTANCE_URL )
@@ -116,102 +109,106 @@ public class DataValueSynchronization
         final SystemInstance instance = new SystemInstance( syncUrl, username, password );
 
         final int pageSize = (int) systemSettingManager.getSystemSetting( SettingKey.DATA_VALUES_SYNC_PAGE_SIZE );
+        final int pagesInFlight = (int) systemSettingManager.getSystemSetting( SettingKey.DATA_VALUES_SYNC_PAGES_IN_FLIGHT );
+        final int maxSyncAttempts = (int) systemSettingManager.getSystemSetting( SettingKey.MAX_SYNC_ATTEMPTS );
 
-        // Using this approach as (int) Match.ceil doesn't work until I cast int to double
-        final int pages = (objectsToSynchronize / pageSize) + ((objectsToSynchronize % pageSize == 0) ? 0 : 1);
-
-        log.info( objectsToSynchronize + " DataValues to synchronize were found." );
         log.info( "Remote server URL for DataValues POST sync: " + instance.getUrl() );
-        log.info( "DataValueSynchronization job has " + pages + " pages to sync. With page size: " + pageSize );
+        log.info( "DataValueSynchronization job syncs pages of size " + pageSize + " with up to " + pagesInFlight + " pages in flight" );
+
+        final SyncCheckpoint run = checkpoint;
+        final DataValueSyncEngine engine = new DataValueSyncEngine( restTemplate, instance, pagesInFlight, maxSyncAttempts );
 
-        boolean syncResult = true;
+        boolean syncResult;
 
-        for ( int i = 1; i <= pages; i++ )
+        try
+        {
+            syncResult = engine.sync( run.cursor,
+                ( after, out ) -> dataValueSetService.writeDataValueSetJson( run.lastUpdatedAfter, after, out, new IdSchemes(), pageSize ),
+                cursor -> systemSettingManager.saveSystemSetting( SettingKey.DATA_VALUE_SYNC_CHECKPOINT,
+                    new SyncCheckpoint( run.startTime, run.lastUpdatedAfter, cursor ).encode() ) );
+        }
+        catch ( IOException ex )
         {
-            log.info( String.format( "Synchronizing page %d with page size %d", i, pageSize ) );
+            log.error( "Writing DataValues for sync failed", ex );
+            return SynchronizationResult.newFailureResultWithMessage( "DataValueSynchronization failed. " + ex.getMessage() );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            return SynchronizationResult.newFailureResultWithMessage( "DataValueSynchronization was interrupted." );
+        }
 
-            if ( !sendDataValueSyncRequest( instance, lastUpdatedAfter, pageSize, i, SyncEndpoint.DATA_VALUE_SETS ) )
-            {
-                syncResult = false;
-            }
+        if ( syncResult && engine.getPagesSent() == 0 && run.cursor == null )
+        {
+            log.info( "Skipping synchronization, no new or updated DataValues" );
+            return SynchronizationResult
+                .newSuccessResultWithMessage( "Skipping synchronization, no new or updated DataValues" );
         }
 
         if ( syncResult )
         {
             clock.logTime( "SUCCESS! DataValueSynchronization job is done. It took" );
-            SyncUtils.setLastSyncSuccess( systemSettingManager, SettingKey.LAST_SUCCESSFUL_DATA_VALUE_SYNC, new Date( clock.getStartTime() ));
+            SyncUtils.setLastSyncSuccess( systemSettingManager, SettingKey.LAST_SUCCESSFUL_DATA_VALUE_SYNC, run.startTime );
+            systemSettingManager.deleteSystemSetting( SettingKey.DATA_VALUE_SYNC_CHECKPOINT );
             return SynchronizationResult
                 .newSuccessResultWithMessage( "DataValueSynchronization done. It took " + clock.getTime() + " ms." );
         }
 
-        return SynchronizationResult.newFailureResultWithMessage( "DataValueSynchronization failed." );
+        if ( engine.getError() != null )
+        {
+            return SynchronizationResult.newFailureResultWithMessage( "DataValueSynchronization failed. " + engine.getError().getMessage() );
+        }
+
+        return SynchronizationResult.newFailureResultWithMessage( "DataValueSynchronization failed. " +
+            engine.getPagesFailed() + " of " + engine.getPagesSent() + " pages were not imported." );
     }
 
-    private boolean sendDataValueSyncRequest( SystemInstance instance, Date lastUpdatedAfter, int syncPageSize,
-        int page, SyncEndpoint endpoint )
+    /**
+     * State of a synchronization run which is kept between runs until the run
+     * succeeds: the start time of the run, the last updated date it syncs data
+     * values from, and the cursor up to which data values are imported.
+     */
+    private static class SyncCheckpoint
     {
-        final RequestCallback requestCallback = request -> {
-            request.getHeaders().setContentType( MediaType.APPLICATION_JSON );
-            request.getHeaders().add( SyncUtils.HEADER_AUTHORIZATION,
-                CodecUtils.getBasicAuthString( instance.getUsername(), instance.getPassword() ) );
+        private static final String SEPARATOR = ";";
 
-            dataValueSetService.writeDataValueSetJson( lastUpdatedAfter, request.getBody(), new IdSchemes(),
-                syncPageSize, page );
-        };
+        private final Date startTime;
 
-        final int maxSyncAttempts = (int) systemSettingManager.getSystemSetting( SettingKey.MAX_SYNC_ATTEMPTS );
+        private final Date lastUpdatedAfter;
 
-        boolean networkErrorOccurred = true;
-        int syncAttemptsDone = 0;
+        private final DataValueCursor cursor;
 
-        ResponseExtractor<ImportSummary> responseExtractor = new ImportSummaryResponseExtractor();
-        ImportSummary summary = null;
+        SyncCheckpoint( Date startTime, Date lastUpdatedAfter, DataValueCursor cursor )
+        {
+            this.startTime = startTime;
+            this.lastUpdatedAfter = lastUpdatedAfter;
+            this.cursor = cursor;
+        }
 
-        while ( networkErrorOccurred )
+        String encode()
         {
-            networkErrorOccurred = false;
-            syncAttemptsDone++;
-            try
-            {
-                summary = restTemplate.execute( instance.getUrl(), HttpMethod.POST, requestCallback,
-                    responseExtractor );
-            }
-            catch ( HttpClientErrorException ex )
+            return startTime.getTime() + SEPARATOR + lastUpdatedAfter.getTime() + SEPARATOR + cursor.encode();
+        }
+
+        static SyncCheckpoint decode( String checkpoint )
+        {
+            if ( StringUtils.isBlank( checkpoint ) )
             {
-                String responseBody = ex.getResponseBodyAsString();
-                try
-                {
-                    summary = WebMessageParseUtils.fromWebMessageResponse( responseBody, ImportSummary.class );
-                }
-                catch ( WebMessageParseException e )
-                {
-                    log.error( "Parsing WebMessageResponse failed.", e );
-                    return false;
-                }
+                return null;
             }
-            catch ( HttpServerErrorException ex )
+
+            String[] parts = checkpoint.split( SEPARATOR );
+
+            try
             {
-                String responseBody = ex.getResponseBodyAsString();
-                log.error( "Internal error happened during DataValues push: " + responseBody, ex );
-
-                if ( syncAttemptsDone <= maxSyncAttempts )
-                {
-                    networkErrorOccurred = true;
-                }
-                else
-                {
-                    throw ex;
-                }
+                return new SyncCheckpoint( new Date( Long.parseLong( parts[0] ) ), new Date( Long.parseLong( parts[1] ) ),
+                    DataValueCursor.decode( parts[2] ) );
             }
-            catch ( ResourceAccessException ex )
+            catch ( RuntimeException ex )
             {
-                log.error( "Exception during DataValues data push: " + ex.getMessage(), ex );
-                throw ex;
+                log.warn( "Ignoring invalid DataValueSynchronization checkpoint: " + checkpoint );
+                return null;
             }
         }
-
-        log.info( "Sync summary: " + summary );
-
-        return SyncUtils.checkSummaryStatus( summary, endpoint );
     }
-}
\ No newline at end of file
+}
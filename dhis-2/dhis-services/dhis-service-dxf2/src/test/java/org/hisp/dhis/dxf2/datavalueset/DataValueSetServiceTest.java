@@ -77,12 +77,16 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 /**
  * @author Lars Helge Overland
@@ -122,6 +126,9 @@ public class DataValueSetServiceTest
     @Autowired
     private UserService _userService;
 
+    @Autowired
+    private DataValueSetStore dataValueSetStore;
+
     private Attribute attribute;
 
     private CategoryOptionCombo ocDef;
@@ -154,6 +161,8 @@ public class DataValueSetServiceTest
 
     private InputStream in;
 
+    private List<List<DataValue>> upserts = new ArrayList<>();
+
     private MockBatchHandler<DataValue> mockDataValueBatchHandler = null;
     private MockBatchHandler<DataValueAudit> mockDataValueAuditBatchHandler = null;
     private MockBatchHandlerFactory mockBatchHandlerFactory = null;
@@ -301,6 +310,12 @@ public class DataValueSetServiceTest
         registrationService.saveCompleteDataSetRegistration(completeDataSetRegistration);
     }
 
+    @Override
+    public void tearDownTest()
+    {
+        setDependency( dataValueSetService, "dataValueSetStore", dataValueSetStore, DataValueSetStore.class );
+    }
+
     // -------------------------------------------------------------------------
     // Tests
     // -------------------------------------------------------------------------
@@ -373,6 +388,66 @@ public class DataValueSetServiceTest
         assertEquals( 0, auditValues.size() );
     }
 
+    @Test
+    public void testImportDataValueSetXmlBulkUpsert()
+        throws Exception
+    {
+        DataValueSetStore store = mockDataValueSetStore( new HashMap<>() );
+
+        in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
+
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in, new ImportOptions().setBulkUpsert( true ) );
+
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( 3, summary.getImportCount().getImported() );
+        assertEquals( 0, summary.getImportCount().getUpdated() );
+
+        verify( store, times( 1 ) ).getExistingDataValues( any() );
+        verify( store, times( 1 ) ).upsertDataValues( any() );
+
+        assertEquals( 1, upserts.size() );
+        assertEquals( 3, upserts.get( 0 ).size() );
+        assertTrue( upserts.get( 0 ).contains( new DataValue( deA, peA, ouA, ocDef, ocDef ) ) );
+        assertTrue( upserts.get( 0 ).contains( new DataValue( deA, peA, ouB, ocDef, ocDef ) ) );
+        assertTrue( upserts.get( 0 ).contains( new DataValue( deA, peB, ouA, ocDef, ocDef ) ) );
+        assertEquals( 0, mockDataValueBatchHandler.getInserts().size() );
+    }
+
+    @Test
+    public void testImportDataValueSetXmlBulkUpsertSavesChunkOnDuplicate()
+        throws Exception
+    {
+        DataValue existingValue = new DataValue( deA, peA, ouA, ocDef, ocDef, "10001" );
+
+        Map<DataValue, DataValue> existingValues = new HashMap<>();
+        existingValues.put( existingValue, existingValue );
+
+        DataValueSetStore store = mockDataValueSetStore( new HashMap<>(), existingValues );
+
+        String importData =
+            "<dataValueSet xmlns=\"http://dhis2.org/schema/dxf/2.0\" idScheme=\"code\">\n" +
+            "  <dataValue dataElement=\"DE_A\" period=\"201201\" orgUnit=\"OU_A\" value=\"10001\" />\n" +
+            "  <dataValue dataElement=\"DE_A\" period=\"201201\" orgUnit=\"OU_B\" value=\"10002\" />\n" +
+            "  <dataValue dataElement=\"DE_A\" period=\"201201\" orgUnit=\"OU_A\" value=\"10003\" />\n" +
+            "</dataValueSet>\n";
+
+        in = new ByteArrayInputStream( importData.getBytes( StandardCharsets.UTF_8 ) );
+
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in, new ImportOptions().setBulkUpsert( true ) );
+
+        assertEquals( summary.getConflicts().toString(), 0, summary.getConflicts().size() );
+        assertEquals( 2, summary.getImportCount().getImported() );
+        assertEquals( 1, summary.getImportCount().getUpdated() );
+
+        verify( store, times( 2 ) ).getExistingDataValues( any() );
+        verify( store, times( 2 ) ).upsertDataValues( any() );
+
+        assertEquals( 2, upserts.size() );
+        assertEquals( 2, upserts.get( 0 ).size() );
+        assertEquals( 1, upserts.get( 1 ).size() );
+        assertEquals( "10003", upserts.get( 1 ).get( 0 ).getValue() );
+    }
+
     @Test
     public void testImportDataValuesXmlWithCodeA()
         throws Exception
@@ -1215,6 +1290,27 @@ public class DataValueSetServiceTest
         assertTrue( dataValues.contains( new DataValue( deC, peB, ouB, ocDef, ocDef ) ) );
     }
 
+    /**
+     * Replaces the data value set store of the service with a mock which
+     * returns the given existing data values for consecutive chunks and
+     * records the upserted chunks in {@link #upserts}.
+     */
+    @SafeVarargs
+    private final DataValueSetStore mockDataValueSetStore( Map<DataValue, DataValue> existingValues,
+        Map<DataValue, DataValue>... nextExistingValues )
+    {
+        DataValueSetStore store = mock( DataValueSetStore.class );
+
+        when( store.getExistingDataValues( any() ) ).thenReturn( existingValues, nextExistingValues );
+
+        doAnswer( invocation -> upserts.add( new ArrayList<>( invocation.<Collection<DataValue>>getArgument( 0 ) ) ) )
+            .when( store ).upsertDataValues( any() );
+
+        setDependency( dataValueSetService, "dataValueSetStore", store, DataValueSetStore.class );
+
+        return store;
+    }
+
     private Period createMonthlyPeriod( Date monthStart )
     {
         Date monthEnd = DateUtils.addDays( DateUtils.addMonths( monthStart, 1 ), -1 );
@@ -0,0 +1,162 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.junit.Test;
+
+/**
+ * Tests reading of data value sets through {@link ReadAheadDataValueSet}.
+ */
+public class ReadAheadDataValueSetTest
+{
+    @Test
+    public void testReadDataValuesInOrder()
+    {
+        DataValueSet source = new DataValueSet();
+        source.setDataSet( "pBOMPrpg1QX" );
+        source.setPeriod( "201401" );
+        source.setDryRun( true );
+
+        List<DataValue> dataValues = new ArrayList<>();
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            DataValue dataValue = new DataValue();
+            dataValue.setDataElement( "f7n9E0hX8qk" );
+            dataValue.setValue( String.valueOf( i ) );
+            dataValue.setFollowup( i % 2 == 0 );
+            dataValues.add( dataValue );
+        }
+
+        source.setDataValues( dataValues );
+
+        DataValueSet dataValueSet = new ReadAheadDataValueSet( source, 10 );
+
+        assertEquals( "pBOMPrpg1QX", dataValueSet.getDataSet() );
+        assertEquals( "201401", dataValueSet.getPeriod() );
+        assertEquals( Boolean.TRUE, dataValueSet.getDryRun() );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertTrue( dataValueSet.hasNextDataValue() );
+            DataValue dataValue = dataValueSet.getNextDataValue();
+            assertEquals( String.valueOf( i ), dataValue.getValue() );
+            assertEquals( i % 2 == 0, dataValue.getFollowup() );
+        }
+
+        assertFalse( dataValueSet.hasNextDataValue() );
+        assertNull( dataValueSet.getNextDataValue() );
+
+        dataValueSet.close();
+    }
+
+    @Test
+    public void testCloseStopsReaderBlockedOnFullQueue()
+        throws InterruptedException
+    {
+        AtomicInteger closeCount = new AtomicInteger();
+
+        DataValueSet source = new DataValueSet()
+        {
+            @Override
+            public boolean hasNextDataValue()
+            {
+                return true;
+            }
+
+            @Override
+            public DataValue getNextDataValue()
+            {
+                return new DataValue();
+            }
+
+            @Override
+            public void close()
+            {
+                closeCount.incrementAndGet();
+            }
+        };
+
+        DataValueSet dataValueSet = new ReadAheadDataValueSet( source, 1 );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+
+        Thread reader = getReader();
+        assertTrue( reader.isDaemon() );
+
+        dataValueSet.close();
+        dataValueSet.close();
+
+        reader.join( 5000 );
+
+        assertFalse( reader.isAlive() );
+        assertEquals( 1, closeCount.get() );
+    }
+
+    @Test( expected = RuntimeException.class )
+    public void testReadFailure()
+    {
+        DataValueSet source = new DataValueSet()
+        {
+            @Override
+            public boolean hasNextDataValue()
+            {
+                throw new IllegalStateException( "Unexpected end of input" );
+            }
+        };
+
+        DataValueSet dataValueSet = new ReadAheadDataValueSet( source );
+
+        try
+        {
+            dataValueSet.hasNextDataValue();
+        }
+        finally
+        {
+            dataValueSet.close();
+        }
+    }
+
+    private Thread getReader()
+    {
+        return Thread.getAllStackTraces().keySet().stream()
+            .filter( thread -> "data-value-set-reader".equals( thread.getName() ) && thread.isAlive() )
+            .findFirst().orElseThrow( () -> new AssertionError( "Reader thread not found" ) );
+    }
+}
@@ -0,0 +1,180 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests reading of data value sets through {@link StreamingJsonDataValueSet}.
+ */
+public class StreamingJsonDataValueSetTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadDataValueSet()
+    {
+        String json = "{\"dataSet\":\"pBOMPrpg1QX\",\"period\":\"201401\",\"orgUnit\":\"DiszpKrYNg8\",\"dryRun\":true," +
+            "\"attributeCategoryOptions\":[\"xYerKDKCefk\"],\"unknown\":{\"a\":[1,2]}," +
+            "\"dataValues\":[" +
+            "{\"dataElement\":\"f7n9E0hX8qk\",\"categoryOptionCombo\":\"Prlt0C1RF0s\",\"value\":12,\"followup\":\"true\"}," +
+            "{\"dataElement\":\"Ix2HsbDMLea\",\"value\":\"14\",\"comment\":null,\"deleted\":true}" +
+            "]}";
+
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( getInputStream( json ) );
+
+        assertEquals( "pBOMPrpg1QX", dataValueSet.getDataSet() );
+        assertEquals( "201401", dataValueSet.getPeriod() );
+        assertEquals( "DiszpKrYNg8", dataValueSet.getOrgUnit() );
+        assertEquals( Boolean.TRUE, dataValueSet.getDryRun() );
+        assertEquals( Lists.newArrayList( "xYerKDKCefk" ), dataValueSet.getAttributeCategoryOptions() );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+        DataValue dataValueA = dataValueSet.getNextDataValue();
+
+        assertEquals( "f7n9E0hX8qk", dataValueA.getDataElement() );
+        assertEquals( "Prlt0C1RF0s", dataValueA.getCategoryOptionCombo() );
+        assertEquals( "12", dataValueA.getValue() );
+        assertEquals( Boolean.TRUE, dataValueA.getFollowup() );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+        DataValue dataValueB = dataValueSet.getNextDataValue();
+
+        assertEquals( "Ix2HsbDMLea", dataValueB.getDataElement() );
+        assertEquals( "14", dataValueB.getValue() );
+        assertNull( dataValueB.getComment() );
+        assertEquals( Boolean.TRUE, dataValueB.getDeleted() );
+
+        assertFalse( dataValueSet.hasNextDataValue() );
+        assertFalse( dataValueSet.hasNextDataValue() );
+
+        dataValueSet.close();
+    }
+
+    @Test
+    public void testReadDataValueSetWithoutDataValues()
+    {
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( getInputStream( "{\"period\":\"201401\"}" ) );
+
+        assertEquals( "201401", dataValueSet.getPeriod() );
+        assertFalse( dataValueSet.hasNextDataValue() );
+
+        dataValueSet.close();
+    }
+
+    @Test
+    public void testReadPropertiesAfterDataValues()
+    {
+        String json = "{\"dataValues\":[{\"dataElement\":\"f7n9E0hX8qk\",\"value\":\"1\"}],\"orgUnit\":\"DiszpKrYNg8\"}";
+
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( getInputStream( json ) );
+
+        assertEquals( "DiszpKrYNg8", dataValueSet.getOrgUnit() );
+        assertTrue( dataValueSet.hasNextDataValue() );
+        assertEquals( "f7n9E0hX8qk", dataValueSet.getNextDataValue().getDataElement() );
+        assertFalse( dataValueSet.hasNextDataValue() );
+
+        dataValueSet.close();
+    }
+
+    @Test
+    public void testReadDryRunAfterDataValues()
+    {
+        String json = "{\"dataValues\":[{\"dataElement\":\"f7n9E0hX8qk\",\"value\":\"1\"}," +
+            "{\"dataElement\":\"Ix2HsbDMLea\",\"value\":\"2\"}]," +
+            "\"attributeCategoryOptions\":[\"xYerKDKCefk\"],\"dryRun\":true}";
+
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( getInputStream( json ) );
+
+        assertEquals( Boolean.TRUE, dataValueSet.getDryRun() );
+        assertEquals( Lists.newArrayList( "xYerKDKCefk" ), dataValueSet.getAttributeCategoryOptions() );
+
+        assertTrue( dataValueSet.hasNextDataValue() );
+        assertEquals( "f7n9E0hX8qk", dataValueSet.getNextDataValue().getDataElement() );
+        assertTrue( dataValueSet.hasNextDataValue() );
+        assertEquals( "Ix2HsbDMLea", dataValueSet.getNextDataValue().getDataElement() );
+        assertFalse( dataValueSet.hasNextDataValue() );
+
+        dataValueSet.close();
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testReadInvalidDataValueSet()
+    {
+        new StreamingJsonDataValueSet( getInputStream( "[]" ) );
+    }
+
+    @Test
+    public void testDeleteSpoolFileOnClose()
+    {
+        String json = "{\"dataValues\":[{\"dataElement\":\"f7n9E0hX8qk\",\"value\":\"1\"}]}";
+
+        DataValueSet dataValueSet = new StreamingJsonDataValueSet( getInputStream( json ), temporaryFolder.getRoot().toPath() );
+
+        assertEquals( 1, temporaryFolder.getRoot().list().length );
+
+        dataValueSet.close();
+
+        assertEquals( 0, temporaryFolder.getRoot().list().length );
+    }
+
+    @Test
+    public void testDeleteSpoolFileOnInvalidDataValueSet()
+    {
+        try
+        {
+            new StreamingJsonDataValueSet( getInputStream( "[]" ), temporaryFolder.getRoot().toPath() );
+            fail();
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            assertEquals( 0, temporaryFolder.getRoot().list().length );
+        }
+    }
+
+    private ByteArrayInputStream getInputStream( String json )
+    {
+        return new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
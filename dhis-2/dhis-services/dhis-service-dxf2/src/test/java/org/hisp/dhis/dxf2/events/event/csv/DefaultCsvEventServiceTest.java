@@ -0,0 +1,105 @@
+package org.hisp.dhis.dxf2.events.event.csv;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.hisp.dhis.dxf2.events.event.DataValue;
+import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.event.Events;
+import org.hisp.dhis.event.EventStatus;
+import org.junit.Test;
+
+public class DefaultCsvEventServiceTest
+{
+    private final CsvEventService csvEventService = new DefaultCsvEventService();
+
+    @Test
+    public void testEventWriterMatchesWriteEvents()
+        throws IOException
+    {
+        Events events = new Events();
+        events.getEvents().add( createEvent( "eventUidA1", "deUidA", "deUidB" ) );
+        events.getEvents().add( createEvent( "eventUidB1", "deUidC" ) );
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+        csvEventService.writeEvents( expected, events, true );
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        try ( CsvEventWriter writer = csvEventService.getEventWriter( actual, true ) )
+        {
+            for ( Event event : events.getEvents() )
+            {
+                writer.write( event );
+            }
+        }
+
+        assertEquals( expected.toString( StandardCharsets.UTF_8.name() ), actual.toString( StandardCharsets.UTF_8.name() ) );
+    }
+
+    @Test
+    public void testEventWriterWritesRowPerDataValue()
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try ( CsvEventWriter writer = csvEventService.getEventWriter( out, false ) )
+        {
+            writer.write( createEvent( "eventUidA1", "deUidA", "deUidB" ) );
+            writer.write( createEvent( "eventUidB1", "deUidC" ) );
+        }
+
+        String[] lines = out.toString( StandardCharsets.UTF_8.name() ).split( "\n" );
+
+        assertEquals( 3, lines.length );
+    }
+
+    private Event createEvent( String uid, String... dataElements )
+    {
+        Event event = new Event();
+        event.setEvent( uid );
+        event.setStatus( EventStatus.COMPLETED );
+        event.setProgram( "programUidA" );
+        event.setOrgUnit( "orgUnitUidA" );
+
+        for ( String dataElement : dataElements )
+        {
+            event.getDataValues().add( new DataValue( dataElement, "10" ) );
+        }
+
+        return event;
+    }
+}
@@ -0,0 +1,219 @@
+package org.hisp.dhis.dxf2.sync;
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.hisp.dhis.dxf2.datavalueset.DataValueCursor;
+import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.dxf2.synch.SystemInstance;
+import org.hisp.dhis.render.DefaultRenderService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the sync engine against a stub remote instance on a local port.
+ */
+public class DataValueSyncEngineTest
+{
+    private static final int PAGES = 10;
+
+    private HttpServer server;
+
+    private SystemInstance instance;
+
+    private final Set<String> receivedPages = Collections.synchronizedSet( new HashSet<>() );
+
+    private final Set<String> rejectedPages = new HashSet<>();
+
+    private final Set<String> failingPages = new HashSet<>();
+
+    private final AtomicReference<DataValueCursor> checkpoint = new AtomicReference<>();
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        server = HttpServer.create( new InetSocketAddress( "localhost", 0 ), 0 );
+        server.createContext( SyncEndpoint.DATA_VALUE_SETS.getPath(), this::handle );
+        server.setExecutor( Executors.newCachedThreadPool() );
+        server.start();
+
+        instance = new SystemInstance( "http://localhost:" + server.getAddress().getPort() +
+            SyncEndpoint.DATA_VALUE_SETS.getPath(), "admin", "district" );
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop( 0 );
+    }
+
+    @Test
+    public void testSyncAllPages()
+        throws Exception
+    {
+        DataValueSyncEngine engine = new DataValueSyncEngine( new RestTemplate(), instance, 3, 1 );
+
+        assertTrue( engine.sync( null, this::writePage, checkpoint::set ) );
+        assertEquals( PAGES, engine.getPagesSent() );
+        assertEquals( pageNames( 0, PAGES ), receivedPages );
+        assertEquals( cursor( PAGES - 1 ), checkpoint.get() );
+    }
+
+    @Test
+    public void testResumeAfterCursor()
+        throws Exception
+    {
+        DataValueSyncEngine engine = new DataValueSyncEngine( new RestTemplate(), instance, 3, 1 );
+
+        assertTrue( engine.sync( cursor( 5 ), this::writePage, checkpoint::set ) );
+        assertEquals( pageNames( 6, PAGES ), receivedPages );
+        assertEquals( cursor( PAGES - 1 ), checkpoint.get() );
+    }
+
+    @Test
+    public void testRejectedPageHoldsCheckpoint()
+        throws Exception
+    {
+        rejectedPages.add( "page-4" );
+
+        DataValueSyncEngine engine = new DataValueSyncEngine( new RestTemplate(), instance, 3, 1 );
+
+        assertFalse( engine.sync( null, this::writePage, checkpoint::set ) );
+        assertEquals( PAGES, engine.getPagesSent() );
+        assertEquals( 1, engine.getPagesFailed() );
+        assertEquals( pageNames( 0, PAGES ), receivedPages );
+        assertEquals( cursor( 3 ), checkpoint.get() );
+    }
+
+    @Test
+    public void testUndeliverablePageStopsRun()
+        throws Exception
+    {
+        failingPages.add( "page-2" );
+
+        DataValueSyncEngine engine = new DataValueSyncEngine( new RestTemplate(), instance, 1, 1 );
+
+        assertFalse( engine.sync( null, this::writePage, checkpoint::set ) );
+        assertTrue( engine.getError() instanceof HttpServerErrorException );
+        assertEquals( cursor( 1 ), checkpoint.get() );
+        assertFalse( receivedPages.contains( "page-4" ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writes the page following the given cursor, where the cursor of page
+     * n carries n in all its fields.
+     */
+    private DataValueCursor writePage( DataValueCursor after, OutputStream out )
+        throws IOException
+    {
+        int page = after == null ? 0 : (int) after.getDataElementId() + 1;
+
+        if ( page >= PAGES )
+        {
+            return null;
+        }
+
+        out.write( ("page-" + page).getBytes( StandardCharsets.UTF_8 ) );
+        out.close();
+
+        return cursor( page );
+    }
+
+    private void handle( HttpExchange exchange )
+        throws IOException
+    {
+        String page;
+
+        try ( InputStream in = new GZIPInputStream( exchange.getRequestBody() ) )
+        {
+            page = IOUtils.toString( in, StandardCharsets.UTF_8 );
+        }
+
+        receivedPages.add( page );
+
+        int status = failingPages.contains( page ) ? 500 : 200;
+        ImportSummary summary = new ImportSummary( rejectedPages.contains( page ) ? ImportStatus.ERROR : ImportStatus.SUCCESS );
+        byte[] response = DefaultRenderService.getJsonMapper().writeValueAsBytes( summary );
+
+        exchange.getResponseHeaders().add( "Content-Type", "application/json" );
+        exchange.sendResponseHeaders( status, response.length );
+
+        try ( OutputStream out = exchange.getResponseBody() )
+        {
+            out.write( response );
+        }
+    }
+
+    private static DataValueCursor cursor( int page )
+    {
+        return new DataValueCursor( new Timestamp( page ), page, page, page, page, page );
+    }
+
+    private static Set<String> pageNames( int from, int to )
+    {
+        List<String> names = new ArrayList<>();
+
+        for ( int i = from; i < to; i++ )
+        {
+            names.add( "page-" + i );
+        }
+
+        return new HashSet<>( names );
+    }
+}
@@ -31,7 +31,10 @@ package org.hisp.dhis.fieldfilter;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.node.Node;
+import org.hisp.dhis.node.serializers.Jackson2JsonNodeSerializer;
 import org.hisp.dhis.node.types.CollectionNode;
+import org.hisp.dhis.node.types.LazyCollectionNode;
+import org.hisp.dhis.node.types.RootNode;
 import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
@@ -47,9 +50,13 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import java.beans.PropertyDescriptor;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -149,6 +156,48 @@ public class DefaultFieldFilterServiceTest
         Assert.assertFalse( names.contains( "externalAccess" ) );
     }
 
+    @Test
+    public void toLazyCollectionNodeSerializesAsCollectionNode() throws Exception
+    {
+        final Attribute attributeA = new Attribute();
+        attributeA.setDataElementAttribute( true );
+        final Attribute attributeB = new Attribute();
+        attributeB.setDataSetAttribute( true );
+
+        final Map<String, Property> propertyMap = new HashMap<>();
+        addProperty( propertyMap, attributeA, "dataElementAttribute" );
+        addProperty( propertyMap, attributeA, "dataSetAttribute" );
+
+        final Schema rootSchema = new Schema( Attribute.class, "attribute", "attributes" );
+        rootSchema.setPropertyMap( propertyMap );
+        Mockito.when( schemaService.getDynamicSchema( Mockito.eq( Attribute.class ) ) ).thenReturn( rootSchema );
+
+        final Schema booleanSchema = new Schema( boolean.class, "boolean", "booleans" );
+        Mockito.when( schemaService.getDynamicSchema( Mockito.eq( boolean.class ) ) ).thenReturn( booleanSchema );
+
+        final List<Attribute> attributes = Arrays.asList( attributeA, attributeB );
+
+        CollectionNode node = service.toCollectionNode( Attribute.class,
+            new FieldFilterParams( attributes, Collections.emptyList() ) );
+        CollectionNode lazyNode = service.toLazyCollectionNode( Attribute.class,
+            new FieldFilterParams( attributes, Collections.emptyList() ) );
+
+        Assert.assertTrue( lazyNode instanceof LazyCollectionNode );
+        Assert.assertEquals( 2, lazyNode.getChildren().size() );
+        Assert.assertEquals( serialize( node ), serialize( lazyNode ) );
+    }
+
+    private static String serialize( CollectionNode collectionNode ) throws Exception
+    {
+        RootNode rootNode = new RootNode( "metadata" );
+        rootNode.addChild( collectionNode );
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new Jackson2JsonNodeSerializer().serialize( rootNode, outputStream );
+
+        return outputStream.toString( StandardCharsets.UTF_8.name() );
+    }
+
     private static Set<String> extractNodeNames( Collection<Node> nodes )
     {
         return nodes.stream().map( Node::getName ).collect( Collectors.toSet() );
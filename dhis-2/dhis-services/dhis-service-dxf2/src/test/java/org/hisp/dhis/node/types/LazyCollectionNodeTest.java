@@ -0,0 +1,98 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.node.Node;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyCollectionNodeTest
+{
+    private AtomicInteger builds;
+
+    private LazyCollectionNode collectionNode;
+
+    @Before
+    public void setUp()
+    {
+        builds = new AtomicInteger();
+
+        collectionNode = new LazyCollectionNode( "items", Arrays.asList( "a", "default", "b", "default", "c" ),
+            object -> !"default".equals( object ),
+            object -> {
+                builds.incrementAndGet();
+                return new SimpleNode( "item", object );
+            } );
+    }
+
+    @Test
+    public void testSizeDoesNotBuildNodes()
+    {
+        assertEquals( 3, collectionNode.getChildren().size() );
+        assertEquals( 0, builds.get() );
+    }
+
+    @Test
+    public void testGetSkipsFilteredObjects()
+    {
+        List<Node> children = collectionNode.getChildren();
+
+        assertEquals( "a", ( (SimpleNode) children.get( 0 ) ).getValue() );
+        assertEquals( "b", ( (SimpleNode) children.get( 1 ) ).getValue() );
+        assertEquals( "c", ( (SimpleNode) children.get( 2 ) ).getValue() );
+        assertEquals( 3, builds.get() );
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds()
+    {
+        collectionNode.getChildren().get( 3 );
+    }
+
+    @Test
+    public void testIteratorSkipsFilteredObjects()
+    {
+        List<Object> values = new ArrayList<>();
+
+        for ( Node child : collectionNode.getChildren() )
+        {
+            values.add( ( (SimpleNode) child ).getValue() );
+        }
+
+        assertEquals( Arrays.asList( "a", "b", "c" ), values );
+        assertEquals( 3, builds.get() );
+    }
+}
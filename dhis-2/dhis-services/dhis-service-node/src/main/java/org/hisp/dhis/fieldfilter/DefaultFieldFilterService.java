@@ -43,6 +43,7 @@ import org.hisp.dhis.node.NodeTransformer;
 import org.hisp.dhis.node.Preset;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
+import org.hisp.dhis.node.types.LazyCollectionNode;
 import org.hisp.dhis.node.types.SimpleNode;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.preheat.Preheat;
@@ -50,7 +51,6 @@ import org.hisp.dhis.schema.Property;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.security.acl.AclService;
-import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserCredentials;
@@ -149,13 +149,62 @@ public class DefaultFieldFilterService implements FieldFilterService
     @Override
     public CollectionNode toCollectionNode( Class<?> wrapper, FieldFilterParams params )
     {
-        String fields = params.getFields() == null ? "" : Joiner.on( "," ).join( params.getFields() );
-
         Schema rootSchema = schemaService.getDynamicSchema( wrapper );
 
         CollectionNode collectionNode = new CollectionNode( rootSchema.getCollectionName() );
         collectionNode.setNamespace( rootSchema.getNamespace() );
 
+        if ( params.getObjects().isEmpty() )
+        {
+            return collectionNode;
+        }
+
+        final FieldMap fieldMap = getFieldMap( params );
+
+        params.getObjects().forEach( object -> {
+            AbstractNode node = buildNode( fieldMap, wrapper, object, params.getUser(), params.getDefaults() );
+
+            if ( node != null )
+            {
+                collectionNode.addChild( node );
+            }
+        } );
+
+        return collectionNode;
+    }
+
+    @Override
+    public CollectionNode toLazyCollectionNode( Class<?> wrapper, FieldFilterParams params )
+    {
+        Schema rootSchema = schemaService.getDynamicSchema( wrapper );
+
+        if ( params.getObjects().isEmpty() )
+        {
+            CollectionNode collectionNode = new CollectionNode( rootSchema.getCollectionName() );
+            collectionNode.setNamespace( rootSchema.getNamespace() );
+
+            return collectionNode;
+        }
+
+        final FieldMap fieldMap = getFieldMap( params );
+
+        CollectionNode collectionNode = new LazyCollectionNode( rootSchema.getCollectionName(), params.getObjects(),
+            object -> !shouldExclude( object, params.getDefaults() ),
+            object -> buildNode( fieldMap, wrapper, object, params.getUser(), params.getDefaults() ) );
+        collectionNode.setNamespace( rootSchema.getNamespace() );
+
+        return collectionNode;
+    }
+
+    /**
+     * Parses the fields of the given parameters into a field map, and sets the
+     * current user on the parameters if no user is set. The objects of the
+     * parameters must not be empty.
+     */
+    private FieldMap getFieldMap( FieldFilterParams params )
+    {
+        String fields = params.getFields() == null ? "" : Joiner.on( "," ).join( params.getFields() );
+
         List<?> objects = params.getObjects();
 
         if ( params.getSkipSharing() )
@@ -166,11 +215,6 @@ public class DefaultFieldFilterService implements FieldFilterService
                 .filter( org.apache.commons.lang3.StringUtils::isNotBlank ).distinct().collect( Collectors.joining( "," ) );
         }
 
-        if ( params.getObjects().isEmpty() )
-        {
-            return collectionNode;
-        }
-
         FieldMap fieldMap = new FieldMap();
         Schema schema = schemaService.getDynamicSchema( objects.get( 0 ).getClass() );
 
@@ -186,23 +230,12 @@ public class DefaultFieldFilterService implements FieldFilterService
             fieldMap = fieldParser.parse( fields );
         }
 
-        final FieldMap finalFieldMap = fieldMap;
-
         if ( params.getUser() == null )
         {
             params.setUser( currentUserService.getCurrentUser() );
         }
 
-        objects.forEach( object -> {
-            AbstractNode node = buildNode( finalFieldMap, wrapper, object, params.getUser(), params.getDefaults() );
-
-            if ( node != null )
-            {
-                collectionNode.addChild( node );
-            }
-        } );
-
-        return collectionNode;
+        return fieldMap;
     }
 
     private AbstractNode buildNode( FieldMap fieldMap, Class<?> klass, Object object, User user, Defaults defaults )
@@ -253,7 +286,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 continue;
             }
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = property.getValue( object );
             Schema propertySchema = schemaService.getDynamicSchema( property.getKlass() );
 
             FieldMap fieldValue = fieldMap.get( fieldKey );
@@ -541,7 +574,7 @@ public class DefaultFieldFilterService implements FieldFilterService
                 continue;
             }
 
-            Object returnValue = ReflectionUtils.invokeMethod( object, property.getGetterMethod() );
+            Object returnValue = property.getValue( object );
 
             SimpleNode simpleNode = new SimpleNode( field, returnValue );
             simpleNode.setAttribute( property.isAttribute() );
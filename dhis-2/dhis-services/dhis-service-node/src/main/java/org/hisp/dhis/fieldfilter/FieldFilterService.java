@@ -51,4 +51,12 @@ public interface FieldFilterService
      * Perform inclusion/exclusion on a list of objects.
      */
     CollectionNode toCollectionNode( Class<?> wrapper, FieldFilterParams params );
+
+    /**
+     * Perform inclusion/exclusion on a list of objects, building the node of
+     * each object only when the returned collection node is serialized. The
+     * output is the same as for {@link #toCollectionNode(Class, FieldFilterParams)},
+     * while only one object node is held in memory at a time.
+     */
+    CollectionNode toLazyCollectionNode( Class<?> wrapper, FieldFilterParams params );
 }
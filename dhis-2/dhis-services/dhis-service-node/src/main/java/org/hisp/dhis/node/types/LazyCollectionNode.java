@@ -0,0 +1,167 @@
+package org.hisp.dhis.node.types;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.AbstractIterator;
+import org.hisp.dhis.node.Node;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Collection node which builds the node of each of its objects when the
+ * children are iterated instead of up front. Only the node currently being
+ * iterated is referenced by the collection, so that serializing a large list
+ * of objects does not require the full node tree in memory.
+ * <p>
+ * Objects which are not accepted by the filter are skipped, both when the
+ * children are iterated and when they are counted or accessed by index, so
+ * that counting the children does not build their nodes. The node builder
+ * must return a node for every accepted object. The children are meant to
+ * be iterated once by a serializer; children can not be added.
+ */
+public class LazyCollectionNode extends CollectionNode
+{
+    private final List<?> objects;
+
+    private final Predicate<Object> filter;
+
+    private final Function<Object, ? extends Node> nodeBuilder;
+
+    /**
+     * Positions of the accepted objects, computed on first access by index.
+     */
+    private int[] positions;
+
+    public LazyCollectionNode( String name, List<?> objects, Predicate<Object> filter, Function<Object, ? extends Node> nodeBuilder )
+    {
+        super( name );
+        this.objects = objects;
+        this.filter = filter;
+        this.nodeBuilder = nodeBuilder;
+    }
+
+    @Override
+    public <T extends Node> T addChild( T child )
+    {
+        throw new UnsupportedOperationException( "Children can not be added to a lazy collection node" );
+    }
+
+    @Override
+    public List<Node> getChildren()
+    {
+        return new LazyChildren();
+    }
+
+    /**
+     * Builds the node of the given object and makes it the only child of this
+     * collection, releasing the previously built node.
+     */
+    private Node adopt( Object object )
+    {
+        Node node = nodeBuilder.apply( object );
+
+        children.clear();
+
+        if ( node != null )
+        {
+            super.addChild( node );
+        }
+
+        return node;
+    }
+
+    private int[] getPositions()
+    {
+        if ( positions == null )
+        {
+            int[] accepted = new int[objects.size()];
+            int size = 0;
+            int position = 0;
+
+            for ( Object object : objects )
+            {
+                if ( filter.test( object ) )
+                {
+                    accepted[size++] = position;
+                }
+
+                position++;
+            }
+
+            positions = Arrays.copyOf( accepted, size );
+        }
+
+        return positions;
+    }
+
+    private class LazyChildren extends AbstractList<Node>
+    {
+        @Override
+        public Node get( int index )
+        {
+            return adopt( objects.get( getPositions()[index] ) );
+        }
+
+        @Override
+        public int size()
+        {
+            return getPositions().length;
+        }
+
+        @Override
+        public Iterator<Node> iterator()
+        {
+            Iterator<?> objectIterator = objects.iterator();
+
+            return new AbstractIterator<Node>()
+            {
+                @Override
+                protected Node computeNext()
+                {
+                    while ( objectIterator.hasNext() )
+                    {
+                        Object object = objectIterator.next();
+
+                        if ( filter.test( object ) )
+                        {
+                            return adopt( object );
+                        }
+                    }
+
+                    return endOfData();
+                }
+            };
+        }
+    }
+}
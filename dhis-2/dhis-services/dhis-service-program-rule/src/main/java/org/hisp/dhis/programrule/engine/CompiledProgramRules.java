@@ -0,0 +1,80 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.hisp.dhis.rules.models.Rule;
+import org.hisp.dhis.rules.models.RuleVariable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Program rules and program rule variables of a program mapped to rule engine
+ * models, together with the members of organisation unit groups referred to in
+ * rule conditions. Instances are immutable and shared across evaluations.
+ */
+public class CompiledProgramRules
+{
+    public static final CompiledProgramRules EMPTY = new CompiledProgramRules( ImmutableList.of(), ImmutableList.of(), ImmutableMap.of() );
+
+    private final List<Rule> rules;
+
+    private final List<RuleVariable> ruleVariables;
+
+    private final Map<String, List<String>> orgUnitGroupMembers;
+
+    public CompiledProgramRules( List<Rule> rules, List<RuleVariable> ruleVariables, Map<String, List<String>> orgUnitGroupMembers )
+    {
+        this.rules = ImmutableList.copyOf( rules );
+        this.ruleVariables = ImmutableList.copyOf( ruleVariables );
+        this.orgUnitGroupMembers = ImmutableMap.copyOf( orgUnitGroupMembers );
+    }
+
+    public boolean isEmpty()
+    {
+        return rules.isEmpty();
+    }
+
+    public List<Rule> getRules()
+    {
+        return rules;
+    }
+
+    public List<RuleVariable> getRuleVariables()
+    {
+        return ruleVariables;
+    }
+
+    public Map<String, List<String>> getOrgUnitGroupMembers()
+    {
+        return orgUnitGroupMembers;
+    }
+}
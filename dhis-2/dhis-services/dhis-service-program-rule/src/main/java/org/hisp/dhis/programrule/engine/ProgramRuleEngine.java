@@ -28,10 +28,13 @@ package org.hisp.dhis.programrule.engine;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
 import org.hisp.dhis.program.Program;
@@ -44,8 +47,12 @@ import org.hisp.dhis.rules.models.*;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.UserAuthorityGroup;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+
+import javax.annotation.PostConstruct;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -66,6 +73,12 @@ public class ProgramRuleEngine
 
     private static final Set<ProgramRuleActionType> IMPLEMENTABLE_TYPES = ProgramRuleActionType.getImplementedActions();
 
+    /**
+     * Cache of rules, rule variables and organisation unit group members
+     * mapped for the rule engine, keyed on program uid.
+     */
+    private static Cache<String, CompiledProgramRules> COMPILED_RULES_CACHE;
+
     @Autowired
     private ProgramRuleEntityMapperService programRuleEntityMapperService;
 
@@ -87,6 +100,29 @@ public class ProgramRuleEngine
     @Autowired
     private CurrentUserService currentUserService;
 
+    @Autowired
+    private Environment env;
+
+    @PostConstruct
+    public void init()
+    {
+        COMPILED_RULES_CACHE = Caffeine.newBuilder()
+            .expireAfterWrite( 12, TimeUnit.HOURS )
+            .maximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 1000 ).build();
+    }
+
+    /**
+     * Clears the compiled rule cache. Invoked when program rules, program rule
+     * variables or organisation unit groups are changed.
+     */
+    public static void invalidateCache()
+    {
+        if ( COMPILED_RULES_CACHE != null )
+        {
+            COMPILED_RULES_CACHE.invalidateAll();
+        }
+    }
+
     public List<RuleEffect> evaluateEnrollment( ProgramInstance enrollment )
     {
         if ( enrollment == null )
@@ -96,15 +132,13 @@ public class ProgramRuleEngine
 
         List<RuleEffect> ruleEffects = new ArrayList<>();
         
-        List<ProgramRule> implementableProgramRules = getImplementableRules( enrollment.getProgram() );
+        CompiledProgramRules compiledRules = getCompiledRules( enrollment.getProgram() );
 
-        if ( implementableProgramRules.isEmpty() ) // if implementation does not exist on back end side
+        if ( compiledRules.isEmpty() ) // if implementation does not exist on back end side
         {
             return ruleEffects;
         }
 
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( enrollment.getProgram() );
-
         RuleEnrollment ruleEnrollment = programRuleEntityMapperService.toMappedRuleEnrollment( enrollment );
 
         List<RuleEvent> ruleEvents = programRuleEntityMapperService.toMappedRuleEvents( enrollment.getProgramStageInstances() );
@@ -113,7 +147,7 @@ public class ProgramRuleEngine
 
         try
         {
-            ruleEngine = ruleEngineBuilder( implementableProgramRules, programRuleVariables ).events( ruleEvents ).build();
+            ruleEngine = ruleEngineBuilder( compiledRules ).events( ruleEvents ).build();
 
             ruleEffects = ruleEngine.evaluate( ruleEnrollment  ).call();
 
@@ -140,15 +174,13 @@ public class ProgramRuleEngine
 
         ProgramInstance enrollment = programStageInstance.getProgramInstance();
 
-        List<ProgramRule> implementableProgramRules = getImplementableRules( enrollment.getProgram() );
+        CompiledProgramRules compiledRules = getCompiledRules( enrollment.getProgram() );
 
-        if ( implementableProgramRules.isEmpty() )
+        if ( compiledRules.isEmpty() )
         {
             return ruleEffects;
         }
 
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService.getProgramRuleVariable( enrollment.getProgram() );
-
         RuleEnrollment ruleEnrollment = programRuleEntityMapperService.toMappedRuleEnrollment( enrollment );
 
         List<RuleEvent> ruleEvents = programRuleEntityMapperService.toMappedRuleEvents( enrollment.getProgramStageInstances(), programStageInstance );
@@ -157,7 +189,7 @@ public class ProgramRuleEngine
 
         try
         {
-            ruleEngine = ruleEngineBuilder( implementableProgramRules, programRuleVariables ).enrollment( ruleEnrollment ).events( ruleEvents ).build();
+            ruleEngine = ruleEngineBuilder( compiledRules ).enrollment( ruleEnrollment ).events( ruleEvents ).build();
 
             ruleEffects = ruleEngine.evaluate( programRuleEntityMapperService.toMappedRuleEvent( programStageInstance )  ).call();
 
@@ -173,9 +205,45 @@ public class ProgramRuleEngine
         return ruleEffects;
     }
 
-    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules, List<ProgramRuleVariable> programRuleVariables )
+    private RuleEngine.Builder ruleEngineBuilder( CompiledProgramRules compiledRules )
+    {
+        Map<String, List<String>> supplementaryData = new HashMap<>( compiledRules.getOrgUnitGroupMembers() );
+
+        if ( currentUserService.getCurrentUser() != null )
+        {
+            supplementaryData.put( USER, currentUserService.getCurrentUser().getUserCredentials().getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
+        }
+
+        return RuleEngineContext
+            .builder( programRuleExpressionEvaluator )
+            .supplementaryData( supplementaryData )
+            .calculatedValueMap( inMemoryMap.getVariablesMap() )
+            .rules( compiledRules.getRules() )
+            .ruleVariables( compiledRules.getRuleVariables() )
+            .build().toEngineBuilder().triggerEnvironment( TriggerEnvironment.SERVER );
+    }
+
+    private CompiledProgramRules getCompiledRules( Program program )
     {
-        Map<String, List<String>> supplementaryData = new HashMap<>();
+        return COMPILED_RULES_CACHE.get( program.getUid(), uid -> compileRules( program ) );
+    }
+
+    /**
+     * Maps the implementable program rules and the program rule variables of
+     * the given program to rule engine models, and resolves the members of the
+     * organisation unit groups referred to by d2:inOrgUnitGroup in rule
+     * conditions.
+     */
+    private CompiledProgramRules compileRules( Program program )
+    {
+        List<ProgramRule> programRules = getImplementableRules( program );
+
+        if ( programRules.isEmpty() )
+        {
+            return CompiledProgramRules.EMPTY;
+        }
+
+        Map<String, List<String>> orgUnitGroupMembers = new HashMap<>();
 
         List<String> orgUnitGroups = new ArrayList<>();
 
@@ -200,22 +268,14 @@ public class ProgramRuleEngine
 
         if ( !orgUnitGroups.isEmpty() )
         {
-            supplementaryData = orgUnitGroups.stream().collect( Collectors.toMap( g -> g,  g -> organisationUnitGroupService.getOrganisationUnitGroup( g ).getMembers()
+            orgUnitGroupMembers = orgUnitGroups.stream().distinct().collect( Collectors.toMap( g -> g,  g -> organisationUnitGroupService.getOrganisationUnitGroup( g ).getMembers()
                 .stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
         }
 
-        if ( currentUserService.getCurrentUser() != null )
-        {
-            supplementaryData.put( USER, currentUserService.getCurrentUser().getUserCredentials().getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
-        }
+        List<RuleVariable> ruleVariables = programRuleEntityMapperService.toMappedProgramRuleVariables(
+            programRuleVariableService.getProgramRuleVariable( program ) );
 
-        return RuleEngineContext
-            .builder( programRuleExpressionEvaluator )
-            .supplementaryData( supplementaryData )
-            .calculatedValueMap( inMemoryMap.getVariablesMap() )
-            .rules( rules )
-            .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-            .build().toEngineBuilder().triggerEnvironment( TriggerEnvironment.SERVER );
+        return new CompiledProgramRules( rules, ruleVariables, orgUnitGroupMembers );
     }
 
     private List<ProgramRule> getImplementableRules( Program program )
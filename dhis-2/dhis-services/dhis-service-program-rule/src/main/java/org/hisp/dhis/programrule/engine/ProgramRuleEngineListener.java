@@ -37,29 +37,29 @@ import org.springframework.context.event.EventListener;
 public class ProgramRuleEngineListener
 {
     @Autowired
-    private ProgramRuleEngineService programRuleEngineService;
+    private ProgramRuleEvaluationQueue programRuleEvaluationQueue;
 
     @EventListener
     public void listenEvent( TrackedEntityInstanceEnrolledEvent event )
     {
-        programRuleEngineService.evaluate( event.getProgramInstance() );
+        programRuleEvaluationQueue.evaluate( event.getProgramInstance() );
     }
 
     @EventListener
     public void listenEvent( DataValueUpdatedEvent event )
     {
-        programRuleEngineService.evaluate( event.getProgramStageInstance() );
+        programRuleEvaluationQueue.evaluate( event.getProgramStageInstance() );
     }
 
     @EventListener
     public void listenEvent( ProgramStageInstanceCompletedEvent event )
     {
-        programRuleEngineService.evaluate( event.getProgramStageInstance() );
+        programRuleEvaluationQueue.evaluate( event.getProgramStageInstance() );
     }
 
     @EventListener
     public void listenEvent( ProgramStageInstanceScheduledEvent event )
     {
-        programRuleEngineService.evaluate( event.getProgramStageInstance() );
+        programRuleEvaluationQueue.evaluate( event.getProgramStageInstance() );
     }
 }
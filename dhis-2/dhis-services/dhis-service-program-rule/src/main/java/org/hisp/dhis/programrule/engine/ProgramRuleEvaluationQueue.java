@@ -0,0 +1,447 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hisp.dhis.common.AfterCommitBuffer;
+import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramInstanceService;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.program.ProgramStageInstanceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue which evaluates program rules outside of the thread and transaction
+ * which triggered the evaluation.
+ * <p>
+ * Triggers raised within a transaction are collected and handed to the queue
+ * after the transaction commits, so that workers see the committed state and
+ * nothing is evaluated for rolled back changes. Repeated triggers for the same
+ * enrollment or event are coalesced while they wait in the queue, and workers
+ * wait for a short window after taking a trigger so that repeated triggers can
+ * accumulate.
+ * <p>
+ * Each worker has its own bounded queue, and the triggers of an enrollment
+ * or event always go to the same worker. The evaluations of an enrollment or
+ * event therefore never run at the same time, and run in the order they were
+ * triggered. A trigger raised while its enrollment or event is being
+ * evaluated is queued again, so that the rules are evaluated once more on the
+ * latest state. Producers block when the queue of the worker is full.
+ * <p>
+ * Asynchronous evaluation is off by default, and is enabled with the
+ * program_rule.async setting in dhis.conf. When it is off, and in test runs,
+ * rules are evaluated immediately in the calling thread. The queue statistics
+ * are available from the program rules API.
+ */
+public class ProgramRuleEvaluationQueue
+{
+    private static final Log log = LogFactory.getLog( ProgramRuleEvaluationQueue.class );
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private ProgramRuleEngineService programRuleEngineService;
+
+    @Autowired
+    private ProgramInstanceService programInstanceService;
+
+    @Autowired
+    private ProgramStageInstanceService programStageInstanceService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DhisConfigurationProvider config;
+
+    @Autowired
+    private Environment env;
+
+    private boolean async;
+
+    private long window;
+
+    private List<BlockingQueue<Trigger>> queues;
+
+    private AfterCommitBuffer<Trigger> buffer;
+
+    /**
+     * Triggers waiting in the queue. A trigger raised again before it is taken
+     * from the queue replaces the waiting one instead of being queued again.
+     */
+    private final ConcurrentMap<Trigger, Trigger> pending = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    private volatile boolean running;
+
+    private final AtomicLong triggered = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong evaluated = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong blocked = new AtomicLong();
+
+    @PostConstruct
+    public void init()
+    {
+        async = config.isEnabled( ConfigurationKey.PROGRAM_RULE_ASYNC ) && !SystemUtils.isTestRun( env.getActiveProfiles() );
+
+        if ( !async )
+        {
+            return;
+        }
+
+        int threads = Math.max( 1, Integer.parseInt( config.getProperty( ConfigurationKey.PROGRAM_RULE_ASYNC_THREADS ) ) );
+        int queueSize = Math.max( 1, Integer.parseInt( config.getProperty( ConfigurationKey.PROGRAM_RULE_ASYNC_QUEUE_SIZE ) ) );
+
+        window = Math.max( 0, Long.parseLong( config.getProperty( ConfigurationKey.PROGRAM_RULE_ASYNC_WINDOW ) ) );
+        queues = new ArrayList<>( threads );
+        buffer = new AfterCommitBuffer<>( LinkedHashSet::new, this::enqueue );
+        running = true;
+
+        for ( int i = 0; i < threads; i++ )
+        {
+            queues.add( new ArrayBlockingQueue<>( Math.max( 1, queueSize / threads ) ) );
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        executor = Executors.newFixedThreadPool( threads, runnable -> {
+            Thread thread = new Thread( runnable, "program-rule-evaluation-" + threadNumber.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+
+        for ( BlockingQueue<Trigger> queue : queues )
+        {
+            executor.execute( () -> work( queue ) );
+        }
+
+        log.info( String.format( "Asynchronous program rule evaluation started with %d threads and queue size %d", threads, queueSize ) );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        running = false;
+
+        if ( executor == null )
+        {
+            return;
+        }
+
+        executor.shutdownNow();
+
+        try
+        {
+            executor.awaitTermination( 10, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Triggers
+    // -------------------------------------------------------------------------
+
+    /**
+     * Requests evaluation of the program rules of the given enrollment.
+     *
+     * @param programInstance the enrollment.
+     */
+    public void evaluate( ProgramInstance programInstance )
+    {
+        if ( !async )
+        {
+            programRuleEngineService.evaluate( programInstance );
+            return;
+        }
+
+        addTrigger( new Trigger( TriggerType.ENROLLMENT, programInstance.getUid() ) );
+    }
+
+    /**
+     * Requests evaluation of the program rules of the given event.
+     *
+     * @param programStageInstance the event.
+     */
+    public void evaluate( ProgramStageInstance programStageInstance )
+    {
+        if ( !async )
+        {
+            programRuleEngineService.evaluate( programStageInstance );
+            return;
+        }
+
+        addTrigger( new Trigger( TriggerType.EVENT, programStageInstance.getUid() ) );
+    }
+
+    /**
+     * Returns counters of the queue: the number of triggers received, triggers
+     * coalesced with a waiting trigger, evaluations done and failed, producers
+     * blocked on a full queue and triggers currently waiting.
+     */
+    public Map<String, Number> getStatistics()
+    {
+        return ImmutableMap.<String, Number>builder()
+            .put( "async", async ? 1 : 0 )
+            .put( "triggered", triggered.get() )
+            .put( "coalesced", coalesced.get() )
+            .put( "evaluated", evaluated.get() )
+            .put( "failed", failed.get() )
+            .put( "blocked", blocked.get() )
+            .put( "queued", queues != null ? queues.stream().mapToInt( BlockingQueue::size ).sum() : 0 ).build();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void addTrigger( Trigger trigger )
+    {
+        triggered.incrementAndGet();
+
+        if ( !buffer.add( trigger ) )
+        {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    private void enqueue( Trigger trigger )
+    {
+        if ( pending.put( trigger, trigger ) != null )
+        {
+            coalesced.incrementAndGet();
+            return;
+        }
+
+        BlockingQueue<Trigger> queue = queues.get( Math.floorMod( trigger.hashCode(), queues.size() ) );
+
+        try
+        {
+            if ( !queue.offer( trigger ) )
+            {
+                blocked.incrementAndGet();
+
+                queue.put( trigger );
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            pending.remove( trigger );
+
+            Thread.currentThread().interrupt();
+
+            log.warn( "Interrupted while queueing program rule evaluation for " + trigger );
+        }
+    }
+
+    private void work( BlockingQueue<Trigger> queue )
+    {
+        while ( running )
+        {
+            try
+            {
+                Trigger first = queue.take();
+
+                long wait = first.created + window - System.currentTimeMillis();
+
+                if ( wait > 0 )
+                {
+                    Thread.sleep( wait );
+                }
+
+                List<Trigger> batch = new ArrayList<>( BATCH_SIZE );
+                batch.add( first );
+                queue.drainTo( batch, BATCH_SIZE - 1 );
+
+                process( batch );
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch ( Exception ex )
+            {
+                log.error( DebugUtils.getStackTrace( ex ) );
+            }
+        }
+    }
+
+    private void process( List<Trigger> batch )
+    {
+        for ( Trigger queued : batch )
+        {
+            Trigger trigger = pending.remove( queued );
+
+            if ( trigger == null )
+            {
+                continue;
+            }
+
+            SecurityContextHolder.getContext().setAuthentication( trigger.authentication );
+
+            try
+            {
+                transactionTemplate.execute( status -> {
+                    evaluate( trigger );
+                    return null;
+                } );
+
+                evaluated.incrementAndGet();
+            }
+            catch ( Exception ex )
+            {
+                failed.incrementAndGet();
+
+                log.error( "Program rule evaluation failed for " + trigger, ex );
+            }
+            finally
+            {
+                SecurityContextHolder.clearContext();
+            }
+        }
+
+        log.debug( String.format( "Evaluated program rules for batch of %d, statistics: %s", batch.size(), getStatistics() ) );
+    }
+
+    private void evaluate( Trigger trigger )
+    {
+        if ( TriggerType.ENROLLMENT == trigger.type )
+        {
+            ProgramInstance programInstance = programInstanceService.getProgramInstance( trigger.uid );
+
+            if ( programInstance != null )
+            {
+                programRuleEngineService.evaluate( programInstance );
+            }
+        }
+        else
+        {
+            ProgramStageInstance programStageInstance = programStageInstanceService.getProgramStageInstance( trigger.uid );
+
+            if ( programStageInstance != null )
+            {
+                programRuleEngineService.evaluate( programStageInstance );
+            }
+        }
+    }
+
+    private enum TriggerType
+    {
+        ENROLLMENT, EVENT
+    }
+
+    /**
+     * Request for evaluation of an enrollment or event. Equality is based on
+     * the type and uid only, so that triggers for the same entity coalesce.
+     */
+    private static class Trigger
+    {
+        private final TriggerType type;
+
+        private final String uid;
+
+        private final Authentication authentication;
+
+        private final long created;
+
+        Trigger( TriggerType type, String uid )
+        {
+            this.type = type;
+            this.uid = uid;
+            this.authentication = SecurityContextHolder.getContext().getAuthentication();
+            this.created = System.currentTimeMillis();
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+
+            if ( o == null || getClass() != o.getClass() )
+            {
+                return false;
+            }
+
+            Trigger other = (Trigger) o;
+
+            return type == other.type && Objects.equals( uid, other.uid );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash( type, uid );
+        }
+
+        @Override
+        public String toString()
+        {
+            return type + " " + uid;
+        }
+    }
+}
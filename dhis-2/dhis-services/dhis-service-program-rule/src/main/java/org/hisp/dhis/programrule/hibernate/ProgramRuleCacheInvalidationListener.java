@@ -0,0 +1,153 @@
+package org.hisp.dhis.programrule.hibernate;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.ProgramRuleAction;
+import org.hisp.dhis.programrule.ProgramRuleVariable;
+import org.hisp.dhis.programrule.engine.ProgramRuleEngine;
+
+/**
+ * Clears the compiled rule cache of the {@link ProgramRuleEngine} when program
+ * rules, program rule actions, program rule variables or organisation unit
+ * groups are inserted, updated or deleted, or when the members of an
+ * organisation unit group change. Inserts, updates and deletes clear the cache
+ * after commit. Collection changes clear the cache both when the collection is
+ * flushed and after the transaction completes, so that rules compiled by
+ * concurrent transactions in between are not kept.
+ */
+public class ProgramRuleCacheInvalidationListener
+    implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener,
+    PostCollectionUpdateEventListener, PostCollectionRecreateEventListener, PostCollectionRemoveEventListener
+{
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostInsertCommitFailed( PostInsertEvent event )
+    {
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed( PostUpdateEvent event )
+    {
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed( PostDeleteEvent event )
+    {
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        invalidateCollectionOwner( event );
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        invalidateCollectionOwner( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        invalidateCollectionOwner( event );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return isRuleEntity( persister.getMappedClass() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void invalidateCollectionOwner( AbstractCollectionEvent event )
+    {
+        Object owner = event.getAffectedOwnerOrNull();
+
+        if ( owner == null || !isRuleEntity( owner.getClass() ) )
+        {
+            return;
+        }
+
+        ProgramRuleEngine.invalidateCache();
+
+        event.getSession().getActionQueue().registerProcess(
+            ( success, session ) -> ProgramRuleEngine.invalidateCache() );
+    }
+
+    private void invalidate( Object entity )
+    {
+        if ( entity != null && isRuleEntity( entity.getClass() ) )
+        {
+            ProgramRuleEngine.invalidateCache();
+        }
+    }
+
+    private boolean isRuleEntity( Class<?> klass )
+    {
+        return ProgramRule.class.isAssignableFrom( klass ) || ProgramRuleAction.class.isAssignableFrom( klass ) ||
+            ProgramRuleVariable.class.isAssignableFrom( klass ) || OrganisationUnitGroup.class.isAssignableFrom( klass );
+    }
+}
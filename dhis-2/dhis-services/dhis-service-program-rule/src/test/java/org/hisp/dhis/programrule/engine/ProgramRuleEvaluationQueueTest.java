@@ -0,0 +1,351 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.program.ProgramInstance;
+import org.hisp.dhis.program.ProgramInstanceService;
+import org.hisp.dhis.program.ProgramStageInstance;
+import org.hisp.dhis.program.ProgramStageInstanceService;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProgramRuleEvaluationQueueTest
+{
+    private static final long TIMEOUT = 10000;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ProgramRuleEngineService programRuleEngineService;
+
+    @Mock
+    private ProgramInstanceService programInstanceService;
+
+    @Mock
+    private ProgramStageInstanceService programStageInstanceService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private Environment env;
+
+    @InjectMocks
+    private ProgramRuleEvaluationQueue queue;
+
+    @After
+    public void tearDown()
+    {
+        queue.shutdown();
+    }
+
+    @Test
+    public void testEvaluateImmediatelyWhenNotAsync()
+    {
+        when( config.isEnabled( ConfigurationKey.PROGRAM_RULE_ASYNC ) ).thenReturn( false );
+
+        queue.init();
+
+        ProgramStageInstance eventA = createEvent( "EventUidAAA" );
+
+        queue.evaluate( eventA );
+
+        verify( programRuleEngineService ).evaluate( eventA );
+        verify( programStageInstanceService, never() ).getProgramStageInstance( eventA.getUid() );
+
+        assertEquals( 0, getStatistic( "async" ) );
+    }
+
+    @Test
+    public void testEvaluateEnrollmentAndEvent()
+    {
+        init( 1 );
+
+        ProgramInstance enrollmentA = new ProgramInstance();
+        enrollmentA.setUid( "EnrollmentA" );
+
+        when( programInstanceService.getProgramInstance( enrollmentA.getUid() ) ).thenReturn( enrollmentA );
+
+        ProgramStageInstance eventA = createEvent( "EventUidAAA" );
+
+        queue.evaluate( enrollmentA );
+        queue.evaluate( eventA );
+
+        verify( programRuleEngineService, timeout( TIMEOUT ) ).evaluate( enrollmentA );
+        verify( programRuleEngineService, timeout( TIMEOUT ) ).evaluate( eventA );
+
+        queue.shutdown();
+
+        assertEquals( 2, getStatistic( "evaluated" ) );
+    }
+
+    @Test
+    public void testEvaluateOnceForTriggersInTransaction()
+    {
+        init( 1 );
+
+        ProgramStageInstance eventA = createEvent( "EventUidAAA" );
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try
+        {
+            queue.evaluate( eventA );
+            queue.evaluate( eventA );
+            queue.evaluate( eventA );
+
+            assertEquals( 0, getStatistic( "queued" ) );
+
+            TransactionSynchronizationManager.getSynchronizations().forEach( TransactionSynchronization::afterCommit );
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach( s -> s.afterCompletion( TransactionSynchronization.STATUS_COMMITTED ) );
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify( programRuleEngineService, timeout( TIMEOUT ) ).evaluate( eventA );
+
+        queue.shutdown();
+
+        verify( programRuleEngineService, times( 1 ) ).evaluate( eventA );
+
+        assertEquals( 2, getStatistic( "coalesced" ) );
+    }
+
+    @Test
+    public void testEvaluateOnceForTriggersWaitingInQueue()
+        throws InterruptedException
+    {
+        init( 1 );
+
+        ProgramStageInstance eventA = createEvent( "EventUidAAA" );
+        ProgramStageInstance eventB = createEvent( "EventUidBBB" );
+
+        CountDownLatch evaluating = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        holdEvaluation( eventA, evaluating, release );
+
+        queue.evaluate( eventA );
+
+        assertTrue( evaluating.await( TIMEOUT, TimeUnit.MILLISECONDS ) );
+
+        // The only worker is busy with event A, so event B waits in its queue
+
+        queue.evaluate( eventB );
+        queue.evaluate( eventB );
+        queue.evaluate( eventB );
+
+        release.countDown();
+
+        verify( programRuleEngineService, timeout( TIMEOUT ) ).evaluate( eventB );
+
+        queue.shutdown();
+
+        verify( programRuleEngineService, times( 1 ) ).evaluate( eventB );
+
+        assertEquals( 2, getStatistic( "coalesced" ) );
+    }
+
+    @Test
+    public void testEvaluateEventAgainAfterRunningEvaluation()
+        throws InterruptedException
+    {
+        init( 4 );
+
+        ProgramStageInstance eventA = createEvent( "EventUidAAA" );
+
+        CountDownLatch evaluating = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlapping = new AtomicInteger();
+
+        when( programRuleEngineService.evaluate( eventA ) ).thenAnswer( invocation -> {
+            if ( running.incrementAndGet() > 1 )
+            {
+                overlapping.incrementAndGet();
+            }
+
+            evaluating.countDown();
+            release.await( TIMEOUT, TimeUnit.MILLISECONDS );
+            running.decrementAndGet();
+            return null;
+        } );
+
+        queue.evaluate( eventA );
+
+        assertTrue( evaluating.await( TIMEOUT, TimeUnit.MILLISECONDS ) );
+
+        // Idle workers must not pick up event A while it is being evaluated
+
+        queue.evaluate( eventA );
+
+        verify( programRuleEngineService, after( 200 ).times( 1 ) ).evaluate( eventA );
+
+        release.countDown();
+
+        verify( programRuleEngineService, timeout( TIMEOUT ).times( 2 ) ).evaluate( eventA );
+
+        queue.shutdown();
+
+        assertEquals( 0, overlapping.get() );
+        assertEquals( 0, getStatistic( "coalesced" ) );
+    }
+
+    @Test
+    public void testNothingEvaluatedAfterRollback()
+    {
+        init( 1 );
+
+        ProgramStageInstance eventA = createEvent( "EventUidAAA" );
+
+        TransactionSynchronizationManager.initSynchronization();
+
+        try
+        {
+            queue.evaluate( eventA );
+
+            TransactionSynchronizationManager.getSynchronizations()
+                .forEach( s -> s.afterCompletion( TransactionSynchronization.STATUS_ROLLED_BACK ) );
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        queue.shutdown();
+
+        verify( programStageInstanceService, never() ).getProgramStageInstance( eventA.getUid() );
+
+        assertEquals( 1, getStatistic( "triggered" ) );
+        assertEquals( 0, getStatistic( "evaluated" ) );
+    }
+
+    @Test
+    public void testCountFailedEvaluation()
+    {
+        init( 1 );
+
+        ProgramStageInstance eventA = createEvent( "EventUidAAA" );
+
+        doThrow( new IllegalStateException( "Evaluation failed" ) ).when( programRuleEngineService ).evaluate( eventA );
+
+        queue.evaluate( eventA );
+
+        verify( programRuleEngineService, timeout( TIMEOUT ) ).evaluate( eventA );
+
+        queue.shutdown();
+
+        assertEquals( 1, getStatistic( "failed" ) );
+        assertEquals( 0, getStatistic( "evaluated" ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void init( int threads )
+    {
+        when( config.isEnabled( ConfigurationKey.PROGRAM_RULE_ASYNC ) ).thenReturn( true );
+        when( config.getProperty( ConfigurationKey.PROGRAM_RULE_ASYNC_THREADS ) ).thenReturn( String.valueOf( threads ) );
+        when( config.getProperty( ConfigurationKey.PROGRAM_RULE_ASYNC_QUEUE_SIZE ) ).thenReturn( "100" );
+        when( config.getProperty( ConfigurationKey.PROGRAM_RULE_ASYNC_WINDOW ) ).thenReturn( "0" );
+        when( env.getActiveProfiles() ).thenReturn( new String[0] );
+
+        when( transactionTemplate.execute( any() ) ).thenAnswer( invocation ->
+            invocation.<TransactionCallback<?>>getArgument( 0 ).doInTransaction( null ) );
+
+        queue.init();
+    }
+
+    /**
+     * Creates an event which the event service finds by its uid.
+     */
+    private ProgramStageInstance createEvent( String uid )
+    {
+        ProgramStageInstance event = new ProgramStageInstance();
+        event.setUid( uid );
+
+        when( programStageInstanceService.getProgramStageInstance( uid ) ).thenReturn( event );
+
+        return event;
+    }
+
+    /**
+     * Makes the evaluation of the given event signal when it starts, and wait
+     * until released.
+     */
+    private void holdEvaluation( ProgramStageInstance event, CountDownLatch evaluating, CountDownLatch release )
+    {
+        when( programRuleEngineService.evaluate( event ) ).thenAnswer( invocation -> {
+            evaluating.countDown();
+            release.await( TIMEOUT, TimeUnit.MILLISECONDS );
+            return null;
+        } );
+    }
+
+    private long getStatistic( String name )
+    {
+        return queue.getStatistics().get( name ).longValue();
+    }
+}
@@ -45,6 +45,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndex;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
@@ -122,7 +123,7 @@ public abstract class AbstractDataSetCompletenessService
     {
         final Period period = periodService.getPeriod( periodId );
 
-        final Set<Long> children = organisationUnitService.getOrganisationUnitHierarchy().getChildren(
+        final Set<Long> children = organisationUnitService.getOrganisationUnitHierarchyIndex().getChildren(
             organisationUnitId );
 
         final List<DataSet> dataSets = dataSetService.getAllDataSets();
@@ -175,14 +176,15 @@ public abstract class AbstractDataSetCompletenessService
         
         final Set<OrganisationUnitGroup> groups = groupIds != null ? Sets.newHashSet( idObjectManager.getObjects( OrganisationUnitGroup.class, groupIds ) ) : null;
         
+        final OrganisationUnitHierarchyIndex hierarchy = organisationUnitService.getOrganisationUnitHierarchyIndex();
+
         final List<DataSetCompletenessResult> results = new ArrayList<>();
         
         for ( final Long unitId : organisationUnitIds )
         {
             final OrganisationUnit unit = orgUnits.get( unitId );
 
-            final Set<Long> children = organisationUnitService.getOrganisationUnitHierarchy().getChildren(
-                unit.getId() );
+            final Set<Long> children = hierarchy.getChildren( unit.getId() );
 
             final Set<Long> relevantSources = getRelevantSources( dataSet, children, groups );
 
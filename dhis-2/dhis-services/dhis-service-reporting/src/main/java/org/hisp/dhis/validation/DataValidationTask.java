@@ -157,7 +157,7 @@ public class DataValidationTask
      */
     private void runInternal()
     {
-        if ( context.isAnalysisComplete() )
+        if ( context.isAnalysisComplete() || context.isCancelled() )
         {
             return;
         }
@@ -182,10 +182,15 @@ public class DataValidationTask
                     {
                         ruleX = r;
 
-                        if ( context.isAnalysisComplete() )
+                        if ( context.isAnalysisComplete() || context.isCancelled() )
                         {
                             break loop;
                         }
+
+                        if ( !context.isValidationNeeded( orgUnit, ruleX.getRule(), period ) )
+                        {
+                            continue;
+                        }
                         validationResults = new HashSet<>();
                         validateRule();
                         addValidationResultsToContext();
@@ -43,7 +43,9 @@ import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.dataelement.DataElementOperand;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
@@ -141,9 +143,16 @@ public class DefaultValidationService
 
         Collection<ValidationResult> results = Validator.validate( context, applicationContext, analyticsService );
 
+        if ( context.getChanges() != null )
+        {
+            replaceChangedResults( context );
+        }
+
         if ( context.isPersistResults() )
         {
             validationResultService.saveValidationResults( context.getValidationResults() );
+
+            Validator.saveCheckpoint( context );
         }
 
         clock.logTime( "Finished validation analysis, " +  context.getValidationResults().size() + " results").stop();
@@ -251,18 +260,47 @@ public class DefaultValidationService
         addRulesToContext( periodTypeXMap, parameters.getRules() );
         removeAnyUnneededPeriodTypes( periodTypeXMap );
 
+        List<ValidationResult> initialResults = validationResultService
+            .getValidationResults( parameterOrgUnit,
+                parameters.isIncludeOrgUnitDescendants(), parameters.getRules(), parameters.getPeriods() );
+
+        ValidationChanges changes = null;
+
+        List<ValidationResult> changedResults = new ArrayList<>();
+
+        if ( parameters.getChangedSince() != null )
+        {
+            changes = getChanges( parameters, periodTypeXMap.values() );
+
+            final ValidationChanges validationChanges = changes;
+
+            orgUnits = orgUnits.stream()
+                .filter( validationChanges::isChanged )
+                .collect( Collectors.toList() );
+
+            changedResults = initialResults.stream()
+                .filter( validationChanges::isChanged )
+                .collect( Collectors.toList() );
+
+            initialResults.removeAll( changedResults );
+        }
+
         ValidationRunContext.Builder builder = ValidationRunContext.newBuilder()
             .withOrgUnits( orgUnits )
             .withPeriodTypeXs( new ArrayList<>( periodTypeXMap.values() ) )
             .withConstantMap( constantService.getConstantMap() )
-            .withInitialResults( validationResultService
-                .getValidationResults( parameterOrgUnit,
-                    parameters.isIncludeOrgUnitDescendants(), parameters.getRules(), parameters.getPeriods()) )
+            .withInitialResults( initialResults )
             .withSendNotifications( parameters.isSendNotifications() )
             .withPersistResults( parameters.isPersistResults() )
             .withAttributeCombo( parameters.getAttributeOptionCombo() )
             .withDefaultAttributeCombo( categoryService.getDefaultCategoryOptionCombo() )
-            .withMaxResults( parameters.getMaxResults() );
+            .withMaxResults( parameters.getMaxResults() )
+            .withJobConfiguration( parameters.getJobConfiguration() );
+
+        if ( changes != null )
+        {
+            builder.withChanges( changes, changedResults );
+        }
 
         if ( currentUser != null )
         {
@@ -276,6 +314,179 @@ public class DefaultValidationService
         return builder.build();
     }
 
+    /**
+     * Finds the organisation unit, rule and period tuples whose data values
+     * have changed since the time given by the parameters. The data elements
+     * of each rule are found from its expressions, and a data value affects
+     * the rule periods it is included in when validating.
+     *
+     * @param parameters the validation parameters.
+     * @param periodTypeXs the period types with rules and periods.
+     * @return the changed tuples.
+     */
+    private ValidationChanges getChanges( ValidationAnalysisParams parameters,
+        Collection<PeriodTypeExtended> periodTypeXs )
+    {
+        ValidationChanges changes = new ValidationChanges();
+
+        SetMap<Long, ValidationRuleExtended> dataElementRuleXs = new SetMap<>();
+
+        Map<ValidationRuleExtended, PeriodTypeExtended> rulePeriodTypeXs = new HashMap<>();
+
+        Set<DataElement> dataElements = new HashSet<>();
+
+        for ( PeriodTypeExtended periodTypeX : periodTypeXs )
+        {
+            for ( ValidationRuleExtended ruleX : periodTypeX.getRuleXs() )
+            {
+                ValidationRule rule = ruleX.getRule();
+
+                if ( !isTrackedByDataValues( rule, parameters.getChangedSince() ) )
+                {
+                    changes.addUntrackedRule( rule );
+
+                    continue;
+                }
+
+                Set<DataElement> ruleDataElements = Sets.union(
+                    expressionService.getDataElementsInExpression( rule.getLeftSide().getExpression() ),
+                    expressionService.getDataElementsInExpression( rule.getRightSide().getExpression() ) );
+
+                for ( DataElement dataElement : ruleDataElements )
+                {
+                    dataElementRuleXs.putValue( dataElement.getId(), ruleX );
+                }
+
+                dataElements.addAll( ruleDataElements );
+
+                rulePeriodTypeXs.put( ruleX, periodTypeX );
+            }
+        }
+
+        if ( dataElements.isEmpty() )
+        {
+            return changes;
+        }
+
+        DataExportParams params = new DataExportParams()
+            .setDataElements( dataElements )
+            .setLastUpdated( parameters.getChangedSince() )
+            .setIncludeDeleted( true );
+
+        if ( parameters.getOrgUnit() != null )
+        {
+            params.setOrganisationUnits( Sets.newHashSet( parameters.getOrgUnit() ) )
+                .setIncludeChildren( parameters.isIncludeOrgUnitDescendants() );
+        }
+
+        Map<Long, Period> periodMap = new HashMap<>();
+
+        for ( DeflatedDataValue dv : dataValueService.getDeflatedDataValues( params ) )
+        {
+            Period dataPeriod = periodMap.computeIfAbsent( dv.getPeriodId(), periodService::getPeriod );
+
+            for ( ValidationRuleExtended ruleX : dataElementRuleXs.getOrDefault( dv.getDataElementId(), Collections.emptySet() ) )
+            {
+                PeriodTypeExtended periodTypeX = rulePeriodTypeXs.get( ruleX );
+
+                if ( !periodTypeX.getAllowedPeriodTypes().contains( dataPeriod.getPeriodType() ) )
+                {
+                    continue;
+                }
+
+                for ( Period period : periodTypeX.getPeriods() )
+                {
+                    if ( !dataPeriod.getStartDate().after( period.getStartDate() ) &&
+                        !dataPeriod.getEndDate().before( period.getStartDate() ) )
+                    {
+                        changes.addChange( dv.getSourceId(), ruleX.getRule(), period );
+                    }
+                }
+            }
+        }
+
+        log.info( "Incremental validation of data changed since " + parameters.getChangedSince() + ": "
+            + changes.getChangeCount() + " changed organisation unit, rule and period combinations" );
+
+        return changes;
+    }
+
+    /**
+     * Indicates whether all data a rule depends on is stored as data values,
+     * so that changes to it can be found from data value last updated times.
+     * Rules which use constants or organisation unit group counts are not
+     * tracked, as these can change without any data value changing. Rules
+     * edited since the given time are not tracked either, as their outcome
+     * may have changed for all data.
+     *
+     * @param rule the validation rule.
+     * @param changedSince the time of changes to validate.
+     * @return true if the rule only depends on data values.
+     */
+    private boolean isTrackedByDataValues( ValidationRule rule, Date changedSince )
+    {
+        if ( rule.getLastUpdated() == null || rule.getLastUpdated().after( changedSince ) )
+        {
+            return false;
+        }
+
+        if ( hasUntrackedReferences( rule.getLeftSide().getExpression() ) ||
+            hasUntrackedReferences( rule.getRightSide().getExpression() ) )
+        {
+            return false;
+        }
+
+        Set<DimensionalItemId> itemIds = Sets.union(
+            expressionService.getDimensionalItemIdsInExpression( rule.getLeftSide().getExpression() ),
+            expressionService.getDimensionalItemIdsInExpression( rule.getRightSide().getExpression() ) );
+
+        return itemIds.stream().allMatch( id -> id.getDimensionItemType() == DimensionItemType.DATA_ELEMENT
+            || id.getDimensionItemType() == DimensionItemType.DATA_ELEMENT_OPERAND );
+    }
+
+    /**
+     * Indicates whether an expression refers to constants or organisation
+     * unit group counts.
+     *
+     * @param expression the expression.
+     * @return true if the expression has such references.
+     */
+    private boolean hasUntrackedReferences( String expression )
+    {
+        return expression != null && ( ExpressionService.CONSTANT_PATTERN.matcher( expression ).find() ||
+            ExpressionService.OU_GROUP_PATTERN.matcher( expression ).find() );
+    }
+
+    /**
+     * Replaces the stored results of the changed tuples of an incremental
+     * run. Stored results which were found again are kept, so they are not
+     * notified again, and the duplicate new results are dropped. Stored
+     * results which were not found again are deleted if results are
+     * persisted.
+     *
+     * @param context the validation run context.
+     */
+    private void replaceChangedResults( ValidationRunContext context )
+    {
+        Set<ValidationResult> changedResults = new HashSet<>( context.getChangedResults() );
+
+        Set<ValidationResult> foundResults = new HashSet<>( context.getValidationResults() );
+
+        context.getValidationResults().removeIf( changedResults::contains );
+
+        for ( ValidationResult result : changedResults )
+        {
+            if ( foundResults.contains( result ) )
+            {
+                context.getValidationResults().add( result );
+            }
+            else if ( context.isPersistResults() )
+            {
+                validationResultService.deleteValidationResult( result );
+            }
+        }
+    }
+
     /**
      * Adds Periods to the context, grouped by period type.
      *
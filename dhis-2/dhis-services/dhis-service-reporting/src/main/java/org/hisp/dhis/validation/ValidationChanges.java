@@ -0,0 +1,121 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The (organisation unit, validation rule, period) tuples of an incremental
+ * validation run which may have a different outcome than in the previous
+ * run, because data they depend on has changed since.
+ * <p/>
+ * Rules which depend on data other than data values, such as event data,
+ * can't be tracked by data value changes. All tuples of such rules are
+ * changed.
+ */
+public class ValidationChanges
+{
+    private final Set<String> tuples = new HashSet<>();
+
+    private final Set<Long> orgUnitIds = new HashSet<>();
+
+    private final Set<ValidationRule> untrackedRules = new HashSet<>();
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    public void addChange( long orgUnitId, ValidationRule rule, Period period )
+    {
+        tuples.add( getKey( orgUnitId, rule.getId(), period.getId() ) );
+
+        orgUnitIds.add( orgUnitId );
+    }
+
+    public void addUntrackedRule( ValidationRule rule )
+    {
+        untrackedRules.add( rule );
+    }
+
+    /**
+     * Indicates whether the given tuple needs to be validated again.
+     *
+     * @param orgUnit the organisation unit.
+     * @param rule the validation rule.
+     * @param period the period.
+     * @return true if the tuple has changed.
+     */
+    public boolean isChanged( OrganisationUnit orgUnit, ValidationRule rule, Period period )
+    {
+        return untrackedRules.contains( rule ) ||
+            tuples.contains( getKey( orgUnit.getId(), rule.getId(), period.getId() ) );
+    }
+
+    /**
+     * Indicates whether the tuple of the given result needs to be validated
+     * again, so the stored result may be outdated.
+     *
+     * @param result the validation result.
+     * @return true if the tuple of the result has changed.
+     */
+    public boolean isChanged( ValidationResult result )
+    {
+        return isChanged( result.getOrganisationUnit(), result.getValidationRule(), result.getPeriod() );
+    }
+
+    /**
+     * Indicates whether the given organisation unit needs to be validated at
+     * all in this run.
+     *
+     * @param orgUnit the organisation unit.
+     * @return true if any tuple of the organisation unit may have changed.
+     */
+    public boolean isChanged( OrganisationUnit orgUnit )
+    {
+        return !untrackedRules.isEmpty() || orgUnitIds.contains( orgUnit.getId() );
+    }
+
+    public int getChangeCount()
+    {
+        return tuples.size();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static String getKey( long orgUnitId, long ruleId, long periodId )
+    {
+        return orgUnitId + "-" + ruleId + "-" + periodId;
+    }
+}
@@ -35,6 +35,7 @@ import org.hisp.dhis.category.CategoryOptionGroup;
 import org.hisp.dhis.common.MapMapMap;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
+import org.hisp.dhis.scheduling.JobConfiguration;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -44,6 +45,7 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class keeps track of a validation analysis. It contains information about the initial params of the analysis,
@@ -53,8 +55,6 @@ import java.util.concurrent.ConcurrentLinkedQueue;
  */
 public class ValidationRunContext
 {
-    public static final int ORG_UNITS_PER_TASK = 500;
-
     private Queue<ValidationResult> validationResults;
 
     private List<OrganisationUnit> orgUnits;
@@ -81,6 +81,16 @@ public class ValidationRunContext
 
     private boolean persistResults = false;
 
+    private JobConfiguration jobConfiguration;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean( false );
+
+    private Validator.Checkpoint checkpoint;
+
+    private ValidationChanges changes;
+
+    private Collection<ValidationResult> changedResults = new ArrayList<>();
+
     private MapMapMap<OrganisationUnit, ValidationRule, Period, List<ValidationResult>> initialValidationResults = new MapMapMap<>();
 
     public ValidationRunContext()
@@ -152,6 +162,21 @@ public class ValidationRunContext
         return persistResults;
     }
 
+    public JobConfiguration getJobConfiguration()
+    {
+        return jobConfiguration;
+    }
+
+    public ValidationChanges getChanges()
+    {
+        return changes;
+    }
+
+    public Collection<ValidationResult> getChangedResults()
+    {
+        return changedResults;
+    }
+
     public Queue<ValidationResult> getValidationResults()
     {
         return validationResults;
@@ -198,9 +223,27 @@ public class ValidationRunContext
 
     }
 
-    public int getNumberOfTasks()
+    /**
+     * Indicates whether a tuple needs to be validated. In an incremental run
+     * only tuples whose data has changed are validated.
+     */
+    public boolean isValidationNeeded( OrganisationUnit organisationUnit, ValidationRule validationRule, Period period )
+    {
+        return changes == null || changes.isChanged( organisationUnit, validationRule, period );
+    }
+
+    /**
+     * Cancels the analysis. Tasks stop at the next organisation unit and
+     * rule they would evaluate.
+     */
+    public void cancel()
+    {
+        cancelled.set( true );
+    }
+
+    public boolean isCancelled()
     {
-        return ( orgUnits.size() + ORG_UNITS_PER_TASK - 1 ) / ORG_UNITS_PER_TASK;
+        return cancelled.get();
     }
 
     public boolean isAnalysisComplete()
@@ -208,6 +251,16 @@ public class ValidationRunContext
         return validationResults.size() >= maxResults;
     }
 
+    Validator.Checkpoint getCheckpoint()
+    {
+        return checkpoint;
+    }
+
+    void setCheckpoint( Validator.Checkpoint checkpoint )
+    {
+        this.checkpoint = checkpoint;
+    }
+
     // -------------------------------------------------------------------------
     // Builder
     // -------------------------------------------------------------------------
@@ -337,6 +390,27 @@ public class ValidationRunContext
             return this;
         }
 
+        public Builder withJobConfiguration( JobConfiguration jobConfiguration )
+        {
+            this.context.jobConfiguration = jobConfiguration;
+            return this;
+        }
+
+        /**
+         * Makes this an incremental run which only validates the changed
+         * tuples.
+         *
+         * @param changes the changed tuples
+         * @param changedResults stored results of the changed tuples, which
+         *        are replaced by the results of this run
+         */
+        public Builder withChanges( ValidationChanges changes, Collection<ValidationResult> changedResults )
+        {
+            this.context.changes = changes;
+            this.context.changedResults = changedResults;
+            return this;
+        }
+
         public Builder withInitialResults( Collection<ValidationResult> results )
         {
             this.context.validationResults.addAll( results );
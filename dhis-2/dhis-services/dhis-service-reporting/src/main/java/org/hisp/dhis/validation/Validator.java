@@ -28,31 +28,89 @@ package org.hisp.dhis.validation;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.google.common.collect.Lists;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.system.notification.Notifier;
 import org.springframework.context.ApplicationContext;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Evaluates validation rules.
- * 
+ * <p/>
+ * All validation runs share one work-stealing fork/join pool. The
+ * organisation units of a run are split recursively by their estimated data
+ * volume, so that threads which run out of work take over the remaining
+ * work of busy threads instead of idling.
+ * <p/>
+ * Runs started by a job report their progress to the job notifier. When a
+ * job run which persists its results is interrupted, the organisation units
+ * it completed are kept as a checkpoint, and the next run of the job with
+ * the same rules and periods skips them. The checkpoint is only kept by
+ * {@link #saveCheckpoint(ValidationRunContext)} once the results of the
+ * interrupted run are persisted. A run which fails keeps no checkpoint, as
+ * its results are not persisted, so the next run validates all its
+ * organisation units again. Checkpoints are kept in memory by job, and
+ * expire after a few hours so that data entered in the meantime is not left
+ * unvalidated for long.
+ *
  * @author Jim Grace
  */
 public class Validator
 {
+    private static final Log log = LogFactory.getLog( Validator.class );
+
+    /**
+     * Number of tasks to aim for per thread, so that work can be stolen.
+     */
+    private static final int TASKS_PER_THREAD = 8;
+
+    /**
+     * Percentage of organisation units between progress notifications.
+     */
+    private static final int PROGRESS_STEP_PERCENT = 10;
+
+    /**
+     * Time after which a run no longer resumes from a checkpoint.
+     */
+    private static final long CHECKPOINT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis( 6 );
+
+    private static final ForkJoinPool POOL = new ForkJoinPool( getParallelism(), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread( pool );
+        thread.setName( "validation-" + thread.getPoolIndex() );
+        return thread;
+    }, null, false );
+
+    /**
+     * Checkpoints of interrupted runs by job configuration uid.
+     */
+    private static final Map<String, Checkpoint> CHECKPOINTS = new ConcurrentHashMap<>();
+
     /**
      * Evaluates validation rules for a collection of organisation units. This
-     * method breaks the job down by organisation unit. It assigns the
-     * evaluation for each organisation unit to a task that can be evaluated
-     * independently in a multi-threaded environment.
+     * method breaks the job down by organisation unit, into tasks of similar
+     * estimated data volume which are evaluated by the shared validation
+     * pool.
      * <p/>
      * Return early with no results if there are no organisation units
      * or no validation rules.
@@ -64,35 +122,55 @@ public class Validator
     {
         CategoryService categoryService = (CategoryService)
             applicationContext.getBean( CategoryService.class );
-                
-        int threadPoolSize = getThreadPoolSize( context );
 
-        if ( threadPoolSize == 0 || context.getPeriodTypeXs().isEmpty() )
+        if ( context.getOrgUnits().isEmpty() || context.getPeriodTypeXs().isEmpty() )
         {
             return context.getValidationResults();
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
+        Checkpoint checkpoint = getCheckpoint( context );
 
-        List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
+        context.setCheckpoint( checkpoint );
 
-        for ( List<OrganisationUnit> orgUnits : orgUnitLists )
-        {
-            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
-            task.init( orgUnits, context, analyticsService );
+        List<OrganisationUnit> orgUnits = context.getOrgUnits().stream()
+            .filter( ou -> !checkpoint.orgUnitIds.contains( ou.getId() ) )
+            .collect( Collectors.toList() );
 
-            executor.execute( task );
+        if ( orgUnits.size() < context.getOrgUnits().size() )
+        {
+            log.info( "Resuming validation, skipping " + ( context.getOrgUnits().size() - orgUnits.size() )
+                + " organisation units validated by an interrupted run" );
         }
 
-        executor.shutdown();
+        long[] weights = getCumulativeWeights( orgUnits, applicationContext
+            .getBean( OrganisationUnitService.class ).getOrganisationUnitDataSetCountMap() );
+
+        long taskWeight = Math.max( 1, weights[orgUnits.size()] / ( POOL.getParallelism() * TASKS_PER_THREAD ) );
+
+        Progress progress = new Progress( context.getJobConfiguration(),
+            applicationContext.getBean( Notifier.class ), orgUnits.size() );
+
+        ForkJoinTask<Void> task = POOL.submit( new ValidationAction( orgUnits, weights, 0, orgUnits.size(),
+            taskWeight, context, applicationContext, analyticsService, checkpoint, progress ) );
 
         try
         {
-            executor.awaitTermination( 6, TimeUnit.HOURS );
+            task.get();
         }
         catch ( InterruptedException e )
         {
-            executor.shutdownNow();
+            log.info( "Validation interrupted, cancelling remaining tasks" );
+
+            context.cancel();
+            task.cancel( true );
+
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException e )
+        {
+            context.cancel();
+
+            throw new IllegalStateException( "Validation failed", e.getCause() );
         }
 
         reloadAttributeOptionCombos( context.getValidationResults(), categoryService );
@@ -102,11 +180,10 @@ public class Validator
 
     /**
      * Determines how many threads we should use for testing validation rules.
-     * 
-     * @param context validation run context
+     *
      * @return number of threads we should use for testing validation rules
      */
-    private static int getThreadPoolSize( ValidationRunContext context )
+    private static int getParallelism()
     {
         int threadPoolSize = SystemUtils.getCpuCores();
 
@@ -115,14 +192,99 @@ public class Validator
             threadPoolSize--;
         }
 
-        int numberOfTasks = context.getNumberOfTasks();
+        return threadPoolSize;
+    }
 
-        if ( threadPoolSize > numberOfTasks )
+    /**
+     * Estimates the data volume of each organisation unit from the number of
+     * data sets assigned to it, and returns the cumulative estimates. Element
+     * i holds the estimate for the organisation units before index i.
+     *
+     * @param orgUnits the organisation units.
+     * @param dataSetCounts number of data sets by organisation unit id.
+     * @return the cumulative estimates.
+     */
+    private static long[] getCumulativeWeights( List<OrganisationUnit> orgUnits, Map<Long, Integer> dataSetCounts )
+    {
+        long[] weights = new long[orgUnits.size() + 1];
+
+        for ( int i = 0; i < orgUnits.size(); i++ )
         {
-            threadPoolSize = numberOfTasks;
+            weights[i + 1] = weights[i] + 1 + dataSetCounts.getOrDefault( orgUnits.get( i ).getId(), 0 );
         }
 
-        return threadPoolSize;
+        return weights;
+    }
+
+    /**
+     * Gets the checkpoint to resume from. Only runs by a job which persist
+     * their results can be resumed, as results found before an interruption
+     * are otherwise lost. The checkpoint of the job is removed, and expired
+     * checkpoints of other jobs are cleared.
+     *
+     * @param context validation run context
+     * @return the checkpoint, empty if there is nothing to resume
+     */
+    private static Checkpoint getCheckpoint( ValidationRunContext context )
+    {
+        long now = System.currentTimeMillis();
+
+        CHECKPOINTS.values().removeIf( checkpoint -> checkpoint.isExpired( now ) );
+
+        JobConfiguration jobConfiguration = context.getJobConfiguration();
+
+        if ( jobConfiguration == null )
+        {
+            return new Checkpoint( null, now );
+        }
+
+        Checkpoint checkpoint = CHECKPOINTS.remove( jobConfiguration.getUid() );
+
+        if ( !context.isPersistResults() )
+        {
+            return new Checkpoint( null, now );
+        }
+
+        String runKey = getRunKey( context );
+
+        return checkpoint != null && checkpoint.runKey.equals( runKey ) ? checkpoint : new Checkpoint( runKey, now );
+    }
+
+    /**
+     * Keeps the checkpoint of a resumable run which was interrupted, so that
+     * the next run of the job can resume from it. Must only be called after
+     * the results of the run are persisted, as the next run does not validate
+     * the organisation units of the checkpoint again.
+     *
+     * @param context validation run context
+     */
+    static void saveCheckpoint( ValidationRunContext context )
+    {
+        Checkpoint checkpoint = context.getCheckpoint();
+
+        if ( checkpoint != null && checkpoint.runKey != null && context.isCancelled() )
+        {
+            CHECKPOINTS.put( context.getJobConfiguration().getUid(), checkpoint );
+
+            log.info( "Saved validation checkpoint with " + checkpoint.orgUnitIds.size() + " organisation units" );
+        }
+    }
+
+    /**
+     * Identifies the rules and periods of a run. A checkpoint is only used
+     * by a run of the same rules and periods.
+     *
+     * @param context validation run context
+     * @return the run key
+     */
+    private static String getRunKey( ValidationRunContext context )
+    {
+        return context.getPeriodTypeXs().stream()
+            .flatMap( ptx -> Stream.concat(
+                ptx.getPeriods().stream().map( p -> "pe:" + p.getId() ),
+                ptx.getRuleXs().stream().map( r -> "vr:" + r.getRule().getUid() ) ) )
+            .sorted()
+            .collect( Collectors.joining( "," ) );
     }
 
     /**
@@ -140,4 +302,183 @@ public class Validator
                 .getCategoryOptionCombo( result.getAttributeOptionCombo().getId() ) );
         }
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Validates a range of organisation units, splitting the range in two
+     * halves of similar estimated data volume while it is larger than the
+     * task size.
+     */
+    private static class ValidationAction
+        extends RecursiveAction
+    {
+        private final List<OrganisationUnit> orgUnits;
+
+        private final long[] weights;
+
+        private final int from;
+
+        private final int to;
+
+        private final long taskWeight;
+
+        private final ValidationRunContext context;
+
+        private final ApplicationContext applicationContext;
+
+        private final AnalyticsService analyticsService;
+
+        private final Checkpoint checkpoint;
+
+        private final Progress progress;
+
+        ValidationAction( List<OrganisationUnit> orgUnits, long[] weights, int from, int to, long taskWeight,
+            ValidationRunContext context, ApplicationContext applicationContext, AnalyticsService analyticsService,
+            Checkpoint checkpoint, Progress progress )
+        {
+            this.orgUnits = orgUnits;
+            this.weights = weights;
+            this.from = from;
+            this.to = to;
+            this.taskWeight = taskWeight;
+            this.context = context;
+            this.applicationContext = applicationContext;
+            this.analyticsService = analyticsService;
+            this.checkpoint = checkpoint;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( context.isCancelled() || context.isAnalysisComplete() || from == to )
+            {
+                return;
+            }
+
+            if ( to - from > 1 && weights[to] - weights[from] > taskWeight )
+            {
+                int mid = getMidpoint();
+
+                invokeAll( range( from, mid ), range( mid, to ) );
+            }
+            else
+            {
+                validate();
+            }
+        }
+
+        private void validate()
+        {
+            List<OrganisationUnit> taskOrgUnits = orgUnits.subList( from, to );
+
+            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
+            task.init( taskOrgUnits, context, analyticsService );
+
+            try
+            {
+                task.run();
+            }
+            catch ( RuntimeException ex ) // Logged by the task
+            {
+                context.cancel();
+
+                throw ex;
+            }
+
+            if ( !context.isCancelled() && !context.isAnalysisComplete() )
+            {
+                taskOrgUnits.forEach( ou -> checkpoint.orgUnitIds.add( ou.getId() ) );
+            }
+
+            progress.add( taskOrgUnits.size() );
+        }
+
+        /**
+         * Finds the index which splits the range into two halves of similar
+         * estimated data volume, leaving at least one organisation unit in
+         * each half.
+         */
+        private int getMidpoint()
+        {
+            long half = weights[from] + ( weights[to] - weights[from] ) / 2;
+
+            int index = Arrays.binarySearch( weights, from + 1, to, half );
+
+            int mid = index >= 0 ? index : -index - 1;
+
+            return Math.min( Math.max( mid, from + 1 ), to - 1 );
+        }
+
+        private ValidationAction range( int from, int to )
+        {
+            return new ValidationAction( orgUnits, weights, from, to, taskWeight,
+                context, applicationContext, analyticsService, checkpoint, progress );
+        }
+    }
+
+    /**
+     * Organisation units completed by a run. A resumed run keeps the
+     * creation time of the checkpoint, so that the checkpoint expires a
+     * fixed time after the first of the runs started.
+     */
+    static class Checkpoint
+    {
+        private final String runKey;
+
+        private final long created;
+
+        private final Set<Long> orgUnitIds = ConcurrentHashMap.newKeySet();
+
+        Checkpoint( String runKey, long created )
+        {
+            this.runKey = runKey;
+            this.created = created;
+        }
+
+        boolean isExpired( long now )
+        {
+            return now - created > CHECKPOINT_MAX_AGE_MILLIS;
+        }
+    }
+
+    /**
+     * Reports the progress of a run to the job notifier.
+     */
+    private static class Progress
+    {
+        private final JobConfiguration jobConfiguration;
+
+        private final Notifier notifier;
+
+        private final int total;
+
+        private final AtomicInteger done = new AtomicInteger();
+
+        Progress( JobConfiguration jobConfiguration, Notifier notifier, int total )
+        {
+            this.jobConfiguration = jobConfiguration;
+            this.notifier = notifier;
+            this.total = total;
+        }
+
+        void add( int count )
+        {
+            int after = done.addAndGet( count );
+            int before = after - count;
+
+            if ( jobConfiguration != null && step( after ) > step( before ) )
+            {
+                notifier.update( jobConfiguration, "Validated " + after + " of " + total + " organisation units" );
+            }
+        }
+
+        private int step( int count )
+        {
+            return (int) ( count * 100L / total / PROGRESS_STEP_PERCENT );
+        }
+    }
 }
@@ -47,6 +47,8 @@ import org.hisp.dhis.scheduling.AbstractJob;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobType;
 import org.hisp.dhis.scheduling.parameters.MonitoringJobParameters;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.validation.ValidationAnalysisParams;
 import org.hisp.dhis.validation.ValidationRule;
@@ -81,6 +83,9 @@ public class MonitoringJob
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
     // -------------------------------------------------------------------------
     // Implementation
     // -------------------------------------------------------------------------
@@ -97,6 +102,8 @@ public class MonitoringJob
     {
         notifier.clear( jobConfiguration ).notify( jobConfiguration, "Monitoring data" );
 
+        Date startTime = new Date();
+
         MonitoringJobParameters monitoringJobParameters = (MonitoringJobParameters) jobConfiguration.getJobParameters();
 
         //TODO improve collection usage
@@ -140,16 +147,28 @@ public class MonitoringJob
                     .reduce( Lists.newArrayList(), ListUtils::union );
             }
 
+            Date changedSince = monitoringJobParameters.isIncremental() ?
+                monitoringJobParameters.getLastSuccessfulRun() : null;
+
             ValidationAnalysisParams parameters = validationService
                 .newParamsBuilder( validationRules, null, periods )
                 .withIncludeOrgUnitDescendants( true )
                 .withMaxResults( ValidationService.MAX_SCHEDULED_ALERTS )
                 .withSendNotifications( monitoringJobParameters.isSendNotifications() )
                 .withPersistResults( monitoringJobParameters.isPersistResults() )
+                .withJobConfiguration( jobConfiguration )
+                .withChangedSince( changedSince )
                 .build();
 
             validationService.validationAnalysis( parameters );
 
+            if ( !Thread.currentThread().isInterrupted() ) // Not stopped before completion
+            {
+                monitoringJobParameters.setLastSuccessfulRun( startTime ); // Saved with the job configuration
+
+                systemSettingManager.saveSystemSetting( SettingKey.LAST_SUCCESSFUL_MONITORING, startTime );
+            }
+
             notifier.notify( jobConfiguration, INFO, "Monitoring process done", true );
         }
         catch ( RuntimeException ex )
@@ -35,6 +35,8 @@ import org.hisp.dhis.category.CategoryCombo;
 import org.hisp.dhis.category.CategoryOption;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.*;
 import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
@@ -53,6 +55,7 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
@@ -97,6 +100,9 @@ public class ValidationServiceTest
     @Autowired
     private PeriodService periodService;
 
+    @Autowired
+    private ConstantService constantService;
+
     private DataElement dataElementA;
     private DataElement dataElementB;
     private DataElement dataElementC;
@@ -1143,4 +1149,95 @@ public class ValidationServiceTest
 
         assertResultsEmpty( results );
     }
+
+    @Test
+    public void testIncrementalValidationSkipsUnchangedData()
+    {
+        useDataValue( dataElementA, periodA, sourceB, "1" );
+        useDataValue( dataElementB, periodA, sourceB, "2" );
+        useDataValue( dataElementC, periodA, sourceB, "3" );
+        useDataValue( dataElementD, periodA, sourceB, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid
+
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( createValidationResult( validationRuleA, periodA, sourceB, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( validationService
+            .newParamsBuilder( null, sourceB, getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) )
+            .withChangedSince( getDate( 2000, 1, 1 ) ).build() );
+
+        assertResultsEquals( reference, results );
+
+        results = validationService.validationAnalysis( validationService
+            .newParamsBuilder( null, sourceB, getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) )
+            .withChangedSince( getLaterDate( 1 ) ).build() );
+
+        assertResultsEmpty( results );
+    }
+
+    @Test
+    public void testIncrementalValidationOfEditedRule()
+    {
+        useDataValue( dataElementA, periodA, sourceB, "1" );
+        useDataValue( dataElementB, periodA, sourceB, "2" );
+        useDataValue( dataElementC, periodA, sourceB, "3" );
+        useDataValue( dataElementD, periodA, sourceB, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA ); // Invalid
+
+        validationRuleA.setLastUpdated( getLaterDate( 2 ) ); // Edited after the last run
+
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( createValidationResult( validationRuleA, periodA, sourceB, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( validationService
+            .newParamsBuilder( null, sourceB, getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) )
+            .withChangedSince( getLaterDate( 1 ) ).build() );
+
+        assertResultsEquals( reference, results );
+    }
+
+    @Test
+    public void testIncrementalValidationOfRuleWithConstant()
+    {
+        useDataValue( dataElementA, periodA, sourceB, "1" );
+        useDataValue( dataElementB, periodA, sourceB, "2" );
+
+        Constant constant = createConstant( 'A', 10.0 );
+        constantService.saveConstant( constant );
+
+        Expression expressionSum = new Expression(
+            "#{" + dataElementA.getUid() + "} + #{" + dataElementB.getUid() + "}", "expressionSum" );
+        Expression expressionConstant = new Expression( "C{" + constant.getUid() + "}", "expressionConstant" );
+
+        expressionService.addExpression( expressionSum );
+        expressionService.addExpression( expressionConstant );
+
+        ValidationRule validationRuleConstant = createValidationRule( "Y", equal_to,
+            expressionSum, expressionConstant, periodTypeMonthly ); // deA(sum) + deB(sum) = [constant]
+
+        validationRuleService.saveValidationRule( validationRuleConstant ); // Invalid
+
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( createValidationResult( validationRuleConstant, periodA, sourceB, defaultCombo, 3.0, 10.0, dayInPeriodA ) );
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( validationService
+            .newParamsBuilder( null, sourceB, getDate( 2000, 2, 1 ), getDate( 2000, 6, 1 ) )
+            .withChangedSince( getLaterDate( 1 ) ).build() );
+
+        assertResultsEquals( reference, results );
+    }
+
+    /**
+     * Gets a date the given number of hours from now, after any data or
+     * metadata saved by a test.
+     */
+    private Date getLaterDate( int hours )
+    {
+        return new Date( System.currentTimeMillis() + TimeUnit.HOURS.toMillis( hours ) );
+    }
 }
@@ -0,0 +1,310 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.analytics.AnalyticsService;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.expression.Operator;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.system.notification.Notifier;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith( MockitoJUnitRunner.class )
+public class ValidatorTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private ApplicationContext applicationContext;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private OrganisationUnitService organisationUnitService;
+
+    @Mock
+    private Notifier notifier;
+
+    private final Set<Long> validated = ConcurrentHashMap.newKeySet();
+
+    private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+
+    private final Set<Long> cancelling = ConcurrentHashMap.newKeySet();
+
+    private List<OrganisationUnit> orgUnits;
+
+    private PeriodTypeExtended periodTypeX;
+
+    private JobConfiguration jobConfiguration;
+
+    @Before
+    public void setUp()
+    {
+        orgUnits = Lists.newArrayList( createOrganisationUnit( 'A' ), createOrganisationUnit( 'B' ),
+            createOrganisationUnit( 'C' ), createOrganisationUnit( 'D' ) );
+
+        for ( int i = 0; i < orgUnits.size(); i++ )
+        {
+            orgUnits.get( i ).setId( i + 1 );
+        }
+
+        PeriodType periodType = new MonthlyPeriodType();
+
+        Period period = createPeriod( periodType, getDate( 2019, 1, 1 ), getDate( 2019, 1, 31 ) );
+        period.setId( 1 );
+
+        ValidationRule rule = createValidationRule( 'A', Operator.equal_to, createExpression2( 'A', "1" ),
+            createExpression2( 'B', "1" ), periodType );
+
+        periodTypeX = new PeriodTypeExtended( periodType );
+        periodTypeX.addPeriod( period );
+        periodTypeX.getRuleXs().add( new ValidationRuleExtended( rule ) );
+
+        jobConfiguration = new JobConfiguration();
+        jobConfiguration.setUid( CodeGenerator.generateUid() );
+
+        when( applicationContext.getBean( CategoryService.class ) ).thenReturn( categoryService );
+        when( applicationContext.getBean( OrganisationUnitService.class ) ).thenReturn( organisationUnitService );
+        when( applicationContext.getBean( Notifier.class ) ).thenReturn( notifier );
+        when( applicationContext.getBean( DataValidationTask.NAME ) ).thenAnswer( invocation -> new RecordingTask() );
+        when( organisationUnitService.getOrganisationUnitDataSetCountMap() ).thenReturn( Collections.emptyMap() );
+    }
+
+    @Test
+    public void testValidateAllOrgUnits()
+    {
+        Validator.validate( createContext(), applicationContext, mock( AnalyticsService.class ) );
+
+        assertEquals( getIds( orgUnits ), validated );
+    }
+
+    @Test
+    public void testFailurePropagates()
+    {
+        failing.add( 2L );
+
+        try
+        {
+            Validator.validate( createContext(), applicationContext, mock( AnalyticsService.class ) );
+
+            fail( "Expected the task failure to propagate" );
+        }
+        catch ( IllegalStateException ex )
+        {
+            assertTrue( ex.getCause() instanceof IllegalArgumentException );
+        }
+    }
+
+    @Test
+    public void testNoResumeAfterFailure()
+    {
+        failing.add( 2L );
+
+        ValidationRunContext context = createContext();
+
+        try
+        {
+            Validator.validate( context, applicationContext, mock( AnalyticsService.class ) );
+
+            fail( "Expected the task failure to propagate" );
+        }
+        catch ( IllegalStateException expected )
+        {
+        }
+
+        Validator.saveCheckpoint( context );
+
+        failing.clear();
+        validated.clear();
+
+        Validator.validate( createContext(), applicationContext, mock( AnalyticsService.class ) );
+
+        assertEquals( getIds( orgUnits ), validated );
+    }
+
+    @Test
+    public void testResumeAfterCancel()
+    {
+        cancelling.add( 2L );
+
+        ValidationRunContext context = createContext();
+
+        Validator.validate( context, applicationContext, mock( AnalyticsService.class ) );
+        Validator.saveCheckpoint( context );
+
+        // Org units validated while the run was cancelled may not be in the
+        // checkpoint, so they may or may not be validated again
+
+        Set<Long> started = Sets.newHashSet( validated );
+        started.remove( 2L );
+
+        cancelling.clear();
+        validated.clear();
+
+        Validator.validate( createContext(), applicationContext, mock( AnalyticsService.class ) );
+
+        assertTrue( validated.contains( 2L ) );
+        assertTrue( validated.containsAll( Sets.difference( getIds( orgUnits ), started ) ) );
+
+        validated.clear();
+
+        Validator.validate( createContext(), applicationContext, mock( AnalyticsService.class ) );
+
+        assertEquals( getIds( orgUnits ), validated );
+    }
+
+    @Test
+    public void testNoResumeWithoutSavedCheckpoint()
+    {
+        cancelling.add( 2L );
+
+        Validator.validate( createContext(), applicationContext, mock( AnalyticsService.class ) );
+
+        cancelling.clear();
+        validated.clear();
+
+        Validator.validate( createContext(), applicationContext, mock( AnalyticsService.class ) );
+
+        assertEquals( getIds( orgUnits ), validated );
+    }
+
+    @Test
+    public void testNoResumeWithoutPersistingResults()
+    {
+        cancelling.add( 2L );
+
+        ValidationRunContext context = createContext();
+
+        Validator.validate( context, applicationContext, mock( AnalyticsService.class ) );
+        Validator.saveCheckpoint( context );
+
+        cancelling.clear();
+        validated.clear();
+
+        Validator.validate( createContext( false ), applicationContext, mock( AnalyticsService.class ) );
+
+        assertEquals( getIds( orgUnits ), validated );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private ValidationRunContext createContext()
+    {
+        return createContext( true );
+    }
+
+    private ValidationRunContext createContext( boolean persistResults )
+    {
+        return ValidationRunContext.newBuilder()
+            .withOrgUnits( orgUnits )
+            .withPeriodTypeXs( Lists.newArrayList( periodTypeX ) )
+            .withConstantMap( new HashMap<>() )
+            .withDefaultAttributeCombo( createCategoryOptionCombo( 'A' ) )
+            .withMaxResults( 500 )
+            .withPersistResults( persistResults )
+            .withJobConfiguration( jobConfiguration )
+            .build();
+    }
+
+    private static Set<Long> getIds( List<OrganisationUnit> orgUnits )
+    {
+        Set<Long> ids = new HashSet<>();
+        orgUnits.forEach( ou -> ids.add( ou.getId() ) );
+        return ids;
+    }
+
+    /**
+     * Records the organisation units it validates, fails for the
+     * organisation units marked as failing, and cancels the run at the
+     * organisation units marked as cancelling.
+     */
+    private class RecordingTask
+        implements ValidationTask
+    {
+        private List<OrganisationUnit> taskOrgUnits;
+
+        private ValidationRunContext context;
+
+        @Override
+        public void init( List<OrganisationUnit> orgUnits, ValidationRunContext context,
+            AnalyticsService analyticsService )
+        {
+            this.taskOrgUnits = orgUnits;
+            this.context = context;
+        }
+
+        @Override
+        public void run()
+        {
+            for ( OrganisationUnit orgUnit : taskOrgUnits )
+            {
+                validated.add( orgUnit.getId() );
+
+                if ( failing.contains( orgUnit.getId() ) )
+                {
+                    throw new IllegalArgumentException( "Failed to validate " + orgUnit.getUid() );
+                }
+
+                if ( cancelling.contains( orgUnit.getId() ) )
+                {
+                    context.cancel();
+                }
+            }
+        }
+    }
+}
@@ -82,8 +82,8 @@ public class DefaultMergeService implements MergeService
 
             if ( property.isCollection() )
             {
-                Collection<T> sourceObject = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
-                Collection<T> targetObject = ReflectionUtils.invokeMethod( target, property.getGetterMethod() );
+                Collection<T> sourceObject = property.getValue( source );
+                Collection<T> targetObject = property.getValue( target );
 
                 if ( sourceObject == null )
                 {
@@ -110,15 +110,15 @@ public class DefaultMergeService implements MergeService
                     targetObject.addAll( sourceObject );
                 }
 
-                ReflectionUtils.invokeMethod( target, property.getSetterMethod(), targetObject );
+                property.setValue( target, targetObject );
             }
             else
             {
-                Object sourceObject = ReflectionUtils.invokeMethod( source, property.getGetterMethod() );
+                Object sourceObject = property.getValue( source );
 
                 if ( mergeParams.getMergeMode().isReplace() || ( mergeParams.getMergeMode().isMerge() && sourceObject != null ) )
                 {
-                    ReflectionUtils.invokeMethod( target, property.getSetterMethod(), sourceObject );
+                    property.setValue( target, sourceObject );
                 }
             }
         }
@@ -220,6 +220,8 @@ public class DefaultSchemaService
                 schema.setPropertyMap( Maps.newHashMap( propertyIntrospectorService.getPropertiesMap( schema.getKlass() ) ) );
             }
 
+            initPropertyAccessors( schema );
+
             classSchemaMap.put( schema.getKlass(), schema );
             singularSchemaMap.put( schema.getSingular(), schema );
             pluralSchemaMap.put( schema.getPlural(), schema );
@@ -279,6 +281,8 @@ public class DefaultSchemaService
         schema.setDisplayName( beautify( schema ) );
         schema.setPropertyMap( new HashMap<>( propertyIntrospectorService.getPropertiesMap( schema.getKlass() ) ) );
 
+        initPropertyAccessors( schema );
+
         updateSelf( schema );
 
         dynamicClassSchemaMap.put( klass, schema );
@@ -286,6 +290,15 @@ public class DefaultSchemaService
         return schema;
     }
 
+    /**
+     * Sets accessors generated once per property, which are used instead of
+     * reflection for reading and writing property values.
+     */
+    private void initPropertyAccessors( Schema schema )
+    {
+        schema.getPropertyMap().values().forEach( property -> property.setPropertyAccessor( LambdaPropertyAccessor.create( property ) ) );
+    }
+
     private String getName( Class<?> klass )
     {
         if ( AnnotationUtils.isAnnotationPresent( klass, JacksonXmlRootElement.class ) )
@@ -0,0 +1,199 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.primitives.Primitives;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * {@link PropertyAccessor} which invokes the getter and setter of a property
+ * through functions generated with {@link LambdaMetafactory}. Invocation
+ * costs the same as a direct method call once the functions are compiled,
+ * as opposed to {@link Method#invoke(Object, Object...)} which checks access
+ * and boxes arguments on every call.
+ */
+public class LambdaPropertyAccessor
+    implements PropertyAccessor
+{
+    private static final Log log = LogFactory.getLog( LambdaPropertyAccessor.class );
+
+    private final Function<Object, Object> getter;
+
+    private final BiConsumer<Object, Object> setter;
+
+    private LambdaPropertyAccessor( Function<Object, Object> getter, BiConsumer<Object, Object> setter )
+    {
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * Creates an accessor for the given property. Falls back to a
+     * {@link ReflectivePropertyAccessor} when functions can not be generated
+     * for the getter or setter, for instance when the declaring class is not
+     * public.
+     *
+     * @param property the property.
+     * @return a property accessor.
+     */
+    public static PropertyAccessor create( Property property )
+    {
+        Method getterMethod = property.getGetterMethod();
+        Method setterMethod = property.getSetterMethod();
+
+        if ( !isSupported( getterMethod ) || !isSupported( setterMethod ) )
+        {
+            return new ReflectivePropertyAccessor( getterMethod, setterMethod );
+        }
+
+        try
+        {
+            return new LambdaPropertyAccessor( createGetter( getterMethod ), createSetter( setterMethod ) );
+        }
+        catch ( Throwable ex )
+        {
+            log.debug( String.format( "Using reflection for property '%s' of %s: %s", property.getName(),
+                property.getKlass(), ex.getMessage() ) );
+
+            return new ReflectivePropertyAccessor( getterMethod, setterMethod );
+        }
+    }
+
+    @Override
+    public Object get( Object target )
+    {
+        if ( target == null || getter == null )
+        {
+            return null;
+        }
+
+        return getter.apply( target );
+    }
+
+    @Override
+    public void set( Object target, Object value )
+    {
+        if ( target == null || setter == null )
+        {
+            return;
+        }
+
+        setter.accept( target, value );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether a function can be generated for the given method. Null
+     * methods are supported and result in a null function.
+     */
+    private static boolean isSupported( Method method )
+    {
+        if ( method == null )
+        {
+            return true;
+        }
+
+        Class<?> declaringClass = method.getDeclaringClass();
+
+        return Modifier.isPublic( method.getModifiers() ) && !Modifier.isStatic( method.getModifiers() ) &&
+            Modifier.isPublic( declaringClass.getModifiers() ) && isVisible( declaringClass );
+    }
+
+    /**
+     * Indicates whether the given class is visible from the class loader of
+     * this class, which defines the generated functions.
+     */
+    private static boolean isVisible( Class<?> klass )
+    {
+        try
+        {
+            return Class.forName( klass.getName(), false, LambdaPropertyAccessor.class.getClassLoader() ) == klass;
+        }
+        catch ( ClassNotFoundException ex )
+        {
+            return false;
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Function<Object, Object> createGetter( Method method )
+        throws Throwable
+    {
+        if ( method == null )
+        {
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect( method );
+
+        CallSite site = LambdaMetafactory.metafactory( lookup, "apply",
+            MethodType.methodType( Function.class ),
+            MethodType.methodType( Object.class, Object.class ),
+            handle,
+            MethodType.methodType( Primitives.wrap( method.getReturnType() ), method.getDeclaringClass() ) );
+
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static BiConsumer<Object, Object> createSetter( Method method )
+        throws Throwable
+    {
+        if ( method == null || method.getParameterCount() != 1 )
+        {
+            return null;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect( method );
+
+        CallSite site = LambdaMetafactory.metafactory( lookup, "accept",
+            MethodType.methodType( BiConsumer.class ),
+            MethodType.methodType( void.class, Object.class, Object.class ),
+            handle,
+            MethodType.methodType( void.class, method.getDeclaringClass(), Primitives.wrap( method.getParameterTypes()[0] ) ) );
+
+        return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+    }
+}
@@ -0,0 +1,144 @@
+package org.hisp.dhis.schema;
+
+/*
+ * Copyright (c) 2004-2018, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+
+public class LambdaPropertyAccessorTest
+{
+    public static class Bean
+    {
+        private String name;
+
+        private int count;
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public void setName( String name )
+        {
+            this.name = name;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public void setCount( int count )
+        {
+            this.count = count;
+        }
+    }
+
+    static class HiddenBean
+    {
+        private String name;
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public void setName( String name )
+        {
+            this.name = name;
+        }
+    }
+
+    @Test
+    public void testGetAndSetObjectProperty() throws Exception
+    {
+        PropertyAccessor accessor = LambdaPropertyAccessor.create( createProperty( Bean.class, "Name", String.class ) );
+        assertTrue( accessor instanceof LambdaPropertyAccessor );
+
+        Bean bean = new Bean();
+        accessor.set( bean, "DHIS2" );
+
+        assertEquals( "DHIS2", bean.getName() );
+        assertEquals( "DHIS2", accessor.get( bean ) );
+
+        accessor.set( bean, null );
+        assertNull( accessor.get( bean ) );
+    }
+
+    @Test
+    public void testGetAndSetPrimitiveProperty() throws Exception
+    {
+        PropertyAccessor accessor = LambdaPropertyAccessor.create( createProperty( Bean.class, "Count", int.class ) );
+        assertTrue( accessor instanceof LambdaPropertyAccessor );
+
+        Bean bean = new Bean();
+        accessor.set( bean, 42 );
+
+        assertEquals( 42, bean.getCount() );
+        assertEquals( 42, accessor.get( bean ) );
+    }
+
+    @Test
+    public void testNullTarget() throws Exception
+    {
+        PropertyAccessor accessor = LambdaPropertyAccessor.create( createProperty( Bean.class, "Name", String.class ) );
+
+        assertNull( accessor.get( null ) );
+        accessor.set( null, "DHIS2" );
+    }
+
+    @Test
+    public void testFallbackToReflectionForNonPublicClass() throws Exception
+    {
+        PropertyAccessor accessor = LambdaPropertyAccessor.create( createProperty( HiddenBean.class, "Name", String.class ) );
+        assertFalse( accessor instanceof LambdaPropertyAccessor );
+
+        HiddenBean bean = new HiddenBean();
+        accessor.set( bean, "DHIS2" );
+
+        assertEquals( "DHIS2", accessor.get( bean ) );
+    }
+
+    private Property createProperty( Class<?> klass, String name, Class<?> type ) throws Exception
+    {
+        Method getter = klass.getMethod( "get" + name );
+        Method setter = klass.getMethod( "set" + name, type );
+
+        Property property = new Property( klass, getter, setter );
+        property.setName( name );
+
+        return property;
+    }
+}
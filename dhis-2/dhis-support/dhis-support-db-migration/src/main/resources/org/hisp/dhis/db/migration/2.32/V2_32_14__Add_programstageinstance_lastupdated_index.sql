@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS in_programstageinstance_lastupdated_id ON programstageinstance (lastupdated, programstageinstanceid);
@@ -0,0 +1,2 @@
+-- Spatial index used by coordinate and distance lookups of organisation units
+CREATE INDEX IF NOT EXISTS in_organisationunit_geometry ON organisationunit USING GIST (geometry);
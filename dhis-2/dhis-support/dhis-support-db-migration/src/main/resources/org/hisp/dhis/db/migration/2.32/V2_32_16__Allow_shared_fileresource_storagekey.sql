@@ -0,0 +1,17 @@
+-- File resources with identical content share the stored content, so the storage key is no longer unique
+
+do $$
+declare
+  constraint_name text;
+begin
+  for constraint_name in
+    select tc.constraint_name from information_schema.table_constraints tc
+    inner join information_schema.constraint_column_usage ccu on tc.constraint_name = ccu.constraint_name
+    where tc.table_name = 'fileresource' and tc.constraint_type = 'UNIQUE' and ccu.column_name = 'storagekey'
+  loop
+    execute 'alter table fileresource drop constraint if exists ' || quote_ident( constraint_name );
+  end loop;
+end $$;
+
+create index if not exists in_fileresource_storagekey on fileresource (storagekey);
+create index if not exists in_fileresource_contentmd5 on fileresource (contentmd5);
@@ -0,0 +1,7 @@
+-- Stored content is shared between file resources with the same SHA-256 hash, length and domain, as MD5 hashes can collide
+
+alter table fileresource add column if not exists contentsha256 character varying(64);
+
+drop index if exists in_fileresource_contentmd5;
+
+create index if not exists in_fileresource_contentsha256 on fileresource (contentsha256);
@@ -77,6 +77,17 @@ public enum ConfigurationKey
     PROGRAM_TEMPORARY_OWNERSHIP_TIMEOUT( "tracker.temporary.ownership.timeout", "3", false ),
     LEADER_TIME_TO_LIVE( "leader.time.to.live.minutes", "2", false ),
     ANALYTICS_CACHE_EXPIRATION( "analytics.cache.expiration", "0" ),
+    ANALYTICS_QUERY_MAX_CONCURRENT( "analytics.query.max_concurrent", "0" ),
+    ANALYTICS_QUERY_QUEUE_TIMEOUT( "analytics.query.queue_timeout", "300" ),
+    PROGRAM_RULE_ASYNC( "program_rule.async", "off" ),
+    PROGRAM_RULE_ASYNC_THREADS( "program_rule.async.threads", "2" ),
+    PROGRAM_RULE_ASYNC_QUEUE_SIZE( "program_rule.async.queue_size", "10000" ),
+    PROGRAM_RULE_ASYNC_WINDOW( "program_rule.async.window", "500" ),
+    AUDIT_ASYNC( "audit.async", "off" ),
+    AUDIT_ASYNC_QUEUE_SIZE( "audit.async.queue_size", "50000" ),
+    AUDIT_ASYNC_FLUSH_SIZE( "audit.async.flush_size", "1000" ),
+    AUDIT_ASYNC_FLUSH_INTERVAL( "audit.async.flush_interval", "1000" ),
+    RESERVED_VALUE_POOL_SIZE( "reserved_value.pool.size", "200" ),
     AMQP_MODE( "amqp.mode", "EMBEDDED" ),
     AMQP_HOST( "amqp.host", "127.0.0.1" ),
     AMQP_PORT( "amqp.port", "15672" ),
@@ -42,6 +42,7 @@ import org.hisp.dhis.system.grid.GridUtils;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -51,6 +52,7 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletResponse;
 import java.util.Date;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hisp.dhis.common.DimensionalObjectUtils.getItemsFromParam;
@@ -72,6 +74,9 @@ public class AnalyticsController
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private AnalyticsQueryScheduler analyticsQueryScheduler;
+
     @Autowired
     private ContextUtils contextUtils;
 
@@ -447,6 +452,13 @@ public class AnalyticsController
         GridUtils.toJrxml( grid, null, response.getWriter() );
     }
 
+    @RequestMapping( value = RESOURCE_PATH + "/debug/queryScheduler", method = RequestMethod.GET, produces = { "application/json" } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public @ResponseBody Map<String, Number> getQuerySchedulerStatistics()
+    {
+        return analyticsQueryScheduler.getStatistics();
+    }
+
     @RequestMapping( value = RESOURCE_PATH + "/debug/sql", method = RequestMethod.GET, produces = { "text/html", "text/plain" } )
     public @ResponseBody String getDebugSql(
         @RequestParam Set<String> dimension,
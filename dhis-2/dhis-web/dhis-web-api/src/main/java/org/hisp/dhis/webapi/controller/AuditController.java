@@ -31,6 +31,7 @@ package org.hisp.dhis.webapi.controller;
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteSource;
 import org.apache.commons.io.IOUtils;
+import org.hisp.dhis.common.AuditQueue;
 import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.common.IdentifiableObjectManager;
@@ -83,6 +84,7 @@ import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.service.ContextService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
@@ -94,6 +96,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -136,6 +139,19 @@ public class AuditController
     @Autowired
     private FileResourceService fileResourceService;
 
+    @Autowired
+    private AuditQueue auditQueue;
+
+    /**
+     * Returns the statistics of the asynchronous audit queue.
+     */
+    @RequestMapping( value = "/queue", method = RequestMethod.GET, produces = { "application/json" } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public @ResponseBody Map<String, Number> getQueueStatistics()
+    {
+        return auditQueue.getStatistics();
+    }
+
     /**
      * Returns the file with the given uid
      *
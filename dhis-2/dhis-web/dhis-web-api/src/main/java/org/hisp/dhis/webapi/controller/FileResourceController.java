@@ -28,11 +28,8 @@ package org.hisp.dhis.webapi.controller;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.NullInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -62,10 +59,10 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 
 /**
@@ -111,7 +108,7 @@ public class FileResourceController
     }
 
     @GetMapping( value = "/{uid}/data" )
-    public void getFileResourceData( @PathVariable String uid, HttpServletResponse response )
+    public void getFileResourceData( @PathVariable String uid, HttpServletRequest request, HttpServletResponse response )
         throws WebMessageException
     {
         FileResource fileResource = fileResourceService.getFileResource( uid );
@@ -127,6 +124,11 @@ public class FileResourceController
                 WebMessageUtils.unathorized( "You don't have access to fileResource '" + uid + "' or this fileResource is not available from this endpoint" ) );
         }
 
+        if ( FileResourceUtils.checkNotModified( request, response, FileResourceUtils.getEtag( fileResource ) ) )
+        {
+            return;
+        }
+
         ByteSource content = fileResourceService.getFileResourceContent( fileResource );
 
         if ( content == null )
@@ -149,21 +151,13 @@ public class FileResourceController
             return;
         }
 
-        // ---------------------------------------------------------------------
-        // Build response and return
-        // ---------------------------------------------------------------------
-
-        response.setContentType( fileResource.getContentType() );
-        response.setContentLength( new Long( fileResource.getContentLength() ).intValue() );
-        response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
-
         // ---------------------------------------------------------------------
         // Request signing is not available, stream content back to client
         // ---------------------------------------------------------------------
 
-        try (InputStream in = content.openStream())
+        try
         {
-            IOUtils.copy( in, response.getOutputStream() );
+            FileResourceUtils.writeContent( request, response, fileResource, content );
         }
         catch ( IOException e )
         {
@@ -196,14 +190,12 @@ public class FileResourceController
             throw new WebMessageException( WebMessageUtils.conflict( "Could not read file or file is empty." ) );
         }
 
-        ByteSource bytes = new MultipartFileByteSource( file );
+        File tmpFile = FileResourceUtils.toTempFile( file );
 
-        String contentMd5 = bytes.hash( Hashing.md5() ).toString();
+        String contentMd5 = FileResourceUtils.computeContentMd5( tmpFile );
 
         FileResource fileResource = new FileResource( filename, contentType, contentLength, contentMd5, domain );
 
-        File tmpFile = FileResourceUtils.toTempFile( file );
-
         String uid = fileResourceService.saveFileResource( fileResource, tmpFile );
 
         if ( uid == null )
@@ -242,33 +234,4 @@ public class FileResourceController
 
         return false;
     }
-
-    // -------------------------------------------------------------------------
-    // Inner classes
-    // -------------------------------------------------------------------------
-
-    private class MultipartFileByteSource
-        extends ByteSource
-    {
-        private MultipartFile file;
-
-        public MultipartFileByteSource( MultipartFile file )
-        {
-            this.file = file;
-        }
-
-        @Override
-        public InputStream openStream()
-            throws IOException
-        {
-            try
-            {
-                return file.getInputStream();
-            }
-            catch ( IOException ioe )
-            {
-                return new NullInputStream( 0 );
-            }
-        }
-    }
 }
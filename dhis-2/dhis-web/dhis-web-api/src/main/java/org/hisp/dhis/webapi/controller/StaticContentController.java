@@ -201,7 +201,7 @@ public class StaticContentController
         try
         {
             String fileKey = contentStore.saveFileResourceContent(
-                FileResourceUtils.build( key, file, DEFAULT_RESOURCE_DOMAIN ), file.getBytes() );
+                FileResourceUtils.build( key, file, DEFAULT_RESOURCE_DOMAIN ), FileResourceUtils.toTempFile( file ) );
 
             if ( fileKey == null )
             {
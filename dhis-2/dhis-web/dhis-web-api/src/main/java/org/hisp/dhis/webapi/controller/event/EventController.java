@@ -28,16 +28,17 @@ package org.hisp.dhis.webapi.controller.event;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteSource;
 import com.vividsolutions.jts.io.ParseException;
-import org.apache.commons.io.IOUtils;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
+import org.hisp.dhis.common.Pager;
 import org.hisp.dhis.common.PagerUtils;
 import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.commons.util.StreamUtils;
@@ -48,11 +49,13 @@ import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.common.OrderParams;
 import org.hisp.dhis.dxf2.events.event.DataValue;
 import org.hisp.dhis.dxf2.events.event.Event;
+import org.hisp.dhis.dxf2.events.event.EventPageCursor;
 import org.hisp.dhis.dxf2.events.event.EventSearchParams;
 import org.hisp.dhis.dxf2.events.event.EventService;
 import org.hisp.dhis.dxf2.events.event.Events;
 import org.hisp.dhis.dxf2.events.event.ImportEventsTask;
 import org.hisp.dhis.dxf2.events.event.csv.CsvEventService;
+import org.hisp.dhis.dxf2.events.event.csv.CsvEventWriter;
 import org.hisp.dhis.dxf2.events.report.EventRowService;
 import org.hisp.dhis.dxf2.events.report.EventRows;
 import org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstanceService;
@@ -79,6 +82,7 @@ import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramStageInstanceService;
 import org.hisp.dhis.program.ProgramStatus;
 import org.hisp.dhis.query.Order;
+import org.hisp.dhis.render.DefaultRenderService;
 import org.hisp.dhis.render.RenderService;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.SchedulingManager;
@@ -90,6 +94,7 @@ import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.service.ContextService;
 import org.hisp.dhis.webapi.service.WebMessageService;
 import org.hisp.dhis.webapi.utils.ContextUtils;
+import org.hisp.dhis.webapi.utils.FileResourceUtils;
 import org.hisp.dhis.webapi.webdomain.WebOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -101,12 +106,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -232,6 +239,8 @@ public class EventController
         @RequestParam( required = false ) Set<String> filter,
         @RequestParam( required = false ) Set<String> dataElement,
         @RequestParam( required = false, defaultValue = "false" ) boolean includeAllDataElements,
+        @RequestParam( required = false ) boolean cursorPaging,
+        @RequestParam( required = false ) String pageCursor,
         @RequestParam Map<String, String> parameters, IdSchemes idSchemes, Model model, HttpServletResponse response, HttpServletRequest request )
         throws WebMessageException
     {
@@ -260,10 +269,15 @@ public class EventController
             idSchemes, page, pageSize, totalPages, skipPaging, null, getGridOrderParams( order ), false, eventIds, filter,
             dataElement, includeAllDataElements, includeDeleted );
 
+        setCursorPaging( params, cursorPaging, pageCursor );
+
         contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_JSON, CacheStrategy.NO_CACHE );
 
-        return eventService.getEventsGrid( params );
+        Grid grid = eventService.getEventsGrid( params );
+
+        setCursorPagerLinks( params, (Pager) grid.getMetaData().get( EventSearchParams.PAGER_META_KEY ), request );
 
+        return grid;
     }
 
     @RequestMapping( value = "/query", method = RequestMethod.GET, produces = ContextUtils.CONTENT_TYPE_XML )
@@ -493,6 +507,8 @@ public class EventController
         @RequestParam( required = false, defaultValue = "false" ) boolean includeDeleted,
         @RequestParam( required = false ) String event,
         @RequestParam( required = false ) Set<String> filter,
+        @RequestParam( required = false ) boolean cursorPaging,
+        @RequestParam( required = false ) String pageCursor,
         @RequestParam Map<String, String> parameters, IdSchemes idSchemes, Model model, HttpServletResponse response, HttpServletRequest request )
         throws WebMessageException
     {
@@ -520,8 +536,12 @@ public class EventController
             idSchemes, page, pageSize, totalPages, skipPaging, getOrderParams( order ), getGridOrderParams( order, dataElementOrders ), false, eventIds, filter, dataElementOrders.keySet(), false,
             includeDeleted );
 
+        setCursorPaging( params, cursorPaging, pageCursor );
+
         Events events = eventService.getEvents( params );
 
+        setCursorPagerLinks( params, events.getPager(), request );
+
         if ( hasHref( fields ) )
         {
             events.getEvents().forEach( e -> e.setHref( ContextUtils.getRootPath( request ) + RESOURCE_PATH + "/" + e.getEvent() ) );
@@ -604,8 +624,6 @@ public class EventController
             idSchemes, page, pageSize, totalPages, skipPaging, schemaOrders, getGridOrderParams( order, dataElementOrders ), false, eventIds, filter, dataElementOrders.keySet(), false,
             includeDeleted );
 
-        Events events = eventService.getEvents( params );
-
         OutputStream outputStream = response.getOutputStream();
         response.setContentType( "application/csv" );
 
@@ -621,7 +639,30 @@ public class EventController
             response.addHeader( "Content-Disposition", "attachment; filename=" + attachment );
         }
 
-        csvEventService.writeEvents( outputStream, events, !skipHeader );
+        if ( skipPaging )
+        {
+            // Write each event as it is read to avoid holding the export in memory
+
+            try ( CsvEventWriter writer = csvEventService.getEventWriter( outputStream, !skipHeader ) )
+            {
+                eventService.streamEvents( params, ev -> {
+                    try
+                    {
+                        writer.write( ev );
+                    }
+                    catch ( IOException ex )
+                    {
+                        throw new UncheckedIOException( ex );
+                    }
+                } );
+            }
+        }
+        else
+        {
+            Events events = eventService.getEvents( params );
+
+            csvEventService.writeEvents( outputStream, events, !skipHeader );
+        }
     }
 
     @RequestMapping( value = "/eventRows", method = RequestMethod.GET )
@@ -643,16 +684,76 @@ public class EventController
         @RequestParam Map<String, String> parameters, Model model )
         throws WebMessageException
     {
-        CategoryOptionCombo attributeOptionCombo = inputUtils.getAttributeOptionCombo( attributeCc, attributeCos, true );
+        EventSearchParams params = getEventRowsParams( program, orgUnit, ouMode, programStatus, eventStatus, startDate,
+            endDate, attributeCc, attributeCos, totalPages, skipPaging, paging, order, includeDeleted );
 
-        skipPaging = PagerUtils.isSkipPaging( skipPaging, paging );
+        return eventRowService.getEventRows( params );
+    }
 
-        EventSearchParams params = eventService.getFromUrl( program, null, programStatus, null,
-            orgUnit, ouMode, null, startDate, endDate, null, null, null, null, eventStatus, attributeOptionCombo,
-            null, null, null, totalPages, skipPaging, getOrderParams( order ), null, true, null, null, null, false,
-            includeDeleted );
+    @RequestMapping( value = "/eventRows", method = RequestMethod.GET, produces = "application/json" )
+    public void getEventRowsJson(
+        @RequestParam( required = false ) String program,
+        @RequestParam( required = false ) String orgUnit,
+        @RequestParam( required = false ) OrganisationUnitSelectionMode ouMode,
+        @RequestParam( required = false ) ProgramStatus programStatus,
+        @RequestParam( required = false ) EventStatus eventStatus,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam( required = false ) String attributeCc,
+        @RequestParam( required = false ) String attributeCos,
+        @RequestParam( required = false ) boolean totalPages,
+        @RequestParam( required = false ) Boolean skipPaging,
+        @RequestParam( required = false ) Boolean paging,
+        @RequestParam( required = false ) String order,
+        @RequestParam( required = false, defaultValue = "false" ) boolean includeDeleted,
+        HttpServletResponse response )
+        throws WebMessageException, IOException
+    {
+        EventSearchParams params = getEventRowsParams( program, orgUnit, ouMode, programStatus, eventStatus, startDate,
+            endDate, attributeCc, attributeCos, totalPages, skipPaging, paging, order, includeDeleted );
 
-        return eventRowService.getEventRows( params );
+        response.setContentType( ContextUtils.CONTENT_TYPE_JSON );
+
+        if ( !params.isSkipPaging() )
+        {
+            renderService.toJson( response.getOutputStream(), eventRowService.getEventRows( params ) );
+            return;
+        }
+
+        // Write each event row as it is read to avoid holding the export in memory
+
+        try ( JsonGenerator generator = DefaultRenderService.getJsonMapper().getFactory().createGenerator( response.getOutputStream() ) )
+        {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart( "eventRows" );
+
+            eventRowService.streamEventRows( params, eventRow -> {
+                try
+                {
+                    generator.writeObject( eventRow );
+                }
+                catch ( IOException ex )
+                {
+                    throw new UncheckedIOException( ex );
+                }
+            } );
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private EventSearchParams getEventRowsParams( String program, String orgUnit, OrganisationUnitSelectionMode ouMode,
+        ProgramStatus programStatus, EventStatus eventStatus, Date startDate, Date endDate, String attributeCc,
+        String attributeCos, boolean totalPages, Boolean skipPaging, Boolean paging, String order, boolean includeDeleted )
+        throws WebMessageException
+    {
+        CategoryOptionCombo attributeOptionCombo = inputUtils.getAttributeOptionCombo( attributeCc, attributeCos, true );
+
+        return eventService.getFromUrl( program, null, programStatus, null,
+            orgUnit, ouMode, null, startDate, endDate, null, null, null, null, eventStatus, attributeOptionCombo,
+            null, null, null, totalPages, PagerUtils.isSkipPaging( skipPaging, paging ), getOrderParams( order ), null,
+            true, null, null, null, false, includeDeleted );
     }
 
     @RequestMapping( value = "/{uid}", method = RequestMethod.GET )
@@ -737,6 +838,11 @@ public class EventController
             throw new WebMessageException( webMessage );
         }
 
+        if ( FileResourceUtils.checkNotModified( request, response, FileResourceUtils.getEtag( fileResource ) ) )
+        {
+            return;
+        }
+
         ByteSource content = fileResourceService.getFileResourceContent( fileResource );
 
         if ( content == null )
@@ -758,21 +864,13 @@ public class EventController
             return;
         }
 
-        // ---------------------------------------------------------------------
-        // Build response and return
-        // ---------------------------------------------------------------------
-
-        response.setContentType( fileResource.getContentType() );
-        response.setContentLength( new Long( fileResource.getContentLength() ).intValue() );
-        response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
-
         // ---------------------------------------------------------------------
         // Request signing is not available, stream content back to client
         // ---------------------------------------------------------------------
 
-        try ( InputStream inputStream = content.openStream() )
+        try
         {
-            IOUtils.copy( inputStream, response.getOutputStream() );
+            FileResourceUtils.writeContent( request, response, fileResource, content );
         }
         catch ( IOException e )
         {
@@ -1102,6 +1200,36 @@ public class EventController
         return dataElementOrderList;
     }
 
+    private void setCursorPaging( EventSearchParams params, boolean cursorPaging, String pageCursor )
+    {
+        params.setCursorPaging( cursorPaging );
+
+        if ( !StringUtils.isEmpty( pageCursor ) )
+        {
+            params.setPageCursor( EventPageCursor.decode( pageCursor ) );
+        }
+    }
+
+    /**
+     * Sets the next page link of the given pager for keyset paging, which is
+     * the request URL with the page cursor of the next page. The previous page
+     * link is not available for keyset paging.
+     */
+    private void setCursorPagerLinks( EventSearchParams params, Pager pager, HttpServletRequest request )
+    {
+        if ( pager == null || !params.isCursorPaging() )
+        {
+            return;
+        }
+
+        pager.setPrevPage( null );
+        pager.setNextPage( params.getNextPageCursor() != null ? ServletUriComponentsBuilder.fromRequest( request )
+            .replaceQueryParam( "page" )
+            .replaceQueryParam( "cursorPaging" )
+            .replaceQueryParam( "pageCursor", params.getNextPageCursor().encode() )
+            .build().toUriString() : null );
+    }
+
     private Map<Object, Object> getMetaData( Program program )
     {
         Map<Object, Object> metaData = new HashMap<>();
@@ -29,10 +29,17 @@ package org.hisp.dhis.webapi.controller.event;
  */
 
 import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.engine.ProgramRuleEvaluationQueue;
 import org.hisp.dhis.schema.descriptors.ProgramRuleSchemaDescriptor;
 import org.hisp.dhis.webapi.controller.AbstractCrudController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
 
 /**
  *
@@ -43,4 +50,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 public class ProgramRuleController
     extends AbstractCrudController<ProgramRule>
 {
+    @Autowired
+    private ProgramRuleEvaluationQueue programRuleEvaluationQueue;
+
+    /**
+     * Returns the statistics of the asynchronous program rule evaluation queue.
+     */
+    @RequestMapping( value = "/evaluationQueue", method = RequestMethod.GET, produces = { "application/json" } )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public @ResponseBody Map<String, Number> getEvaluationQueueStatistics()
+    {
+        return programRuleEvaluationQueue.getStatistics();
+    }
 }
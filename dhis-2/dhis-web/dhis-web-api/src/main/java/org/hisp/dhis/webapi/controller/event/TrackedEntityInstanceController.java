@@ -102,6 +102,7 @@ import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.service.ContextService;
 import org.hisp.dhis.webapi.service.WebMessageService;
 import org.hisp.dhis.webapi.utils.ContextUtils;
+import org.hisp.dhis.webapi.utils.FileResourceUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -351,6 +352,18 @@ public class TrackedEntityInstanceController
                 "The content requested is in transit to the file store and will be available at a later time." ) );
         }
 
+        // ---------------------------------------------------------------------
+        // The resized image is derived from the content, so the dimensions are
+        // part of the entity tag
+        // ---------------------------------------------------------------------
+
+        String etag = "\"" + fileResource.getContentMd5() + "-" + width + "x" + height + "\"";
+
+        if ( FileResourceUtils.checkNotModified( request, response, etag ) )
+        {
+            return;
+        }
+
         ByteSource content = fileResourceService.getFileResourceContent( fileResource );
 
         if ( content == null )
@@ -363,7 +376,6 @@ public class TrackedEntityInstanceController
         // ---------------------------------------------------------------------
 
         response.setContentType( fileResource.getContentType() );
-        response.setContentLength( new Long( fileResource.getContentLength() ).intValue() );
         response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
 
         URI uri = fileResourceService.getSignedGetFileResourceContentUri( value.getValue() );
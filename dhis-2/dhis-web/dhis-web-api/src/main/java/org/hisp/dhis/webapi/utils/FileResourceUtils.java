@@ -34,7 +34,9 @@ import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.util.Date;
+import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.FilenameUtils;
@@ -49,8 +51,10 @@ import org.hisp.dhis.fileresource.FileResourceService;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.util.InvalidMimeTypeException;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.google.common.hash.Hashing;
@@ -83,6 +87,103 @@ public class FileResourceUtils
         return tmpFile;
     }
 
+    /**
+     * Computes the MD5 hash of the content of the given file. The content is
+     * read incrementally and is never held in memory in its entirety.
+     *
+     * @param file the file.
+     * @return the hex encoded MD5 hash of the file content.
+     * @throws IOException if the file could not be read.
+     */
+    public static String computeContentMd5( File file )
+        throws IOException
+    {
+        return com.google.common.io.Files.asByteSource( file ).hash( Hashing.md5() ).toString();
+    }
+
+    /**
+     * Returns the entity tag of the content of the given file resource, which
+     * is the quoted MD5 hash of the content.
+     *
+     * @param fileResource the file resource.
+     * @return the entity tag.
+     */
+    public static String getEtag( FileResource fileResource )
+    {
+        return "\"" + fileResource.getContentMd5() + "\"";
+    }
+
+    /**
+     * Sets the given entity tag on the response and checks it against the
+     * If-None-Match header of the request. If the client already has the
+     * content, the response status is set to 304 Not Modified and nothing
+     * should be written to the response.
+     *
+     * @param request the request.
+     * @param response the response.
+     * @param etag the entity tag of the content.
+     * @return true if the content is not modified, false if not.
+     */
+    public static boolean checkNotModified( HttpServletRequest request, HttpServletResponse response, String etag )
+    {
+        if ( new ServletWebRequest( request, response ).checkNotModified( etag ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Streams the content of the given file resource to the response. A single
+     * byte range given by the Range header of the request is served as partial
+     * content. Multiple ranges, malformed ranges and ranges which do not match
+     * the If-Range header are ignored and the full content is served.
+     *
+     * @param request the request.
+     * @param response the response.
+     * @param fileResource the file resource.
+     * @param content the content of the file resource.
+     * @throws IOException if the content could not be read or written.
+     */
+    public static void writeContent( HttpServletRequest request, HttpServletResponse response,
+        FileResource fileResource, ByteSource content )
+        throws IOException
+    {
+        long length = fileResource.getContentLength();
+
+        response.setContentType( fileResource.getContentType() );
+        response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
+        response.setHeader( HttpHeaders.ACCEPT_RANGES, "bytes" );
+
+        HttpRange range = getRange( request, fileResource );
+
+        if ( range == null )
+        {
+            response.setContentLengthLong( length );
+            copy( content, response );
+            return;
+        }
+
+        long start = range.getRangeStart( length );
+        long end = range.getRangeEnd( length );
+
+        if ( length == 0 || start >= length || start > end )
+        {
+            response.setStatus( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+            response.setHeader( HttpHeaders.CONTENT_RANGE, "bytes */" + length );
+            return;
+        }
+
+        long rangeLength = end - start + 1;
+
+        response.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+        response.setHeader( HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length );
+        response.setContentLengthLong( rangeLength );
+        copy( content.slice( start, rangeLength ), response );
+    }
+
     /**
      * Indicates whether the content type represented by the given string is a
      * valid, known content type.
@@ -120,12 +221,18 @@ public class FileResourceUtils
         throws IOException
     {
         return new FileResource( key, file.getName(), file.getContentType(), file.getSize(),
-            ByteSource.wrap( file.getBytes() ).hash( Hashing.md5() ).toString(), domain );
+            new MultipartFileByteSource( file ).hash( Hashing.md5() ).toString(), domain );
     }
 
-    public void configureFileResourceResponse( HttpServletResponse response, FileResource fileResource )
+    public void configureFileResourceResponse( HttpServletRequest request, HttpServletResponse response,
+        FileResource fileResource )
         throws WebMessageException
     {
+        if ( checkNotModified( request, response, getEtag( fileResource ) ) )
+        {
+            return;
+        }
+
         ByteSource content = fileResourceService.getFileResourceContent( fileResource );
 
         if ( content == null )
@@ -147,21 +254,13 @@ public class FileResourceUtils
             return;
         }
 
-        // ---------------------------------------------------------------------
-        // Build response and return
-        // ---------------------------------------------------------------------
-
-        response.setContentType( fileResource.getContentType() );
-        response.setContentLength( new Long( fileResource.getContentLength() ).intValue() );
-        response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
-
         // ---------------------------------------------------------------------
         // Request signing is not available, stream content back to client
         // ---------------------------------------------------------------------
 
-        try (InputStream in = content.openStream())
+        try
         {
-            IOUtils.copy( in, response.getOutputStream() );
+            writeContent( request, response, fileResource, content );
         }
         catch ( IOException e )
         {
@@ -189,9 +288,9 @@ public class FileResourceUtils
             throw new WebMessageException( WebMessageUtils.conflict( "Could not read file or file is empty." ) );
         }
 
-        ByteSource bytes = new MultipartFileByteSource( file );
+        File tmpFile = toTempFile( file );
 
-        String contentMd5 = bytes.hash( Hashing.md5() ).toString();
+        String contentMd5 = computeContentMd5( tmpFile );
 
         FileResource fileResource = new FileResource( filename, contentType, contentLength, contentMd5,
             FileResourceDomain.DATA_VALUE );
@@ -200,8 +299,6 @@ public class FileResourceUtils
         fileResource.setUser( currentUserService.getCurrentUser() );
         fileResource.setDomain( domain );
 
-        File tmpFile = toTempFile( file );
-
         String uid = fileResourceService.saveFileResource( fileResource, tmpFile );
 
         if ( uid == null )
@@ -212,11 +309,46 @@ public class FileResourceUtils
         return fileResource;
     }
 
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static HttpRange getRange( HttpServletRequest request, FileResource fileResource )
+    {
+        String range = request.getHeader( HttpHeaders.RANGE );
+        String ifRange = request.getHeader( HttpHeaders.IF_RANGE );
+
+        if ( range == null || ( ifRange != null && !ifRange.equals( getEtag( fileResource ) ) ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            List<HttpRange> ranges = HttpRange.parseRanges( range );
+
+            return ranges.size() == 1 ? ranges.get( 0 ) : null;
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            return null;
+        }
+    }
+
+    private static void copy( ByteSource content, HttpServletResponse response )
+        throws IOException
+    {
+        try ( InputStream in = content.openStream() )
+        {
+            IOUtils.copyLarge( in, response.getOutputStream() );
+        }
+    }
+
     // -------------------------------------------------------------------------
     // Inner classes
     // -------------------------------------------------------------------------
 
-    private class MultipartFileByteSource
+    private static class MultipartFileByteSource
         extends
         ByteSource
     {